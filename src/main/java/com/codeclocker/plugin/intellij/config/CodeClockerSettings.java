@@ -0,0 +1,90 @@
+package com.codeclocker.plugin.intellij.config;
+
+import com.codeclocker.plugin.intellij.goal.GoalPersistence;
+import com.codeclocker.plugin.intellij.goal.ProjectGoalPersistence;
+import com.codeclocker.plugin.intellij.pomodoro.PomodoroPersistence;
+import com.codeclocker.plugin.intellij.tracking.TrackingPersistence;
+
+/**
+ * Immutable snapshot of the user settings and the config loaded from the hub. {@link
+ * SettingsService} holds the current one and replaces it as a whole when something is saved, so
+ * frequent readers get plain fields instead of {@code PropertiesComponent} lookups. The persistence
+ * classes stay the storage; settings dialogs read and write them directly.
+ */
+public record CodeClockerSettings(Tracking tracking, Goals goals, Pomodoro pomodoro, Hub hub) {
+
+  public record Tracking(
+      boolean pauseOnFocusLost, int inactivityTimeoutSeconds, boolean sharedStoreEnabled) {}
+
+  public record Goals(
+      boolean enabled, int dailyGoalMinutes, int weeklyGoalMinutes, boolean notificationsEnabled) {
+
+    public boolean hasDailyGoal() {
+      return dailyGoalMinutes > 0;
+    }
+
+    public boolean hasWeeklyGoal() {
+      return weeklyGoalMinutes > 0;
+    }
+  }
+
+  /**
+   * Goal settings of one project. Custom goals default to the global ones when never set.
+   *
+   * @param custom whether the project uses its own goals instead of the global ones
+   */
+  public record ProjectGoals(
+      boolean custom, int dailyGoalMinutes, int weeklyGoalMinutes, boolean notificationsEnabled) {
+
+    public int getEffectiveDailyGoalMinutes(Goals global) {
+      return custom ? dailyGoalMinutes : global.dailyGoalMinutes();
+    }
+
+    public int getEffectiveWeeklyGoalMinutes(Goals global) {
+      return custom ? weeklyGoalMinutes : global.weeklyGoalMinutes();
+    }
+  }
+
+  public record Pomodoro(
+      int workMinutes,
+      int shortBreakMinutes,
+      int longBreakMinutes,
+      int cyclesBeforeLongBreak,
+      boolean autoStartBreak,
+      boolean notificationsEnabled,
+      boolean useCodingTime) {}
+
+  public record Hub(int activityDataFlushFrequencySeconds, int checkApiKeyStatusFrequencySeconds) {}
+
+  static CodeClockerSettings load() {
+    return new CodeClockerSettings(
+        new Tracking(
+            TrackingPersistence.isPauseOnFocusLostEnabled(),
+            TrackingPersistence.getInactivityTimeoutSeconds(),
+            TrackingPersistence.isSharedStoreEnabled()),
+        new Goals(
+            GoalPersistence.isGoalsEnabled(),
+            GoalPersistence.getDailyGoalMinutes(),
+            GoalPersistence.getWeeklyGoalMinutes(),
+            GoalPersistence.isNotificationsEnabled()),
+        new Pomodoro(
+            PomodoroPersistence.getWorkMinutes(),
+            PomodoroPersistence.getShortBreakMinutes(),
+            PomodoroPersistence.getLongBreakMinutes(),
+            PomodoroPersistence.getCyclesBeforeLongBreak(),
+            PomodoroPersistence.isAutoStartBreak(),
+            PomodoroPersistence.isNotificationsEnabled(),
+            PomodoroPersistence.isUseCodingTime()),
+        new Hub(
+            ConfigProvider.loadActivityDataFlushFrequencySeconds(),
+            ConfigProvider.loadCheckApiKeyStatusFrequencySeconds()));
+  }
+
+  static ProjectGoals loadProjectGoals(String projectName) {
+    return new ProjectGoals(
+        ProjectGoalPersistence.hasCustomGoals(projectName),
+        ProjectGoalPersistence.getProjectDailyGoalMinutes(projectName),
+        ProjectGoalPersistence.getProjectWeeklyGoalMinutes(projectName),
+        ProjectGoalPersistence.isProjectNotificationsEnabled(projectName));
+  }
+}
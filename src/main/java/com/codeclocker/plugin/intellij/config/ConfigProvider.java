@@ -39,10 +39,18 @@ public class ConfigProvider {
   }
 
   public int getActivityDataFlushFrequencySeconds() {
-    return getProperty(ACTIVITY_DATA_FLUSH_FREQUENCY_SECONDS);
+    return getSettingsService().getSettings().hub().activityDataFlushFrequencySeconds();
   }
 
   public int getCheckApiKeyStatusFrequencySeconds() {
+    return getSettingsService().getSettings().hub().checkApiKeyStatusFrequencySeconds();
+  }
+
+  static int loadActivityDataFlushFrequencySeconds() {
+    return getProperty(ACTIVITY_DATA_FLUSH_FREQUENCY_SECONDS);
+  }
+
+  static int loadCheckApiKeyStatusFrequencySeconds() {
     return getProperty(CHECK_API_KEY_STATE_FREQUENCY_SECONDS);
   }
 
@@ -76,8 +84,13 @@ public class ConfigProvider {
           String.valueOf(config.checkApiKeyStateFrequencySeconds()));
       propertiesComponent.setValue(
           NEXT_CONFIG_LOAD_TIMESTAMP, String.valueOf(nextConfigLoadTimestamp.toMillis()));
+      getSettingsService().reload();
     } catch (Exception e) {
       LOG.debug("Error loading config from hub: {}", e.getMessage());
     }
   }
+
+  private static SettingsService getSettingsService() {
+    return ApplicationManager.getApplication().getService(SettingsService.class);
+  }
 }
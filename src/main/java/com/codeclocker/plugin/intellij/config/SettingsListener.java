@@ -0,0 +1,15 @@
+package com.codeclocker.plugin.intellij.config;
+
+import com.intellij.util.messages.Topic;
+
+/** Notified on the application message bus after {@link SettingsService#reload()}. */
+public interface SettingsListener {
+
+  Topic<SettingsListener> TOPIC = Topic.create("CodeClocker settings", SettingsListener.class);
+
+  /**
+   * Called after settings were saved. Per-project goals are not part of the snapshot, so
+   * subscribers that depend on them should re-read them too.
+   */
+  void settingsChanged(CodeClockerSettings settings);
+}
@@ -0,0 +1,41 @@
+package com.codeclocker.plugin.intellij.config;
+
+import com.codeclocker.plugin.intellij.config.CodeClockerSettings.ProjectGoals;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the current {@link CodeClockerSettings}. Whoever writes settings calls {@link #reload()}
+ * once afterwards; everything else only reads the snapshot.
+ */
+@Service(Service.Level.APP)
+public final class SettingsService {
+
+  private volatile CodeClockerSettings settings = CodeClockerSettings.load();
+
+  /** Per-project goals, loaded on first use and dropped on every reload. */
+  private volatile Map<String, ProjectGoals> projectGoals = new ConcurrentHashMap<>();
+
+  public CodeClockerSettings getSettings() {
+    return settings;
+  }
+
+  public ProjectGoals getProjectGoals(String projectName) {
+    return projectGoals.computeIfAbsent(projectName, CodeClockerSettings::loadProjectGoals);
+  }
+
+  /** Rebuilds the snapshot from storage and notifies {@link SettingsListener} subscribers. */
+  public void reload() {
+    CodeClockerSettings updated = CodeClockerSettings.load();
+    synchronized (this) {
+      projectGoals = new ConcurrentHashMap<>();
+      settings = updated;
+    }
+    ApplicationManager.getApplication()
+        .getMessageBus()
+        .syncPublisher(SettingsListener.TOPIC)
+        .settingsChanged(updated);
+  }
+}
@@ -1,25 +1,34 @@
 package com.codeclocker.plugin.intellij.dashboard;
 
-import com.codeclocker.plugin.intellij.local.LocalActivityDataProvider;
+import com.codeclocker.plugin.intellij.local.LifetimeStats;
+import com.codeclocker.plugin.intellij.local.LiveActivityView;
 import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
-import com.codeclocker.plugin.intellij.services.TimeSpentPerProjectLogger;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Dimension;
+import com.codeclocker.plugin.intellij.local.query.ActivityQueryEngine;
+import com.codeclocker.plugin.intellij.local.query.ActivityQueryResult;
+import com.codeclocker.plugin.intellij.local.query.ActivityRangeIndex;
+import com.codeclocker.plugin.intellij.local.query.ActivityRangeIndex.Totals;
+import com.codeclocker.plugin.intellij.local.query.ActivityRow;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import org.jetbrains.annotations.Nullable;
 
-/** Computes all dashboard metrics from local activity data. */
+/** Computes all dashboard metrics from local activity data using {@link ActivityQueryEngine}. */
 @Service(Service.Level.APP)
 public final class DashboardDataService {
 
@@ -31,7 +40,9 @@ public final class DashboardDataService {
     LAST_7_DAYS("7d"),
     LAST_30_DAYS("30d"),
     THIS_WEEK("This Week"),
-    THIS_MONTH("This Month");
+    THIS_MONTH("This Month"),
+    /** A {@link DateRange} picked by the user. */
+    CUSTOM("Custom");
 
     private final String label;
 
@@ -71,225 +82,302 @@ public final class DashboardDataService {
       long lifetimeLines,
       LocalDate firstActivityDate) {}
 
-  public DashboardData computeForPeriod(TimePeriod period) {
-    Map<String, Map<String, ProjectActivitySnapshot>> allData = getAllDataWithUnsaved();
+  /** Inclusive local date range for {@link TimePeriod#CUSTOM}. */
+  public record DateRange(LocalDate from, LocalDate to) {}
+
+  /** Everything the dashboard shows for one period, computed from a single data snapshot. */
+  public record DashboardResult(
+      DashboardData data,
+      List<TimelineDataPoint> timeline,
+      List<ProjectBreakdownEntry> projectBreakdown,
+      List<BranchBreakdownEntry> branchBreakdown,
+      ProjectTimelineData projectTimeline) {}
+
+  /**
+   * What the results depend on besides the period: the {@link LiveActivityView} version and the
+   * current local hour (periods are relative to now).
+   */
+  private record DataState(long liveVersion, String localHourKey) {}
+
+  /** Live data of one {@link DataState}, with its range index. */
+  private record DataSnapshot(
+      DataState state,
+      Map<String, Map<String, ProjectActivitySnapshot>> data,
+      long unsavedSeconds,
+      ActivityRangeIndex index) {}
+
+  /**
+   * A period resolved against the current time, as its first and last hour (inclusive). Daily
+   * ranges span whole days.
+   */
+  private record ResolvedRange(LocalDateTime fromHour, LocalDateTime toHour, boolean hourly) {
+
+    static ResolvedRange ofDays(LocalDate from, LocalDate to) {
+      return new ResolvedRange(from.atStartOfDay(), to.atTime(23, 0), false);
+    }
 
-    LocalDate today = LocalDate.now();
-    LocalDate periodStart = getPeriodStart(period, today);
-    LocalDate periodEnd = getPeriodEnd(period, today);
-
-    // Aggregate for current period
-    long totalTime = 0;
-    long totalAdditions = 0;
-    long totalRemovals = 0;
-    Set<String> activeDays = new HashSet<>();
-
-    // For LAST_24_HOURS, we need hour-level filtering
-    LocalDateTime cutoff24h =
-        period == TimePeriod.LAST_24_HOURS ? LocalDateTime.now().minusHours(24) : null;
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String hourKey = entry.getKey();
-      if (!isInPeriod(hourKey, periodStart, periodEnd, cutoff24h)) {
-        continue;
-      }
-      String dateStr = extractDate(hourKey);
-      activeDays.add(dateStr);
-      for (ProjectActivitySnapshot snapshot : entry.getValue().values()) {
-        totalTime += snapshot.getCodedTimeSeconds();
-        totalAdditions += snapshot.getAdditions();
-        totalRemovals += snapshot.getRemovals();
+    LocalDate fromDate() {
+      return fromHour.toLocalDate();
+    }
+
+    LocalDate toDate() {
+      return toHour.toLocalDate();
+    }
+
+    /** The range of the same length right before this one. */
+    ResolvedRange previous() {
+      if (hourly) {
+        long hours = ChronoUnit.HOURS.between(fromHour, toHour) + 1;
+        return new ResolvedRange(fromHour.minusHours(hours), toHour.minusHours(hours), true);
       }
+      long days = ChronoUnit.DAYS.between(fromDate(), toDate()) + 1;
+      return ofDays(fromDate().minusDays(days), toDate().minusDays(days));
     }
 
-    int uniqueActiveDays = activeDays.size();
-    long dailyAverage = uniqueActiveDays > 0 ? totalTime / uniqueActiveDays : 0;
+    ActivityQuery.Builder query() {
+      return ActivityQuery.builder().betweenHours(fromHour, toHour);
+    }
 
-    // Trend: compare with previous period of same length
-    int trendPercentage = computeTrend(allData, period, today, totalTime);
-
-    // Streaks from all data
-    int[] streaks = computeStreaks(allData);
-    int currentStreak = streaks[0];
-    int longestStreak = streaks[1];
-
-    // Lifetime stats from all data
-    Set<String> lifetimeActiveDays = new HashSet<>();
-    Set<String> lifetimeProjects = new HashSet<>();
-    long lifetimeTime = 0;
-    long lifetimeLines = 0;
-    LocalDate firstDate = null;
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String dateStr = extractDate(entry.getKey());
-      boolean hasActivity = false;
-      for (Map.Entry<String, ProjectActivitySnapshot> projEntry : entry.getValue().entrySet()) {
-        ProjectActivitySnapshot snapshot = projEntry.getValue();
-        if (snapshot.getCodedTimeSeconds() > 0
-            || snapshot.getAdditions() > 0
-            || snapshot.getRemovals() > 0) {
-          hasActivity = true;
-          lifetimeProjects.add(projEntry.getKey());
+    Totals totals(ActivityRangeIndex index) {
+      return hourly ? index.betweenHours(fromHour, toHour) : index.between(fromDate(), toDate());
+    }
+  }
+
+  private static final int MAX_CACHED_RESULTS = 16;
+
+  private final Map<ResolvedRange, DashboardResult> resultCache =
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ResolvedRange, DashboardResult> eldest) {
+          return size() > MAX_CACHED_RESULTS;
         }
-        lifetimeTime += snapshot.getCodedTimeSeconds();
-        lifetimeLines += snapshot.getAdditions() + snapshot.getRemovals();
+      };
+
+  private DataSnapshot cachedSnapshot;
+
+  /**
+   * Index of the persisted data, kept while only unsaved seconds change. Guarded by resultCache.
+   */
+  private ActivityRangeIndex persistedIndex;
+
+  private long persistedIndexVersion = -1;
+
+  /**
+   * Computes all dashboard sections for the period ({@code customRange} is only used for {@link
+   * TimePeriod#CUSTOM}). Data is materialized and indexed once per data state, the sections are
+   * computed from it in parallel, and results are cached until the data changes, so switching
+   * between ranges that were already shown is instant. Range totals and trends come from the {@link
+   * ActivityRangeIndex} and do not depend on how much history there is. The persisted data is only
+   * indexed when it changed; unsaved seconds of the running session are laid on top.
+   */
+  public DashboardResult compute(TimePeriod period, @Nullable DateRange customRange) {
+    ResolvedRange range = resolve(period, customRange);
+    LiveActivityView.Snapshot live =
+        ApplicationManager.getApplication().getService(LiveActivityView.class).snapshot();
+    DataState state = new DataState(live.version(), LocalDateTime.now().format(HOUR_KEY_FORMATTER));
+    DataSnapshot snapshot;
+    synchronized (resultCache) {
+      if (cachedSnapshot != null && !cachedSnapshot.state().equals(state)) {
+        cachedSnapshot = null;
+        resultCache.clear();
       }
-      if (hasActivity) {
-        lifetimeActiveDays.add(dateStr);
-        try {
-          LocalDate date = LocalDate.parse(dateStr);
-          if (firstDate == null || date.isBefore(firstDate)) {
-            firstDate = date;
-          }
-        } catch (Exception ignored) {
+      if (cachedSnapshot != null) {
+        DashboardResult cached = resultCache.get(range);
+        if (cached != null) {
+          return cached;
         }
       }
+      snapshot = cachedSnapshot;
     }
 
-    return new DashboardData(
-        totalTime,
-        dailyAverage,
-        totalAdditions,
-        totalRemovals,
-        trendPercentage,
-        currentStreak,
-        longestStreak,
-        lifetimeActiveDays.size(),
-        lifetimeTime,
-        lifetimeProjects.size(),
-        lifetimeLines,
-        firstDate);
+    if (snapshot == null) {
+      snapshot =
+          new DataSnapshot(
+              state,
+              live.data(),
+              live.unsavedSeconds(),
+              getIndex(live).withOverlay(live.unsaved()));
+    }
+
+    DataSnapshot input = snapshot;
+    ExecutorService executor = AppExecutorUtil.getAppExecutorService();
+    CompletableFuture<DashboardData> data =
+        CompletableFuture.supplyAsync(() -> computeForPeriod(input, range), executor);
+    CompletableFuture<List<TimelineDataPoint>> timeline =
+        CompletableFuture.supplyAsync(() -> computeTimelineData(input, range), executor);
+    CompletableFuture<List<ProjectBreakdownEntry>> projects =
+        CompletableFuture.supplyAsync(() -> computeProjectBreakdown(input, range), executor);
+    CompletableFuture<List<BranchBreakdownEntry>> branches =
+        CompletableFuture.supplyAsync(() -> computeBranchBreakdown(input, range), executor);
+    ProjectTimelineData projectTimeline = computeProjectTimeline(input, range);
+
+    DashboardResult result =
+        new DashboardResult(
+            data.join(), timeline.join(), projects.join(), branches.join(), projectTimeline);
+    synchronized (resultCache) {
+      if (cachedSnapshot == null) {
+        cachedSnapshot = snapshot;
+      }
+      // Data may have changed while computing; only cache results for the state they came from
+      if (cachedSnapshot.state().equals(state)) {
+        resultCache.put(range, result);
+      }
+    }
+    return result;
   }
 
-  public List<TimelineDataPoint> computeTimelineData(TimePeriod period) {
-    Map<String, Map<String, ProjectActivitySnapshot>> allData = getAllDataWithUnsaved();
-    LocalDate today = LocalDate.now();
+  /** Returns the index of the persisted part of {@code live}, building it if its version moved. */
+  private ActivityRangeIndex getIndex(LiveActivityView.Snapshot live) {
+    synchronized (resultCache) {
+      if (persistedIndex != null && persistedIndexVersion == live.persistedVersion()) {
+        return persistedIndex;
+      }
+    }
+    ActivityRangeIndex index = ActivityRangeIndex.build(live.persisted());
+    synchronized (resultCache) {
+      if (live.persistedVersion() >= persistedIndexVersion) {
+        persistedIndex = index;
+        persistedIndexVersion = live.persistedVersion();
+      }
+    }
+    return index;
+  }
 
+  private ResolvedRange resolve(TimePeriod period, @Nullable DateRange customRange) {
+    LocalDate today = LocalDate.now();
     if (period == TimePeriod.LAST_24_HOURS) {
-      return computeHourlyTimeline(allData);
+      // The 24 hour buckets ending with the current one
+      LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+      return new ResolvedRange(now.minusHours(23), now, true);
     }
-    return computeDailyTimeline(
-        allData, getPeriodStart(period, today), getPeriodEnd(period, today));
+    if (period == TimePeriod.CUSTOM) {
+      if (customRange != null) {
+        return ResolvedRange.ofDays(customRange.from(), customRange.to());
+      }
+      period = TimePeriod.LAST_7_DAYS;
+    }
+    return ResolvedRange.ofDays(getPeriodStart(period, today), today);
   }
 
-  public List<ProjectBreakdownEntry> computeProjectBreakdown(TimePeriod period) {
-    Map<String, Map<String, ProjectActivitySnapshot>> allData = getAllDataWithUnsaved();
-    LocalDate today = LocalDate.now();
-    LocalDate periodStart = getPeriodStart(period, today);
-    LocalDate periodEnd = getPeriodEnd(period, today);
+  private DashboardData computeForPeriod(DataSnapshot snapshot, ResolvedRange range) {
+    Totals periodTotals = range.totals(snapshot.index());
+
+    long totalTime = periodTotals.seconds();
+    int uniqueActiveDays = periodTotals.activeDays();
+    long dailyAverage = uniqueActiveDays > 0 ? totalTime / uniqueActiveDays : 0;
 
-    LocalDateTime cutoff24h =
-        period == TimePeriod.LAST_24_HOURS ? LocalDateTime.now().minusHours(24) : null;
+    // Trend: compare with previous period of same length
+    long previousTotal = range.previous().totals(snapshot.index()).seconds();
+    int trendPercentage = calculatePercentageChange(totalTime, previousTotal);
 
-    // Accumulate per project: [timeSpent, additions, removals]
-    Map<String, long[]> perProject = new LinkedHashMap<>();
+    // Streaks and lifetime stats are maintained incrementally and survive retention cleanup
+    LifetimeStats.Summary lifetime =
+        ApplicationManager.getApplication()
+            .getService(LifetimeStats.class)
+            .getSummary(LocalDate.now(), snapshot.unsavedSeconds());
 
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String hourKey = entry.getKey();
-      if (!isInPeriod(hourKey, periodStart, periodEnd, cutoff24h)) {
-        continue;
+    return new DashboardData(
+        totalTime,
+        dailyAverage,
+        periodTotals.additions(),
+        periodTotals.removals(),
+        trendPercentage,
+        lifetime.currentStreak(),
+        lifetime.longestStreak(),
+        lifetime.activeDays(),
+        lifetime.totalSeconds(),
+        lifetime.projectCount(),
+        lifetime.totalLines(),
+        lifetime.firstActiveDate());
+  }
+
+  private List<TimelineDataPoint> computeTimelineData(DataSnapshot snapshot, ResolvedRange range) {
+    ActivityRangeIndex index = snapshot.index();
+    DateTimeFormatter labelFormatter =
+        DateTimeFormatter.ofPattern(range.hourly() ? "HH:00" : "MMM d");
+
+    List<TimelineDataPoint> points = new ArrayList<>();
+    if (range.hourly()) {
+      for (LocalDateTime hour = range.fromHour();
+          !hour.isAfter(range.toHour());
+          hour = hour.plusHours(1)) {
+        long seconds = index.betweenHours(hour, hour).seconds();
+        points.add(new TimelineDataPoint(hour.format(labelFormatter), seconds));
       }
-      for (Map.Entry<String, ProjectActivitySnapshot> projEntry : entry.getValue().entrySet()) {
-        String projectName = projEntry.getKey();
-        ProjectActivitySnapshot snapshot = projEntry.getValue();
-        long[] acc = perProject.computeIfAbsent(projectName, k -> new long[3]);
-        acc[0] += snapshot.getCodedTimeSeconds();
-        acc[1] += snapshot.getAdditions();
-        acc[2] += snapshot.getRemovals();
+    } else {
+      for (LocalDate day = range.fromDate(); !day.isAfter(range.toDate()); day = day.plusDays(1)) {
+        long seconds = index.between(day, day).seconds();
+        points.add(new TimelineDataPoint(day.format(labelFormatter), seconds));
       }
     }
+    return points;
+  }
 
+  private List<ProjectBreakdownEntry> computeProjectBreakdown(
+      DataSnapshot snapshot, ResolvedRange range) {
     // Filter zero-activity, sort by time descending
     List<ProjectBreakdownEntry> result = new ArrayList<>();
-    for (Map.Entry<String, long[]> entry : perProject.entrySet()) {
-      long[] acc = entry.getValue();
-      if (acc[0] > 0 || acc[1] > 0 || acc[2] > 0) {
-        result.add(new ProjectBreakdownEntry(entry.getKey(), acc[0], acc[1], acc[2]));
+    if (range.hourly()) {
+      ActivityQueryResult perProject =
+          ActivityQueryEngine.execute(
+              range.query().groupBy(Dimension.PROJECT).build(), snapshot.data());
+      for (ActivityRow row : perProject.rows()) {
+        if (row.hasActivity()) {
+          result.add(
+              new ProjectBreakdownEntry(
+                  row.key(0), row.seconds(), row.additions(), row.removals()));
+        }
+      }
+    } else {
+      ActivityRangeIndex index = snapshot.index();
+      for (String projectName : index.projects()) {
+        Totals totals = index.between(projectName, range.fromDate(), range.toDate());
+        if (totals.seconds() > 0 || totals.additions() > 0 || totals.removals() > 0) {
+          result.add(
+              new ProjectBreakdownEntry(
+                  projectName, totals.seconds(), totals.additions(), totals.removals()));
+        }
       }
     }
     result.sort((a, b) -> Long.compare(b.timeSpentSeconds(), a.timeSpentSeconds()));
     return result;
   }
 
-  public List<BranchBreakdownEntry> computeBranchBreakdown(TimePeriod period) {
-    Map<String, Map<String, ProjectActivitySnapshot>> allData = getAllDataWithUnsaved();
-    LocalDate today = LocalDate.now();
-    LocalDate periodStart = getPeriodStart(period, today);
-    LocalDate periodEnd = getPeriodEnd(period, today);
-
-    LocalDateTime cutoff24h =
-        period == TimePeriod.LAST_24_HOURS ? LocalDateTime.now().minusHours(24) : null;
-
-    Map<String, Long> perBranch = new LinkedHashMap<>();
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String hourKey = entry.getKey();
-      if (!isInPeriod(hourKey, periodStart, periodEnd, cutoff24h)) {
-        continue;
-      }
-      for (ProjectActivitySnapshot snapshot : entry.getValue().values()) {
-        for (var branchRecord : snapshot.getBranchActivity()) {
-          String name = branchRecord.getBranchName();
-          long seconds = branchRecord.getActiveSeconds();
-          if (name != null && !name.isEmpty() && seconds > 0) {
-            perBranch.merge(name, seconds, Long::sum);
-          }
-        }
-      }
-    }
+  private List<BranchBreakdownEntry> computeBranchBreakdown(
+      DataSnapshot snapshot, ResolvedRange range) {
+    ActivityQueryResult perBranch =
+        ActivityQueryEngine.execute(
+            range.query().groupBy(Dimension.BRANCH).build(), snapshot.data());
 
     List<BranchBreakdownEntry> result = new ArrayList<>();
-    for (Map.Entry<String, Long> entry : perBranch.entrySet()) {
-      result.add(new BranchBreakdownEntry(entry.getKey(), entry.getValue()));
+    for (ActivityRow row : perBranch.withTimeBySecondsDescending()) {
+      result.add(new BranchBreakdownEntry(row.key(0), row.seconds()));
     }
-    result.sort((a, b) -> Long.compare(b.timeSpentSeconds(), a.timeSpentSeconds()));
     return result;
   }
 
-  public ProjectTimelineData computeProjectTimeline(TimePeriod period) {
-    Map<String, Map<String, ProjectActivitySnapshot>> allData = getAllDataWithUnsaved();
-    LocalDate today = LocalDate.now();
-    LocalDate periodStart = getPeriodStart(period, today);
-    LocalDate periodEnd = getPeriodEnd(period, today);
-    boolean hourly = period == TimePeriod.LAST_24_HOURS;
-
-    LocalDateTime cutoff24h = hourly ? LocalDateTime.now().minusHours(24) : null;
-
-    // Build ordered bucket list
-    List<String> buckets = new ArrayList<>();
-    if (hourly) {
-      LocalDateTime now = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.HOURS);
-      for (int i = 23; i >= 0; i--) {
-        buckets.add(now.minusHours(i).format(HOUR_KEY_FORMATTER));
-      }
-    } else {
-      for (LocalDate d = periodStart; !d.isAfter(periodEnd); d = d.plusDays(1)) {
-        buckets.add(d.toString());
-      }
-    }
+  private ProjectTimelineData computeProjectTimeline(DataSnapshot snapshot, ResolvedRange range) {
+    boolean hourly = range.hourly();
+    List<String> buckets = buildBuckets(range);
 
     // Group by project -> bucket -> seconds
     Map<String, Map<String, Long>> perProject = new LinkedHashMap<>();
     Map<String, Long> projectTotals = new LinkedHashMap<>();
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String hourKey = entry.getKey();
-      if (!isInPeriod(hourKey, periodStart, periodEnd, cutoff24h)) {
+    ActivityQueryResult perProjectBucket =
+        ActivityQueryEngine.execute(
+            range
+                .query()
+                .groupBy(Dimension.PROJECT, hourly ? Dimension.HOUR : Dimension.DAY)
+                .build(),
+            snapshot.data());
+    for (ActivityRow row : perProjectBucket.rows()) {
+      if (row.seconds() <= 0) {
         continue;
       }
-      String bucketKey = hourly ? hourKey : extractDate(hourKey);
-
-      for (Map.Entry<String, ProjectActivitySnapshot> projEntry : entry.getValue().entrySet()) {
-        String projectName = projEntry.getKey();
-        long seconds = projEntry.getValue().getCodedTimeSeconds();
-        if (seconds <= 0) {
-          continue;
-        }
-        perProject
-            .computeIfAbsent(projectName, k -> new LinkedHashMap<>())
-            .merge(bucketKey, seconds, Long::sum);
-        projectTotals.merge(projectName, seconds, Long::sum);
-      }
+      perProject
+          .computeIfAbsent(row.key(0), k -> new LinkedHashMap<>())
+          .merge(row.key(1), row.seconds(), Long::sum);
+      projectTotals.merge(row.key(0), row.seconds(), Long::sum);
     }
 
     // Sort by total time descending, take top 10
@@ -308,255 +396,37 @@ public final class DashboardDataService {
     return new ProjectTimelineData(buckets, entries, hourly);
   }
 
-  private List<TimelineDataPoint> computeHourlyTimeline(
-      Map<String, Map<String, ProjectActivitySnapshot>> allData) {
-    LocalDateTime now = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.HOURS);
-    DateTimeFormatter labelFormatter = DateTimeFormatter.ofPattern("HH:00");
-
-    // Build ordered map for last 24 hours
-    Map<String, Long> hourlyMap = new LinkedHashMap<>();
-    for (int i = 23; i >= 0; i--) {
-      LocalDateTime hour = now.minusHours(i);
-      hourlyMap.put(hour.format(HOUR_KEY_FORMATTER), 0L);
-    }
-
-    // Sum data into matching hours
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String hourKey = entry.getKey();
-      if (hourlyMap.containsKey(hourKey)) {
-        long sum = 0;
-        for (ProjectActivitySnapshot snapshot : entry.getValue().values()) {
-          sum += snapshot.getCodedTimeSeconds();
-        }
-        hourlyMap.merge(hourKey, sum, Long::sum);
-      }
-    }
-
-    // Convert to data points with display labels
-    List<TimelineDataPoint> points = new ArrayList<>();
-    for (Map.Entry<String, Long> entry : hourlyMap.entrySet()) {
-      try {
-        LocalDateTime hour = LocalDateTime.parse(entry.getKey(), HOUR_KEY_FORMATTER);
-        points.add(new TimelineDataPoint(hour.format(labelFormatter), entry.getValue()));
-      } catch (Exception ignored) {
-      }
-    }
-    return points;
-  }
-
-  private List<TimelineDataPoint> computeDailyTimeline(
-      Map<String, Map<String, ProjectActivitySnapshot>> allData, LocalDate start, LocalDate end) {
-    DateTimeFormatter labelFormatter = DateTimeFormatter.ofPattern("MMM d");
-
-    // Build ordered map for each day in range
-    Map<String, Long> dailyMap = new LinkedHashMap<>();
-    for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
-      dailyMap.put(d.toString(), 0L);
-    }
-
-    // Sum data into matching days
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String dateStr = extractDate(entry.getKey());
-      if (dailyMap.containsKey(dateStr)) {
-        long sum = 0;
-        for (ProjectActivitySnapshot snapshot : entry.getValue().values()) {
-          sum += snapshot.getCodedTimeSeconds();
-        }
-        dailyMap.merge(dateStr, sum, Long::sum);
-      }
-    }
-
-    // Convert to data points with display labels
-    List<TimelineDataPoint> points = new ArrayList<>();
-    for (Map.Entry<String, Long> entry : dailyMap.entrySet()) {
-      try {
-        LocalDate date = LocalDate.parse(entry.getKey());
-        points.add(new TimelineDataPoint(date.format(labelFormatter), entry.getValue()));
-      } catch (Exception ignored) {
+  /** Ordered bucket keys for the range: hour keys for hourly ranges, otherwise dates. */
+  private List<String> buildBuckets(ResolvedRange range) {
+    List<String> buckets = new ArrayList<>();
+    if (range.hourly()) {
+      for (LocalDateTime hour = range.fromHour();
+          !hour.isAfter(range.toHour());
+          hour = hour.plusHours(1)) {
+        buckets.add(hour.format(HOUR_KEY_FORMATTER));
       }
-    }
-    return points;
-  }
-
-  private Map<String, Map<String, ProjectActivitySnapshot>> getAllDataWithUnsaved() {
-    LocalActivityDataProvider dataProvider =
-        ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
-    if (dataProvider == null) {
-      return Collections.emptyMap();
-    }
-
-    Map<String, Map<String, ProjectActivitySnapshot>> allData =
-        new LinkedHashMap<>(dataProvider.getAllDataInLocalTimezone());
-    mergeUnsavedDeltas(allData);
-    return allData;
-  }
-
-  private void mergeUnsavedDeltas(Map<String, Map<String, ProjectActivitySnapshot>> allData) {
-    TimeSpentPerProjectLogger logger =
-        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
-    if (logger == null) {
-      return;
-    }
-
-    String currentHourKey = LocalDateTime.now().format(HOUR_KEY_FORMATTER);
-    Map<String, ProjectActivitySnapshot> hourData =
-        allData.computeIfAbsent(currentHourKey, k -> new LinkedHashMap<>());
-
-    Set<String> projectNames = new HashSet<>();
-    for (Map<String, ProjectActivitySnapshot> hourEntry : allData.values()) {
-      projectNames.addAll(hourEntry.keySet());
-    }
-
-    for (String projectName : projectNames) {
-      long unsavedDelta = logger.getProjectUnsavedDelta(projectName);
-      if (unsavedDelta > 0) {
-        ProjectActivitySnapshot existing = hourData.get(projectName);
-        if (existing != null) {
-          ProjectActivitySnapshot updated =
-              new ProjectActivitySnapshot(
-                  existing.getCodedTimeSeconds() + unsavedDelta,
-                  existing.getAdditions(),
-                  existing.getRemovals(),
-                  existing.isReported());
-          updated.setBranchActivity(existing.getBranchActivity());
-          updated.setCommits(existing.getCommits());
-          hourData.put(projectName, updated);
-        } else {
-          hourData.put(projectName, new ProjectActivitySnapshot(unsavedDelta, 0, 0, false));
-        }
+    } else {
+      for (LocalDate d = range.fromDate(); !d.isAfter(range.toDate()); d = d.plusDays(1)) {
+        buckets.add(d.toString());
       }
     }
+    return buckets;
   }
 
   private LocalDate getPeriodStart(TimePeriod period, LocalDate today) {
     return switch (period) {
       case LAST_24_HOURS -> today.minusDays(1);
-      case LAST_7_DAYS -> today.minusDays(6);
+      case LAST_7_DAYS, CUSTOM -> today.minusDays(6);
       case LAST_30_DAYS -> today.minusDays(29);
       case THIS_WEEK -> today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
       case THIS_MONTH -> today.withDayOfMonth(1);
     };
   }
 
-  private LocalDate getPeriodEnd(TimePeriod period, LocalDate today) {
-    return today;
-  }
-
-  private boolean isInPeriod(
-      String hourKey, LocalDate start, LocalDate end, LocalDateTime cutoff24h) {
-    try {
-      if (cutoff24h != null) {
-        LocalDateTime hourDateTime = LocalDateTime.parse(hourKey, HOUR_KEY_FORMATTER);
-        return !hourDateTime.isBefore(cutoff24h) && !hourDateTime.isAfter(LocalDateTime.now());
-      }
-      String dateStr = hourKey.substring(0, 10);
-      LocalDate date = LocalDate.parse(dateStr);
-      return !date.isBefore(start) && !date.isAfter(end);
-    } catch (Exception e) {
-      return false;
-    }
-  }
-
-  private int computeTrend(
-      Map<String, Map<String, ProjectActivitySnapshot>> allData,
-      TimePeriod period,
-      LocalDate today,
-      long currentTotal) {
-
-    LocalDate currentStart = getPeriodStart(period, today);
-    long periodDays = java.time.temporal.ChronoUnit.DAYS.between(currentStart, today) + 1;
-
-    LocalDate prevEnd = currentStart.minusDays(1);
-    LocalDate prevStart = prevEnd.minusDays(periodDays - 1);
-
-    // For LAST_24_HOURS, compare previous 24h
-    LocalDateTime prevCutoff =
-        period == TimePeriod.LAST_24_HOURS ? LocalDateTime.now().minusHours(48) : null;
-    LocalDateTime prevEndTime =
-        period == TimePeriod.LAST_24_HOURS ? LocalDateTime.now().minusHours(24) : null;
-
-    long prevTotal = 0;
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String hourKey = entry.getKey();
-      boolean inPrev;
-      if (prevCutoff != null) {
-        try {
-          LocalDateTime hourDateTime = LocalDateTime.parse(hourKey, HOUR_KEY_FORMATTER);
-          inPrev = !hourDateTime.isBefore(prevCutoff) && hourDateTime.isBefore(prevEndTime);
-        } catch (Exception e) {
-          inPrev = false;
-        }
-      } else {
-        inPrev = isInPeriod(hourKey, prevStart, prevEnd, null);
-      }
-
-      if (inPrev) {
-        for (ProjectActivitySnapshot snapshot : entry.getValue().values()) {
-          prevTotal += snapshot.getCodedTimeSeconds();
-        }
-      }
-    }
-
-    return calculatePercentageChange(currentTotal, prevTotal);
-  }
-
   private static int calculatePercentageChange(long current, long previous) {
     if (previous == 0) {
       return current > 0 ? 100 : 0;
     }
     return (int) Math.round(((double) (current - previous) / previous) * 100);
   }
-
-  private int[] computeStreaks(Map<String, Map<String, ProjectActivitySnapshot>> allData) {
-    TreeSet<LocalDate> activeDates = new TreeSet<>();
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String dateStr = extractDate(entry.getKey());
-      boolean hasTime =
-          entry.getValue().values().stream().anyMatch(s -> s.getCodedTimeSeconds() > 0);
-      if (hasTime) {
-        try {
-          activeDates.add(LocalDate.parse(dateStr));
-        } catch (Exception ignored) {
-        }
-      }
-    }
-
-    if (activeDates.isEmpty()) {
-      return new int[] {0, 0};
-    }
-
-    List<LocalDate> sorted = new ArrayList<>(activeDates);
-
-    // Current streak: consecutive days ending today or yesterday
-    int currentStreak = 0;
-    LocalDate checkDate = LocalDate.now();
-    if (!activeDates.contains(checkDate)) {
-      checkDate = checkDate.minusDays(1);
-    }
-    while (activeDates.contains(checkDate)) {
-      currentStreak++;
-      checkDate = checkDate.minusDays(1);
-    }
-
-    // Longest streak
-    int longestStreak = 1;
-    int runLength = 1;
-    for (int i = 1; i < sorted.size(); i++) {
-      if (sorted.get(i).equals(sorted.get(i - 1).plusDays(1))) {
-        runLength++;
-        longestStreak = Math.max(longestStreak, runLength);
-      } else {
-        runLength = 1;
-      }
-    }
-
-    return new int[] {currentStreak, longestStreak};
-  }
-
-  private String extractDate(String hourKey) {
-    if (hourKey != null && hourKey.length() >= 10) {
-      return hourKey.substring(0, 10);
-    }
-    return hourKey;
-  }
 }
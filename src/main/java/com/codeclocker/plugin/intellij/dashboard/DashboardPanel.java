@@ -8,6 +8,7 @@ import com.codeclocker.plugin.intellij.apikey.ApiKeyPersistence;
 import com.codeclocker.plugin.intellij.apikey.EnterApiKeyAction;
 import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.BranchBreakdownEntry;
 import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.DashboardData;
+import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.DashboardResult;
 import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.ProjectBreakdownEntry;
 import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.ProjectTimelineData;
 import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.TimePeriod;
@@ -20,6 +21,7 @@ import com.codeclocker.plugin.intellij.dashboard.ui.MetricCardPanel;
 import com.codeclocker.plugin.intellij.dashboard.ui.ProjectTimelineGanttPanel;
 import com.codeclocker.plugin.intellij.dashboard.ui.StreakCardPanel;
 import com.codeclocker.plugin.intellij.dashboard.ui.TimePeriodSelectorPanel;
+import com.codeclocker.plugin.intellij.local.ActivityListener;
 import com.intellij.icons.AllIcons;
 import com.intellij.ide.BrowserUtil;
 import com.intellij.openapi.Disposable;
@@ -33,6 +35,8 @@ import com.intellij.ui.HyperlinkLabel;
 import com.intellij.ui.JBColor;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.update.MergingUpdateQueue;
+import com.intellij.util.ui.update.Update;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.FlowLayout;
@@ -53,6 +57,9 @@ public class DashboardPanel extends JPanel implements Disposable {
   private static final Color GREEN = new JBColor(0x16A34A, 0x4ADE80);
   private static final Color RED = new JBColor(0xDC2626, 0xF87171);
 
+  /** Activity changes are reflected at most this often while the dashboard is visible. */
+  private static final int LIVE_REFRESH_MERGE_MILLIS = 5000;
+
   private final TimePeriodSelectorPanel periodSelector;
   private final MetricCardPanel totalTimeCard;
   private final MetricCardPanel dailyAvgCard;
@@ -68,6 +75,7 @@ public class DashboardPanel extends JPanel implements Disposable {
   private final JPanel infoBanner;
   private final JLabel bannerMessageLabel;
   private final HyperlinkLabel bannerLink;
+  private final MergingUpdateQueue liveRefreshQueue;
 
   public DashboardPanel() {
     setLayout(new BorderLayout());
@@ -197,6 +205,25 @@ public class DashboardPanel extends JPanel implements Disposable {
           public void ancestorMoved(AncestorEvent event) {}
         });
 
+    // Refresh on activity while visible; hidden dashboards catch up when shown again
+    liveRefreshQueue =
+        new MergingUpdateQueue(
+            "CodeClocker dashboard refresh", LIVE_REFRESH_MERGE_MILLIS, true, null, this);
+    ApplicationManager.getApplication()
+        .getMessageBus()
+        .connect(this)
+        .subscribe(
+            ActivityListener.TOPIC,
+            changes ->
+                liveRefreshQueue.queue(
+                    Update.create(
+                        this,
+                        () -> {
+                          if (isShowing()) {
+                            refreshData(false);
+                          }
+                        })));
+
     // Initial load
     refreshData();
   }
@@ -206,10 +233,16 @@ public class DashboardPanel extends JPanel implements Disposable {
   }
 
   private void refreshData() {
-    totalTimeCard.setLoading(true);
-    dailyAvgCard.setLoading(true);
-    linesAddedCard.setLoading(true);
-    linesRemovedCard.setLoading(true);
+    refreshData(true);
+  }
+
+  private void refreshData(boolean showLoading) {
+    if (showLoading) {
+      totalTimeCard.setLoading(true);
+      dailyAvgCard.setLoading(true);
+      linesAddedCard.setLoading(true);
+      linesRemovedCard.setLoading(true);
+    }
 
     updateInfoBanner();
 
@@ -223,18 +256,21 @@ public class DashboardPanel extends JPanel implements Disposable {
               }
 
               TimePeriod period = periodSelector.getSelected();
-              DashboardData data = service.computeForPeriod(period);
-              List<TimelineDataPoint> timelineData = service.computeTimelineData(period);
-              List<ProjectBreakdownEntry> breakdown = service.computeProjectBreakdown(period);
-              List<BranchBreakdownEntry> branchBreakdown = service.computeBranchBreakdown(period);
-              ProjectTimelineData timelineGanttData = service.computeProjectTimeline(period);
+              DashboardResult result = service.compute(period, periodSelector.getCustomRange());
+              boolean showTrend =
+                  period != TimePeriod.CUSTOM || periodSelector.isCompareToPrevious();
+              DashboardData data = result.data();
+              List<TimelineDataPoint> timelineData = result.timeline();
+              List<ProjectBreakdownEntry> breakdown = result.projectBreakdown();
+              List<BranchBreakdownEntry> branchBreakdown = result.branchBreakdown();
+              ProjectTimelineData timelineGanttData = result.projectTimeline();
 
               ApplicationManager.getApplication()
                   .invokeLater(
                       () -> {
                         totalTimeCard.update(
                             formatTimeWithSeconds(data.totalTimeSpent()),
-                            data.trendPercentage(),
+                            showTrend ? data.trendPercentage() : null,
                             null);
                         dailyAvgCard.update(formatTime(data.dailyAverage()), null, "per day");
                         linesAddedCard.update("+" + formatNumber(data.additions()), null, null);
@@ -0,0 +1,85 @@
+package com.codeclocker.plugin.intellij.dashboard.ui;
+
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.util.ui.FormBuilder;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.Date;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import javax.swing.JSpinner;
+import javax.swing.SpinnerDateModel;
+import org.jetbrains.annotations.Nullable;
+
+/** Dialog for picking a custom dashboard date range. */
+public class CustomRangeDialog extends DialogWrapper {
+
+  private JSpinner fromDateSpinner;
+  private JSpinner toDateSpinner;
+  private JBCheckBox compareCheckBox;
+
+  private final LocalDate defaultFromDate;
+  private final LocalDate defaultToDate;
+  private final boolean defaultCompare;
+
+  public CustomRangeDialog(LocalDate defaultFromDate, LocalDate defaultToDate, boolean compare) {
+    super(true);
+    this.defaultFromDate = defaultFromDate;
+    this.defaultToDate = defaultToDate;
+    this.defaultCompare = compare;
+    setTitle("Custom Date Range");
+    init();
+  }
+
+  @Override
+  protected @Nullable JComponent createCenterPanel() {
+    fromDateSpinner = createDateSpinner(defaultFromDate);
+    toDateSpinner = createDateSpinner(defaultToDate);
+    compareCheckBox = new JBCheckBox("Compare to previous period", defaultCompare);
+
+    return FormBuilder.createFormBuilder()
+        .addLabeledComponent(new JBLabel("From:"), fromDateSpinner)
+        .addVerticalGap(10)
+        .addLabeledComponent(new JBLabel("To:"), toDateSpinner)
+        .addVerticalGap(10)
+        .addComponent(compareCheckBox)
+        .addComponentFillVertically(new JPanel(), 0)
+        .getPanel();
+  }
+
+  private JSpinner createDateSpinner(LocalDate initialDate) {
+    Date date = Date.from(initialDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    SpinnerDateModel model = new SpinnerDateModel(date, null, null, Calendar.DAY_OF_MONTH);
+    JSpinner spinner = new JSpinner(model);
+    JSpinner.DateEditor editor = new JSpinner.DateEditor(spinner, "yyyy-MM-dd");
+    spinner.setEditor(editor);
+    return spinner;
+  }
+
+  public LocalDate getFromDate() {
+    Date date = (Date) fromDateSpinner.getValue();
+    return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+
+  public LocalDate getToDate() {
+    Date date = (Date) toDateSpinner.getValue();
+    return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+  }
+
+  public boolean isCompareToPrevious() {
+    return compareCheckBox.isSelected();
+  }
+
+  @Override
+  protected void doOKAction() {
+    if (getFromDate().isAfter(getToDate())) {
+      setErrorText("'From' date must be before or equal to 'To' date");
+      return;
+    }
+
+    super.doOKAction();
+  }
+}
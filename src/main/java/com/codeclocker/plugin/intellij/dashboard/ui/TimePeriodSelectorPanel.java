@@ -1,5 +1,6 @@
 package com.codeclocker.plugin.intellij.dashboard.ui;
 
+import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.DateRange;
 import com.codeclocker.plugin.intellij.dashboard.DashboardDataService.TimePeriod;
 import com.intellij.ui.JBColor;
 import com.intellij.util.ui.JBUI;
@@ -9,11 +10,17 @@ import java.awt.FlowLayout;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.function.Consumer;
 import javax.swing.JButton;
 import javax.swing.JPanel;
+import org.jetbrains.annotations.Nullable;
 
-/** Chip-style period selector with styled buttons. */
+/**
+ * Chip-style period selector with styled buttons. The custom chip opens a {@link CustomRangeDialog}
+ * and shows the picked range.
+ */
 public class TimePeriodSelectorPanel extends JPanel {
 
   private static final Color SELECTED_BG = new JBColor(0x7C3AED, 0xA78BFA);
@@ -23,7 +30,11 @@ public class TimePeriodSelectorPanel extends JPanel {
   private static final Color UNSELECTED_FG =
       JBColor.namedColor("Label.foreground", JBColor.foreground());
 
+  private static final DateTimeFormatter RANGE_FORMATTER = DateTimeFormatter.ofPattern("MMM d");
+
   private TimePeriod selected = TimePeriod.LAST_7_DAYS;
+  private DateRange customRange;
+  private boolean compareToPrevious = true;
   private final JButton[] buttons;
 
   public TimePeriodSelectorPanel(Consumer<TimePeriod> onPeriodChanged) {
@@ -35,11 +46,14 @@ public class TimePeriodSelectorPanel extends JPanel {
 
     for (int i = 0; i < periods.length; i++) {
       TimePeriod period = periods[i];
-      JButton button = createChipButton(period.getLabel());
+      JButton button = createChipButton(period);
       buttons[i] = button;
 
       button.addActionListener(
           e -> {
+            if (period == TimePeriod.CUSTOM && !pickCustomRange(button)) {
+              return;
+            }
             selected = period;
             updateButtonStyles();
             onPeriodChanged.accept(period);
@@ -55,9 +69,38 @@ public class TimePeriodSelectorPanel extends JPanel {
     return selected;
   }
 
-  private JButton createChipButton(String text) {
+  /** The range picked for {@link TimePeriod#CUSTOM}, or null if none was picked yet. */
+  public @Nullable DateRange getCustomRange() {
+    return customRange;
+  }
+
+  /** Whether the custom range should be compared to the range of the same length before it. */
+  public boolean isCompareToPrevious() {
+    return compareToPrevious;
+  }
+
+  /** Returns false if the dialog was cancelled, keeping the previous selection. */
+  private boolean pickCustomRange(JButton button) {
+    LocalDate today = LocalDate.now();
+    LocalDate from = customRange != null ? customRange.from() : today.minusDays(13);
+    LocalDate to = customRange != null ? customRange.to() : today;
+    CustomRangeDialog dialog = new CustomRangeDialog(from, to, compareToPrevious);
+    if (!dialog.showAndGet()) {
+      return false;
+    }
+    customRange = new DateRange(dialog.getFromDate(), dialog.getToDate());
+    compareToPrevious = dialog.isCompareToPrevious();
+    button.setText(
+        customRange.from().format(RANGE_FORMATTER)
+            + " – "
+            + customRange.to().format(RANGE_FORMATTER));
+    revalidate();
+    return true;
+  }
+
+  private JButton createChipButton(TimePeriod period) {
     JButton button =
-        new JButton(text) {
+        new JButton(period.getLabel()) {
           @Override
           protected void paintComponent(Graphics g) {
             Graphics2D g2 = (Graphics2D) g.create();
@@ -80,7 +123,7 @@ public class TimePeriodSelectorPanel extends JPanel {
           }
 
           private boolean isCurrentlySelected() {
-            return getText().equals(selected.getLabel());
+            return period == selected;
           }
         };
 
@@ -0,0 +1,56 @@
+package com.codeclocker.plugin.intellij.git;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Remembers how far the commit history of each repository was backfilled by {@link
+ * GitHistoryBackfillTask}, so the next run continues after the last stored commit instead of
+ * walking the history again. Also keeps two projects that share a repository root from backfilling
+ * it at the same time.
+ */
+@State(name = "CodeClockerGitBackfill", storages = @Storage("codeclocker-git-backfill.xml"))
+public class GitHistoryBackfill implements PersistentStateComponent<GitHistoryBackfillState> {
+
+  private final Set<String> runningRoots = ConcurrentHashMap.newKeySet();
+
+  private volatile GitHistoryBackfillState state = new GitHistoryBackfillState();
+
+  @Override
+  public @Nullable GitHistoryBackfillState getState() {
+    return state;
+  }
+
+  @Override
+  public void loadState(@NotNull GitHistoryBackfillState state) {
+    this.state = state;
+  }
+
+  /** Returns the full hash of the newest backfilled commit of a repository root, or null. */
+  @Nullable
+  public synchronized String getLastCommit(String rootPath) {
+    return state.getLastCommitByRoot().get(rootPath);
+  }
+
+  public synchronized void setLastCommit(String rootPath, @Nullable String fullHash) {
+    if (fullHash == null) {
+      state.getLastCommitByRoot().remove(rootPath);
+    } else {
+      state.getLastCommitByRoot().put(rootPath, fullHash);
+    }
+  }
+
+  /** Claims a repository root; returns false if another backfill is already running for it. */
+  boolean tryStart(String rootPath) {
+    return runningRoots.add(rootPath);
+  }
+
+  void finish(String rootPath) {
+    runningRoots.remove(rootPath);
+  }
+}
@@ -0,0 +1,27 @@
+package com.codeclocker.plugin.intellij.git;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.ProjectActivity;
+import com.intellij.openapi.vcs.ProjectLevelVcsManager;
+import kotlin.Unit;
+import kotlin.coroutines.Continuation;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/** Starts the git history backfill once the project's repositories are known. */
+public class GitHistoryBackfillStartupActivity implements ProjectActivity {
+
+  @Nullable
+  @Override
+  public Object execute(
+      @NotNull Project project, @NotNull Continuation<? super Unit> continuation) {
+    ProjectLevelVcsManager.getInstance(project)
+        .runAfterInitialization(
+            () ->
+                ApplicationManager.getApplication()
+                    .invokeLater(
+                        () -> new GitHistoryBackfillTask(project).queue(), project.getDisposed()));
+    return null;
+  }
+}
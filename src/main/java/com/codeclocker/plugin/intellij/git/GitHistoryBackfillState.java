@@ -0,0 +1,19 @@
+package com.codeclocker.plugin.intellij.git;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Persisted progress of {@link GitHistoryBackfill}. */
+public class GitHistoryBackfillState {
+
+  /** Repository root path -> full hash of the newest commit already backfilled. */
+  private Map<String, String> lastCommitByRoot = new HashMap<>();
+
+  public Map<String, String> getLastCommitByRoot() {
+    return lastCommitByRoot;
+  }
+
+  public void setLastCommitByRoot(Map<String, String> lastCommitByRoot) {
+    this.lastCommitByRoot = lastCommitByRoot != null ? lastCommitByRoot : new HashMap<>();
+  }
+}
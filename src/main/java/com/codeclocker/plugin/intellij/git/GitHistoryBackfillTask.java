@@ -0,0 +1,193 @@
+package com.codeclocker.plugin.intellij.git;
+
+import com.codeclocker.plugin.intellij.git.GitLogNumstatParser.ParsedCommit;
+import com.codeclocker.plugin.intellij.local.LocalStateRepository;
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.intellij.execution.process.ProcessOutputTypes;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import git4idea.commands.Git;
+import git4idea.commands.GitCommand;
+import git4idea.commands.GitCommandResult;
+import git4idea.commands.GitLineHandler;
+import git4idea.commands.GitLineHandlerListener;
+import git4idea.repo.GitRepository;
+import git4idea.repo.GitRepositoryManager;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Adds the user's commits from the git history of a project's repositories to the local history,
+ * with their line counts and file changes, so the Activity tab is not empty for commits made before
+ * CodeClocker was installed or outside the IDE.
+ *
+ * <p>{@code git log --numstat} is streamed oldest commit first and parsed line by line. Commits are
+ * stored in batches, after each of which the walk pauses briefly; reading stops meanwhile, so git
+ * is held back by the pipe instead of running ahead. The newest stored commit is remembered per
+ * repository root, and the next run only walks the commits after it. Only the days the local
+ * history retains are backfilled.
+ */
+public class GitHistoryBackfillTask extends Task.Backgroundable {
+
+  private static final Logger LOG = Logger.getInstance(GitHistoryBackfillTask.class);
+
+  private static final int BATCH_COMMITS = 100;
+  private static final long BATCH_PAUSE_MILLIS = 100;
+
+  private final List<ParsedCommit> batch = new ArrayList<>();
+  private int storedCommits;
+
+  public GitHistoryBackfillTask(Project project) {
+    super(project, "Reading git history", true);
+  }
+
+  @Override
+  public void run(@NotNull ProgressIndicator indicator) {
+    indicator.setIndeterminate(true);
+    for (GitRepository repo : GitRepositoryManager.getInstance(getProject()).getRepositories()) {
+      indicator.checkCanceled();
+      String rootPath = repo.getRoot().getPath();
+      GitHistoryBackfill backfill = getBackfill();
+      if (!backfill.tryStart(rootPath)) {
+        continue;
+      }
+      try {
+        indicator.setText("Reading git history of " + repo.getRoot().getName());
+        backfill(repo, rootPath, indicator);
+      } finally {
+        backfill.finish(rootPath);
+      }
+    }
+  }
+
+  private void backfill(GitRepository repo, String rootPath, ProgressIndicator indicator) {
+    String author = getConfig(repo, "user.email");
+    if (author == null) {
+      author = getConfig(repo, "user.name");
+    }
+    if (author == null) {
+      LOG.debug("No git user configured for " + rootPath + ", skipping history backfill");
+      return;
+    }
+
+    String lastCommit = getBackfill().getLastCommit(rootPath);
+    GitCommandResult result = runLog(repo, rootPath, author, lastCommit, indicator);
+    if (!result.success() && lastCommit != null && !indicator.isCanceled()) {
+      // The remembered commit is gone, e.g. after a rebase; stored commits are skipped on re-read
+      LOG.info("Restarting git history backfill of " + rootPath);
+      getBackfill().setLastCommit(rootPath, null);
+      result = runLog(repo, rootPath, author, null, indicator);
+    }
+    if (!result.success() && !indicator.isCanceled()) {
+      LOG.debug("git log failed for " + rootPath + ": " + result.getErrorOutputAsJoinedString());
+    }
+  }
+
+  private GitCommandResult runLog(
+      GitRepository repo,
+      String rootPath,
+      String author,
+      @Nullable String lastCommit,
+      ProgressIndicator indicator) {
+    GitLineHandler handler = new GitLineHandler(getProject(), repo.getRoot(), GitCommand.LOG);
+    handler.setSilent(true);
+    handler.addParameters(
+        "--reverse",
+        "--no-merges",
+        "--numstat",
+        GitLogNumstatParser.FORMAT,
+        "--fixed-strings",
+        "--author=" + author,
+        "--since=" + LocalDate.now().minusDays(LocalTrackerState.MAX_SESSIONS));
+    handler.addParameters(lastCommit != null ? lastCommit + "..HEAD" : "HEAD");
+
+    batch.clear();
+    GitLogNumstatParser parser =
+        new GitLogNumstatParser(
+            getPathPrefix(repo),
+            commit -> {
+              batch.add(commit);
+              if (batch.size() >= BATCH_COMMITS) {
+                flush(rootPath, indicator);
+                pause();
+              }
+            });
+    handler.addLineListener(
+        new GitLineHandlerListener() {
+          @Override
+          public void onLineAvailable(String line, Key outputType) {
+            if (outputType == ProcessOutputTypes.STDOUT && !indicator.isCanceled()) {
+              parser.onLine(line);
+            }
+          }
+        });
+
+    GitCommandResult result = Git.getInstance().runCommandWithoutCollectingOutput(handler);
+    if (result.success() && !indicator.isCanceled()) {
+      parser.finish();
+      flush(rootPath, indicator);
+    }
+    return result;
+  }
+
+  /** Stores the batch and advances the resume point past it. */
+  private void flush(String rootPath, ProgressIndicator indicator) {
+    if (batch.isEmpty() || indicator.isCanceled()) {
+      return;
+    }
+    List<ProjectActivitySnapshot> snapshots = new ArrayList<>(batch.size());
+    for (ParsedCommit commit : batch) {
+      snapshots.add(commit.snapshot());
+    }
+    storedCommits +=
+        ApplicationManager.getApplication()
+            .getService(LocalStateRepository.class)
+            .backfillCommits(getProject().getName(), snapshots);
+    getBackfill().setLastCommit(rootPath, batch.get(batch.size() - 1).fullHash());
+    batch.clear();
+    indicator.setText2(storedCommits + " commits added");
+  }
+
+  private static void pause() {
+    try {
+      Thread.sleep(BATCH_PAUSE_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** File names of commits made in the IDE are relative to the project base path. */
+  private String getPathPrefix(GitRepository repo) {
+    String rootPath = repo.getRoot().getPath();
+    String basePath = getProject().getBasePath();
+    if (basePath != null && rootPath.startsWith(basePath)) {
+      return rootPath.substring(basePath.length()) + "/";
+    }
+    return rootPath + "/";
+  }
+
+  @Nullable
+  private String getConfig(GitRepository repo, String key) {
+    GitLineHandler handler = new GitLineHandler(getProject(), repo.getRoot(), GitCommand.CONFIG);
+    handler.setSilent(true);
+    handler.addParameters(key);
+    GitCommandResult result = Git.getInstance().runCommand(handler);
+    if (!result.success() || result.getOutput().isEmpty()) {
+      return null;
+    }
+    String value = result.getOutput().get(0).trim();
+    return value.isEmpty() ? null : value;
+  }
+
+  private static GitHistoryBackfill getBackfill() {
+    return ApplicationManager.getApplication().getService(GitHistoryBackfill.class);
+  }
+}
@@ -0,0 +1,136 @@
+package com.codeclocker.plugin.intellij.git;
+
+import com.codeclocker.plugin.intellij.local.CommitRecord;
+import com.codeclocker.plugin.intellij.local.FileChangeSummary;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parses {@code git log --numstat} output written with {@link #FORMAT}, one line at a time. Each
+ * commit is handed to the consumer as a snapshot holding just that commit, its line counts and its
+ * file changes, as soon as the next commit starts; only the commit being parsed is held, and its
+ * files are kept in a bounded {@link FileChangeSummary}.
+ */
+final class GitLogNumstatParser {
+
+  /** Header line per commit: full hash, short hash, committer time, author name, subject. */
+  static final String FORMAT = "--format=%x1e%H%x1f%h%x1f%ct%x1f%an%x1f%s";
+
+  private static final char RECORD_SEPARATOR = '\u001e';
+  private static final String FIELD_SEPARATOR = "\u001f";
+
+  private final String pathPrefix;
+  private final Consumer<ParsedCommit> consumer;
+
+  private String[] header;
+  private FileChangeSummary files;
+  private long additions;
+  private long removals;
+  private int changedFiles;
+
+  /**
+   * @param fullHash hash to resume the history walk from
+   * @param snapshot single-commit snapshot to store
+   */
+  record ParsedCommit(String fullHash, ProjectActivitySnapshot snapshot) {}
+
+  /**
+   * @param pathPrefix prepended to repository-relative paths so file names match those recorded on
+   *     commits made in the IDE
+   */
+  GitLogNumstatParser(String pathPrefix, Consumer<ParsedCommit> consumer) {
+    this.pathPrefix = pathPrefix;
+    this.consumer = consumer;
+  }
+
+  void onLine(String line) {
+    if (!line.isEmpty() && line.charAt(0) == RECORD_SEPARATOR) {
+      finishCommit();
+      String[] fields = line.substring(1).split(FIELD_SEPARATOR, 5);
+      if (fields.length == 5) {
+        header = fields;
+        files = FileChangeSummary.of(List.of());
+        additions = 0;
+        removals = 0;
+        changedFiles = 0;
+      }
+      return;
+    }
+    if (header != null && !line.isBlank()) {
+      parseNumstat(line);
+    }
+  }
+
+  /** Hands over the last commit; call once the output ended successfully. */
+  void finish() {
+    finishCommit();
+  }
+
+  private void parseNumstat(String line) {
+    // <additions>\t<removals>\t<path>, with "-" counts for binary files
+    String[] parts = line.split("\t", 3);
+    if (parts.length != 3) {
+      return;
+    }
+    changedFiles++;
+    long added;
+    long removed;
+    try {
+      added = Long.parseLong(parts[0]);
+      removed = Long.parseLong(parts[1]);
+    } catch (NumberFormatException e) {
+      return;
+    }
+    String path = pathPrefix + renamedPath(parts[2]);
+    files.add(path, getExtension(path), added, removed);
+    additions += added;
+    removals += removed;
+  }
+
+  private void finishCommit() {
+    if (header == null) {
+      return;
+    }
+    long timestamp;
+    try {
+      timestamp = Long.parseLong(header[2]) * 1000;
+    } catch (NumberFormatException e) {
+      header = null;
+      return;
+    }
+    CommitRecord commit =
+        new CommitRecord(header[1], header[4], header[3], timestamp, changedFiles, "unknown");
+    ProjectActivitySnapshot snapshot = new ProjectActivitySnapshot(0, additions, removals, false);
+    snapshot.setCommits(List.of(commit));
+    snapshot.setFileChanges(files.toRecords());
+    String fullHash = header[0];
+    header = null;
+    consumer.accept(new ParsedCommit(fullHash, snapshot));
+  }
+
+  /** Resolves numstat rename notation, {@code old => new} or {@code dir/{old => new}/file}. */
+  static String renamedPath(String path) {
+    int arrow = path.indexOf(" => ");
+    if (arrow < 0) {
+      return path;
+    }
+    int open = path.lastIndexOf('{', arrow);
+    int close = path.indexOf('}', arrow);
+    if (open < 0 || close < 0) {
+      return path.substring(arrow + 4);
+    }
+    String renamed =
+        path.substring(0, open) + path.substring(arrow + 4, close) + path.substring(close + 1);
+    return renamed.replace("//", "/");
+  }
+
+  private static String getExtension(String path) {
+    String fileName = path.substring(path.lastIndexOf('/') + 1);
+    int lastDotIndex = fileName.lastIndexOf('.');
+    if (lastDotIndex == -1 || lastDotIndex == fileName.length() - 1) {
+      return "";
+    }
+    return fileName.substring(lastDotIndex + 1);
+  }
+}
@@ -2,9 +2,16 @@ package com.codeclocker.plugin.intellij.goal;
 
 import static com.intellij.notification.NotificationType.INFORMATION;
 
+import com.codeclocker.plugin.intellij.config.CodeClockerSettings.Goals;
+import com.codeclocker.plugin.intellij.config.CodeClockerSettings.ProjectGoals;
+import com.codeclocker.plugin.intellij.config.SettingsListener;
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.codeclocker.plugin.intellij.local.ActivityListener.ActivityChange;
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
 import com.intellij.ide.DataManager;
 import com.intellij.notification.NotificationAction;
 import com.intellij.notification.NotificationGroupManager;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.application.ApplicationManager;
@@ -13,15 +20,39 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.project.ProjectManager;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import org.jetbrains.annotations.NotNull;
 
-/** Service for showing notifications when coding goals are reached. */
+/**
+ * Service for showing notifications when coding goals are reached.
+ *
+ * <p>Goals are checked when activity changes, not on a timer. This IDE credits coded time no faster
+ * than the wall clock runs, so after each check the earliest moment any pending goal could be
+ * crossed is known; changes before that moment are ignored without touching {@link GoalService}.
+ * Other IDEs sharing their activity add time in parallel, so the moment is at most {@link
+ * #MAX_SKIP_MILLIS} away, and never past the next midnight, when daily and weekly progress start
+ * over. Saved settings reset it.
+ */
 @Service(Service.Level.APP)
-public final class GoalNotificationService {
+public final class GoalNotificationService implements Disposable {
+
+  /** Returned by goal checks when the goal cannot trigger another notification in its period. */
+  private static final long NO_PENDING_GOAL = Long.MAX_VALUE;
+
+  /** Longest time changes are skipped while a goal is pending. */
+  private static final long MAX_SKIP_MILLIS = 60_000;
 
   private final Object lock = new Object();
+
+  /** Wall-clock time before which no daily or weekly goal can be reached; 0 forces a check. */
+  private long globalCheckAtMillis;
+
+  private final Map<String, Long> projectCheckAtMillis = new HashMap<>();
+
   private LocalDate dailyGoalReachedDate;
   private LocalDate weeklyGoalReachedWeekStart;
   private int lastNotifiedDailyGoalMinutes;
@@ -33,37 +64,109 @@ public final class GoalNotificationService {
   private final Map<String, Integer> lastNotifiedProjectDailyGoals = new HashMap<>();
   private final Map<String, Integer> lastNotifiedProjectWeeklyGoals = new HashMap<>();
 
+  public GoalNotificationService() {
+    ApplicationManager.getApplication()
+        .getMessageBus()
+        .connect(this)
+        .subscribe(SettingsListener.TOPIC, settings -> rearm());
+  }
+
   /**
-   * Check goal progress and show notifications if goals are reached. Should be called periodically
-   * (e.g., from the widget tick).
+   * Called with every batch of activity changes. Checks the goals whose earliest crossing time has
+   * come: daily and weekly goals on any time change, project goals for the projects that changed.
    */
+  public void onActivityChanged(Set<ActivityChange> changes) {
+    Set<String> projectNames = new HashSet<>();
+    for (ActivityChange change : changes) {
+      if (change.kind() == Kind.RELOADED) {
+        // History was replaced, so totals may have moved for any project
+        rearm();
+      } else if (change.kind() == Kind.TIME || change.kind() == Kind.PERSISTED) {
+        if (change.projectName() != null) {
+          projectNames.add(change.projectName());
+        }
+      }
+    }
+
+    long now = System.currentTimeMillis();
+    boolean globalDue;
+    Set<String> dueProjects = new HashSet<>();
+    synchronized (lock) {
+      globalDue = now >= globalCheckAtMillis;
+      for (String projectName : projectNames) {
+        if (now >= projectCheckAtMillis.getOrDefault(projectName, 0L)) {
+          dueProjects.add(projectName);
+        }
+      }
+    }
+
+    if (globalDue) {
+      checkAndNotify();
+    }
+    for (String projectName : dueProjects) {
+      checkAndNotifyForProject(projectName);
+    }
+  }
+
+  /** Forgets all computed crossing times, e.g. after settings were changed. */
+  public void rearm() {
+    synchronized (lock) {
+      globalCheckAtMillis = 0;
+      projectCheckAtMillis.clear();
+    }
+  }
+
+  /** Check goal progress and show notifications if goals are reached. */
   public void checkAndNotify() {
-    if (!GoalPersistence.isNotificationsEnabled()) {
-      return;
+    long now = System.currentTimeMillis();
+    long remainingSeconds = checkGoals();
+    synchronized (lock) {
+      globalCheckAtMillis = nextCheckAt(now, remainingSeconds);
+    }
+  }
+
+  private long checkGoals() {
+    if (!getGoals().notificationsEnabled()) {
+      return NO_PENDING_GOAL;
     }
 
     GoalService goalService = ApplicationManager.getApplication().getService(GoalService.class);
     if (goalService == null) {
-      return;
+      return NO_PENDING_GOAL;
     }
 
-    checkDailyGoal(goalService);
-    checkWeeklyGoal(goalService);
+    return Math.min(checkDailyGoal(goalService), checkWeeklyGoal(goalService));
+  }
+
+  /**
+   * Earliest wall-clock time a goal with {@code remainingSeconds} left could be reached by this IDE
+   * alone, capped at {@link #MAX_SKIP_MILLIS} from now and at the next midnight. One second of
+   * slack covers rounding of credited time.
+   */
+  private static long nextCheckAt(long now, long remainingSeconds) {
+    long nextMidnight =
+        LocalDate.now().plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    if (remainingSeconds == NO_PENDING_GOAL) {
+      return nextMidnight;
+    }
+    long reachableAt = now + Math.min(Math.max(0, remainingSeconds - 1) * 1000, MAX_SKIP_MILLIS);
+    return Math.min(reachableAt, nextMidnight);
   }
 
-  private void checkDailyGoal(GoalService goalService) {
-    if (!GoalPersistence.hasDailyGoal()) {
-      return;
+  /** Returns the seconds left until the daily goal can trigger a notification. */
+  private long checkDailyGoal(GoalService goalService) {
+    if (!getGoals().hasDailyGoal()) {
+      return NO_PENDING_GOAL;
     }
 
     GoalProgress progress = goalService.getDailyProgress();
     if (!progress.isComplete()) {
-      return;
+      return progress.remainingSeconds();
     }
 
-    int currentGoalMinutes = GoalPersistence.getDailyGoalMinutes();
+    int currentGoalMinutes = getGoals().dailyGoalMinutes();
 
-    // Synchronize to prevent multiple notifications from concurrent project tickers
+    // Synchronize to prevent duplicate notifications from concurrent checks
     synchronized (lock) {
       LocalDate today = LocalDate.now();
 
@@ -80,7 +183,7 @@ public final class GoalNotificationService {
 
       // Already notified today for this goal
       if (dailyGoalReachedDate != null) {
-        return;
+        return NO_PENDING_GOAL;
       }
 
       dailyGoalReachedDate = today;
@@ -88,21 +191,23 @@ public final class GoalNotificationService {
     }
 
     showDailyGoalNotification(progress);
+    return NO_PENDING_GOAL;
   }
 
-  private void checkWeeklyGoal(GoalService goalService) {
-    if (!GoalPersistence.hasWeeklyGoal()) {
-      return;
+  /** Returns the seconds left until the weekly goal can trigger a notification. */
+  private long checkWeeklyGoal(GoalService goalService) {
+    if (!getGoals().hasWeeklyGoal()) {
+      return NO_PENDING_GOAL;
     }
 
     GoalProgress progress = goalService.getWeeklyProgress();
     if (!progress.isComplete()) {
-      return;
+      return progress.remainingSeconds();
     }
 
-    int currentGoalMinutes = GoalPersistence.getWeeklyGoalMinutes();
+    int currentGoalMinutes = getGoals().weeklyGoalMinutes();
 
-    // Synchronize to prevent multiple notifications from concurrent project tickers
+    // Synchronize to prevent duplicate notifications from concurrent checks
     synchronized (lock) {
       LocalDate today = LocalDate.now();
       LocalDate currentWeekStart = today.with(DayOfWeek.MONDAY);
@@ -122,7 +227,7 @@ public final class GoalNotificationService {
 
       // Already notified this week for this goal
       if (weeklyGoalReachedWeekStart != null) {
-        return;
+        return NO_PENDING_GOAL;
       }
 
       weeklyGoalReachedWeekStart = currentWeekStart;
@@ -130,6 +235,7 @@ public final class GoalNotificationService {
     }
 
     showWeeklyGoalNotification(progress);
+    return NO_PENDING_GOAL;
   }
 
   /**
@@ -139,32 +245,42 @@ public final class GoalNotificationService {
    * @param projectName the project name to check
    */
   public void checkAndNotifyForProject(@NotNull String projectName) {
-    if (!ProjectGoalPersistence.hasCustomGoals(projectName)) {
-      return;
+    long now = System.currentTimeMillis();
+    long remainingSeconds = checkProjectGoals(projectName);
+    synchronized (lock) {
+      projectCheckAtMillis.put(projectName, nextCheckAt(now, remainingSeconds));
+    }
+  }
+
+  private long checkProjectGoals(String projectName) {
+    ProjectGoals projectGoals = getSettingsService().getProjectGoals(projectName);
+    if (!projectGoals.custom()) {
+      return NO_PENDING_GOAL;
     }
 
-    if (!ProjectGoalPersistence.isProjectNotificationsEnabled(projectName)) {
-      return;
+    if (!projectGoals.notificationsEnabled()) {
+      return NO_PENDING_GOAL;
     }
 
     GoalService goalService = ApplicationManager.getApplication().getService(GoalService.class);
     if (goalService == null) {
-      return;
+      return NO_PENDING_GOAL;
     }
 
-    checkProjectDailyGoal(goalService, projectName);
-    checkProjectWeeklyGoal(goalService, projectName);
+    return Math.min(
+        checkProjectDailyGoal(goalService, projectName),
+        checkProjectWeeklyGoal(goalService, projectName));
   }
 
-  private void checkProjectDailyGoal(GoalService goalService, String projectName) {
-    int goalMinutes = ProjectGoalPersistence.getProjectDailyGoalMinutes(projectName);
+  private long checkProjectDailyGoal(GoalService goalService, String projectName) {
+    int goalMinutes = getSettingsService().getProjectGoals(projectName).dailyGoalMinutes();
     if (goalMinutes <= 0) {
-      return;
+      return NO_PENDING_GOAL;
     }
 
     GoalProgress progress = goalService.getProjectDailyProgress(projectName);
     if (!progress.isComplete()) {
-      return;
+      return progress.remainingSeconds();
     }
 
     synchronized (lock) {
@@ -187,7 +303,7 @@ public final class GoalNotificationService {
 
       // Already notified today for this goal
       if (lastReached != null) {
-        return;
+        return NO_PENDING_GOAL;
       }
 
       projectDailyGoalReachedDates.put(projectName, today);
@@ -195,17 +311,18 @@ public final class GoalNotificationService {
     }
 
     showProjectDailyGoalNotification(projectName, progress);
+    return NO_PENDING_GOAL;
   }
 
-  private void checkProjectWeeklyGoal(GoalService goalService, String projectName) {
-    int goalMinutes = ProjectGoalPersistence.getProjectWeeklyGoalMinutes(projectName);
+  private long checkProjectWeeklyGoal(GoalService goalService, String projectName) {
+    int goalMinutes = getSettingsService().getProjectGoals(projectName).weeklyGoalMinutes();
     if (goalMinutes <= 0) {
-      return;
+      return NO_PENDING_GOAL;
     }
 
     GoalProgress progress = goalService.getProjectWeeklyProgress(projectName);
     if (!progress.isComplete()) {
-      return;
+      return progress.remainingSeconds();
     }
 
     synchronized (lock) {
@@ -231,7 +348,7 @@ public final class GoalNotificationService {
 
       // Already notified this week for this goal
       if (lastReachedWeekStart != null) {
-        return;
+        return NO_PENDING_GOAL;
       }
 
       projectWeeklyGoalReachedWeekStarts.put(projectName, currentWeekStart);
@@ -239,6 +356,7 @@ public final class GoalNotificationService {
     }
 
     showProjectWeeklyGoalNotification(projectName, progress);
+    return NO_PENDING_GOAL;
   }
 
   private void showDailyGoalNotification(GoalProgress progress) {
@@ -256,8 +374,7 @@ public final class GoalNotificationService {
                     .addAction(new SetNewGoalAction())
                     .addAction(
                         NotificationAction.createSimpleExpiring(
-                            "Disable Notifications",
-                            () -> GoalPersistence.setNotificationsEnabled(false)))
+                            "Disable Notifications", this::disableNotifications))
                     .notify(getCurrentProject()));
   }
 
@@ -276,8 +393,7 @@ public final class GoalNotificationService {
                     .addAction(new SetNewGoalAction())
                     .addAction(
                         NotificationAction.createSimpleExpiring(
-                            "Disable Notifications",
-                            () -> GoalPersistence.setNotificationsEnabled(false)))
+                            "Disable Notifications", this::disableNotifications))
                     .notify(getCurrentProject()));
   }
 
@@ -299,9 +415,7 @@ public final class GoalNotificationService {
                     .addAction(
                         NotificationAction.createSimpleExpiring(
                             "Disable Notifications",
-                            () ->
-                                ProjectGoalPersistence.setProjectNotificationsEnabled(
-                                    projectName, false)))
+                            () -> disableProjectNotifications(projectName)))
                     .notify(getCurrentProject()));
   }
 
@@ -323,12 +437,28 @@ public final class GoalNotificationService {
                     .addAction(
                         NotificationAction.createSimpleExpiring(
                             "Disable Notifications",
-                            () ->
-                                ProjectGoalPersistence.setProjectNotificationsEnabled(
-                                    projectName, false)))
+                            () -> disableProjectNotifications(projectName)))
                     .notify(getCurrentProject()));
   }
 
+  private void disableNotifications() {
+    GoalPersistence.setNotificationsEnabled(false);
+    getSettingsService().reload();
+  }
+
+  private void disableProjectNotifications(String projectName) {
+    ProjectGoalPersistence.setProjectNotificationsEnabled(projectName, false);
+    getSettingsService().reload();
+  }
+
+  private Goals getGoals() {
+    return getSettingsService().getSettings().goals();
+  }
+
+  private SettingsService getSettingsService() {
+    return ApplicationManager.getApplication().getService(SettingsService.class);
+  }
+
   private static class SetNewGoalAction extends com.intellij.notification.NotificationAction {
     SetNewGoalAction() {
       super("Set New Goal");
@@ -390,4 +520,7 @@ public final class GoalNotificationService {
     DataContext dataContext = DataManager.getInstance().getDataContext(null);
     return dataContext.getData(CommonDataKeys.PROJECT);
   }
+
+  @Override
+  public void dispose() {}
 }
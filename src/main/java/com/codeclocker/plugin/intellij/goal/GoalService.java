@@ -1,5 +1,7 @@
 package com.codeclocker.plugin.intellij.goal;
 
+import com.codeclocker.plugin.intellij.config.CodeClockerSettings.Goals;
+import com.codeclocker.plugin.intellij.config.SettingsService;
 import com.codeclocker.plugin.intellij.local.LocalActivityDataProvider;
 import com.codeclocker.plugin.intellij.services.TimeSpentPerProjectLogger;
 import com.intellij.openapi.application.ApplicationManager;
@@ -14,7 +16,7 @@ public final class GoalService {
    * Get the current daily goal progress. Always returns progress using configured or default goal.
    */
   public GoalProgress getDailyProgress() {
-    int goalMinutes = GoalPersistence.getDailyGoalMinutes();
+    int goalMinutes = getGoals().dailyGoalMinutes();
     long goalSeconds = goalMinutes * 60L;
     long currentSeconds = getTotalSecondsToday();
 
@@ -25,7 +27,7 @@ public final class GoalService {
    * Get the current weekly goal progress. Always returns progress using configured or default goal.
    */
   public GoalProgress getWeeklyProgress() {
-    int goalMinutes = GoalPersistence.getWeeklyGoalMinutes();
+    int goalMinutes = getGoals().weeklyGoalMinutes();
     long goalSeconds = goalMinutes * 60L;
     long currentSeconds = getTotalSecondsThisWeek();
 
@@ -40,7 +42,8 @@ public final class GoalService {
    * @return daily goal progress for the project
    */
   public GoalProgress getProjectDailyProgress(@NotNull String projectName) {
-    int goalMinutes = ProjectGoalPersistence.getEffectiveDailyGoalMinutes(projectName);
+    int goalMinutes =
+        getSettingsService().getProjectGoals(projectName).getEffectiveDailyGoalMinutes(getGoals());
     long goalSeconds = goalMinutes * 60L;
     long currentSeconds = getProjectSecondsToday(projectName);
 
@@ -55,13 +58,22 @@ public final class GoalService {
    * @return weekly goal progress for the project
    */
   public GoalProgress getProjectWeeklyProgress(@NotNull String projectName) {
-    int goalMinutes = ProjectGoalPersistence.getEffectiveWeeklyGoalMinutes(projectName);
+    int goalMinutes =
+        getSettingsService().getProjectGoals(projectName).getEffectiveWeeklyGoalMinutes(getGoals());
     long goalSeconds = goalMinutes * 60L;
     long currentSeconds = getProjectSecondsThisWeek(projectName);
 
     return GoalProgress.of(currentSeconds, goalSeconds);
   }
 
+  private Goals getGoals() {
+    return getSettingsService().getSettings().goals();
+  }
+
+  private SettingsService getSettingsService() {
+    return ApplicationManager.getApplication().getService(SettingsService.class);
+  }
+
   /** Get total coded seconds for today from live tracking. */
   private long getTotalSecondsToday() {
     TimeSpentPerProjectLogger logger =
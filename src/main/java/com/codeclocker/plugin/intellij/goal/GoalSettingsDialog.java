@@ -1,5 +1,7 @@
 package com.codeclocker.plugin.intellij.goal;
 
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.ValidationInfo;
 import com.intellij.ui.components.JBCheckBox;
@@ -110,6 +112,7 @@ public class GoalSettingsDialog extends DialogWrapper {
     GoalPersistence.setWeeklyGoalMinutes(weeklyTotal);
     GoalPersistence.setGoalsEnabled(enabledCheckbox.isSelected());
     GoalPersistence.setNotificationsEnabled(notificationsCheckbox.isSelected());
+    ApplicationManager.getApplication().getService(SettingsService.class).reload();
 
     super.doOKAction();
   }
@@ -1,5 +1,7 @@
 package com.codeclocker.plugin.intellij.goal;
 
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.ValidationInfo;
@@ -158,6 +160,7 @@ public class ProjectGoalSettingsDialog extends DialogWrapper {
       ProjectGoalPersistence.setProjectNotificationsEnabled(
           projectName, notificationsCheckbox.isSelected());
     }
+    ApplicationManager.getApplication().getService(SettingsService.class).reload();
 
     super.doOKAction();
   }
@@ -1,7 +1,7 @@
 package com.codeclocker.plugin.intellij.listeners;
 
+import com.codeclocker.plugin.intellij.config.SettingsService;
 import com.codeclocker.plugin.intellij.services.TimeSpentActivityTracker;
-import com.codeclocker.plugin.intellij.tracking.TrackingPersistence;
 import com.intellij.openapi.application.ApplicationActivationListener;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
@@ -20,7 +20,13 @@ public class AppFrameFocusLostListener implements ApplicationActivationListener
 
   @Override
   public void applicationDeactivated(@NotNull IdeFrame ideFrame) {
-    if (!TrackingPersistence.isPauseOnFocusLostEnabled()) {
+    boolean pauseOnFocusLost =
+        ApplicationManager.getApplication()
+            .getService(SettingsService.class)
+            .getSettings()
+            .tracking()
+            .pauseOnFocusLost();
+    if (!pauseOnFocusLost) {
       LOG.debug("Application frame lost focus, but pause on focus lost is disabled");
       return;
     }
@@ -0,0 +1,19 @@
+package com.codeclocker.plugin.intellij.listeners;
+
+import com.codeclocker.plugin.intellij.goal.GoalNotificationService;
+import com.codeclocker.plugin.intellij.local.ActivityListener;
+import com.intellij.openapi.application.ApplicationManager;
+import java.util.Set;
+
+/** Lets {@link GoalNotificationService} check goals whenever tracked activity changes. */
+public class GoalProgressListener implements ActivityListener {
+
+  @Override
+  public void activityChanged(Set<ActivityChange> changes) {
+    GoalNotificationService notificationService =
+        ApplicationManager.getApplication().getService(GoalNotificationService.class);
+    if (notificationService != null) {
+      notificationService.onActivityChanged(changes);
+    }
+  }
+}
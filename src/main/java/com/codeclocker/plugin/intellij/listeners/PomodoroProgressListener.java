@@ -0,0 +1,24 @@
+package com.codeclocker.plugin.intellij.listeners;
+
+import com.codeclocker.plugin.intellij.local.ActivityListener;
+import com.codeclocker.plugin.intellij.pomodoro.PomodoroTimerService;
+import com.intellij.openapi.application.ApplicationManager;
+import java.util.Set;
+
+/** Lets a coding-time Pomodoro interval end as soon as enough coding time was credited. */
+public class PomodoroProgressListener implements ActivityListener {
+
+  @Override
+  public void activityChanged(Set<ActivityChange> changes) {
+    for (ActivityChange change : changes) {
+      if (change.kind() == Kind.TIME) {
+        PomodoroTimerService svc =
+            ApplicationManager.getApplication().getService(PomodoroTimerService.class);
+        if (svc != null) {
+          svc.onCodingTimeCredited();
+        }
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.codeclocker.plugin.intellij.listeners;
+
+import com.codeclocker.plugin.intellij.local.ActivityListener;
+import com.codeclocker.plugin.intellij.standup.StandupDigestService;
+import com.intellij.openapi.application.ApplicationManager;
+import java.util.Set;
+
+/** Keeps the per-day standup fragments of {@link StandupDigestService} up to date. */
+public class StandupFragmentListener implements ActivityListener {
+
+  @Override
+  public void activityChanged(Set<ActivityChange> changes) {
+    StandupDigestService digestService =
+        ApplicationManager.getApplication().getService(StandupDigestService.class);
+    if (digestService != null) {
+      digestService.onActivityChanged(changes);
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.codeclocker.plugin.intellij.local.ActivityListener.ActivityChange;
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Collects activity changes from the tracking engine and the flush pipeline and publishes them on
+ * {@link ActivityListener#TOPIC} in batches. Reporting a change is cheap and never blocks, so it is
+ * safe to call from trackers and while holding repository locks.
+ */
+@Service(Service.Level.APP)
+public final class ActivityEventPublisher {
+
+  /** Changes reported within this window are delivered together. */
+  private static final long COALESCE_MILLIS = 250;
+
+  private final Set<ActivityChange> pending = ConcurrentHashMap.newKeySet();
+  private final AtomicBoolean publishScheduled = new AtomicBoolean();
+
+  public void changed(@Nullable String projectName, @Nullable String utcHourKey, Kind kind) {
+    pending.add(new ActivityChange(projectName, utcHourKey, kind));
+    if (publishScheduled.compareAndSet(false, true)) {
+      AppExecutorUtil.getAppScheduledExecutorService()
+          .schedule(this::publish, COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void publish() {
+    // Reset first: a change reported while draining schedules another publish
+    publishScheduled.set(false);
+    Set<ActivityChange> batch = new HashSet<>();
+    for (Iterator<ActivityChange> it = pending.iterator(); it.hasNext(); ) {
+      batch.add(it.next());
+      it.remove();
+    }
+
+    Application application = ApplicationManager.getApplication();
+    if (batch.isEmpty() || application == null || application.isDisposed()) {
+      return;
+    }
+    application.getMessageBus().syncPublisher(ActivityListener.TOPIC).activityChanged(batch);
+  }
+}
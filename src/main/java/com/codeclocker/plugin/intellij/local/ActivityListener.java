@@ -0,0 +1,39 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.intellij.util.messages.Topic;
+import java.util.Set;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Application-level notifications about tracked activity, published by {@link
+ * ActivityEventPublisher}. Changes are coalesced, so a listener receives each distinct change once
+ * per batch, on a background thread. Nothing is published while the user is idle.
+ */
+public interface ActivityListener {
+
+  Topic<ActivityListener> TOPIC = Topic.create("CodeClocker activity", ActivityListener.class);
+
+  void activityChanged(Set<ActivityChange> changes);
+
+  /** What changed. */
+  enum Kind {
+    /** Coded time of a project grew and is not persisted yet. */
+    TIME,
+    /** Lines were added or removed. */
+    LINES,
+    /** A commit was recorded. */
+    COMMIT,
+    /** A snapshot was merged into the local state. */
+    PERSISTED,
+    /** Data changed as a whole, e.g. after a timezone change or archiving; project is null. */
+    RELOADED
+  }
+
+  /**
+   * A single change.
+   *
+   * @param projectName affected project, or null if not project specific
+   * @param utcHourKey affected hour bucket, or null if unknown
+   */
+  record ActivityChange(@Nullable String projectName, @Nullable String utcHourKey, Kind kind) {}
+}
@@ -11,7 +11,7 @@ public class BranchActivityRecord {
   }
 
   public BranchActivityRecord(String branchName, long activeSeconds) {
-    this.branchName = branchName;
+    this.branchName = StringPool.intern(branchName);
     this.activeSeconds = activeSeconds;
   }
 
@@ -20,7 +20,7 @@ public class BranchActivityRecord {
   }
 
   public void setBranchName(String branchName) {
-    this.branchName = branchName;
+    this.branchName = StringPool.intern(branchName);
   }
 
   public long getActiveSeconds() {
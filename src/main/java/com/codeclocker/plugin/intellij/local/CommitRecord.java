@@ -23,10 +23,10 @@ public class CommitRecord {
       String branch) {
     this.hash = hash;
     this.message = message;
-    this.author = author;
+    this.author = StringPool.intern(author);
     this.timestamp = timestamp;
     this.changedFilesCount = changedFilesCount;
-    this.branch = branch;
+    this.branch = StringPool.intern(branch);
   }
 
   public String getHash() {
@@ -50,7 +50,7 @@ public class CommitRecord {
   }
 
   public void setAuthor(String author) {
-    this.author = author;
+    this.author = StringPool.intern(author);
   }
 
   public long getTimestamp() {
@@ -74,6 +74,6 @@ public class CommitRecord {
   }
 
   public void setBranch(String branch) {
-    this.branch = branch;
+    this.branch = StringPool.intern(branch);
   }
 }
@@ -0,0 +1,295 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.codeclocker.plugin.intellij.local.CommitSearchIndexState.IndexedCommit;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inverted index over the messages, branch names and hashes of stored commits, for finding the
+ * hours and projects in which a topic such as {@code JIRA-1234} was worked on.
+ *
+ * <p>Text is split into lowercase runs of letters and digits. A query matches commits containing
+ * all of its terms; a term ending in {@code *} matches any indexed term with that prefix. Terms are
+ * kept in a sorted map from term to the ascending ids of the commits containing it, so a prefix is
+ * a range of the map and the terms of a query are intersected by merging id lists.
+ *
+ * <p>Commits are added as {@link LocalStateRepository} stores them and dropped with the days
+ * removed by retention. Only the commits are persisted; the postings are rebuilt from them on first
+ * use. When the component is first used, commits already in the history are added once. Guarded by
+ * the {@link LocalStateRepository} monitor for updates, and by its own monitor for lookups.
+ */
+@State(name = "CodeClockerCommitSearchIndex", storages = @Storage("codeclocker-commit-index.xml"))
+public class CommitSearchIndex implements PersistentStateComponent<CommitSearchIndexState> {
+
+  private static final Logger LOG = Logger.getInstance(CommitSearchIndex.class);
+
+  /** Most matches returned by {@link #search}, newest first. */
+  public static final int MAX_RESULTS = 200;
+
+  private CommitSearchIndexState state = new CommitSearchIndexState();
+
+  /** A commit matching a query, with the UTC hour and project it is stored under. */
+  public record Match(
+      String utcHourKey, String projectName, String hash, String message, String branch) {}
+
+  /** Ascending commit ids, appended in order as commits are indexed. */
+  private static final class Postings {
+    int[] ids = new int[2];
+    int size;
+
+    void add(int id) {
+      if (size > 0 && ids[size - 1] == id) {
+        return;
+      }
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+      }
+      ids[size++] = id;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(ids, size);
+    }
+  }
+
+  // Built lazily from state.commits; ids are positions in that list
+  private TreeMap<String, Postings> postings;
+  private Set<String> indexedKeys;
+
+  @Override
+  public synchronized @Nullable CommitSearchIndexState getState() {
+    return state;
+  }
+
+  @Override
+  public synchronized void loadState(@NotNull CommitSearchIndexState state) {
+    this.state = state;
+    this.postings = null;
+    this.indexedKeys = null;
+  }
+
+  /**
+   * Called by {@link LocalStateRepository} while holding its lock, after commits were stored under
+   * the given UTC hour and project. Commits already indexed there are ignored.
+   */
+  void onCommitsStored(String utcHourKey, String projectName, List<CommitRecord> commits) {
+    if (commits.isEmpty()) {
+      return;
+    }
+    if (!state.isSeeded()) {
+      // The seed already includes the commits that were just stored
+      seed(getRepository());
+      return;
+    }
+    synchronized (this) {
+      ensurePostings();
+      for (CommitRecord commit : commits) {
+        add(
+            new IndexedCommit(
+                utcHourKey,
+                projectName,
+                commit.getHash(),
+                commit.getMessage(),
+                commit.getBranch()));
+      }
+    }
+  }
+
+  /**
+   * Called by {@link LocalStateRepository} while holding its lock, after retention removed the
+   * given UTC dates (yyyy-MM-dd).
+   */
+  synchronized void onDatesRemoved(Set<String> utcDates) {
+    boolean removed =
+        state.getCommits().removeIf(c -> utcDates.contains(c.getUtcHourKey().substring(0, 10)));
+    if (removed) {
+      // Ids shift, so the postings are rebuilt on next use
+      postings = null;
+      indexedKeys = null;
+    }
+  }
+
+  /**
+   * Returns commits matching all terms of the query, newest first, at most {@link #MAX_RESULTS}.
+   */
+  public List<Match> search(String query) {
+    List<String> terms = new ArrayList<>();
+    List<Boolean> prefixes = new ArrayList<>();
+    for (String word : query.trim().split("\\s+")) {
+      boolean prefix = word.endsWith("*");
+      List<String> wordTerms = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+      for (int i = 0; i < wordTerms.size(); i++) {
+        terms.add(wordTerms.get(i));
+        // Only the last run of a prefix word is open-ended, e.g. "jira-12*"
+        prefixes.add(prefix && i == wordTerms.size() - 1);
+      }
+    }
+    if (terms.isEmpty()) {
+      return List.of();
+    }
+
+    LocalStateRepository repository = getRepository();
+    if (!state.isSeeded()) {
+      synchronized (repository) {
+        if (!state.isSeeded()) {
+          seed(repository);
+        }
+      }
+    }
+
+    synchronized (this) {
+      ensurePostings();
+      int[] ids = null;
+      for (int i = 0; i < terms.size() && (ids == null || ids.length > 0); i++) {
+        int[] termIds = prefixes.get(i) ? lookupPrefix(terms.get(i)) : lookup(terms.get(i));
+        ids = ids == null ? termIds : intersect(ids, termIds);
+      }
+
+      List<Match> matches = new ArrayList<>(ids.length);
+      for (int id : ids) {
+        IndexedCommit commit = state.getCommits().get(id);
+        matches.add(
+            new Match(
+                commit.getUtcHourKey(),
+                commit.getProjectName(),
+                commit.getHash(),
+                commit.getMessage(),
+                commit.getBranch()));
+      }
+      matches.sort(Comparator.comparing(Match::utcHourKey).reversed());
+      return matches.size() > MAX_RESULTS ? matches.subList(0, MAX_RESULTS) : matches;
+    }
+  }
+
+  /** Splits text into lowercase runs of letters and digits. */
+  static List<String> tokenize(String text) {
+    List<String> terms = new ArrayList<>();
+    if (text == null) {
+      return terms;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (wordChar && start < 0) {
+        start = i;
+      } else if (!wordChar && start >= 0) {
+        terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return terms;
+  }
+
+  private void seed(LocalStateRepository repository) {
+    Map<String, Map<String, ProjectActivitySnapshot>> history =
+        new TreeMap<>(repository.getAllData());
+    synchronized (this) {
+      ensurePostings();
+      for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry : history.entrySet()) {
+        for (Map.Entry<String, ProjectActivitySnapshot> projectEntry :
+            hourEntry.getValue().entrySet()) {
+          for (CommitRecord commit : projectEntry.getValue().getCommits()) {
+            add(
+                new IndexedCommit(
+                    hourEntry.getKey(),
+                    projectEntry.getKey(),
+                    commit.getHash(),
+                    commit.getMessage(),
+                    commit.getBranch()));
+          }
+        }
+      }
+      state.setSeeded(true);
+      LOG.info("Seeded commit search index with " + state.getCommits().size() + " commits");
+    }
+  }
+
+  private void ensurePostings() {
+    if (postings != null) {
+      return;
+    }
+    postings = new TreeMap<>();
+    indexedKeys = new HashSet<>();
+    List<IndexedCommit> commits = state.getCommits();
+    for (int id = 0; id < commits.size(); id++) {
+      indexedKeys.add(key(commits.get(id)));
+      addPostings(id, commits.get(id));
+    }
+  }
+
+  private void add(IndexedCommit commit) {
+    if (commit.getHash() == null || !indexedKeys.add(key(commit))) {
+      return;
+    }
+    state.getCommits().add(commit);
+    addPostings(state.getCommits().size() - 1, commit);
+  }
+
+  private void addPostings(int id, IndexedCommit commit) {
+    for (String text : new String[] {commit.getHash(), commit.getMessage(), commit.getBranch()}) {
+      for (String term : tokenize(text)) {
+        postings.computeIfAbsent(term, t -> new Postings()).add(id);
+      }
+    }
+  }
+
+  private static String key(IndexedCommit commit) {
+    return commit.getUtcHourKey() + "/" + commit.getProjectName() + "/" + commit.getHash();
+  }
+
+  private int[] lookup(String term) {
+    Postings termPostings = postings.get(term);
+    return termPostings != null ? termPostings.toArray() : new int[0];
+  }
+
+  private int[] lookupPrefix(String prefix) {
+    Map<String, Postings> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+    if (range.size() == 1) {
+      return range.values().iterator().next().toArray();
+    }
+    Set<Integer> ids = new HashSet<>();
+    for (Postings termPostings : range.values()) {
+      for (int i = 0; i < termPostings.size; i++) {
+        ids.add(termPostings.ids[i]);
+      }
+    }
+    return ids.stream().mapToInt(Integer::intValue).sorted().toArray();
+  }
+
+  private static int[] intersect(int[] a, int[] b) {
+    int[] result = new int[Math.min(a.length, b.length)];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < a.length && j < b.length) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[size++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, size);
+  }
+
+  private LocalStateRepository getRepository() {
+    return ApplicationManager.getApplication().getService(LocalStateRepository.class);
+  }
+}
@@ -0,0 +1,95 @@
+package com.codeclocker.plugin.intellij.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persisted commits of {@link CommitSearchIndex}. Only the indexed fields are kept; the term
+ * postings are rebuilt from them when the index is first used.
+ */
+public class CommitSearchIndexState {
+
+  /** Whether commits stored before the index was introduced have been added. */
+  private boolean seeded;
+
+  private List<IndexedCommit> commits = new ArrayList<>();
+
+  public boolean isSeeded() {
+    return seeded;
+  }
+
+  public void setSeeded(boolean seeded) {
+    this.seeded = seeded;
+  }
+
+  public List<IndexedCommit> getCommits() {
+    return commits;
+  }
+
+  public void setCommits(List<IndexedCommit> commits) {
+    this.commits = commits != null ? commits : new ArrayList<>();
+  }
+
+  /** A commit and the UTC hour and project it is stored under. */
+  public static class IndexedCommit {
+
+    private String utcHourKey;
+    private String projectName;
+    private String hash;
+    private String message;
+    private String branch;
+
+    public IndexedCommit() {
+      // Required for XML serialization
+    }
+
+    public IndexedCommit(
+        String utcHourKey, String projectName, String hash, String message, String branch) {
+      this.utcHourKey = utcHourKey;
+      this.projectName = StringPool.intern(projectName);
+      this.hash = hash;
+      this.message = message;
+      this.branch = StringPool.intern(branch);
+    }
+
+    public String getUtcHourKey() {
+      return utcHourKey;
+    }
+
+    public void setUtcHourKey(String utcHourKey) {
+      this.utcHourKey = utcHourKey;
+    }
+
+    public String getProjectName() {
+      return projectName;
+    }
+
+    public void setProjectName(String projectName) {
+      this.projectName = StringPool.intern(projectName);
+    }
+
+    public String getHash() {
+      return hash;
+    }
+
+    public void setHash(String hash) {
+      this.hash = hash;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public void setMessage(String message) {
+      this.message = message;
+    }
+
+    public String getBranch() {
+      return branch;
+    }
+
+    public void setBranch(String branch) {
+      this.branch = StringPool.intern(branch);
+    }
+  }
+}
@@ -13,10 +13,10 @@ public class FileChangeRecord {
   }
 
   public FileChangeRecord(String fileName, long additions, long removals, String extension) {
-    this.fileName = fileName;
+    this.fileName = StringPool.intern(fileName);
     this.additions = additions;
     this.removals = removals;
-    this.extension = extension;
+    this.extension = StringPool.intern(extension);
   }
 
   public String getFileName() {
@@ -24,7 +24,7 @@ public class FileChangeRecord {
   }
 
   public void setFileName(String fileName) {
-    this.fileName = fileName;
+    this.fileName = StringPool.intern(fileName);
   }
 
   public long getAdditions() {
@@ -48,6 +48,6 @@ public class FileChangeRecord {
   }
 
   public void setExtension(String extension) {
-    this.extension = extension;
+    this.extension = StringPool.intern(extension);
   }
 }
@@ -0,0 +1,131 @@
+package com.codeclocker.plugin.intellij.local;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded per-file change counts for one project and hour. Keeps exact additions/removals for at
+ * most {@link #MAX_TRACKED_FILES} files, chosen with the Space-Saving heavy-hitters algorithm, and
+ * folds everything else into per-extension {@code other-files} buckets. Totals are always
+ * preserved: a file that is evicted moves its counts into its extension bucket.
+ *
+ * <p>Space-Saving ranks every tracked file by an estimated weight (lines changed). A newcomer that
+ * arrives when the summary is full replaces the file with the lowest weight and inherits that
+ * weight, so any file that changes more than {@code 1/MAX_TRACKED_FILES} of all lines is guaranteed
+ * to stay tracked. The inherited weight is only used for ranking; the reported counts of a tracked
+ * file are exact since it entered the summary.
+ */
+public final class FileChangeSummary {
+
+  public static final int MAX_TRACKED_FILES = 200;
+
+  /** Maximum number of per-extension buckets; further extensions share a single bucket. */
+  public static final int MAX_OTHER_BUCKETS = 20;
+
+  public static final String OTHER_FILES = "other-files";
+
+  private final Map<String, Counter> tracked = new HashMap<>();
+  private final Map<String, Counter> other = new HashMap<>();
+
+  private static final class Counter {
+    private final String extension;
+    private long additions;
+    private long removals;
+    private long weight;
+
+    private Counter(String extension) {
+      this.extension = extension;
+    }
+  }
+
+  /** Builds a summary from persisted records, e.g. when merging two snapshots of the same hour. */
+  public static FileChangeSummary of(List<FileChangeRecord> records) {
+    FileChangeSummary summary = new FileChangeSummary();
+    summary.addAll(records);
+    return summary;
+  }
+
+  public synchronized void addAll(List<FileChangeRecord> records) {
+    for (FileChangeRecord record : records) {
+      if (isOtherBucket(record.getFileName())) {
+        addToOther(record.getExtension(), record.getAdditions(), record.getRemovals());
+      } else {
+        add(
+            record.getFileName(),
+            record.getExtension(),
+            record.getAdditions(),
+            record.getRemovals());
+      }
+    }
+  }
+
+  public synchronized void add(String fileName, String extension, long additions, long removals) {
+    if (extension == null) {
+      extension = "";
+    }
+    Counter counter = tracked.get(fileName);
+    if (counter == null) {
+      if (tracked.size() < MAX_TRACKED_FILES) {
+        counter = new Counter(extension);
+        tracked.put(fileName, counter);
+      } else {
+        counter = replaceLightest(fileName, extension);
+      }
+    }
+    counter.additions += additions;
+    counter.removals += removals;
+    counter.weight += additions + removals;
+  }
+
+  private Counter replaceLightest(String fileName, String extension) {
+    Map.Entry<String, Counter> lightest = null;
+    for (Map.Entry<String, Counter> entry : tracked.entrySet()) {
+      if (lightest == null || entry.getValue().weight < lightest.getValue().weight) {
+        lightest = entry;
+      }
+    }
+
+    Counter evicted = tracked.remove(lightest.getKey());
+    addToOther(evicted.extension, evicted.additions, evicted.removals);
+
+    Counter counter = new Counter(extension);
+    counter.weight = evicted.weight;
+    tracked.put(fileName, counter);
+    return counter;
+  }
+
+  private void addToOther(String extension, long additions, long removals) {
+    String key = extension == null ? "" : extension;
+    if (!other.containsKey(key) && other.size() >= MAX_OTHER_BUCKETS) {
+      key = "";
+    }
+    Counter bucket = other.computeIfAbsent(key, Counter::new);
+    bucket.additions += additions;
+    bucket.removals += removals;
+  }
+
+  public synchronized List<FileChangeRecord> toRecords() {
+    List<FileChangeRecord> records = new ArrayList<>(tracked.size() + other.size());
+    for (Map.Entry<String, Counter> entry : tracked.entrySet()) {
+      Counter counter = entry.getValue();
+      records.add(
+          new FileChangeRecord(
+              entry.getKey(), counter.additions, counter.removals, counter.extension));
+    }
+    for (Map.Entry<String, Counter> entry : other.entrySet()) {
+      String extension = entry.getKey();
+      String name = extension.isEmpty() ? OTHER_FILES : OTHER_FILES + "." + extension;
+      records.add(
+          new FileChangeRecord(
+              name, entry.getValue().additions, entry.getValue().removals, extension));
+    }
+    return records;
+  }
+
+  public static boolean isOtherBucket(String fileName) {
+    return fileName != null
+        && (fileName.equals(OTHER_FILES) || fileName.startsWith(OTHER_FILES + "."));
+  }
+}
@@ -0,0 +1,291 @@
+package com.codeclocker.plugin.intellij.local;
+
+import static com.codeclocker.plugin.intellij.JsonMapper.OBJECT_MAPPER;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Imports coding time from heartbeats exported by other time trackers, such as WakaTime's JSON
+ * export. The file is read token by token with Jackson's streaming parser, so only one heartbeat is
+ * held at a time; memory grows with the number of distinct hours and projects, not with the size of
+ * the file.
+ *
+ * <p>Any JSON object with a numeric {@code time} (epoch seconds) and a {@code project} counts as a
+ * heartbeat wherever it is nested, which covers plain arrays, exports grouped by day and JSON
+ * Lines. The time until the next heartbeat is credited to the project and branch of the earlier
+ * one, unless the gap exceeds {@link #HEARTBEAT_TIMEOUT_SECONDS}; heartbeats are expected in
+ * chronological order, and a step back in time starts a new session.
+ *
+ * <p>Each UTC hour and project becomes one snapshot with a recordId derived from both, so importing
+ * the same history again replaces the earlier import instead of adding to it. Hours that are not
+ * over yet are left to the tracker. Days that would not fit into the retention window, which keeps
+ * the most recent {@link LocalTrackerState#MAX_SESSIONS} days with coding time, are left out, so
+ * the import neither stores days the next rotation drops nor pushes out tracked days: an imported
+ * day is only added on a day that already holds coding time or while the window has room, newest
+ * first.
+ */
+public class HeartbeatImporter {
+
+  /** Gap after which two heartbeats belong to separate sessions, as in WakaTime's default. */
+  static final long HEARTBEAT_TIMEOUT_SECONDS = 15 * 60;
+
+  private static final long SECONDS_PER_HOUR = 3600;
+  private static final int PROGRESS_INTERVAL_HEARTBEATS = 10_000;
+  private static final int STORE_BATCH_HOURS = 500;
+
+  /** Share of the progress bar spent parsing; the rest is storing. */
+  private static final double PARSE_PROGRESS = 0.9;
+
+  /**
+   * @param heartbeats heartbeats read from the file
+   * @param importedSeconds coding time found in the hours imported, including skipped snapshots
+   * @param hours UTC hours with imported activity
+   * @param skipped snapshots left out because CodeClocker tracked the same hour and project
+   * @param outsideRetention UTC hours with activity left out because local history does not keep
+   *     their day
+   */
+  public record Result(
+      long heartbeats, long importedSeconds, int hours, int skipped, int outsideRetention) {}
+
+  private static final class Bucket {
+    double seconds;
+    final Map<String, Double> branchSeconds = new HashMap<>();
+  }
+
+  // UTC hourKey -> (projectName -> bucket), sorted so hours are stored oldest first
+  private final TreeMap<String, Map<String, Bucket>> buckets = new TreeMap<>();
+
+  private long heartbeatCount;
+  private double previousTime = -1;
+  private String previousProject;
+  private String previousBranch;
+
+  /**
+   * Reads all heartbeats from the stream and stores them. An instance imports a single file.
+   *
+   * @param totalBytes size of the input for progress reporting, or 0 if unknown
+   * @param indicator receives progress; cancelling it stops the import, keeping hours stored so far
+   */
+  public Result importFrom(InputStream in, long totalBytes, ProgressIndicator indicator)
+      throws IOException {
+    indicator.setText("Reading heartbeats");
+    try (JsonParser parser = OBJECT_MAPPER.getFactory().createParser(in)) {
+      JsonToken token;
+      while ((token = parser.nextToken()) != null) {
+        readValue(parser, token, totalBytes, indicator);
+      }
+    }
+    indicator.setText("Storing imported activity");
+    return store(indicator);
+  }
+
+  private void readValue(
+      JsonParser parser, JsonToken token, long totalBytes, ProgressIndicator indicator)
+      throws IOException {
+    if (token == JsonToken.START_OBJECT) {
+      readObject(parser, totalBytes, indicator);
+    } else if (token == JsonToken.START_ARRAY) {
+      JsonToken element;
+      while ((element = parser.nextToken()) != JsonToken.END_ARRAY && element != null) {
+        readValue(parser, element, totalBytes, indicator);
+      }
+    }
+    // Scalars outside of a heartbeat carry nothing to import
+  }
+
+  private void readObject(JsonParser parser, long totalBytes, ProgressIndicator indicator)
+      throws IOException {
+    double time = -1;
+    String project = null;
+    String branch = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.currentName();
+      JsonToken value = parser.nextToken();
+      if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+        readValue(parser, value, totalBytes, indicator);
+        continue;
+      }
+      switch (field) {
+        case "time" -> {
+          if (value.isNumeric()) {
+            time = parser.getDoubleValue();
+          }
+        }
+        case "project" -> {
+          if (value == JsonToken.VALUE_STRING) {
+            project = parser.getText();
+          }
+        }
+        case "branch" -> {
+          if (value == JsonToken.VALUE_STRING) {
+            branch = parser.getText();
+          }
+        }
+        default -> {}
+      }
+    }
+
+    if (time <= 0 || project == null || project.isBlank()) {
+      return;
+    }
+    // Some exports use epoch millis
+    if (time > 100_000_000_000d) {
+      time /= 1000;
+    }
+    onHeartbeat(time, project, branch);
+
+    if (++heartbeatCount % PROGRESS_INTERVAL_HEARTBEATS == 0) {
+      indicator.checkCanceled();
+      if (totalBytes > 0) {
+        long offset = parser.currentLocation().getByteOffset();
+        indicator.setFraction(PARSE_PROGRESS * Math.min(1, (double) offset / totalBytes));
+      }
+      indicator.setText2(heartbeatCount + " heartbeats");
+    }
+  }
+
+  private void onHeartbeat(double time, String project, String branch) {
+    double gap = time - previousTime;
+    if (previousProject != null && gap > 0 && gap <= HEARTBEAT_TIMEOUT_SECONDS) {
+      credit(previousTime, time, previousProject, previousBranch);
+    }
+    previousTime = time;
+    previousProject = project;
+    previousBranch = branch;
+  }
+
+  /** Adds {@code [from, to)} to the buckets of the UTC hours it spans. */
+  private void credit(double from, double to, String project, String branch) {
+    double start = from;
+    while (start < to) {
+      long hourStart = (long) Math.floor(start / SECONDS_PER_HOUR) * SECONDS_PER_HOUR;
+      double end = Math.min(to, hourStart + SECONDS_PER_HOUR);
+      double seconds = end - start;
+
+      Bucket bucket =
+          buckets
+              .computeIfAbsent(
+                  TimezoneConversionService.formatHourKey(hourStart), k -> new HashMap<>())
+              .computeIfAbsent(project, k -> new Bucket());
+      bucket.seconds += seconds;
+      if (branch != null && !branch.isBlank()) {
+        bucket.branchSeconds.merge(branch, seconds, Double::sum);
+      }
+      start = end;
+    }
+  }
+
+  private Result store(ProgressIndicator indicator) {
+    LocalStateRepository repository =
+        ApplicationManager.getApplication().getService(LocalStateRepository.class);
+    String currentUtcHour =
+        ApplicationManager.getApplication()
+            .getService(TimezoneConversionService.class)
+            .currentUtcHourKey();
+
+    buckets.tailMap(currentUtcHour).clear();
+    Set<String> retainedDates = selectRetainedDates(repository.getCodedDates());
+    int outsideRetention = buckets.size();
+    buckets.keySet().removeIf(hour -> !retainedDates.contains(hour.substring(0, 10)));
+    outsideRetention -= buckets.size();
+
+    long importedSeconds = 0;
+    int hours = 0;
+    int skipped = 0;
+    int done = 0;
+    Map<String, Map<String, ProjectActivitySnapshot>> batch = new TreeMap<>();
+    try {
+      for (Map.Entry<String, Map<String, Bucket>> hour : buckets.entrySet()) {
+        Map<String, ProjectActivitySnapshot> projects = new HashMap<>();
+        for (Map.Entry<String, Bucket> entry : hour.getValue().entrySet()) {
+          ProjectActivitySnapshot snapshot = toSnapshot(hour.getKey(), entry);
+          if (snapshot != null) {
+            projects.put(StringPool.intern(entry.getKey()), snapshot);
+            importedSeconds += snapshot.getCodedTimeSeconds();
+          }
+        }
+        if (!projects.isEmpty()) {
+          batch.put(hour.getKey(), projects);
+        }
+
+        if (batch.size() >= STORE_BATCH_HOURS) {
+          indicator.checkCanceled();
+          skipped += repository.importHours(batch);
+          hours += batch.size();
+          batch.clear();
+        }
+        indicator.setFraction(PARSE_PROGRESS + (1 - PARSE_PROGRESS) * ++done / buckets.size());
+      }
+      if (!batch.isEmpty()) {
+        skipped += repository.importHours(batch);
+        hours += batch.size();
+      }
+    } finally {
+      if (hours > 0) {
+        ApplicationManager.getApplication()
+            .getService(LocalActivityDataProvider.class)
+            .invalidateRollups();
+      }
+    }
+    return new Result(heartbeatCount, importedSeconds, hours, skipped, outsideRetention);
+  }
+
+  /**
+   * Returns the imported UTC dates that fit into the retention window next to the dates already
+   * stored: those already holding coding time, and as many others as the window has room for,
+   * newest first.
+   */
+  private Set<String> selectRetainedDates(Set<String> codedDates) {
+    Set<String> retained = new HashSet<>();
+    int room = LocalTrackerState.MAX_SESSIONS - codedDates.size();
+    String previousDate = null;
+    for (String hour : buckets.descendingKeySet()) {
+      String date = hour.substring(0, 10);
+      if (date.equals(previousDate)) {
+        continue;
+      }
+      previousDate = date;
+      if (codedDates.contains(date)) {
+        retained.add(date);
+      } else if (room > 0) {
+        retained.add(date);
+        room--;
+      }
+    }
+    return retained;
+  }
+
+  private static ProjectActivitySnapshot toSnapshot(
+      String utcHourKey, Map.Entry<String, Bucket> entry) {
+    Bucket bucket = entry.getValue();
+    long seconds = Math.round(bucket.seconds);
+    if (seconds <= 0) {
+      return null;
+    }
+    ProjectActivitySnapshot snapshot = new ProjectActivitySnapshot(seconds, 0, 0, false);
+    // Stable per hour and project, so a re-import replaces this snapshot
+    snapshot.setRecordId("heartbeat-import:" + utcHourKey + ":" + entry.getKey());
+
+    List<BranchActivityRecord> branches = new ArrayList<>();
+    for (Map.Entry<String, Double> branch : bucket.branchSeconds.entrySet()) {
+      long branchSeconds = Math.round(branch.getValue());
+      if (branchSeconds > 0) {
+        branches.add(new BranchActivityRecord(branch.getKey(), branchSeconds));
+      }
+    }
+    snapshot.setBranchActivity(branches);
+    return snapshot;
+  }
+}
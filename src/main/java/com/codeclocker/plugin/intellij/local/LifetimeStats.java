@@ -0,0 +1,255 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.diagnostic.Logger;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lifetime counters (streaks, active days, first activity date, totals) updated on every merge into
+ * {@link LocalStateRepository}. Unlike the hourly data they are never cleaned up, so lifetime
+ * numbers keep growing after old days fall out of the retention window.
+ *
+ * <p>Days are local dates at the time the activity was recorded. The active and coded dates are
+ * kept as sorted sets, so hours that arrive out of order, e.g. from an import or a git history
+ * backfill, still count; the streaks are recomputed from the coded dates when a date earlier than
+ * the last coded one arrives. When the component is first used, the counters are seeded once from
+ * whatever history the repository still holds; seeding loads the archive, so it runs on a pooled
+ * thread rather than inside a merge. Guarded by the {@link LocalStateRepository} monitor.
+ */
+@State(name = "CodeClockerLifetimeStats", storages = @Storage("codeclocker-lifetime-stats.xml"))
+public class LifetimeStats implements PersistentStateComponent<LifetimeStatsState> {
+
+  private static final Logger LOG = Logger.getInstance(LifetimeStats.class);
+
+  private LifetimeStatsState state = new LifetimeStatsState();
+
+  /** Set once a merge has asked for the seed, so a burst of merges schedules it only once. */
+  private final AtomicBoolean seedScheduled = new AtomicBoolean();
+
+  /** Lifetime counters as of now, including the running session's unsaved seconds. */
+  public record Summary(
+      int currentStreak,
+      int longestStreak,
+      int activeDays,
+      long totalSeconds,
+      long totalLines,
+      int projectCount,
+      @Nullable LocalDate firstActiveDate) {}
+
+  @Override
+  public @Nullable LifetimeStatsState getState() {
+    return state;
+  }
+
+  @Override
+  public void loadState(@NotNull LifetimeStatsState state) {
+    this.state = state;
+  }
+
+  /**
+   * Called by {@link LocalStateRepository} while holding its lock, right after a snapshot was
+   * merged into the given UTC hour.
+   */
+  void onHourMerged(
+      LocalStateRepository repository,
+      String utcHourKey,
+      String projectName,
+      ProjectActivitySnapshot snapshot) {
+    if (!state.isSeeded()) {
+      // The seed will include the snapshot that was just merged
+      scheduleSeed(repository);
+      return;
+    }
+    LocalDate localDate = getConverter().utcHourKeyToLocalDate(utcHourKey);
+    if (localDate != null) {
+      record(localDate, projectName, snapshot);
+    }
+  }
+
+  /**
+   * Called by {@link LocalStateRepository} while holding its lock, right after {@code replacement}
+   * took the place of {@code previous} in the same hour and project. Only the totals change: both
+   * snapshots hold activity, and they fall on the same day.
+   */
+  void onHourReplaced(
+      LocalStateRepository repository,
+      ProjectActivitySnapshot previous,
+      ProjectActivitySnapshot replacement) {
+    if (!state.isSeeded()) {
+      // The seed will include the replacement
+      scheduleSeed(repository);
+      return;
+    }
+    state.setTotalSeconds(
+        state.getTotalSeconds()
+            + replacement.getCodedTimeSeconds()
+            - previous.getCodedTimeSeconds());
+    state.setTotalLines(
+        state.getTotalLines()
+            + replacement.getAdditions()
+            + replacement.getRemovals()
+            - previous.getAdditions()
+            - previous.getRemovals());
+  }
+
+  /**
+   * Returns the counters as they are at {@code today}, counting {@code unsavedSeconds} of the
+   * running session as activity today.
+   */
+  public Summary getSummary(LocalDate today, long unsavedSeconds) {
+    LocalStateRepository repository = getRepository();
+    seedIfNeeded(repository);
+    synchronized (repository) {
+      LocalDate firstActive = parseDate(state.getFirstActiveDate());
+      LocalDate lastCoded = parseDate(state.getLastCodedDate());
+      int activeDays = state.getActiveDates().size();
+      int streak = state.getStreakLength();
+
+      if (unsavedSeconds > 0) {
+        String day = today.toString();
+        if (!state.getActiveDates().contains(day)) {
+          activeDays++;
+        }
+        if (firstActive == null || firstActive.isAfter(today)) {
+          firstActive = today;
+        }
+        if (!state.getCodedDates().contains(day)) {
+          if (lastCoded == null || lastCoded.isBefore(today.minusDays(1))) {
+            streak = 1;
+          } else if (lastCoded.equals(today.minusDays(1))) {
+            streak++;
+          }
+        }
+        if (lastCoded == null || lastCoded.isBefore(today)) {
+          lastCoded = today;
+        }
+      }
+
+      // A streak is current while its last day is today or yesterday
+      int currentStreak = lastCoded != null && !lastCoded.isBefore(today.minusDays(1)) ? streak : 0;
+      return new Summary(
+          currentStreak,
+          Math.max(state.getLongestStreak(), currentStreak),
+          activeDays,
+          state.getTotalSeconds() + Math.max(unsavedSeconds, 0),
+          state.getTotalLines(),
+          state.getProjects().size(),
+          firstActive);
+    }
+  }
+
+  private void scheduleSeed(LocalStateRepository repository) {
+    if (seedScheduled.compareAndSet(false, true)) {
+      ApplicationManager.getApplication().executeOnPooledThread(() -> seedIfNeeded(repository));
+    }
+  }
+
+  private void seedIfNeeded(LocalStateRepository repository) {
+    // The archive is loaded before taking the lock, so merges don't wait for the disk
+    ApplicationManager.getApplication().getService(LocalHistoryArchive.class);
+    synchronized (repository) {
+      if (!state.isSeeded()) {
+        seed(repository);
+      }
+    }
+  }
+
+  private void seed(LocalStateRepository repository) {
+    // Replay in chronological order; local dates follow UTC hour key order
+    Map<String, Map<String, ProjectActivitySnapshot>> history =
+        new TreeMap<>(repository.getAllData());
+    TimezoneConversionService converter = getConverter();
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry : history.entrySet()) {
+      LocalDate localDate = converter.utcHourKeyToLocalDate(hourEntry.getKey());
+      if (localDate == null) {
+        continue;
+      }
+      for (Map.Entry<String, ProjectActivitySnapshot> projectEntry :
+          hourEntry.getValue().entrySet()) {
+        record(localDate, projectEntry.getKey(), projectEntry.getValue());
+      }
+    }
+    state.setSeeded(true);
+    LOG.info(
+        "Seeded lifetime stats from "
+            + history.size()
+            + " hours: "
+            + state.getActiveDates().size()
+            + " active days");
+  }
+
+  private void record(LocalDate date, String projectName, ProjectActivitySnapshot snapshot) {
+    long seconds = snapshot.getCodedTimeSeconds();
+    long lines = snapshot.getAdditions() + snapshot.getRemovals();
+    state.setTotalSeconds(state.getTotalSeconds() + seconds);
+    state.setTotalLines(state.getTotalLines() + lines);
+    if (seconds <= 0 && lines <= 0) {
+      return;
+    }
+    state.getProjects().add(projectName);
+
+    String day = date.toString();
+    if (state.getActiveDates().add(day)) {
+      if (state.getLastActiveDate() == null || day.compareTo(state.getLastActiveDate()) > 0) {
+        state.setLastActiveDate(day);
+      }
+      if (state.getFirstActiveDate() == null || day.compareTo(state.getFirstActiveDate()) < 0) {
+        state.setFirstActiveDate(day);
+      }
+    }
+
+    if (seconds > 0 && state.getCodedDates().add(day)) {
+      recordCodedDay(date);
+    }
+  }
+
+  private void recordCodedDay(LocalDate date) {
+    LocalDate lastCoded = parseDate(state.getLastCodedDate());
+    if (lastCoded != null && date.isBefore(lastCoded)) {
+      // An earlier day arrived late; it may extend, bridge or start runs anywhere
+      recomputeStreaks();
+      return;
+    }
+    int streak =
+        lastCoded != null && date.equals(lastCoded.plusDays(1)) ? state.getStreakLength() + 1 : 1;
+    state.setStreakLength(streak);
+    state.setLongestStreak(Math.max(state.getLongestStreak(), streak));
+    state.setLastCodedDate(date.toString());
+  }
+
+  private void recomputeStreaks() {
+    LocalDate previous = null;
+    int streak = 0;
+    int longest = 0;
+    // Iterates in date order; the set is sorted
+    for (String day : state.getCodedDates()) {
+      LocalDate date = LocalDate.parse(day);
+      streak = previous != null && date.equals(previous.plusDays(1)) ? streak + 1 : 1;
+      longest = Math.max(longest, streak);
+      previous = date;
+    }
+    state.setStreakLength(streak);
+    state.setLongestStreak(longest);
+    state.setLastCodedDate(previous != null ? previous.toString() : null);
+  }
+
+  private static LocalDate parseDate(String date) {
+    return date != null ? LocalDate.parse(date) : null;
+  }
+
+  private LocalStateRepository getRepository() {
+    return ApplicationManager.getApplication().getService(LocalStateRepository.class);
+  }
+
+  private TimezoneConversionService getConverter() {
+    return ApplicationManager.getApplication().getService(TimezoneConversionService.class);
+  }
+}
@@ -0,0 +1,122 @@
+package com.codeclocker.plugin.intellij.local;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Persisted lifetime counters, see {@link LifetimeStats}. Dates are local dates in {@code
+ * yyyy-MM-dd} form; null means no activity recorded yet.
+ */
+public class LifetimeStatsState {
+
+  /** Whether the counters were seeded from the history that existed before they were introduced. */
+  private boolean seeded;
+
+  /** Dates with any activity, sorted. */
+  private Set<String> activeDates = new TreeSet<>();
+
+  private String firstActiveDate;
+  private String lastActiveDate;
+
+  /** Dates with coded time, sorted; streaks are runs of consecutive dates in this set. */
+  private Set<String> codedDates = new TreeSet<>();
+
+  /** Last date with coded time and the length of the run of consecutive such days ending there. */
+  private String lastCodedDate;
+
+  private int streakLength;
+  private int longestStreak;
+
+  private long totalSeconds;
+  private long totalLines;
+  private Set<String> projects = new HashSet<>();
+
+  public boolean isSeeded() {
+    return seeded;
+  }
+
+  public void setSeeded(boolean seeded) {
+    this.seeded = seeded;
+  }
+
+  public Set<String> getActiveDates() {
+    return activeDates;
+  }
+
+  public void setActiveDates(Set<String> activeDates) {
+    this.activeDates = activeDates != null ? new TreeSet<>(activeDates) : new TreeSet<>();
+  }
+
+  public String getFirstActiveDate() {
+    return firstActiveDate;
+  }
+
+  public void setFirstActiveDate(String firstActiveDate) {
+    this.firstActiveDate = firstActiveDate;
+  }
+
+  public String getLastActiveDate() {
+    return lastActiveDate;
+  }
+
+  public void setLastActiveDate(String lastActiveDate) {
+    this.lastActiveDate = lastActiveDate;
+  }
+
+  public Set<String> getCodedDates() {
+    return codedDates;
+  }
+
+  public void setCodedDates(Set<String> codedDates) {
+    this.codedDates = codedDates != null ? new TreeSet<>(codedDates) : new TreeSet<>();
+  }
+
+  public String getLastCodedDate() {
+    return lastCodedDate;
+  }
+
+  public void setLastCodedDate(String lastCodedDate) {
+    this.lastCodedDate = lastCodedDate;
+  }
+
+  public int getStreakLength() {
+    return streakLength;
+  }
+
+  public void setStreakLength(int streakLength) {
+    this.streakLength = streakLength;
+  }
+
+  public int getLongestStreak() {
+    return longestStreak;
+  }
+
+  public void setLongestStreak(int longestStreak) {
+    this.longestStreak = longestStreak;
+  }
+
+  public long getTotalSeconds() {
+    return totalSeconds;
+  }
+
+  public void setTotalSeconds(long totalSeconds) {
+    this.totalSeconds = totalSeconds;
+  }
+
+  public long getTotalLines() {
+    return totalLines;
+  }
+
+  public void setTotalLines(long totalLines) {
+    this.totalLines = totalLines;
+  }
+
+  public Set<String> getProjects() {
+    return projects;
+  }
+
+  public void setProjects(Set<String> projects) {
+    this.projects = projects != null ? projects : new HashSet<>();
+  }
+}
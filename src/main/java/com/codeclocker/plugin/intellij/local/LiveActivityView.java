@@ -0,0 +1,157 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.codeclocker.plugin.intellij.services.TimeSpentPerProjectLogger;
+import com.codeclocker.plugin.intellij.services.TimeSpentPerProjectLogger.ProjectTimeDelta;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Persisted activity in the local timezone plus the running session's unsaved seconds, so views
+ * show the same totals as the status bar widget.
+ *
+ * <p>The persisted part is materialized once per {@link LocalActivityDataProvider#getDataVersion()}
+ * and shared between snapshots; unsaved seconds are overlaid by copying only the hours they touch.
+ * Every change to either part bumps {@link #getVersion()}, so consumers can skip recomputing when
+ * it did not move.
+ */
+@Service(Service.Level.APP)
+public final class LiveActivityView {
+
+  /**
+   * Immutable view of the data at one version.
+   *
+   * @param data localHourKey -> (projectName -> snapshot), sorted by hourKey descending
+   * @param unsavedSeconds seconds of the running session that are not persisted yet
+   * @param persistedVersion {@link LocalActivityDataProvider#getDataVersion()} of {@code persisted}
+   * @param persisted the persisted part of {@code data}, shared by snapshots of the same
+   *     persistedVersion
+   * @param unsaved the unsaved seconds alone, as localHourKey -> (projectName -> snapshot); {@code
+   *     data} is {@code persisted} with these added
+   */
+  public record Snapshot(
+      long version,
+      NavigableMap<String, Map<String, ProjectActivitySnapshot>> data,
+      long unsavedSeconds,
+      long persistedVersion,
+      NavigableMap<String, Map<String, ProjectActivitySnapshot>> persisted,
+      Map<String, Map<String, ProjectActivitySnapshot>> unsaved) {}
+
+  /** What a snapshot is built from; the version moves whenever this changes. */
+  private record SourceState(long dataVersion, Map<String, ProjectTimeDelta> unsavedDeltas) {}
+
+  private SourceState sourceState;
+  private long version;
+  private Snapshot cachedSnapshot;
+
+  private NavigableMap<String, Map<String, ProjectActivitySnapshot>> persisted;
+  private long persistedDataVersion = -1;
+
+  /** Returns a number that grows whenever {@link #snapshot()} would return different data. */
+  public synchronized long getVersion() {
+    refreshSourceState();
+    return version;
+  }
+
+  /** Returns the current snapshot, reusing the previous one if nothing changed since. */
+  public synchronized Snapshot snapshot() {
+    SourceState state = refreshSourceState();
+    if (cachedSnapshot == null) {
+      cachedSnapshot = build(state);
+    }
+    return cachedSnapshot;
+  }
+
+  private SourceState refreshSourceState() {
+    LocalActivityDataProvider dataProvider = getDataProvider();
+    TimeSpentPerProjectLogger logger = getLogger();
+    SourceState state =
+        new SourceState(
+            dataProvider != null ? dataProvider.getDataVersion() : 0,
+            logger != null ? logger.getUnsavedDeltas() : Map.of());
+    if (!state.equals(sourceState)) {
+      sourceState = state;
+      version++;
+      cachedSnapshot = null;
+    }
+    return state;
+  }
+
+  private Snapshot build(SourceState state) {
+    if (persisted == null || persistedDataVersion != state.dataVersion()) {
+      LocalActivityDataProvider dataProvider = getDataProvider();
+      persisted =
+          dataProvider != null
+              ? Collections.unmodifiableNavigableMap(dataProvider.getAllDataInLocalTimezone())
+              : Collections.emptyNavigableMap();
+      persistedDataVersion = state.dataVersion();
+    }
+    if (state.unsavedDeltas().isEmpty()) {
+      return new Snapshot(version, persisted, 0, persistedDataVersion, persisted, Map.of());
+    }
+
+    // Shallow copy; hours touched by unsaved seconds get their own project map
+    NavigableMap<String, Map<String, ProjectActivitySnapshot>> data = new TreeMap<>(persisted);
+    Map<String, Map<String, ProjectActivitySnapshot>> overlaidHours = new HashMap<>();
+    Map<String, Map<String, ProjectActivitySnapshot>> unsaved = new HashMap<>();
+    TimezoneConversionService converter = getConverter();
+    long unsavedSeconds = 0;
+    for (Map.Entry<String, ProjectTimeDelta> entry : state.unsavedDeltas().entrySet()) {
+      ProjectTimeDelta delta = entry.getValue();
+      String localHourKey = converter.utcToLocalHourKey(delta.hourKey());
+      Map<String, ProjectActivitySnapshot> hour =
+          overlaidHours.computeIfAbsent(
+              localHourKey, k -> new HashMap<>(data.getOrDefault(k, Map.of())));
+      hour.put(entry.getKey(), withExtraSeconds(hour.get(entry.getKey()), delta.deltaSeconds()));
+      unsaved
+          .computeIfAbsent(localHourKey, k -> new HashMap<>())
+          .put(entry.getKey(), withExtraSeconds(null, delta.deltaSeconds()));
+      unsavedSeconds += delta.deltaSeconds();
+    }
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hour : overlaidHours.entrySet()) {
+      data.put(hour.getKey(), Collections.unmodifiableMap(hour.getValue()));
+    }
+    return new Snapshot(
+        version,
+        Collections.unmodifiableNavigableMap(data),
+        unsavedSeconds,
+        persistedDataVersion,
+        persisted,
+        Collections.unmodifiableMap(unsaved));
+  }
+
+  /** Copy of {@code existing} with extra coded seconds, keeping branch, commit and file details. */
+  private static ProjectActivitySnapshot withExtraSeconds(
+      ProjectActivitySnapshot existing, long seconds) {
+    if (existing == null) {
+      return new ProjectActivitySnapshot(seconds, 0, 0, false);
+    }
+    ProjectActivitySnapshot updated =
+        new ProjectActivitySnapshot(
+            existing.getCodedTimeSeconds() + seconds,
+            existing.getAdditions(),
+            existing.getRemovals(),
+            existing.isReported());
+    updated.copyRecordIdFrom(existing);
+    updated.setBranchActivity(existing.getBranchActivity());
+    updated.setCommits(existing.getCommits());
+    updated.setFileChanges(existing.getFileChanges());
+    return updated;
+  }
+
+  private LocalActivityDataProvider getDataProvider() {
+    return ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
+  }
+
+  private TimeSpentPerProjectLogger getLogger() {
+    return ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
+  }
+
+  private TimezoneConversionService getConverter() {
+    return ApplicationManager.getApplication().getService(TimezoneConversionService.class);
+  }
+}
@@ -4,40 +4,96 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Provides local activity data converted to the user's local timezone for display purposes. This is
  * the single source of truth for all UI components that need to display coding time data.
  *
  * <p>Internally, data is stored in UTC. This provider converts UTC hourKeys to local timezone when
- * returning data for display.
+ * returning data for display. Today/week totals are served from per-local-day rollups that are
+ * updated on every merge and rebuilt when the timezone or the shared store changes. Hour key
+ * conversion goes through {@link TimezoneConversionService}.
  */
 @Service(Service.Level.APP)
 public final class LocalActivityDataProvider {
 
-  private static final DateTimeFormatter DATETIME_HOUR_FORMATTER =
-      DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
-  private static final ZoneId UTC = ZoneId.of("UTC");
+  /**
+   * Guards the rollups. Merges take it inside the {@link LocalStateRepository} monitor and it is
+   * never held while waiting for that monitor, so reads don't queue behind repository work that may
+   * be on disk.
+   */
+  private final Object rollupLock = new Object();
+
+  /**
+   * Coded seconds per local date, built from the recent state and updated on every merge. Guarded
+   * by {@link #rollupLock}; null means rebuild on next read.
+   */
+  private Map<LocalDate, DailyRollup> dailyRollups;
+
+  private long rollupSharedVersion;
+
+  /**
+   * Bumped whenever persisted data visible through this provider changes. Updated under {@link
+   * #rollupLock}, so a rebuild can tell whether a merge happened since it copied the data.
+   */
+  private final AtomicLong dataVersion = new AtomicLong();
+
+  private static final class DailyRollup {
+    private long totalSeconds;
+    private final Map<String, Long> projectSeconds = new HashMap<>();
+
+    private void add(String projectName, long seconds) {
+      totalSeconds += seconds;
+      projectSeconds.merge(projectName, seconds, Long::sum);
+    }
+
+    private long getProjectSeconds(String projectName) {
+      return projectSeconds.getOrDefault(projectName, 0L);
+    }
+  }
 
   private LocalStateRepository getRepository() {
     return ApplicationManager.getApplication().getService(LocalStateRepository.class);
   }
 
+  public LocalActivityDataProvider() {
+    getConverter().addZoneChangeListener(this::invalidateRollups);
+  }
+
+  private TimezoneConversionService getConverter() {
+    return ApplicationManager.getApplication().getService(TimezoneConversionService.class);
+  }
+
+  private SharedActivityStore getSharedStore() {
+    return ApplicationManager.getApplication().getService(SharedActivityStore.class);
+  }
+
   /**
    * Returns all activity data with hourKeys converted to local timezone. The returned map is sorted
-   * by hourKey in descending order (most recent first).
+   * by hourKey in descending order (most recent first). When the machine-wide shared store is
+   * enabled, activity recorded by other IDEs is included. The map is navigable, so date ranges can
+   * be queried with {@code subMap} (see {@code ActivityQueryEngine}).
    *
    * @return Map of localHourKey -> (projectName -> snapshot)
    */
-  public Map<String, Map<String, ProjectActivitySnapshot>> getAllDataInLocalTimezone() {
-    Map<String, Map<String, ProjectActivitySnapshot>> utcData = getRepository().getAllData();
+  public NavigableMap<String, Map<String, ProjectActivitySnapshot>> getAllDataInLocalTimezone() {
+    return withSharedActivityInLocalTimezone(getRepository().getAllData());
+  }
+
+  private NavigableMap<String, Map<String, ProjectActivitySnapshot>>
+      withSharedActivityInLocalTimezone(Map<String, Map<String, ProjectActivitySnapshot>> utcData) {
+    SharedActivityStore sharedStore = getSharedStore();
+    if (sharedStore != null) {
+      utcData = sharedStore.mergeInto(utcData);
+    }
     return convertToLocalTimezone(utcData);
   }
 
@@ -47,14 +103,8 @@ public final class LocalActivityDataProvider {
    * @return total seconds coded today in local timezone
    */
   public long getTodayTotalSeconds() {
-    String todayLocalPrefix = LocalDate.now().toString();
-    Map<String, Map<String, ProjectActivitySnapshot>> localData = getAllDataInLocalTimezone();
-
-    return localData.entrySet().stream()
-        .filter(entry -> entry.getKey().startsWith(todayLocalPrefix))
-        .flatMap(entry -> entry.getValue().values().stream())
-        .mapToLong(ProjectActivitySnapshot::getCodedTimeSeconds)
-        .sum();
+    LocalDate today = LocalDate.now();
+    return sumRollups(today, today, null);
   }
 
   /**
@@ -64,15 +114,8 @@ public final class LocalActivityDataProvider {
    * @return total seconds coded today for the project in local timezone
    */
   public long getTodayProjectSeconds(String projectName) {
-    String todayLocalPrefix = LocalDate.now().toString();
-    Map<String, Map<String, ProjectActivitySnapshot>> localData = getAllDataInLocalTimezone();
-
-    return localData.entrySet().stream()
-        .filter(entry -> entry.getKey().startsWith(todayLocalPrefix))
-        .map(entry -> entry.getValue().get(projectName))
-        .filter(snapshot -> snapshot != null)
-        .mapToLong(ProjectActivitySnapshot::getCodedTimeSeconds)
-        .sum();
+    LocalDate today = LocalDate.now();
+    return sumRollups(today, today, projectName);
   }
 
   /**
@@ -83,13 +126,7 @@ public final class LocalActivityDataProvider {
   public long getWeekTotalSeconds() {
     LocalDate today = LocalDate.now();
     LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
-    Map<String, Map<String, ProjectActivitySnapshot>> localData = getAllDataInLocalTimezone();
-
-    return localData.entrySet().stream()
-        .filter(entry -> isInWeek(entry.getKey(), weekStart, today))
-        .flatMap(entry -> entry.getValue().values().stream())
-        .mapToLong(ProjectActivitySnapshot::getCodedTimeSeconds)
-        .sum();
+    return sumRollups(weekStart, today, null);
   }
 
   /**
@@ -101,14 +138,7 @@ public final class LocalActivityDataProvider {
   public long getWeekProjectSeconds(String projectName) {
     LocalDate today = LocalDate.now();
     LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
-    Map<String, Map<String, ProjectActivitySnapshot>> localData = getAllDataInLocalTimezone();
-
-    return localData.entrySet().stream()
-        .filter(entry -> isInWeek(entry.getKey(), weekStart, today))
-        .map(entry -> entry.getValue().get(projectName))
-        .filter(snapshot -> snapshot != null)
-        .mapToLong(ProjectActivitySnapshot::getCodedTimeSeconds)
-        .sum();
+    return sumRollups(weekStart, today, projectName);
   }
 
   /**
@@ -117,14 +147,8 @@ public final class LocalActivityDataProvider {
    * @return total seconds coded yesterday in local timezone
    */
   public long getYesterdayTotalSeconds() {
-    String yesterdayPrefix = LocalDate.now().minusDays(1).toString();
-    Map<String, Map<String, ProjectActivitySnapshot>> localData = getAllDataInLocalTimezone();
-
-    return localData.entrySet().stream()
-        .filter(entry -> entry.getKey().startsWith(yesterdayPrefix))
-        .flatMap(entry -> entry.getValue().values().stream())
-        .mapToLong(ProjectActivitySnapshot::getCodedTimeSeconds)
-        .sum();
+    LocalDate yesterday = LocalDate.now().minusDays(1);
+    return sumRollups(yesterday, yesterday, null);
   }
 
   /**
@@ -137,26 +161,111 @@ public final class LocalActivityDataProvider {
     LocalDate startOfThisWeek = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
     LocalDate startOfLastWeek = startOfThisWeek.minusWeeks(1);
     LocalDate endOfLastWeek = startOfThisWeek.minusDays(1);
-    Map<String, Map<String, ProjectActivitySnapshot>> localData = getAllDataInLocalTimezone();
+    return sumRollups(startOfLastWeek, endOfLastWeek, null);
+  }
+
+  /**
+   * Called by {@link LocalStateRepository} while holding its lock, right after a snapshot was
+   * merged into the given UTC hour. Keeps the rollups current without rescanning history.
+   */
+  void onHourMerged(String utcHourKey, String projectName, long codedSeconds) {
+    LocalDate localDate =
+        codedSeconds != 0 ? getConverter().utcHourKeyToLocalDate(utcHourKey) : null;
+    synchronized (rollupLock) {
+      dataVersion.incrementAndGet();
+      if (dailyRollups != null && localDate != null) {
+        dailyRollups
+            .computeIfAbsent(localDate, d -> new DailyRollup())
+            .add(projectName, codedSeconds);
+      }
+    }
+  }
 
-    return localData.entrySet().stream()
-        .filter(entry -> isInDateRange(entry.getKey(), startOfLastWeek, endOfLastWeek))
-        .flatMap(entry -> entry.getValue().values().stream())
-        .mapToLong(ProjectActivitySnapshot::getCodedTimeSeconds)
-        .sum();
+  /** Drops the rollups; they are rebuilt from the recent state on the next read. */
+  void invalidateRollups() {
+    synchronized (rollupLock) {
+      dailyRollups = null;
+      dataVersion.incrementAndGet();
+    }
+    ApplicationManager.getApplication()
+        .getService(ActivityEventPublisher.class)
+        .changed(null, null, ActivityListener.Kind.RELOADED);
+  }
+
+  /**
+   * Returns a number that changes whenever data returned by {@link #getAllDataInLocalTimezone()}
+   * may have changed, including activity from other IDEs. Unsaved deltas of the running session are
+   * not covered. Meant as a cache key, the value itself has no meaning.
+   */
+  public long getDataVersion() {
+    SharedActivityStore sharedStore = getSharedStore();
+    long sharedVersion = sharedStore != null ? sharedStore.getVersion() : 0;
+    // Both counters only grow, so their sum changes whenever either does
+    return dataVersion.get() + sharedVersion;
   }
 
-  private boolean isInWeek(String hourKey, LocalDate weekStart, LocalDate today) {
-    return isInDateRange(hourKey, weekStart, today);
+  /**
+   * Sums rollups for the inclusive local date range, for one project or all projects if {@code
+   * projectName} is null. Only meant for ranges within the current and previous week, which the
+   * recent state always holds.
+   */
+  private long sumRollups(LocalDate from, LocalDate to, String projectName) {
+    SharedActivityStore sharedStore = getSharedStore();
+    long sharedVersion = sharedStore != null ? sharedStore.getVersion() : 0;
+
+    while (true) {
+      synchronized (rollupLock) {
+        if (dailyRollups != null && sharedVersion == rollupSharedVersion) {
+          long total = 0;
+          for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            DailyRollup rollup = dailyRollups.get(date);
+            if (rollup != null) {
+              total +=
+                  projectName == null ? rollup.totalSeconds : rollup.getProjectSeconds(projectName);
+            }
+          }
+          return total;
+        }
+      }
+      rebuildRollups(sharedStore, sharedVersion);
+    }
   }
 
-  private boolean isInDateRange(String hourKey, LocalDate start, LocalDate end) {
-    try {
-      String dateStr = hourKey.substring(0, 10); // "yyyy-MM-dd"
-      LocalDate date = LocalDate.parse(dateStr);
-      return !date.isBefore(start) && !date.isAfter(end);
-    } catch (Exception e) {
-      return false;
+  /**
+   * Rebuilds the rollups from a copy of the recent state. The copy is taken under the repository
+   * monitor, the rollups are built outside of any lock, and they are only installed if no merge
+   * happened in between; otherwise the caller tries again.
+   */
+  private void rebuildRollups(SharedActivityStore sharedStore, long sharedVersion) {
+    LocalStateRepository repository = getRepository();
+    Map<String, Map<String, ProjectActivitySnapshot>> utcData;
+    long version;
+    synchronized (repository) {
+      utcData = repository.getRecentData();
+      version = dataVersion.get();
+    }
+    if (sharedStore != null) {
+      utcData = sharedStore.mergeInto(utcData);
+    }
+
+    TimezoneConversionService converter = getConverter();
+    Map<LocalDate, DailyRollup> rollups = new HashMap<>();
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : utcData.entrySet()) {
+      LocalDate localDate = converter.utcHourKeyToLocalDate(entry.getKey());
+      if (localDate == null) {
+        continue;
+      }
+      DailyRollup rollup = rollups.computeIfAbsent(localDate, d -> new DailyRollup());
+      for (Map.Entry<String, ProjectActivitySnapshot> project : entry.getValue().entrySet()) {
+        rollup.add(project.getKey(), project.getValue().getCodedTimeSeconds());
+      }
+    }
+
+    synchronized (rollupLock) {
+      if (dataVersion.get() == version) {
+        dailyRollups = rollups;
+        rollupSharedVersion = sharedVersion;
+      }
     }
   }
 
@@ -166,16 +275,17 @@ public final class LocalActivityDataProvider {
    * @param utcData data with UTC hourKeys
    * @return data with local timezone hourKeys, sorted by key descending
    */
-  private Map<String, Map<String, ProjectActivitySnapshot>> convertToLocalTimezone(
+  private NavigableMap<String, Map<String, ProjectActivitySnapshot>> convertToLocalTimezone(
       Map<String, Map<String, ProjectActivitySnapshot>> utcData) {
 
-    ZoneId localZone = ZoneId.systemDefault();
-    Map<String, Map<String, ProjectActivitySnapshot>> localData = new LinkedHashMap<>();
+    TimezoneConversionService converter = getConverter();
+    NavigableMap<String, Map<String, ProjectActivitySnapshot>> localData =
+        new TreeMap<>(Comparator.reverseOrder());
 
     // Convert and collect
     for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : utcData.entrySet()) {
       String utcHourKey = entry.getKey();
-      String localHourKey = convertUtcHourKeyToLocal(utcHourKey, localZone);
+      String localHourKey = converter.utcToLocalHourKey(utcHourKey);
 
       // Merge in case multiple UTC hours map to same local hour (shouldn't happen normally)
       localData.compute(
@@ -189,23 +299,6 @@ public final class LocalActivityDataProvider {
           });
     }
 
-    // Sort by key descending (most recent first)
-    return localData.entrySet().stream()
-        .sorted(Map.Entry.<String, Map<String, ProjectActivitySnapshot>>comparingByKey().reversed())
-        .collect(
-            LinkedHashMap::new,
-            (map, e) -> map.put(e.getKey(), e.getValue()),
-            LinkedHashMap::putAll);
-  }
-
-  private String convertUtcHourKeyToLocal(String utcHourKey, ZoneId localZone) {
-    try {
-      LocalDateTime utcDateTime = LocalDateTime.parse(utcHourKey, DATETIME_HOUR_FORMATTER);
-      ZonedDateTime localDateTime = utcDateTime.atZone(UTC).withZoneSameInstant(localZone);
-      return localDateTime.format(DATETIME_HOUR_FORMATTER);
-    } catch (Exception e) {
-      // Fallback to original if parsing fails
-      return utcHourKey;
-    }
+    return localData;
   }
 }
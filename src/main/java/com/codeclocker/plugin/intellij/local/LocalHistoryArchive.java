@@ -0,0 +1,68 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.codeclocker.plugin.intellij.local.migration.LocalStateMigrations;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cold history older than the current and previous week. Kept in its own storage file so it is only
+ * deserialized when something asks for the full history (dashboard, export, standup digest), not at
+ * IDE startup. Hours are moved here by {@link LocalStateRepository#rotate()}.
+ */
+@State(name = "CodeClockerLocalHistory", storages = @Storage("codeclocker-local-history.xml"))
+public class LocalHistoryArchive implements PersistentStateComponent<LocalTrackerState> {
+
+  private static final Logger LOG = Logger.getInstance(LocalHistoryArchive.class);
+
+  // Only ever filled from the already-migrated recent state, so it starts at the current version
+  private LocalTrackerState state = LocalTrackerState.createEmpty();
+
+  @Override
+  public @Nullable LocalTrackerState getState() {
+    return state;
+  }
+
+  @Override
+  public void loadState(@NotNull LocalTrackerState state) {
+    this.state = state;
+    LocalStateMigrations.migrate(this.state);
+    this.state.internProjectNames();
+    LOG.debug("Loaded local history archive with " + state.getTotalEntries() + " entries");
+  }
+
+  /** Moves the given UTC hour into the archive, replacing any snapshots already stored for it. */
+  public void archiveHour(String utcHourKey, Map<String, ProjectActivitySnapshot> projects) {
+    state.getHourlyActivity().computeIfAbsent(utcHourKey, k -> new HashMap<>()).putAll(projects);
+  }
+
+  /** Adds a snapshot to an archived hour, summing it with any snapshot of the same project. */
+  public void mergeProject(
+      String utcHourKey, String projectName, ProjectActivitySnapshot snapshot) {
+    state.mergeProject(utcHourKey, projectName, snapshot);
+  }
+
+  public Map<String, Map<String, ProjectActivitySnapshot>> getAllData() {
+    return state.getHourlyActivity();
+  }
+
+  public Map<String, Map<String, ProjectActivitySnapshot>> getUnreportedData() {
+    return state.getUnreportedData();
+  }
+
+  public void markAllDataAsReported() {
+    state.getHourlyActivity().values().stream()
+        .flatMap(projects -> projects.values().stream())
+        .forEach(snapshot -> snapshot.setReported(true));
+  }
+
+  public int removeDates(Set<String> dates) {
+    return state.removeDates(dates);
+  }
+}
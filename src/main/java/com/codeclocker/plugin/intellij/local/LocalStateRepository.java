@@ -1,17 +1,25 @@
 package com.codeclocker.plugin.intellij.local;
 
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
+import com.codeclocker.plugin.intellij.local.migration.LocalStateMigrations;
 import com.codeclocker.plugin.intellij.reporting.DataReportingTask;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.State;
 import com.intellij.openapi.components.Storage;
 import com.intellij.openapi.diagnostic.Logger;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -19,15 +27,16 @@ import org.jetbrains.annotations.Nullable;
  * Repository for persisting tracked time and VCS changes locally. Uses IntelliJ's
  * PersistentStateComponent for automatic XML serialization. Data is retained for max 2 weeks with
  * hour granularity.
+ *
+ * <p>Only the current and previous week are kept in this component, so startup deserializes a small
+ * state. Older hours are moved to {@link LocalHistoryArchive}, which is loaded on first access to
+ * the full history.
  */
 @State(name = "CodeClockerLocalState", storages = @Storage("codeclocker-local-state.xml"))
 public class LocalStateRepository implements PersistentStateComponent<LocalTrackerState> {
 
   private static final Logger LOG = Logger.getInstance(LocalStateRepository.class);
-  private static final DateTimeFormatter DATETIME_HOUR_FORMATTER =
-      DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
-
-  private LocalTrackerState state = new LocalTrackerState();
+  private LocalTrackerState state = LocalTrackerState.createEmpty();
 
   @Override
   public @Nullable LocalTrackerState getState() {
@@ -41,101 +50,265 @@ public class LocalStateRepository implements PersistentStateComponent<LocalTrack
   public void loadState(@NotNull LocalTrackerState state) {
     this.state = state;
 
-    // Migrate hourKeys from local timezone to UTC if needed
-    if (this.state.needsMigrationToUtc()) {
-      migrateHourKeysToUtc();
-    }
+    // Upgrade legacy layouts; a no-op once the state is at the current schema version
+    LocalStateMigrations.migrate(this.state);
+    this.state.internProjectNames();
+
+    // Archiving cold hours and retention cleanup are deferred to rotate(), off the startup path
+    LOG.debug("Loaded local tracker state with " + this.state.getTotalEntries() + " entries");
+  }
 
-    // Ensure all entries have recordIds (for backward compatibility with older data)
-    int recordIdsGenerated = this.state.ensureAllRecordIds();
-    if (recordIdsGenerated > 0) {
-      LOG.info("Generated recordIds for " + recordIdsGenerated + " existing entries");
+  /**
+   * Merges a snapshot into the current UTC hour. Synchronized on the repository so the daily
+   * rollups in {@link LocalActivityDataProvider} and the {@link LifetimeStats} see each merge
+   * exactly once.
+   */
+  public synchronized void mergeProjectCurrentHour(
+      String projectName, ProjectActivitySnapshot snapshot) {
+    // Ensure snapshot has a recordId for idempotent sync
+    snapshot.ensureRecordId();
+    String currentUtcHour =
+        ApplicationManager.getApplication()
+            .getService(TimezoneConversionService.class)
+            .currentUtcHourKey();
+    state.mergeProject(currentUtcHour, projectName, snapshot);
+    getDataProvider().onHourMerged(currentUtcHour, projectName, snapshot.getCodedTimeSeconds());
+    getLifetimeStats().onHourMerged(this, currentUtcHour, projectName, snapshot);
+    getCommitSearchIndex().onCommitsStored(currentUtcHour, projectName, snapshot.getCommits());
+    publishToSharedStore(currentUtcHour, projectName);
+    ApplicationManager.getApplication()
+        .getService(ActivityEventPublisher.class)
+        .changed(projectName, currentUtcHour, Kind.PERSISTED);
+    LOG.debug("Merged local state for project: " + projectName + " at UTC hour: " + currentUtcHour);
+  }
+
+  /**
+   * Stores snapshots imported from another time tracker. Hours already moved to the archive are
+   * written there. A snapshot replaces an earlier import of the same hour and project, recognized
+   * by its recordId, so importing a file twice stores it once; commits and line counts added to the
+   * earlier import are kept. Activity tracked by CodeClocker itself is never overwritten.
+   *
+   * @param hours UTC hourKey -> (projectName -> snapshot), completed hours only
+   * @return number of snapshots skipped because their hour and project hold tracked activity
+   */
+  public synchronized int importHours(Map<String, Map<String, ProjectActivitySnapshot>> hours) {
+    int skipped = 0;
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hour : hours.entrySet()) {
+      String utcHourKey = hour.getKey();
+      boolean archived = state.getArchivedHourlySeconds().containsKey(utcHourKey);
+      Map<String, ProjectActivitySnapshot> stored =
+          (archived ? getArchive().getAllData() : state.getHourlyActivity())
+              .computeIfAbsent(utcHourKey, k -> new HashMap<>());
+
+      for (Map.Entry<String, ProjectActivitySnapshot> entry : hour.getValue().entrySet()) {
+        ProjectActivitySnapshot snapshot = entry.getValue();
+        ProjectActivitySnapshot existing = stored.get(entry.getKey());
+        if (existing != null && !Objects.equals(existing.getRecordId(), snapshot.getRecordId())) {
+          skipped++;
+          continue;
+        }
+        if (existing != null) {
+          // Keep what was added to the earlier import since, e.g. commits from the git history
+          snapshot.setAdditions(existing.getAdditions());
+          snapshot.setRemovals(existing.getRemovals());
+          snapshot.setCommits(existing.getCommits());
+          snapshot.setFileChanges(existing.getFileChanges());
+        }
+        stored.put(entry.getKey(), snapshot);
+        if (existing == null) {
+          getLifetimeStats().onHourMerged(this, utcHourKey, entry.getKey(), snapshot);
+        } else {
+          // The earlier import was counted when it was first stored; apply the difference
+          getLifetimeStats().onHourReplaced(this, existing, snapshot);
+        }
+      }
+
+      if (archived) {
+        long seconds = 0;
+        for (ProjectActivitySnapshot snapshot : stored.values()) {
+          seconds += snapshot.getCodedTimeSeconds();
+          if (!snapshot.isReported()) {
+            state.setArchiveHasUnreported(true);
+          }
+        }
+        state.getArchivedHourlySeconds().put(utcHourKey, seconds);
+      }
     }
+    return skipped;
+  }
 
-    // Cleanup old entries on load
-    int removed = this.state.cleanupOldEntries();
-    if (removed > 0) {
-      LOG.info("Cleaned up " + removed + " old hour entries from local state");
+  /**
+   * Returns the UTC dates (yyyy-MM-dd) with coding time, across the recent state and the archive.
+   * Retention keeps the most recent {@link LocalTrackerState#MAX_SESSIONS} of them, see {@link
+   * #enforceRetention()}.
+   */
+  public synchronized Set<String> getCodedDates() {
+    Set<String> dates = new HashSet<>();
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry :
+        state.getHourlyActivity().entrySet()) {
+      String hourKey = hourEntry.getKey();
+      if (hourKey != null
+          && hourKey.length() >= 10
+          && hourEntry.getValue().values().stream()
+              .anyMatch(snapshot -> snapshot.getCodedTimeSeconds() > 0)) {
+        dates.add(hourKey.substring(0, 10));
+      }
     }
-    LOG.debug("Loaded local tracker state with " + this.state.getTotalEntries() + " entries");
+    for (Map.Entry<String, Long> hourEntry : state.getArchivedHourlySeconds().entrySet()) {
+      if (hourEntry.getValue() > 0) {
+        dates.add(hourEntry.getKey().substring(0, 10));
+      }
+    }
+    return dates;
   }
 
   /**
-   * Migrates all hourKeys from local timezone to UTC. This is a one-time migration for existing
-   * data that was stored using the host's timezone.
+   * Adds commits found in the VCS history to the UTC hours they were made in. Each snapshot holds a
+   * single commit with its line counts and file changes. Commits already stored, e.g. recorded when
+   * they were made in the IDE, are skipped; the hour after the commit is checked as well, since
+   * recorded commits are timestamped when the IDE saw them. When the hour already holds coding time
+   * of the project, only the commit record is added: its lines were either tracked in the IDE
+   * already or made outside of it, and the stored snapshot keeps its reported state.
+   *
+   * @return number of commits added
    */
-  private void migrateHourKeysToUtc() {
-    Map<String, Map<String, ProjectActivitySnapshot>> oldData = state.getHourlyActivity();
-    if (oldData.isEmpty()) {
-      state.setHourKeyTimezone(LocalTrackerState.TIMEZONE_UTC);
-      LOG.info("No data to migrate, setting timezone to UTC");
+  public synchronized int backfillCommits(
+      String projectName, List<ProjectActivitySnapshot> commitSnapshots) {
+    int added = 0;
+    for (ProjectActivitySnapshot snapshot : commitSnapshots) {
+      CommitRecord commit = snapshot.getCommits().get(0);
+      long epochSeconds = Math.floorDiv(commit.getTimestamp(), 1000);
+      String utcHourKey = TimezoneConversionService.formatHourKey(epochSeconds);
+      if (hasCommit(utcHourKey, projectName, commit.getHash())
+          || hasCommit(
+              TimezoneConversionService.formatHourKey(epochSeconds + 3600),
+              projectName,
+              commit.getHash())) {
+        continue;
+      }
+
+      ProjectActivitySnapshot existing = findSnapshot(utcHourKey, projectName);
+      if (existing != null && existing.getCodedTimeSeconds() > 0) {
+        List<CommitRecord> commits = new ArrayList<>(existing.getCommits());
+        commits.add(commit);
+        existing.setCommits(commits);
+      } else {
+        snapshot.ensureRecordId();
+        if (state.getArchivedHourlySeconds().containsKey(utcHourKey)) {
+          getArchive().mergeProject(utcHourKey, projectName, snapshot);
+          state.setArchiveHasUnreported(true);
+        } else {
+          state.mergeProject(utcHourKey, projectName, snapshot);
+        }
+        getLifetimeStats().onHourMerged(this, utcHourKey, projectName, snapshot);
+      }
+      getDataProvider().onHourMerged(utcHourKey, projectName, 0);
+      getCommitSearchIndex().onCommitsStored(utcHourKey, projectName, snapshot.getCommits());
+      ApplicationManager.getApplication()
+          .getService(ActivityEventPublisher.class)
+          .changed(projectName, utcHourKey, Kind.COMMIT);
+      added++;
+    }
+    return added;
+  }
+
+  @Nullable
+  private ProjectActivitySnapshot findSnapshot(String utcHourKey, String projectName) {
+    Map<String, ProjectActivitySnapshot> projects =
+        state.getArchivedHourlySeconds().containsKey(utcHourKey)
+            ? getArchive().getAllData().get(utcHourKey)
+            : state.getHourlyActivity().get(utcHourKey);
+    return projects != null ? projects.get(projectName) : null;
+  }
+
+  private boolean hasCommit(String utcHourKey, String projectName, String hash) {
+    ProjectActivitySnapshot existing = findSnapshot(utcHourKey, projectName);
+    if (existing == null) {
+      return false;
+    }
+    for (CommitRecord commit : existing.getCommits()) {
+      if (hash.equals(commit.getHash())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Hands the merged project-hour to the shared store, which writes it outside of our lock. */
+  private void publishToSharedStore(String utcHourKey, String projectName) {
+    SharedActivityStore sharedStore =
+        ApplicationManager.getApplication().getService(SharedActivityStore.class);
+    if (sharedStore == null || !sharedStore.isEnabled()) {
       return;
     }
+    Map<String, ProjectActivitySnapshot> projects = state.getHourlyActivity().get(utcHourKey);
+    if (projects != null && projects.get(projectName) != null) {
+      sharedStore.publish(utcHourKey, projectName, projects.get(projectName));
+    }
+  }
 
-    LOG.info("Migrating " + oldData.size() + " hour entries from local timezone to UTC");
-
-    Map<String, Map<String, ProjectActivitySnapshot>> migratedData = new HashMap<>();
-    ZoneId localZone = ZoneId.systemDefault();
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : oldData.entrySet()) {
-      String localHourKey = entry.getKey();
-      String utcHourKey = convertLocalHourKeyToUtc(localHourKey, localZone);
-
-      // Merge into migrated data (in case of collision, though unlikely)
-      migratedData.compute(
-          utcHourKey,
-          (key, existingProjects) -> {
-            if (existingProjects == null) {
-              return new HashMap<>(entry.getValue());
-            }
-            // Merge projects if collision occurs
-            for (Map.Entry<String, ProjectActivitySnapshot> projectEntry :
-                entry.getValue().entrySet()) {
-              existingProjects.merge(
-                  projectEntry.getKey(),
-                  projectEntry.getValue(),
-                  (existing, incoming) ->
-                      new ProjectActivitySnapshot(
-                          existing.getCodedTimeSeconds() + incoming.getCodedTimeSeconds(),
-                          existing.getAdditions() + incoming.getAdditions(),
-                          existing.getRemovals() + incoming.getRemovals(),
-                          existing.isReported() && incoming.isReported()));
-            }
-            return existingProjects;
-          });
-    }
-
-    state.setHourlyActivity(migratedData);
-    state.setHourKeyTimezone(LocalTrackerState.TIMEZONE_UTC);
-    LOG.info("Migration complete. Converted " + oldData.size() + " entries to UTC");
-  }
-
-  private String convertLocalHourKeyToUtc(String localHourKey, ZoneId localZone) {
-    try {
-      LocalDateTime localDateTime = LocalDateTime.parse(localHourKey, DATETIME_HOUR_FORMATTER);
-      ZonedDateTime utcDateTime =
-          localDateTime.atZone(localZone).withZoneSameInstant(ZoneId.of("UTC"));
-      return utcDateTime.format(DATETIME_HOUR_FORMATTER);
-    } catch (Exception e) {
-      LOG.warn("Failed to convert hourKey to UTC: " + localHourKey, e);
-      return localHourKey;
-    }
-  }
-
-  public void mergeProjectCurrentHour(String projectName, ProjectActivitySnapshot snapshot) {
-    // Ensure snapshot has a recordId for idempotent sync
-    snapshot.ensureRecordId();
-    String currentUtcHour = ZonedDateTime.now(ZoneId.of("UTC")).format(DATETIME_HOUR_FORMATTER);
-    state.mergeProject(currentUtcHour, projectName, snapshot);
-    LOG.debug("Merged local state for project: " + projectName + " at UTC hour: " + currentUtcHour);
+  private LocalActivityDataProvider getDataProvider() {
+    return ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
   }
 
+  private LifetimeStats getLifetimeStats() {
+    return ApplicationManager.getApplication().getService(LifetimeStats.class);
+  }
+
+  private CommitSearchIndex getCommitSearchIndex() {
+    return ApplicationManager.getApplication().getService(CommitSearchIndex.class);
+  }
+
+  private LocalHistoryArchive getArchive() {
+    return ApplicationManager.getApplication().getService(LocalHistoryArchive.class);
+  }
+
+  /**
+   * Returns a copy of the full history, including archived hours. Loads the archive on first call
+   * if it holds anything; prefer {@link #getRecentData()} when only the current or previous week is
+   * needed.
+   */
   public Map<String, Map<String, ProjectActivitySnapshot>> getAllData() {
-    return state.getHourlyActivity();
+    // The archive is loaded before taking the lock, so merges don't wait for the disk
+    LocalHistoryArchive archive = state.getArchivedHourlySeconds().isEmpty() ? null : getArchive();
+    synchronized (this) {
+      // Merges, imports and backfills write both levels under this lock, so both are copied
+      Map<String, Map<String, ProjectActivitySnapshot>> allData = new HashMap<>();
+      if (archive != null) {
+        copyHours(archive.getAllData(), allData);
+      }
+      copyHours(state.getHourlyActivity(), allData);
+      return allData;
+    }
+  }
+
+  /**
+   * Returns a copy of the hours from the start of the previous week onward, without touching the
+   * archive.
+   */
+  public synchronized Map<String, Map<String, ProjectActivitySnapshot>> getRecentData() {
+    Map<String, Map<String, ProjectActivitySnapshot>> recentData = new HashMap<>();
+    copyHours(state.getHourlyActivity(), recentData);
+    return recentData;
+  }
+
+  private static void copyHours(
+      Map<String, Map<String, ProjectActivitySnapshot>> from,
+      Map<String, Map<String, ProjectActivitySnapshot>> to) {
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hour : from.entrySet()) {
+      to.put(hour.getKey(), new HashMap<>(hour.getValue()));
+    }
   }
 
   public Map<String, Map<String, ProjectActivitySnapshot>> getAllUnreportedData() {
-    return state.getUnreportedData();
+    Map<String, Map<String, ProjectActivitySnapshot>> unreported = state.getUnreportedData();
+    if (state.isArchiveHasUnreported()) {
+      Map<String, Map<String, ProjectActivitySnapshot>> all =
+          new HashMap<>(getArchive().getUnreportedData());
+      all.putAll(unreported);
+      return all;
+    }
+    return unreported;
   }
 
   public void markAllDataAsReported() {
@@ -143,17 +316,111 @@ public class LocalStateRepository implements PersistentStateComponent<LocalTrack
     state.getHourlyActivity().values().stream()
         .flatMap(projects -> projects.values().stream())
         .forEach(snapshot -> snapshot.setReported(true));
+    if (state.isArchiveHasUnreported()) {
+      getArchive().markAllDataAsReported();
+      state.setArchiveHasUnreported(false);
+    }
   }
 
   public boolean hasUnreportedData() {
-    return state.hasUnreportedEntries();
+    return state.hasUnreportedEntries() || state.isArchiveHasUnreported();
   }
 
-  /** Cleanup entries older than 2 weeks. Called periodically. */
-  public void rotate() {
-    int removed = state.cleanupOldEntries();
+  /**
+   * Moves hours older than the previous week to the archive and drops days beyond the retention
+   * limit. Called periodically.
+   */
+  public synchronized void rotate() {
+    int archived = archiveColdEntries();
+    if (archived > 0) {
+      LOG.info("Archived " + archived + " cold hour entries");
+    }
+
+    int removed = enforceRetention();
     if (removed > 0) {
       LOG.info("Cleaned up " + removed + " old hour entries");
     }
+
+    if (archived > 0 || removed > 0) {
+      getDataProvider().invalidateRollups();
+    }
+  }
+
+  private int archiveColdEntries() {
+    // Hot window starts a day before last Monday to absorb the UTC offset of hourKeys
+    String coldBefore =
+        LocalDate.now()
+            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+            .minusWeeks(1)
+            .minusDays(1)
+            .toString();
+
+    List<String> coldHourKeys = new ArrayList<>();
+    for (String hourKey : state.getHourlyActivity().keySet()) {
+      if (hourKey != null
+          && hourKey.length() >= 10
+          && hourKey.substring(0, 10).compareTo(coldBefore) < 0) {
+        coldHourKeys.add(hourKey);
+      }
+    }
+    if (coldHourKeys.isEmpty()) {
+      return 0;
+    }
+
+    LocalHistoryArchive archive = getArchive();
+    for (String hourKey : coldHourKeys) {
+      Map<String, ProjectActivitySnapshot> projects = state.getHourlyActivity().remove(hourKey);
+      archive.archiveHour(hourKey, projects);
+
+      long seconds = 0;
+      for (ProjectActivitySnapshot snapshot : archive.getAllData().get(hourKey).values()) {
+        seconds += snapshot.getCodedTimeSeconds();
+        if (!snapshot.isReported()) {
+          state.setArchiveHasUnreported(true);
+        }
+      }
+      state.getArchivedHourlySeconds().put(hourKey, seconds);
+    }
+    return coldHourKeys.size();
+  }
+
+  /**
+   * Keeps only the most recent {@link LocalTrackerState#MAX_SESSIONS} days with coding time across
+   * the recent state and the archive. Days holding only commits, e.g. from the git history
+   * backfill, do not count towards the limit; they are kept while they are not older than the
+   * oldest day kept. The archive is only loaded when something must be dropped.
+   */
+  private int enforceRetention() {
+    TreeSet<String> codedDates = new TreeSet<>(Comparator.reverseOrder());
+    codedDates.addAll(getCodedDates());
+    if (codedDates.size() <= LocalTrackerState.MAX_SESSIONS) {
+      return 0;
+    }
+
+    String oldestKept = new ArrayList<>(codedDates).get(LocalTrackerState.MAX_SESSIONS - 1);
+    Set<String> datesToRemove = new HashSet<>();
+    for (String hourKey : state.getHourlyActivity().keySet()) {
+      if (hourKey != null
+          && hourKey.length() >= 10
+          && hourKey.substring(0, 10).compareTo(oldestKept) < 0) {
+        datesToRemove.add(hourKey.substring(0, 10));
+      }
+    }
+    for (String hourKey : state.getArchivedHourlySeconds().keySet()) {
+      if (hourKey.substring(0, 10).compareTo(oldestKept) < 0) {
+        datesToRemove.add(hourKey.substring(0, 10));
+      }
+    }
+    int removed = state.removeDates(datesToRemove);
+    boolean archiveAffected =
+        state
+            .getArchivedHourlySeconds()
+            .keySet()
+            .removeIf(hourKey -> datesToRemove.contains(hourKey.substring(0, 10)));
+    if (archiveAffected) {
+      removed += getArchive().removeDates(datesToRemove);
+    }
+    getCommitSearchIndex().onDatesRemoved(datesToRemove);
+    return removed;
   }
 }
@@ -1,8 +1,8 @@
 package com.codeclocker.plugin.intellij.local;
 
+import com.codeclocker.plugin.intellij.local.migration.LocalStateMigrations;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -32,8 +32,39 @@ public class LocalTrackerState {
    */
   private String hourKeyTimezone;
 
+  /**
+   * Schema version the state was written with. 0 = written before versioning was introduced; see
+   * {@code LocalStateMigrations}.
+   */
+  private int schemaVersion;
+
   private Map<String, Map<String, ProjectActivitySnapshot>> hourlyActivity = new HashMap<>();
 
+  /**
+   * Total coded seconds per UTC hourKey for hours moved to {@link LocalHistoryArchive}. Lets the
+   * retention policy and callers know what the archive holds without loading it.
+   */
+  private Map<String, Long> archivedHourlySeconds = new HashMap<>();
+
+  /** Whether any snapshot moved to the archive has not been reported yet. */
+  private boolean archiveHasUnreported;
+
+  /** Creates a state for a fresh installation, already at the current schema version. */
+  public static LocalTrackerState createEmpty() {
+    LocalTrackerState state = new LocalTrackerState();
+    state.setHourKeyTimezone(TIMEZONE_UTC);
+    state.setSchemaVersion(LocalStateMigrations.CURRENT_VERSION);
+    return state;
+  }
+
+  public int getSchemaVersion() {
+    return schemaVersion;
+  }
+
+  public void setSchemaVersion(int schemaVersion) {
+    this.schemaVersion = schemaVersion;
+  }
+
   public String getHourKeyTimezone() {
     return hourKeyTimezone;
   }
@@ -54,6 +85,23 @@ public class LocalTrackerState {
     this.hourlyActivity = hourlyActivity;
   }
 
+  public Map<String, Long> getArchivedHourlySeconds() {
+    return archivedHourlySeconds;
+  }
+
+  public void setArchivedHourlySeconds(Map<String, Long> archivedHourlySeconds) {
+    this.archivedHourlySeconds =
+        archivedHourlySeconds != null ? archivedHourlySeconds : new HashMap<>();
+  }
+
+  public boolean isArchiveHasUnreported() {
+    return archiveHasUnreported;
+  }
+
+  public void setArchiveHasUnreported(boolean archiveHasUnreported) {
+    this.archiveHasUnreported = archiveHasUnreported;
+  }
+
   public void mergeProject(
       String datetimeHour, String projectName, ProjectActivitySnapshot newSnapshot) {
     hourlyActivity.compute(
@@ -74,11 +122,7 @@ public class LocalTrackerState {
                         false);
 
                 // Preserve recordId from existing entry (or use incoming's if existing has none)
-                String recordId = existing.getRecordId();
-                if (recordId == null || recordId.isEmpty()) {
-                  recordId = incoming.getRecordId();
-                }
-                merged.setRecordId(recordId);
+                merged.copyRecordIdFrom(existing.hasRecordId() ? existing : incoming);
 
                 // Merge branch activity (sum seconds per branch)
                 Map<String, Long> branchMap = new HashMap<>();
@@ -107,31 +151,10 @@ public class LocalTrackerState {
                 }
                 merged.setCommits(mergedCommits);
 
-                // Merge file changes (sum additions/removals per file)
-                Map<String, FileChangeRecord> fileMap = new HashMap<>();
-                for (FileChangeRecord fc : existing.getFileChanges()) {
-                  fileMap.merge(
-                      fc.getFileName(),
-                      fc,
-                      (a, b) ->
-                          new FileChangeRecord(
-                              a.getFileName(),
-                              a.getAdditions() + b.getAdditions(),
-                              a.getRemovals() + b.getRemovals(),
-                              a.getExtension()));
-                }
-                for (FileChangeRecord fc : incoming.getFileChanges()) {
-                  fileMap.merge(
-                      fc.getFileName(),
-                      fc,
-                      (a, b) ->
-                          new FileChangeRecord(
-                              a.getFileName(),
-                              a.getAdditions() + b.getAdditions(),
-                              a.getRemovals() + b.getRemovals(),
-                              a.getExtension()));
-                }
-                merged.setFileChanges(new ArrayList<>(fileMap.values()));
+                // Merge file changes (sum per file, bounded to the heaviest files)
+                FileChangeSummary fileChanges = FileChangeSummary.of(existing.getFileChanges());
+                fileChanges.addAll(incoming.getFileChanges());
+                merged.setFileChanges(fileChanges.toRecords());
 
                 return merged;
               });
@@ -140,34 +163,11 @@ public class LocalTrackerState {
   }
 
   /**
-   * Removes entries beyond the maximum session limit. Keeps only the most recent MAX_SESSIONS days
-   * (days with coding activity). Returns number of hour slots removed.
+   * Removes all hour slots whose date (yyyy-MM-dd prefix of the hourKey) is in the given set.
+   *
+   * @return number of hour slots removed
    */
-  public int cleanupOldEntries() {
-    // Group hourKeys by date to find unique sessions
-    Map<String, List<String>> hourKeysByDate = new HashMap<>();
-    for (String hourKey : hourlyActivity.keySet()) {
-      if (hourKey != null && hourKey.length() >= 10) {
-        String date = hourKey.substring(0, 10); // Extract yyyy-MM-dd
-        hourKeysByDate.computeIfAbsent(date, k -> new ArrayList<>()).add(hourKey);
-      }
-    }
-
-    // If we have MAX_SESSIONS or fewer, no cleanup needed
-    if (hourKeysByDate.size() <= MAX_SESSIONS) {
-      return 0;
-    }
-
-    // Sort dates descending (newest first) and find dates to remove
-    List<String> sortedDates = new ArrayList<>(hourKeysByDate.keySet());
-    sortedDates.sort(Comparator.reverseOrder()); // Descending
-
-    Set<String> datesToRemove = new HashSet<>();
-    for (int i = MAX_SESSIONS; i < sortedDates.size(); i++) {
-      datesToRemove.add(sortedDates.get(i));
-    }
-
-    // Remove all hourKeys for dates beyond the limit
+  public int removeDates(Set<String> datesToRemove) {
     int removedCount = 0;
     Iterator<String> iterator = hourlyActivity.keySet().iterator();
     while (iterator.hasNext()) {
@@ -180,10 +180,25 @@ public class LocalTrackerState {
         }
       }
     }
-
     return removedCount;
   }
 
+  /**
+   * Replaces the project-name keys of every hour with pooled instances. The XML deserializer
+   * creates a separate string for every occurrence of a project name.
+   */
+  public void internProjectNames() {
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry :
+        hourlyActivity.entrySet()) {
+      Map<String, ProjectActivitySnapshot> interned = new HashMap<>();
+      for (Map.Entry<String, ProjectActivitySnapshot> projectEntry :
+          hourEntry.getValue().entrySet()) {
+        interned.put(StringPool.intern(projectEntry.getKey()), projectEntry.getValue());
+      }
+      hourEntry.setValue(interned);
+    }
+  }
+
   public boolean isEmpty() {
     return hourlyActivity.isEmpty();
   }
@@ -230,7 +245,7 @@ public class LocalTrackerState {
     int generated = 0;
     for (Map<String, ProjectActivitySnapshot> projects : hourlyActivity.values()) {
       for (ProjectActivitySnapshot snapshot : projects.values()) {
-        if (snapshot.getRecordId() == null || snapshot.getRecordId().isEmpty()) {
+        if (!snapshot.hasRecordId()) {
           snapshot.ensureRecordId();
           generated++;
         }
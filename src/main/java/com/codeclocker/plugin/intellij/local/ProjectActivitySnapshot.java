@@ -1,5 +1,6 @@
 package com.codeclocker.plugin.intellij.local;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -7,17 +8,23 @@ import java.util.UUID;
 /**
  * Snapshot of activity data for a single project. Stores coded time in seconds, VCS change counts,
  * branch activity, and commit records.
+ *
+ * <p>Most hours only carry coded time, so empty lists share a single immutable instance and the
+ * recordId is held as the two halves of its UUID rather than as a 36-char string. Lists are
+ * replaced through the setters, never modified in place.
  */
 public class ProjectActivitySnapshot {
 
-  private String recordId;
+  // 0/0 means no recordId assigned yet
+  private long recordIdMostSigBits;
+  private long recordIdLeastSigBits;
   private long codedTimeSeconds;
   private long additions;
   private long removals;
   private boolean reported;
-  private List<BranchActivityRecord> branchActivity = new ArrayList<>();
-  private List<CommitRecord> commits = new ArrayList<>();
-  private List<FileChangeRecord> fileChanges = new ArrayList<>();
+  private List<BranchActivityRecord> branchActivity = List.of();
+  private List<CommitRecord> commits = List.of();
+  private List<FileChangeRecord> fileChanges = List.of();
 
   public ProjectActivitySnapshot() {
     // Required for XML serialization
@@ -68,7 +75,7 @@ public class ProjectActivitySnapshot {
   }
 
   public void setBranchActivity(List<BranchActivityRecord> branchActivity) {
-    this.branchActivity = branchActivity != null ? branchActivity : new ArrayList<>();
+    this.branchActivity = compact(branchActivity);
   }
 
   public List<CommitRecord> getCommits() {
@@ -76,7 +83,7 @@ public class ProjectActivitySnapshot {
   }
 
   public void setCommits(List<CommitRecord> commits) {
-    this.commits = commits != null ? commits : new ArrayList<>();
+    this.commits = compact(commits);
   }
 
   public List<FileChangeRecord> getFileChanges() {
@@ -84,21 +91,60 @@ public class ProjectActivitySnapshot {
   }
 
   public void setFileChanges(List<FileChangeRecord> fileChanges) {
-    this.fileChanges = fileChanges != null ? fileChanges : new ArrayList<>();
+    this.fileChanges = compact(fileChanges);
   }
 
   public String getRecordId() {
-    return recordId;
+    if (!hasRecordId()) {
+      return null;
+    }
+    return new UUID(recordIdMostSigBits, recordIdLeastSigBits).toString();
   }
 
   public void setRecordId(String recordId) {
-    this.recordId = recordId;
+    if (recordId == null || recordId.isEmpty()) {
+      assignRecordId(null);
+      return;
+    }
+    UUID uuid;
+    try {
+      uuid = UUID.fromString(recordId);
+    } catch (IllegalArgumentException e) {
+      // All ids we generate are UUIDs; map anything else to a stable name-based UUID
+      uuid = UUID.nameUUIDFromBytes(recordId.getBytes(StandardCharsets.UTF_8));
+    }
+    assignRecordId(uuid);
+  }
+
+  private void assignRecordId(UUID uuid) {
+    recordIdMostSigBits = uuid != null ? uuid.getMostSignificantBits() : 0;
+    recordIdLeastSigBits = uuid != null ? uuid.getLeastSignificantBits() : 0;
+  }
+
+  /** Copies the recordId of another snapshot without going through its string form. */
+  public void copyRecordIdFrom(ProjectActivitySnapshot other) {
+    recordIdMostSigBits = other.recordIdMostSigBits;
+    recordIdLeastSigBits = other.recordIdLeastSigBits;
+  }
+
+  public boolean hasRecordId() {
+    return recordIdMostSigBits != 0 || recordIdLeastSigBits != 0;
   }
 
   /** Ensures this snapshot has a recordId, generating one if not present. */
   public void ensureRecordId() {
-    if (recordId == null || recordId.isEmpty()) {
-      recordId = UUID.randomUUID().toString();
+    if (!hasRecordId()) {
+      assignRecordId(UUID.randomUUID());
+    }
+  }
+
+  private static <T> List<T> compact(List<T> list) {
+    if (list == null || list.isEmpty()) {
+      return List.of();
+    }
+    if (list instanceof ArrayList<T> arrayList) {
+      arrayList.trimToSize();
     }
+    return list;
   }
 }
@@ -0,0 +1,403 @@
+package com.codeclocker.plugin.intellij.local;
+
+import static com.codeclocker.plugin.intellij.JsonMapper.OBJECT_MAPPER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.codeclocker.plugin.intellij.analytics.InstallationIdPersistence;
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Optional machine-wide activity store shared by all JetBrains IDEs running on this machine.
+ *
+ * <p>Every IDE process appends the cumulative state of each project-hour it touches to its own
+ * segment file ({@code segment-<pid>.jsonl}). Segments are periodically folded into a single {@code
+ * compacted.jsonl} file while holding an exclusive advisory {@link FileLock}; appenders and readers
+ * hold a shared lock on the same file, so compaction never races with them. Records are keyed by
+ * {@code recordId}, and the latest write for a recordId wins, so re-appending the same project-hour
+ * never double-counts. Each record carries the installation id of the IDE that wrote it, so an IDE
+ * never adds its own records back on top of its local state.
+ *
+ * <p>Only coded time and line counts are shared. Branches, commits and file changes stay in the
+ * local state of the IDE that recorded them.
+ */
+@Service(Service.Level.APP)
+public final class SharedActivityStore {
+
+  private static final Logger LOG = Logger.getInstance(SharedActivityStore.class);
+
+  private static final Path SHARED_DIR =
+      Path.of(System.getProperty("user.home"), ".codeclocker", "shared");
+  private static final String LOCK_FILE = ".lock";
+  private static final String COMPACTED_FILE = "compacted.jsonl";
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String SEGMENT_SUFFIX = ".jsonl";
+
+  /** Compact once segments together grow past this size. */
+  private static final long COMPACTION_THRESHOLD_BYTES = 512 * 1024;
+
+  /** Minimum interval between directory scans when serving reads. */
+  private static final long REFRESH_INTERVAL_MILLIS = 5_000;
+
+  private final Path segmentFile =
+      SHARED_DIR.resolve(SEGMENT_PREFIX + ProcessHandle.current().pid() + SEGMENT_SUFFIX);
+
+  /** Installation id of this IDE, written as the origin of every record it publishes. */
+  private final String origin = InstallationIdPersistence.getInstallationId();
+
+  /** Appends published records one at a time, in publish order. */
+  private final ExecutorService appender =
+      AppExecutorUtil.createBoundedApplicationPoolExecutor("CodeClocker Shared Activity Store", 1);
+
+  /** Latest record per recordId, as of the last refresh. Guarded by {@code this}. */
+  private Map<String, SharedActivityRecord> records = new HashMap<>();
+
+  private String lastFingerprint = "";
+  private long lastRefreshMillis;
+
+  /** Bumped whenever records are reloaded from disk, so caches built on top can tell. */
+  private long version;
+
+  /**
+   * Single shared record line. hourKey is in UTC, like the local state. origin is null for lines
+   * written before it was introduced.
+   */
+  public record SharedActivityRecord(
+      String recordId,
+      String origin,
+      String hourKey,
+      String project,
+      long codedTimeSeconds,
+      long additions,
+      long removals,
+      long writtenAt) {}
+
+  public boolean isEnabled() {
+    return ApplicationManager.getApplication()
+        .getService(SettingsService.class)
+        .getSettings()
+        .tracking()
+        .sharedStoreEnabled();
+  }
+
+  /**
+   * Publishes the cumulative state of a project-hour. Safe to call repeatedly for the same
+   * snapshot; readers keep only the latest line per recordId. The snapshot is read right away, so
+   * the caller may keep holding its locks and updating it; the line is appended, and the store
+   * compacted if needed, on a background thread.
+   */
+  public void publish(String utcHourKey, String projectName, ProjectActivitySnapshot snapshot) {
+    if (!isEnabled() || !snapshot.hasRecordId()) {
+      return;
+    }
+
+    SharedActivityRecord record =
+        new SharedActivityRecord(
+            snapshot.getRecordId(),
+            origin,
+            utcHourKey,
+            projectName,
+            snapshot.getCodedTimeSeconds(),
+            snapshot.getAdditions(),
+            snapshot.getRemovals(),
+            System.currentTimeMillis());
+    appender.execute(() -> append(record));
+  }
+
+  private synchronized void append(SharedActivityRecord record) {
+    try {
+      try (FileChannel lockChannel = openLockChannel();
+          FileLock ignored = lockChannel.lock(0, Long.MAX_VALUE, true);
+          BufferedWriter writer =
+              Files.newBufferedWriter(
+                  segmentFile, UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+        writer.write(OBJECT_MAPPER.writeValueAsString(record));
+        writer.newLine();
+      }
+      records.merge(record.recordId(), record, SharedActivityStore::latest);
+    } catch (IOException e) {
+      LOG.warn("Failed to append to shared activity store", e);
+      return;
+    }
+
+    compactIfNeeded();
+  }
+
+  /**
+   * Returns a copy of the given local UTC data with activity recorded by other IDEs added on top.
+   * Records published by this IDE are skipped, whether or not their hour is still in the given
+   * data, and so are records whose recordId is already present locally; nothing is counted twice.
+   */
+  public Map<String, Map<String, ProjectActivitySnapshot>> mergeInto(
+      Map<String, Map<String, ProjectActivitySnapshot>> localUtcData) {
+    if (!isEnabled()) {
+      return localUtcData;
+    }
+
+    List<SharedActivityRecord> shared = snapshotRecords();
+    if (shared.isEmpty()) {
+      return localUtcData;
+    }
+
+    Set<String> localRecordIds = new HashSet<>();
+    for (Map<String, ProjectActivitySnapshot> projects : localUtcData.values()) {
+      for (ProjectActivitySnapshot snapshot : projects.values()) {
+        if (snapshot.hasRecordId()) {
+          localRecordIds.add(snapshot.getRecordId());
+        }
+      }
+    }
+
+    Map<String, Map<String, ProjectActivitySnapshot>> merged = new HashMap<>();
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : localUtcData.entrySet()) {
+      merged.put(entry.getKey(), new HashMap<>(entry.getValue()));
+    }
+
+    for (SharedActivityRecord record : shared) {
+      if (origin.equals(record.origin()) || localRecordIds.contains(record.recordId())) {
+        continue;
+      }
+      merged
+          .computeIfAbsent(record.hourKey(), k -> new HashMap<>())
+          .merge(record.project(), toSnapshot(record), SharedActivityStore::sum);
+    }
+    return merged;
+  }
+
+  /**
+   * Returns a counter that changes whenever the merged view may have changed. Refreshes from disk
+   * at most every few seconds; returns 0 while the store is disabled.
+   */
+  public synchronized long getVersion() {
+    if (!isEnabled()) {
+      return 0;
+    }
+    refreshIfStale();
+    return version;
+  }
+
+  private synchronized List<SharedActivityRecord> snapshotRecords() {
+    refreshIfStale();
+    return new ArrayList<>(records.values());
+  }
+
+  private void refreshIfStale() {
+    long now = System.currentTimeMillis();
+    if (now - lastRefreshMillis >= REFRESH_INTERVAL_MILLIS) {
+      lastRefreshMillis = now;
+      refresh();
+    }
+  }
+
+  /** Re-reads the shared directory if any file changed since the last read. */
+  private void refresh() {
+    if (!Files.isDirectory(SHARED_DIR)) {
+      return;
+    }
+
+    try (FileChannel lockChannel = openLockChannel();
+        FileLock ignored = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+      List<Path> files = listDataFiles();
+      String fingerprint = fingerprint(files);
+      if (fingerprint.equals(lastFingerprint)) {
+        return;
+      }
+      records = readAll(files);
+      lastFingerprint = fingerprint;
+      version++;
+      LOG.debug("Loaded " + records.size() + " records from shared activity store");
+    } catch (IOException e) {
+      LOG.warn("Failed to read shared activity store", e);
+    }
+  }
+
+  private void compactIfNeeded() {
+    try {
+      long totalSegmentBytes = 0;
+      for (Path file : listDataFiles()) {
+        if (isSegment(file)) {
+          totalSegmentBytes += Files.size(file);
+        }
+      }
+      if (totalSegmentBytes >= COMPACTION_THRESHOLD_BYTES) {
+        compact();
+      }
+    } catch (IOException e) {
+      LOG.warn("Failed to check shared activity store size", e);
+    }
+  }
+
+  /**
+   * Folds all segments into the compacted file, keeping only the latest line per recordId and
+   * dropping days beyond the local retention limit. Skipped if another IDE is already compacting.
+   */
+  private void compact() throws IOException {
+    try (FileChannel lockChannel = openLockChannel();
+        FileLock lock = lockChannel.tryLock(0, Long.MAX_VALUE, false)) {
+      if (lock == null) {
+        LOG.debug("Shared activity store is being compacted by another process");
+        return;
+      }
+
+      List<Path> files = listDataFiles();
+      Map<String, SharedActivityRecord> latest = readAll(files);
+      retainRecentDays(latest);
+
+      Path tmp = SHARED_DIR.resolve(COMPACTED_FILE + ".tmp");
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, UTF_8)) {
+        for (SharedActivityRecord record : latest.values()) {
+          writer.write(OBJECT_MAPPER.writeValueAsString(record));
+          writer.newLine();
+        }
+      }
+      Files.move(
+          tmp,
+          SHARED_DIR.resolve(COMPACTED_FILE),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+
+      for (Path file : files) {
+        if (isSegment(file)) {
+          Files.deleteIfExists(file);
+        }
+      }
+
+      records = latest;
+      lastFingerprint = "";
+      LOG.info("Compacted shared activity store to " + latest.size() + " records");
+    }
+  }
+
+  private static void retainRecentDays(Map<String, SharedActivityRecord> records) {
+    TreeSet<String> dates = new TreeSet<>(Comparator.reverseOrder());
+    for (SharedActivityRecord record : records.values()) {
+      dates.add(record.hourKey().substring(0, 10));
+    }
+    if (dates.size() <= LocalTrackerState.MAX_SESSIONS) {
+      return;
+    }
+
+    String oldestKept = new ArrayList<>(dates).get(LocalTrackerState.MAX_SESSIONS - 1);
+    records
+        .values()
+        .removeIf(record -> record.hourKey().substring(0, 10).compareTo(oldestKept) < 0);
+  }
+
+  private static Map<String, SharedActivityRecord> readAll(List<Path> files) throws IOException {
+    Map<String, SharedActivityRecord> latest = new LinkedHashMap<>();
+    for (Path file : files) {
+      try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isBlank()) {
+            continue;
+          }
+          try {
+            SharedActivityRecord record = OBJECT_MAPPER.readValue(line, SharedActivityRecord.class);
+            if (record.recordId() != null && record.hourKey() != null) {
+              latest.merge(record.recordId(), record, SharedActivityStore::latest);
+            }
+          } catch (IOException e) {
+            // Torn line from a crashed writer, skip it
+            LOG.debug("Skipping malformed line in " + file.getFileName());
+          }
+        }
+      }
+    }
+    return latest;
+  }
+
+  private static List<Path> listDataFiles() throws IOException {
+    List<Path> files = new ArrayList<>();
+    if (!Files.isDirectory(SHARED_DIR)) {
+      return files;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(SHARED_DIR, "*.jsonl")) {
+      for (Path file : stream) {
+        files.add(file);
+      }
+    }
+    // Compacted file first, so newer segment lines override it
+    files.sort(
+        Comparator.comparing((Path p) -> isSegment(p))
+            .thenComparing(p -> p.getFileName().toString()));
+    return files;
+  }
+
+  private static String fingerprint(List<Path> files) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (Path file : files) {
+      sb.append(file.getFileName())
+          .append(':')
+          .append(Files.size(file))
+          .append(':')
+          .append(Files.getLastModifiedTime(file).toMillis())
+          .append(';');
+    }
+    return sb.toString();
+  }
+
+  private static boolean isSegment(Path file) {
+    return file.getFileName().toString().startsWith(SEGMENT_PREFIX);
+  }
+
+  private static FileChannel openLockChannel() throws IOException {
+    Files.createDirectories(SHARED_DIR);
+    return FileChannel.open(
+        SHARED_DIR.resolve(LOCK_FILE),
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+  }
+
+  private static SharedActivityRecord latest(SharedActivityRecord a, SharedActivityRecord b) {
+    return b.writtenAt() >= a.writtenAt() ? b : a;
+  }
+
+  private static ProjectActivitySnapshot toSnapshot(SharedActivityRecord record) {
+    ProjectActivitySnapshot snapshot =
+        new ProjectActivitySnapshot(
+            record.codedTimeSeconds(), record.additions(), record.removals(), true);
+    snapshot.setRecordId(record.recordId());
+    return snapshot;
+  }
+
+  /** Combines two snapshots of the same project-hour without mutating either of them. */
+  private static ProjectActivitySnapshot sum(
+      ProjectActivitySnapshot local, ProjectActivitySnapshot shared) {
+    ProjectActivitySnapshot combined =
+        new ProjectActivitySnapshot(
+            local.getCodedTimeSeconds() + shared.getCodedTimeSeconds(),
+            local.getAdditions() + shared.getAdditions(),
+            local.getRemovals() + shared.getRemovals(),
+            local.isReported());
+    combined.copyRecordIdFrom(local);
+    combined.setBranchActivity(new ArrayList<>(local.getBranchActivity()));
+    combined.setCommits(new ArrayList<>(local.getCommits()));
+    combined.setFileChanges(new ArrayList<>(local.getFileChanges()));
+    return combined;
+  }
+}
@@ -0,0 +1,24 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.intellij.util.containers.Interner;
+
+/**
+ * Deduplicates strings that repeat across many snapshots: branch names, authors, file paths and
+ * extensions. Used by the record setters, so both XML deserialization and merges go through it.
+ * Weakly referenced, so names that drop out of the retained history can be collected.
+ */
+final class StringPool {
+
+  private static final Interner<String> INTERNER = Interner.createWeakInterner();
+
+  private StringPool() {}
+
+  static String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    synchronized (INTERNER) {
+      return INTERNER.intern(value);
+    }
+  }
+}
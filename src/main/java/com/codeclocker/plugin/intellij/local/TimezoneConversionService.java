@@ -0,0 +1,261 @@
+package com.codeclocker.plugin.intellij.local;
+
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Converts {@code yyyy-MM-dd-HH} hour keys between UTC and the system timezone without going
+ * through {@code DateTimeFormatter}. Hour keys are parsed into epoch seconds with plain arithmetic,
+ * and the UTC offset is looked up in a table of offset transitions precomputed from {@link
+ * ZoneRules} for the retained range. Keys outside the table fall back to the zone rules directly.
+ *
+ * <p>The table follows the JVM default zone, which is re-checked at most once per {@link
+ * #ZONE_CHECK_INTERVAL_MILLIS}; the same check rebuilds the table before its range runs out. On a
+ * zone change listeners are notified so caches keyed by local dates can be dropped. The JVM reads
+ * the OS timezone once and caches it, so only changes made within the JVM through {@code
+ * TimeZone.setDefault} are seen; an OS timezone change takes effect after an IDE restart.
+ */
+@Service(Service.Level.APP)
+public final class TimezoneConversionService {
+
+  private static final Logger LOG = Logger.getInstance(TimezoneConversionService.class);
+
+  private static final long SECONDS_PER_HOUR = 3600;
+  private static final long SECONDS_PER_DAY = 86400;
+  private static final long ZONE_CHECK_INTERVAL_MILLIS = 60_000;
+
+  /** Range covered by the offset table around the time it was built. */
+  private static final long TABLE_PAST_DAYS = 400;
+
+  private static final long TABLE_FUTURE_DAYS = 60;
+
+  private final List<Runnable> zoneChangeListeners = new CopyOnWriteArrayList<>();
+
+  private volatile OffsetTable table = OffsetTable.build(ZoneId.systemDefault());
+  private volatile long lastZoneCheckMillis = System.currentTimeMillis();
+
+  /** Cached current UTC hour key; recomputed only when the hour changes. */
+  private volatile CurrentHour currentUtcHour = new CurrentHour(-1, null);
+
+  private record CurrentHour(long epochHour, String hourKey) {}
+
+  /**
+   * Offsets in effect in {@code [fromEpochSecond, toEpochSecond)}. {@code offsets[i]} applies from
+   * {@code transitions[i]} (inclusive) to {@code transitions[i + 1]}; {@code transitions[0]} is the
+   * start of the range.
+   */
+  private record OffsetTable(
+      ZoneId zone, long fromEpochSecond, long toEpochSecond, long[] transitions, int[] offsets) {
+
+    static OffsetTable build(ZoneId zone) {
+      ZoneRules rules = zone.getRules();
+      long now = Instant.now().getEpochSecond();
+      long from = now - TABLE_PAST_DAYS * SECONDS_PER_DAY;
+      long to = now + TABLE_FUTURE_DAYS * SECONDS_PER_DAY;
+
+      List<Long> transitions = new ArrayList<>();
+      List<Integer> offsets = new ArrayList<>();
+      Instant start = Instant.ofEpochSecond(from);
+      transitions.add(from);
+      offsets.add(rules.getOffset(start).getTotalSeconds());
+
+      ZoneOffsetTransition next = rules.nextTransition(start);
+      while (next != null && next.toEpochSecond() < to) {
+        transitions.add(next.toEpochSecond());
+        offsets.add(next.getOffsetAfter().getTotalSeconds());
+        next = rules.nextTransition(next.getInstant());
+      }
+
+      return new OffsetTable(
+          zone,
+          from,
+          to,
+          transitions.stream().mapToLong(Long::longValue).toArray(),
+          offsets.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    int offsetAt(long epochSecond) {
+      if (epochSecond < fromEpochSecond || epochSecond >= toEpochSecond) {
+        return zone.getRules().getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+      }
+      int index = Arrays.binarySearch(transitions, epochSecond);
+      return offsets[index >= 0 ? index : -index - 2];
+    }
+  }
+
+  public ZoneId getZone() {
+    return currentTable().zone();
+  }
+
+  /** Registers a callback invoked after the default timezone changed and the table was rebuilt. */
+  public void addZoneChangeListener(Runnable listener) {
+    zoneChangeListeners.add(listener);
+  }
+
+  /** Returns the hour key of the current UTC hour. */
+  public String currentUtcHourKey() {
+    long epochHour = System.currentTimeMillis() / 1000 / SECONDS_PER_HOUR;
+    CurrentHour cached = currentUtcHour;
+    if (cached.epochHour() != epochHour) {
+      cached = new CurrentHour(epochHour, formatHourKey(epochHour * SECONDS_PER_HOUR));
+      currentUtcHour = cached;
+    }
+    return cached.hourKey();
+  }
+
+  /** Converts a UTC hour key to the local hour key, or returns it unchanged if malformed. */
+  public String utcToLocalHourKey(String utcHourKey) {
+    long utcSeconds = parseHourKey(utcHourKey);
+    if (utcSeconds < 0) {
+      return utcHourKey;
+    }
+    return formatHourKey(utcSeconds + currentTable().offsetAt(utcSeconds));
+  }
+
+  /** Returns the local date of a UTC hour key, or null if malformed. */
+  public LocalDate utcHourKeyToLocalDate(String utcHourKey) {
+    long utcSeconds = parseHourKey(utcHourKey);
+    if (utcSeconds < 0) {
+      return null;
+    }
+    long localSeconds = utcSeconds + currentTable().offsetAt(utcSeconds);
+    return LocalDate.ofEpochDay(Math.floorDiv(localSeconds, SECONDS_PER_DAY));
+  }
+
+  /**
+   * Converts a local hour key to the UTC hour key, or returns it unchanged if malformed. In a DST
+   * overlap the earlier offset wins, as with {@code LocalDateTime.atZone}.
+   */
+  public String localToUtcHourKey(String localHourKey) {
+    long localSeconds = parseHourKey(localHourKey);
+    if (localSeconds < 0) {
+      return localHourKey;
+    }
+    return formatHourKey(localSeconds - localOffset(localSeconds));
+  }
+
+  /** Returns the epoch millis at which a UTC hour key starts, or -1 if malformed. */
+  public static long utcHourKeyToEpochMillis(String utcHourKey) {
+    long utcSeconds = parseHourKey(utcHourKey);
+    return utcSeconds < 0 ? -1 : utcSeconds * 1000;
+  }
+
+  private int localOffset(long localSeconds) {
+    OffsetTable current = currentTable();
+    int earlier = current.offsetAt(localSeconds - SECONDS_PER_DAY);
+    int later = current.offsetAt(localSeconds + SECONDS_PER_DAY);
+    if (earlier == later) {
+      return earlier;
+    }
+    // Near a transition: prefer the offset that maps back onto the same local time. In a DST gap
+    // neither does, and the earlier offset matches LocalDateTime.atZone
+    if (current.offsetAt(localSeconds - earlier) != earlier
+        && current.offsetAt(localSeconds - later) == later) {
+      return later;
+    }
+    return earlier;
+  }
+
+  private OffsetTable currentTable() {
+    long now = System.currentTimeMillis();
+    if (now - lastZoneCheckMillis >= ZONE_CHECK_INTERVAL_MILLIS) {
+      lastZoneCheckMillis = now;
+      // Listeners take their own locks, so they run outside the rebuild lock
+      if (checkZone()) {
+        for (Runnable listener : zoneChangeListeners) {
+          listener.run();
+        }
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Rebuilds the table if the zone changed or the range expired; returns whether the zone changed.
+   */
+  private synchronized boolean checkZone() {
+    ZoneId zone = ZoneId.systemDefault();
+    OffsetTable current = table;
+    long nowSeconds = System.currentTimeMillis() / 1000;
+    boolean zoneChanged = !zone.equals(current.zone());
+    boolean rangeExpired = nowSeconds + SECONDS_PER_DAY >= current.toEpochSecond();
+    if (!zoneChanged && !rangeExpired) {
+      return false;
+    }
+
+    table = OffsetTable.build(zone);
+    if (zoneChanged) {
+      LOG.info("Default timezone changed from " + current.zone() + " to " + zone);
+    }
+    return zoneChanged;
+  }
+
+  /**
+   * Parses {@code yyyy-MM-dd-HH} into seconds since the epoch, treating the key as UTC.
+   *
+   * @return epoch seconds, or -1 if the key is malformed
+   */
+  public static long parseHourKey(String hourKey) {
+    if (hourKey == null
+        || hourKey.length() != 13
+        || hourKey.charAt(4) != '-'
+        || hourKey.charAt(7) != '-'
+        || hourKey.charAt(10) != '-') {
+      return -1;
+    }
+    int year = digits(hourKey, 0, 4);
+    int month = digits(hourKey, 5, 7);
+    int day = digits(hourKey, 8, 10);
+    int hour = digits(hourKey, 11, 13);
+    if (year < 1970 || month < 1 || month > 12 || day < 1 || hour < 0 || hour > 23) {
+      return -1;
+    }
+    if (day > LocalDate.of(year, month, 1).lengthOfMonth()) {
+      return -1;
+    }
+    return LocalDate.of(year, month, day).toEpochDay() * SECONDS_PER_DAY + hour * SECONDS_PER_HOUR;
+  }
+
+  /** Formats seconds since the epoch (in whatever zone they were shifted to) as an hour key. */
+  static String formatHourKey(long epochSeconds) {
+    LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochSeconds, SECONDS_PER_DAY));
+    int hour = (int) (Math.floorMod(epochSeconds, SECONDS_PER_DAY) / SECONDS_PER_HOUR);
+    char[] chars = new char[13];
+    writeDigits(chars, 0, 4, date.getYear());
+    chars[4] = '-';
+    writeDigits(chars, 5, 2, date.getMonthValue());
+    chars[7] = '-';
+    writeDigits(chars, 8, 2, date.getDayOfMonth());
+    chars[10] = '-';
+    writeDigits(chars, 11, 2, hour);
+    return new String(chars);
+  }
+
+  private static int digits(String s, int from, int to) {
+    int value = 0;
+    for (int i = from; i < to; i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private static void writeDigits(char[] chars, int offset, int width, int value) {
+    for (int i = offset + width - 1; i >= offset; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.codeclocker.plugin.intellij.local.migration;
+
+import com.codeclocker.plugin.intellij.local.FileChangeSummary;
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.Map;
+
+/**
+ * Bounds file change lists recorded before {@link FileChangeSummary} was introduced, folding the
+ * lightest files of oversized hours into per-extension buckets.
+ */
+final class BoundedFileChangesMigration implements LocalStateMigration {
+
+  private static final Logger LOG = Logger.getInstance(BoundedFileChangesMigration.class);
+
+  @Override
+  public int version() {
+    return 4;
+  }
+
+  @Override
+  public String description() {
+    return "bound per-hour file change lists";
+  }
+
+  @Override
+  public void migrate(LocalTrackerState state) {
+    int bounded = 0;
+    for (Map<String, ProjectActivitySnapshot> projects : state.getHourlyActivity().values()) {
+      for (ProjectActivitySnapshot snapshot : projects.values()) {
+        if (snapshot.getFileChanges().size() > FileChangeSummary.MAX_TRACKED_FILES) {
+          snapshot.setFileChanges(FileChangeSummary.of(snapshot.getFileChanges()).toRecords());
+          bounded++;
+        }
+      }
+    }
+    if (bounded > 0) {
+      LOG.info("Bounded file changes of " + bounded + " snapshots");
+    }
+  }
+}
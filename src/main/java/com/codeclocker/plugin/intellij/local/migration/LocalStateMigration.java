@@ -0,0 +1,17 @@
+package com.codeclocker.plugin.intellij.local.migration;
+
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+
+/**
+ * A single step in the local state schema history. Each migration upgrades a state from {@code
+ * version() - 1} to {@code version()} and runs exactly once per installation.
+ */
+public interface LocalStateMigration {
+
+  /** Schema version the state is at after this migration has been applied. */
+  int version();
+
+  String description();
+
+  void migrate(LocalTrackerState state);
+}
@@ -0,0 +1,61 @@
+package com.codeclocker.plugin.intellij.local.migration;
+
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+import com.intellij.openapi.diagnostic.Logger;
+import java.util.List;
+
+/**
+ * Ordered registry of local state migrations. States record the schema version they were written
+ * with, so loading an up-to-date state costs a single integer comparison instead of a scan over the
+ * whole history. New layout changes are added by appending a migration with the next version.
+ */
+public final class LocalStateMigrations {
+
+  private static final Logger LOG = Logger.getInstance(LocalStateMigrations.class);
+
+  private static final List<LocalStateMigration> MIGRATIONS =
+      List.of(
+          new UtcHourKeysMigration(),
+          new RecordIdsMigration(),
+          new SyntheticFileChangesMigration(),
+          new BoundedFileChangesMigration());
+
+  public static final int CURRENT_VERSION = MIGRATIONS.get(MIGRATIONS.size() - 1).version();
+
+  private LocalStateMigrations() {}
+
+  /**
+   * Applies all migrations newer than the state's schema version, in order. The version is bumped
+   * after each step, so a failure leaves the state at the last completed version.
+   *
+   * @return number of migrations applied
+   */
+  public static int migrate(LocalTrackerState state) {
+    int fromVersion = state.getSchemaVersion();
+    if (fromVersion > CURRENT_VERSION) {
+      LOG.warn(
+          "Local state schema version "
+              + fromVersion
+              + " is newer than supported version "
+              + CURRENT_VERSION
+              + ", skipping migrations");
+      return 0;
+    }
+
+    int applied = 0;
+    for (LocalStateMigration migration : MIGRATIONS) {
+      if (migration.version() <= state.getSchemaVersion()) {
+        continue;
+      }
+      LOG.info(
+          "Migrating local state to version "
+              + migration.version()
+              + ": "
+              + migration.description());
+      migration.migrate(state);
+      state.setSchemaVersion(migration.version());
+      applied++;
+    }
+    return applied;
+  }
+}
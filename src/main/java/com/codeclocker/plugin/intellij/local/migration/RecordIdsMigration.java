@@ -0,0 +1,28 @@
+package com.codeclocker.plugin.intellij.local.migration;
+
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+import com.intellij.openapi.diagnostic.Logger;
+
+/** Assigns recordIds to snapshots created before recordId was introduced. */
+final class RecordIdsMigration implements LocalStateMigration {
+
+  private static final Logger LOG = Logger.getInstance(RecordIdsMigration.class);
+
+  @Override
+  public int version() {
+    return 2;
+  }
+
+  @Override
+  public String description() {
+    return "assign recordIds to legacy snapshots";
+  }
+
+  @Override
+  public void migrate(LocalTrackerState state) {
+    int generated = state.ensureAllRecordIds();
+    if (generated > 0) {
+      LOG.info("Generated recordIds for " + generated + " existing entries");
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.codeclocker.plugin.intellij.local.migration;
+
+import com.codeclocker.plugin.intellij.local.FileChangeRecord;
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts project-level change counts recorded before file-level tracking into a single synthetic
+ * {@code local-sync-<hourKey>} file change. The sync path previously produced the same name on
+ * every upload, so the data sent to the server is unchanged.
+ */
+final class SyntheticFileChangesMigration implements LocalStateMigration {
+
+  static final String SYNTHETIC_FILE_PREFIX = "local-sync-";
+
+  @Override
+  public int version() {
+    return 3;
+  }
+
+  @Override
+  public String description() {
+    return "store legacy change counts as synthetic file changes";
+  }
+
+  @Override
+  public void migrate(LocalTrackerState state) {
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry :
+        state.getHourlyActivity().entrySet()) {
+      for (ProjectActivitySnapshot snapshot : hourEntry.getValue().values()) {
+        boolean hasChanges = snapshot.getAdditions() > 0 || snapshot.getRemovals() > 0;
+        if (hasChanges && snapshot.getFileChanges().isEmpty()) {
+          snapshot.setFileChanges(
+              new ArrayList<>(
+                  List.of(
+                      new FileChangeRecord(
+                          SYNTHETIC_FILE_PREFIX + hourEntry.getKey(),
+                          snapshot.getAdditions(),
+                          snapshot.getRemovals(),
+                          ""))));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.codeclocker.plugin.intellij.local.migration;
+
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.intellij.openapi.diagnostic.Logger;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts hourKeys from the host's timezone to UTC. States written before the UTC switch have no
+ * hourKeyTimezone; states that already carry the UTC marker are left untouched.
+ */
+final class UtcHourKeysMigration implements LocalStateMigration {
+
+  private static final Logger LOG = Logger.getInstance(UtcHourKeysMigration.class);
+  private static final DateTimeFormatter DATETIME_HOUR_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
+
+  @Override
+  public int version() {
+    return 1;
+  }
+
+  @Override
+  public String description() {
+    return "convert hourKeys from local timezone to UTC";
+  }
+
+  @Override
+  public void migrate(LocalTrackerState state) {
+    if (!state.needsMigrationToUtc()) {
+      return;
+    }
+
+    Map<String, Map<String, ProjectActivitySnapshot>> oldData = state.getHourlyActivity();
+    if (oldData.isEmpty()) {
+      state.setHourKeyTimezone(LocalTrackerState.TIMEZONE_UTC);
+      LOG.info("No data to migrate, setting timezone to UTC");
+      return;
+    }
+
+    LOG.info("Migrating " + oldData.size() + " hour entries from local timezone to UTC");
+
+    Map<String, Map<String, ProjectActivitySnapshot>> migratedData = new HashMap<>();
+    ZoneId localZone = ZoneId.systemDefault();
+
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : oldData.entrySet()) {
+      String localHourKey = entry.getKey();
+      String utcHourKey = convertLocalHourKeyToUtc(localHourKey, localZone);
+
+      // Merge into migrated data (in case of collision, though unlikely)
+      migratedData.compute(
+          utcHourKey,
+          (key, existingProjects) -> {
+            if (existingProjects == null) {
+              return new HashMap<>(entry.getValue());
+            }
+            // Merge projects if collision occurs
+            for (Map.Entry<String, ProjectActivitySnapshot> projectEntry :
+                entry.getValue().entrySet()) {
+              existingProjects.merge(
+                  projectEntry.getKey(),
+                  projectEntry.getValue(),
+                  (existing, incoming) ->
+                      new ProjectActivitySnapshot(
+                          existing.getCodedTimeSeconds() + incoming.getCodedTimeSeconds(),
+                          existing.getAdditions() + incoming.getAdditions(),
+                          existing.getRemovals() + incoming.getRemovals(),
+                          existing.isReported() && incoming.isReported()));
+            }
+            return existingProjects;
+          });
+    }
+
+    state.setHourlyActivity(migratedData);
+    state.setHourKeyTimezone(LocalTrackerState.TIMEZONE_UTC);
+    LOG.info("Migration complete. Converted " + oldData.size() + " entries to UTC");
+  }
+
+  private String convertLocalHourKeyToUtc(String localHourKey, ZoneId localZone) {
+    try {
+      LocalDateTime localDateTime = LocalDateTime.parse(localHourKey, DATETIME_HOUR_FORMATTER);
+      ZonedDateTime utcDateTime =
+          localDateTime.atZone(localZone).withZoneSameInstant(ZoneId.of("UTC"));
+      return utcDateTime.format(DATETIME_HOUR_FORMATTER);
+    } catch (Exception e) {
+      LOG.warn("Failed to convert hourKey to UTC: " + localHourKey, e);
+      return localHourKey;
+    }
+  }
+}
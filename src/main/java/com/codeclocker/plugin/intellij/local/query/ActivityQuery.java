@@ -0,0 +1,193 @@
+package com.codeclocker.plugin.intellij.local.query;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable description of an aggregation over hourly activity data: an inclusive range of hour
+ * keys, optional project/branch/extension filters, the dimensions to group by and the optional
+ * aggregates to collect. Executed by {@link ActivityQueryEngine}.
+ *
+ * <p>Hour keys are compared as strings, so the range must use the same timezone as the data it is
+ * run against (normally local time, see {@code LocalActivityDataProvider}).
+ */
+public final class ActivityQuery {
+
+  private static final DateTimeFormatter HOUR_KEY_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
+
+  // Sorts before and after every valid hour key
+  private static final String MIN_HOUR_KEY = "";
+  private static final String MAX_HOUR_KEY = "\uffff";
+
+  public enum Dimension {
+    HOUR,
+    DAY,
+    /** Monday of the ISO week, as {@code yyyy-MM-dd}. */
+    WEEK,
+    PROJECT,
+    BRANCH,
+    EXTENSION
+  }
+
+  /**
+   * Aggregates that need per-row sets and are only collected when requested. Coded seconds,
+   * additions and removals are always summed.
+   */
+  public enum Aggregate {
+    /** Commits deduplicated by hash, and their count. */
+    COMMITS,
+    /** Number of distinct days with coded time or line changes. */
+    ACTIVE_DAYS
+  }
+
+  /**
+   * What a single unit of data is. Snapshot totals cannot be split by branch or extension, so
+   * queries that group or filter by either work on the finer records instead.
+   */
+  enum Granularity {
+    /** Whole project snapshots: coded seconds, additions, removals and commits. */
+    SNAPSHOT,
+    /** Branch activity records (coded seconds) and commits, keyed by their branch. */
+    BRANCH,
+    /** File change records (additions and removals), keyed by extension. */
+    EXTENSION
+  }
+
+  private final String fromHourKey;
+  private final String toHourKey;
+  private final Set<String> projects;
+  private final String branch;
+  private final String extension;
+  private final List<Dimension> groupBy;
+  private final Set<Aggregate> aggregates;
+  private final Granularity granularity;
+
+  private ActivityQuery(Builder builder) {
+    this.fromHourKey = builder.fromHourKey;
+    this.toHourKey = builder.toHourKey;
+    this.projects = Set.copyOf(builder.projects);
+    this.branch = builder.branch;
+    this.extension = builder.extension;
+    this.groupBy = List.copyOf(builder.groupBy);
+    this.aggregates =
+        builder.aggregates.isEmpty()
+            ? EnumSet.noneOf(Aggregate.class)
+            : EnumSet.copyOf(builder.aggregates);
+    this.granularity = resolveGranularity();
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private Granularity resolveGranularity() {
+    boolean byBranch = branch != null || groupBy.contains(Dimension.BRANCH);
+    boolean byExtension = extension != null || groupBy.contains(Dimension.EXTENSION);
+    if (byBranch && byExtension) {
+      throw new IllegalArgumentException(
+          "Branch and extension cannot be combined: changes are not tracked per branch");
+    }
+    if (byBranch) {
+      return Granularity.BRANCH;
+    }
+    return byExtension ? Granularity.EXTENSION : Granularity.SNAPSHOT;
+  }
+
+  String fromHourKey() {
+    return fromHourKey;
+  }
+
+  String toHourKey() {
+    return toHourKey;
+  }
+
+  boolean matchesProject(String projectName) {
+    return projects.isEmpty() || projects.contains(projectName);
+  }
+
+  String branch() {
+    return branch;
+  }
+
+  String extension() {
+    return extension;
+  }
+
+  public List<Dimension> groupBy() {
+    return groupBy;
+  }
+
+  boolean collects(Aggregate aggregate) {
+    return aggregates.contains(aggregate);
+  }
+
+  Granularity granularity() {
+    return granularity;
+  }
+
+  public static final class Builder {
+    private String fromHourKey = MIN_HOUR_KEY;
+    private String toHourKey = MAX_HOUR_KEY;
+    private final Set<String> projects = new HashSet<>();
+    private String branch;
+    private String extension;
+    private final List<Dimension> groupBy = new ArrayList<>();
+    private final Set<Aggregate> aggregates = new HashSet<>();
+
+    private Builder() {}
+
+    /** Restricts the query to the given local dates, both inclusive; if inverted, to nothing. */
+    public Builder between(LocalDate from, LocalDate to) {
+      this.fromHourKey = from.atStartOfDay().format(HOUR_KEY_FORMATTER);
+      this.toHourKey = to.atTime(23, 0).format(HOUR_KEY_FORMATTER);
+      return this;
+    }
+
+    /**
+     * Restricts the query to the hours starting at {@code from} up to {@code to}, inclusive; if
+     * inverted, to nothing.
+     */
+    public Builder betweenHours(LocalDateTime from, LocalDateTime to) {
+      this.fromHourKey = from.format(HOUR_KEY_FORMATTER);
+      this.toHourKey = to.format(HOUR_KEY_FORMATTER);
+      return this;
+    }
+
+    public Builder project(String projectName) {
+      projects.add(projectName);
+      return this;
+    }
+
+    public Builder branch(String branchName) {
+      this.branch = branchName;
+      return this;
+    }
+
+    public Builder extension(String extension) {
+      this.extension = extension;
+      return this;
+    }
+
+    /** Groups by the given dimensions; rows are keyed by their values in this order. */
+    public Builder groupBy(Dimension... dimensions) {
+      groupBy.addAll(List.of(dimensions));
+      return this;
+    }
+
+    public Builder aggregate(Aggregate... requested) {
+      aggregates.addAll(List.of(requested));
+      return this;
+    }
+
+    public ActivityQuery build() {
+      return new ActivityQuery(this);
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package com.codeclocker.plugin.intellij.local.query;
+
+import com.codeclocker.plugin.intellij.local.BranchActivityRecord;
+import com.codeclocker.plugin.intellij.local.CommitRecord;
+import com.codeclocker.plugin.intellij.local.FileChangeRecord;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Aggregate;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Dimension;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Runs an {@link ActivityQuery} over {@code hourKey -> (projectName -> snapshot)} data in a single
+ * pass. When the data is a {@link NavigableMap}, only the hours inside the query range are visited;
+ * otherwise every hour key is range-checked.
+ */
+public final class ActivityQueryEngine {
+
+  private ActivityQueryEngine() {}
+
+  public static ActivityQueryResult execute(
+      ActivityQuery query, Map<String, Map<String, ProjectActivitySnapshot>> data) {
+    Pass pass = new Pass(query);
+    boolean rangeApplied = data instanceof NavigableMap;
+    Map<String, Map<String, ProjectActivitySnapshot>> hours =
+        rangeApplied ? subMap(data, query) : data;
+
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry : hours.entrySet()) {
+      String hourKey = hourEntry.getKey();
+      if (!rangeApplied && !inRange(hourKey, query)) {
+        continue;
+      }
+      pass.visitHour(hourKey, hourEntry.getValue());
+    }
+    return pass.result();
+  }
+
+  private static Map<String, Map<String, ProjectActivitySnapshot>> subMap(
+      Map<String, Map<String, ProjectActivitySnapshot>> data, ActivityQuery query) {
+    NavigableMap<String, Map<String, ProjectActivitySnapshot>> sorted =
+        (NavigableMap<String, Map<String, ProjectActivitySnapshot>>) data;
+    Comparator<? super String> comparator = sorted.comparator();
+    String from = query.fromHourKey();
+    String to = query.toHourKey();
+    if (from.compareTo(to) > 0) {
+      // Inverted range matches nothing, as in inRange; subMap would reject it or flip it
+      return Map.of();
+    }
+    // Works for both ascending and descending (most recent first) maps
+    boolean ascending = comparator == null || comparator.compare(from, to) <= 0;
+    return ascending ? sorted.subMap(from, true, to, true) : sorted.subMap(to, true, from, true);
+  }
+
+  private static boolean inRange(String hourKey, ActivityQuery query) {
+    return hourKey != null
+        && hourKey.compareTo(query.fromHourKey()) >= 0
+        && hourKey.compareTo(query.toHourKey()) <= 0;
+  }
+
+  /** Mutable state of one execution. */
+  private static final class Pass {
+    private final ActivityQuery query;
+    private final boolean collectCommits;
+    private final boolean collectActiveDays;
+    private final Map<List<String>, Accumulator> groups = new LinkedHashMap<>();
+    private final Accumulator totals;
+    private final Map<String, String> weekByDate = new HashMap<>();
+
+    private String hourKey;
+    private String date;
+    private String project;
+
+    Pass(ActivityQuery query) {
+      this.query = query;
+      this.collectCommits = query.collects(Aggregate.COMMITS);
+      this.collectActiveDays = query.collects(Aggregate.ACTIVE_DAYS);
+      this.totals = new Accumulator(List.of());
+    }
+
+    void visitHour(String hourKey, Map<String, ProjectActivitySnapshot> projects) {
+      this.hourKey = hourKey;
+      this.date = hourKey.length() >= 10 ? hourKey.substring(0, 10) : hourKey;
+      for (Map.Entry<String, ProjectActivitySnapshot> projectEntry : projects.entrySet()) {
+        if (!query.matchesProject(projectEntry.getKey())) {
+          continue;
+        }
+        this.project = projectEntry.getKey();
+        visitSnapshot(projectEntry.getValue());
+      }
+    }
+
+    private void visitSnapshot(ProjectActivitySnapshot snapshot) {
+      switch (query.granularity()) {
+        case SNAPSHOT -> {
+          Accumulator group = group(null, null);
+          add(
+              group,
+              snapshot.getCodedTimeSeconds(),
+              snapshot.getAdditions(),
+              snapshot.getRemovals());
+          if (collectCommits) {
+            for (CommitRecord commit : snapshot.getCommits()) {
+              addCommit(group, commit);
+            }
+          }
+        }
+        case BRANCH -> {
+          for (BranchActivityRecord record : snapshot.getBranchActivity()) {
+            String branch = record.getBranchName();
+            if (branch == null || branch.isEmpty() || record.getActiveSeconds() <= 0) {
+              continue;
+            }
+            if (query.branch() == null || query.branch().equals(branch)) {
+              add(group(branch, null), record.getActiveSeconds(), 0, 0);
+            }
+          }
+          // Commits carry their own branch; with no coded time they only show up as commits
+          for (CommitRecord commit : snapshot.getCommits()) {
+            String branch = commit.getBranch() != null ? commit.getBranch() : "";
+            if (collectCommits && (query.branch() == null || query.branch().equals(branch))) {
+              addCommit(group(branch, null), commit);
+            }
+          }
+        }
+        case EXTENSION -> {
+          for (FileChangeRecord record : snapshot.getFileChanges()) {
+            String extension = record.getExtension() != null ? record.getExtension() : "";
+            if (query.extension() == null || query.extension().equals(extension)) {
+              add(group(null, extension), 0, record.getAdditions(), record.getRemovals());
+            }
+          }
+        }
+      }
+    }
+
+    private Accumulator group(String branch, String extension) {
+      List<Dimension> dimensions = query.groupBy();
+      List<String> key;
+      if (dimensions.size() == 1) {
+        key = List.of(value(dimensions.get(0), branch, extension));
+      } else {
+        String[] values = new String[dimensions.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = value(dimensions.get(i), branch, extension);
+        }
+        key = List.of(values);
+      }
+      return groups.computeIfAbsent(key, Accumulator::new);
+    }
+
+    private String value(Dimension dimension, String branch, String extension) {
+      return switch (dimension) {
+        case HOUR -> hourKey;
+        case DAY -> date;
+        case WEEK -> weekByDate.computeIfAbsent(date, ActivityQueryEngine::weekStart);
+        case PROJECT -> project;
+        case BRANCH -> branch;
+        case EXTENSION -> extension;
+      };
+    }
+
+    private void add(Accumulator group, long seconds, long additions, long removals) {
+      group.add(seconds, additions, removals);
+      totals.add(seconds, additions, removals);
+      if (collectActiveDays && (seconds > 0 || additions > 0 || removals > 0)) {
+        group.activeDays.add(date);
+        totals.activeDays.add(date);
+      }
+    }
+
+    private void addCommit(Accumulator group, CommitRecord commit) {
+      if (commit.getHash() == null) {
+        return;
+      }
+      group.commits.putIfAbsent(commit.getHash(), commit);
+      totals.commits.putIfAbsent(commit.getHash(), commit);
+    }
+
+    ActivityQueryResult result() {
+      List<ActivityRow> rows = new ArrayList<>(groups.size());
+      for (Accumulator group : groups.values()) {
+        rows.add(group.toRow());
+      }
+      return new ActivityQueryResult(rows, totals.toRow());
+    }
+  }
+
+  private static final class Accumulator {
+    private final List<String> key;
+    private long seconds;
+    private long additions;
+    private long removals;
+    private final Map<String, CommitRecord> commits = new LinkedHashMap<>();
+    private final Set<String> activeDays = new HashSet<>();
+
+    Accumulator(List<String> key) {
+      this.key = key;
+    }
+
+    void add(long seconds, long additions, long removals) {
+      this.seconds += seconds;
+      this.additions += additions;
+      this.removals += removals;
+    }
+
+    ActivityRow toRow() {
+      return new ActivityRow(
+          key, seconds, additions, removals, List.copyOf(commits.values()), activeDays.size());
+    }
+  }
+
+  private static String weekStart(String date) {
+    try {
+      return LocalDate.parse(date)
+          .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+          .toString();
+    } catch (Exception e) {
+      return date;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.codeclocker.plugin.intellij.local.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows of an executed {@link ActivityQuery} in the order their groups were first seen, plus the
+ * totals over everything the query matched.
+ */
+public record ActivityQueryResult(List<ActivityRow> rows, ActivityRow totals) {
+
+  /** Rows keyed by their first group-by value; meant for single-dimension queries. */
+  public Map<String, ActivityRow> byFirstKey() {
+    Map<String, ActivityRow> result = new LinkedHashMap<>();
+    for (ActivityRow row : rows) {
+      result.put(row.key(0), row);
+    }
+    return result;
+  }
+
+  /** Rows with coded time, sorted by coded time descending. */
+  public List<ActivityRow> withTimeBySecondsDescending() {
+    List<ActivityRow> result = new ArrayList<>();
+    for (ActivityRow row : rows) {
+      if (row.seconds() > 0) {
+        result.add(row);
+      }
+    }
+    result.sort(Comparator.comparingLong(ActivityRow::seconds).reversed());
+    return result;
+  }
+}
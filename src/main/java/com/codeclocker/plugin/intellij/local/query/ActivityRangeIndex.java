@@ -0,0 +1,246 @@
+package com.codeclocker.plugin.intellij.local.query;
+
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.codeclocker.plugin.intellij.local.TimezoneConversionService;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prefix sums of coded seconds, additions and removals per local day (globally and per project) and
+ * per local hour (globally), built in one pass over {@code hourKey -> (projectName -> snapshot)}
+ * data. Any range total is two binary searches and a subtraction, so it costs O(log n) however much
+ * history is retained.
+ *
+ * <p>The index is immutable. Persisted data changes rarely and is indexed once per version; data
+ * that changes often, such as the unsaved seconds of the running session, is laid on top with
+ * {@link #withOverlay}, which only indexes the few hours it touches.
+ */
+public final class ActivityRangeIndex {
+
+  private static final long SECONDS_PER_HOUR = 3600;
+
+  private static final ActivityRangeIndex EMPTY =
+      new ActivityRangeIndex(Series.EMPTY, Map.of(), Series.EMPTY, null);
+
+  private final Series daily;
+  private final Map<String, Series> dailyByProject;
+  private final Series hourly;
+
+  /** Small index added on top of this one, or null. */
+  private final ActivityRangeIndex overlay;
+
+  public record Totals(long seconds, long additions, long removals, int activeDays) {
+    static final Totals ZERO = new Totals(0, 0, 0, 0);
+  }
+
+  private ActivityRangeIndex(
+      Series daily, Map<String, Series> dailyByProject, Series hourly, ActivityRangeIndex overlay) {
+    this.daily = daily;
+    this.dailyByProject = dailyByProject;
+    this.hourly = hourly;
+    this.overlay = overlay;
+  }
+
+  public static ActivityRangeIndex empty() {
+    return EMPTY;
+  }
+
+  public static ActivityRangeIndex build(Map<String, Map<String, ProjectActivitySnapshot>> data) {
+    Map<Long, long[]> days = new HashMap<>();
+    Map<String, Map<Long, long[]>> projectDays = new HashMap<>();
+    Map<Long, long[]> hours = new HashMap<>();
+
+    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry : data.entrySet()) {
+      long epochSeconds = TimezoneConversionService.parseHourKey(hourEntry.getKey());
+      if (epochSeconds < 0) {
+        continue;
+      }
+      long epochHour = epochSeconds / SECONDS_PER_HOUR;
+      long epochDay = epochHour / 24;
+      for (Map.Entry<String, ProjectActivitySnapshot> projectEntry :
+          hourEntry.getValue().entrySet()) {
+        ProjectActivitySnapshot snapshot = projectEntry.getValue();
+        add(days, epochDay, snapshot);
+        add(hours, epochHour, snapshot);
+        add(
+            projectDays.computeIfAbsent(projectEntry.getKey(), k -> new HashMap<>()),
+            epochDay,
+            snapshot);
+      }
+    }
+
+    Map<String, Series> byProject = new HashMap<>();
+    for (Map.Entry<String, Map<Long, long[]>> entry : projectDays.entrySet()) {
+      byProject.put(entry.getKey(), Series.of(entry.getValue()));
+    }
+    return new ActivityRangeIndex(Series.of(days), byProject, Series.of(hours), null);
+  }
+
+  /**
+   * Returns this index with {@code extra} added on top, in the same {@code hourKey -> (projectName
+   * -> snapshot)} form. Only {@code extra} is indexed, so this is cheap when it spans a few hours;
+   * a previous overlay is replaced.
+   */
+  public ActivityRangeIndex withOverlay(Map<String, Map<String, ProjectActivitySnapshot>> extra) {
+    ActivityRangeIndex base = overlay != null ? withoutOverlay() : this;
+    if (extra.isEmpty()) {
+      return base;
+    }
+    return new ActivityRangeIndex(base.daily, base.dailyByProject, base.hourly, build(extra));
+  }
+
+  private ActivityRangeIndex withoutOverlay() {
+    return new ActivityRangeIndex(daily, dailyByProject, hourly, null);
+  }
+
+  private static void add(Map<Long, long[]> buckets, long key, ProjectActivitySnapshot snapshot) {
+    long[] values = buckets.computeIfAbsent(key, k -> new long[3]);
+    values[0] += snapshot.getCodedTimeSeconds();
+    values[1] += snapshot.getAdditions();
+    values[2] += snapshot.getRemovals();
+  }
+
+  /** Totals over the local dates {@code from..to}, both inclusive. */
+  public Totals between(LocalDate from, LocalDate to) {
+    return Series.sum(
+        daily, overlay != null ? overlay.daily : null, from.toEpochDay(), to.toEpochDay());
+  }
+
+  /** Totals of one project over the local dates {@code from..to}, both inclusive. */
+  public Totals between(String projectName, LocalDate from, LocalDate to) {
+    Series series = dailyByProject.getOrDefault(projectName, Series.EMPTY);
+    Series extra = overlay != null ? overlay.dailyByProject.get(projectName) : null;
+    return Series.sum(series, extra, from.toEpochDay(), to.toEpochDay());
+  }
+
+  /**
+   * Totals over the hours starting at {@code from} up to {@code to}, both inclusive. Active days
+   * counts the dates that have activity within the range.
+   */
+  public Totals betweenHours(LocalDateTime from, LocalDateTime to) {
+    long fromHour = epochHour(from);
+    long toHour = epochHour(to);
+    Series extra = overlay != null ? overlay.hourly : null;
+    Totals sum = Series.sum(hourly, extra, fromHour, toHour);
+
+    int activeDays = 0;
+    for (long day = Math.floorDiv(fromHour, 24); day <= Math.floorDiv(toHour, 24); day++) {
+      long dayFrom = Math.max(fromHour, day * 24);
+      long dayTo = Math.min(toHour, day * 24 + 23);
+      if (Series.sum(hourly, extra, dayFrom, dayTo).activeDays() > 0) {
+        activeDays++;
+      }
+    }
+    return new Totals(sum.seconds(), sum.additions(), sum.removals(), activeDays);
+  }
+
+  public Set<String> projects() {
+    if (overlay == null) {
+      return dailyByProject.keySet();
+    }
+    Set<String> projects = new HashSet<>(dailyByProject.keySet());
+    projects.addAll(overlay.dailyByProject.keySet());
+    return projects;
+  }
+
+  private static long epochHour(LocalDateTime dateTime) {
+    return dateTime.toLocalDate().toEpochDay() * 24 + dateTime.getHour();
+  }
+
+  /**
+   * Sorted bucket keys with prefix sums. {@code prefix[i]} holds the sum over {@code keys[0..i)};
+   * {@code activePrefix} counts buckets with any coded time or line changes.
+   */
+  private static final class Series {
+    static final Series EMPTY =
+        new Series(new long[0], new long[1], new long[1], new long[1], new int[1]);
+
+    private final long[] keys;
+    private final long[] secondsPrefix;
+    private final long[] additionsPrefix;
+    private final long[] removalsPrefix;
+    private final int[] activePrefix;
+
+    private Series(
+        long[] keys,
+        long[] secondsPrefix,
+        long[] additionsPrefix,
+        long[] removalsPrefix,
+        int[] activePrefix) {
+      this.keys = keys;
+      this.secondsPrefix = secondsPrefix;
+      this.additionsPrefix = additionsPrefix;
+      this.removalsPrefix = removalsPrefix;
+      this.activePrefix = activePrefix;
+    }
+
+    static Series of(Map<Long, long[]> buckets) {
+      long[] keys = buckets.keySet().stream().mapToLong(Long::longValue).toArray();
+      Arrays.sort(keys);
+      int n = keys.length;
+      long[] seconds = new long[n + 1];
+      long[] additions = new long[n + 1];
+      long[] removals = new long[n + 1];
+      int[] active = new int[n + 1];
+      for (int i = 0; i < n; i++) {
+        long[] values = buckets.get(keys[i]);
+        seconds[i + 1] = seconds[i] + values[0];
+        additions[i + 1] = additions[i] + values[1];
+        removals[i + 1] = removals[i] + values[2];
+        boolean hasActivity = values[0] > 0 || values[1] > 0 || values[2] > 0;
+        active[i + 1] = active[i] + (hasActivity ? 1 : 0);
+      }
+      return new Series(keys, seconds, additions, removals, active);
+    }
+
+    Totals sum(long fromKey, long toKey) {
+      if (fromKey > toKey) {
+        return Totals.ZERO;
+      }
+      int lo = lowerBound(fromKey);
+      int hi = lowerBound(toKey + 1);
+      return new Totals(
+          secondsPrefix[hi] - secondsPrefix[lo],
+          additionsPrefix[hi] - additionsPrefix[lo],
+          removalsPrefix[hi] - removalsPrefix[lo],
+          activePrefix[hi] - activePrefix[lo]);
+    }
+
+    /**
+     * Totals of {@code base} and {@code extra} together. A bucket active in both counts once;
+     * {@code extra} is expected to be small, as its buckets in range are looked up one by one.
+     */
+    static Totals sum(Series base, Series extra, long fromKey, long toKey) {
+      Totals totals = base.sum(fromKey, toKey);
+      if (extra == null || fromKey > toKey) {
+        return totals;
+      }
+      Totals extraTotals = extra.sum(fromKey, toKey);
+      int activeDays = totals.activeDays();
+      for (int i = extra.lowerBound(fromKey);
+          i < extra.keys.length && extra.keys[i] <= toKey;
+          i++) {
+        boolean extraActive = extra.activePrefix[i + 1] > extra.activePrefix[i];
+        if (extraActive && base.sum(extra.keys[i], extra.keys[i]).activeDays() == 0) {
+          activeDays++;
+        }
+      }
+      return new Totals(
+          totals.seconds() + extraTotals.seconds(),
+          totals.additions() + extraTotals.additions(),
+          totals.removals() + extraTotals.removals(),
+          activeDays);
+    }
+
+    /** Index of the first key that is {@code >= key}. */
+    private int lowerBound(long key) {
+      int index = Arrays.binarySearch(keys, key);
+      return index >= 0 ? index : -index - 1;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.codeclocker.plugin.intellij.local.query;
+
+import com.codeclocker.plugin.intellij.local.CommitRecord;
+import java.util.List;
+
+/**
+ * One group of an {@link ActivityQuery} result. {@code key} holds the group's value for each
+ * group-by dimension, in query order. {@code commits} and {@code activeDays} are empty/zero unless
+ * the matching {@link ActivityQuery.Aggregate} was requested.
+ */
+public record ActivityRow(
+    List<String> key,
+    long seconds,
+    long additions,
+    long removals,
+    List<CommitRecord> commits,
+    int activeDays) {
+
+  public String key(int index) {
+    return key.get(index);
+  }
+
+  public int commitCount() {
+    return commits.size();
+  }
+
+  public boolean hasActivity() {
+    return seconds > 0 || additions > 0 || removals > 0;
+  }
+}
@@ -1,5 +1,7 @@
 package com.codeclocker.plugin.intellij.pomodoro;
 
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.ValidationInfo;
 import com.intellij.ui.components.JBCheckBox;
@@ -87,6 +89,7 @@ public class PomodoroSettingsDialog extends DialogWrapper {
     PomodoroPersistence.setAutoStartBreak(autoStartBreakCheckbox.isSelected());
     PomodoroPersistence.setUseCodingTime(useCodingTimeCheckbox.isSelected());
     PomodoroPersistence.setNotificationsEnabled(notificationsCheckbox.isSelected());
+    ApplicationManager.getApplication().getService(SettingsService.class).reload();
 
     super.doOKAction();
   }
@@ -1,50 +1,65 @@
 package com.codeclocker.plugin.intellij.pomodoro;
 
+import com.codeclocker.plugin.intellij.config.CodeClockerSettings.Pomodoro;
+import com.codeclocker.plugin.intellij.config.SettingsListener;
+import com.codeclocker.plugin.intellij.config.SettingsService;
 import com.codeclocker.plugin.intellij.services.TimeSpentPerProjectLogger;
+import com.codeclocker.plugin.intellij.services.WidgetTicker;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
-
+import com.intellij.util.concurrency.AppExecutorUtil;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pomodoro work and break intervals. Breaks and real-clock work intervals end at a wall-clock
+ * deadline with one timer scheduled for it, so they are exact regardless of how often anything else
+ * runs. In coding-time mode a work interval counts the seconds {@link TimeSpentPerProjectLogger}
+ * credited since it started and is checked whenever new time is credited (see {@link
+ * #onCodingTimeCredited()}).
+ */
 @Service(Service.Level.APP)
-public final class PomodoroTimerService {
+public final class PomodoroTimerService implements Disposable {
 
   private PomodoroState state = PomodoroState.IDLE;
-  private long workSecondsAccumulated;
-  private long breakSecondsRemaining;
   private int completedCycles;
-  private long lastActivityCheckGlobalSeconds;
-  private long lastTickTimestampMillis;
+
+  /** Start of the current work interval, on the wall clock and in credited coding seconds. */
+  private long workStartedAtMillis;
+
+  private long workStartCreditedSeconds;
+
+  private long breakEndsAtMillis;
+
+  private ScheduledFuture<?> deadlineTimer;
+
+  public PomodoroTimerService() {
+    ApplicationManager.getApplication()
+        .getMessageBus()
+        .connect(this)
+        .subscribe(SettingsListener.TOPIC, settings -> settingsChanged());
+  }
 
   public synchronized void start() {
-    state = PomodoroState.WORKING;
     PomodoroPersistence.setEnabled(true);
-    PomodoroPersistence.setWasActiveOnShutdown(true);
-    workSecondsAccumulated = 0;
-
-    TimeSpentPerProjectLogger logger =
-        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
-    lastActivityCheckGlobalSeconds = logger != null ? logger.getGlobalAccumulatedToday() : 0;
+    startNextWorkInterval();
   }
 
   public synchronized void stop() {
     state = PomodoroState.IDLE;
     PomodoroPersistence.setEnabled(false);
     PomodoroPersistence.setWasActiveOnShutdown(false);
-    workSecondsAccumulated = 0;
-    breakSecondsRemaining = 0;
     completedCycles = 0;
+    scheduleDeadline();
+    requestRepaint();
   }
 
   public synchronized void startBreak(boolean isLongBreak) {
     if (state != PomodoroState.IDLE) {
       return;
     }
-    state = PomodoroState.BREAK;
-    PomodoroPersistence.setWasActiveOnShutdown(true);
-    breakSecondsRemaining =
-        (isLongBreak
-                ? PomodoroPersistence.getLongBreakMinutes()
-                : PomodoroPersistence.getShortBreakMinutes())
-            * 60L;
+    beginBreak(isLongBreak);
   }
 
   public synchronized void skipBreak() {
@@ -54,104 +69,136 @@ public final class PomodoroTimerService {
     startNextWorkInterval();
   }
 
-  public synchronized void tick() {
-    long now = System.currentTimeMillis();
-    if (now - lastTickTimestampMillis < 500) {
-      return;
-    }
-    lastTickTimestampMillis = now;
-
-    if (state == PomodoroState.WORKING) {
-      tickWorking();
-    } else if (state == PomodoroState.BREAK) {
-      tickBreak();
+  /** Called when the logger credited coding time; ends a coding-time work interval when due. */
+  public synchronized void onCodingTimeCredited() {
+    if (state == PomodoroState.WORKING
+        && getPomodoroSettings().useCodingTime()
+        && getWorkSecondsRemaining() == 0) {
+      finishWorkInterval();
     }
   }
 
-  private void tickWorking() {
-    if (PomodoroPersistence.isUseCodingTime()) {
-      tickWorkingCodingTime();
-    } else {
-      tickWorkingRealClock();
+  /** Re-applies the settings to the running interval, e.g. a changed length or mode. */
+  private synchronized void settingsChanged() {
+    onCodingTimeCredited();
+    scheduleDeadline();
+    requestRepaint();
+  }
+
+  private void onDeadline() {
+    synchronized (this) {
+      long now = System.currentTimeMillis();
+      if (state == PomodoroState.WORKING
+          && !getPomodoroSettings().useCodingTime()
+          && now >= getWorkEndsAtMillis()) {
+        finishWorkInterval();
+      } else if (state == PomodoroState.BREAK && now >= breakEndsAtMillis) {
+        finishBreak();
+      } else {
+        // Woke up early or the settings changed in between
+        scheduleDeadline();
+      }
     }
   }
 
-  private void tickWorkingRealClock() {
-    workSecondsAccumulated++;
-
-    long targetSeconds = PomodoroPersistence.getWorkMinutes() * 60L;
-    if (workSecondsAccumulated >= targetSeconds) {
-      completedCycles++;
-      transitionToBreak();
+  /** Cancels the pending timer and schedules one for the current interval, if it has a deadline. */
+  private void scheduleDeadline() {
+    if (deadlineTimer != null) {
+      deadlineTimer.cancel(false);
+      deadlineTimer = null;
     }
-  }
 
-  private void tickWorkingCodingTime() {
-    TimeSpentPerProjectLogger logger =
-        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
-    if (logger == null) {
+    long deadline;
+    if (state == PomodoroState.WORKING && !getPomodoroSettings().useCodingTime()) {
+      deadline = getWorkEndsAtMillis();
+    } else if (state == PomodoroState.BREAK) {
+      deadline = breakEndsAtMillis;
+    } else {
       return;
     }
+    long delay = Math.max(0, deadline - System.currentTimeMillis());
+    deadlineTimer =
+        AppExecutorUtil.getAppScheduledExecutorService()
+            .schedule(this::onDeadline, delay, TimeUnit.MILLISECONDS);
+  }
 
-    long currentGlobalSeconds = logger.getGlobalAccumulatedToday();
-    long delta = currentGlobalSeconds - lastActivityCheckGlobalSeconds;
-    if (delta < 0) {
-      delta = 0;
-    }
-    lastActivityCheckGlobalSeconds = currentGlobalSeconds;
-    workSecondsAccumulated += delta;
-
-    long targetSeconds = PomodoroPersistence.getWorkMinutes() * 60L;
-    if (workSecondsAccumulated >= targetSeconds) {
-      completedCycles++;
-      transitionToBreak();
-    }
+  private void finishWorkInterval() {
+    completedCycles++;
+    transitionToBreak();
   }
 
   private void transitionToBreak() {
     boolean isLongBreak =
-        completedCycles > 0
-            && completedCycles % PomodoroPersistence.getCyclesBeforeLongBreak() == 0;
+        completedCycles > 0 && completedCycles % getPomodoroSettings().cyclesBeforeLongBreak() == 0;
 
     PomodoroNotificationService.notifyBreakTime(isLongBreak, completedCycles);
 
-    if (PomodoroPersistence.isAutoStartBreak()) {
-      state = PomodoroState.BREAK;
-      PomodoroPersistence.setWasActiveOnShutdown(true);
-      breakSecondsRemaining =
-          (isLongBreak
-                  ? PomodoroPersistence.getLongBreakMinutes()
-                  : PomodoroPersistence.getShortBreakMinutes())
-              * 60L;
+    if (getPomodoroSettings().autoStartBreak()) {
+      beginBreak(isLongBreak);
     } else {
       state = PomodoroState.IDLE;
       PomodoroPersistence.setWasActiveOnShutdown(false);
+      scheduleDeadline();
+      requestRepaint();
     }
   }
 
-  private void tickBreak() {
-    breakSecondsRemaining--;
-    if (breakSecondsRemaining <= 0) {
-      breakSecondsRemaining = 0;
-      state = PomodoroState.IDLE;
-      PomodoroPersistence.setWasActiveOnShutdown(false);
-      PomodoroNotificationService.notifyBreakOver();
-    }
+  private void beginBreak(boolean isLongBreak) {
+    state = PomodoroState.BREAK;
+    PomodoroPersistence.setWasActiveOnShutdown(true);
+    Pomodoro settings = getPomodoroSettings();
+    long breakMinutes = isLongBreak ? settings.longBreakMinutes() : settings.shortBreakMinutes();
+    breakEndsAtMillis = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(breakMinutes);
+    scheduleDeadline();
+    requestRepaint();
+  }
+
+  private void finishBreak() {
+    state = PomodoroState.IDLE;
+    PomodoroPersistence.setWasActiveOnShutdown(false);
+    PomodoroNotificationService.notifyBreakOver();
+    scheduleDeadline();
+    requestRepaint();
   }
 
   private void startNextWorkInterval() {
     state = PomodoroState.WORKING;
     PomodoroPersistence.setWasActiveOnShutdown(true);
-    workSecondsAccumulated = 0;
-    breakSecondsRemaining = 0;
+    workStartedAtMillis = System.currentTimeMillis();
 
     TimeSpentPerProjectLogger logger =
         ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
-    lastActivityCheckGlobalSeconds = logger != null ? logger.getGlobalAccumulatedToday() : 0;
+    workStartCreditedSeconds = logger != null ? logger.getCreditedSeconds() : 0;
+
+    scheduleDeadline();
+    requestRepaint();
   }
 
-  public synchronized void resetActivityBaseline() {
-    lastActivityCheckGlobalSeconds = 0;
+  private long getWorkEndsAtMillis() {
+    return workStartedAtMillis + TimeUnit.MINUTES.toMillis(getPomodoroSettings().workMinutes());
+  }
+
+  private long getWorkSecondsDone() {
+    if (!getPomodoroSettings().useCodingTime()) {
+      return (System.currentTimeMillis() - workStartedAtMillis) / 1000;
+    }
+    TimeSpentPerProjectLogger logger =
+        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
+    return logger != null ? logger.getCreditedSeconds() - workStartCreditedSeconds : 0;
+  }
+
+  private static Pomodoro getPomodoroSettings() {
+    return ApplicationManager.getApplication()
+        .getService(SettingsService.class)
+        .getSettings()
+        .pomodoro();
+  }
+
+  private static void requestRepaint() {
+    WidgetTicker ticker = ApplicationManager.getApplication().getService(WidgetTicker.class);
+    if (ticker != null) {
+      ticker.requestRepaint();
+    }
   }
 
   public synchronized PomodoroState getState() {
@@ -159,12 +206,19 @@ public final class PomodoroTimerService {
   }
 
   public synchronized long getWorkSecondsRemaining() {
-    long targetSeconds = PomodoroPersistence.getWorkMinutes() * 60L;
-    return Math.max(0, targetSeconds - workSecondsAccumulated);
+    if (state != PomodoroState.WORKING) {
+      return 0;
+    }
+    long targetSeconds = getPomodoroSettings().workMinutes() * 60L;
+    return Math.max(0, targetSeconds - getWorkSecondsDone());
   }
 
   public synchronized long getBreakSecondsRemaining() {
-    return breakSecondsRemaining;
+    if (state != PomodoroState.BREAK) {
+      return 0;
+    }
+    long remainingMillis = breakEndsAtMillis - System.currentTimeMillis();
+    return Math.max(0, (remainingMillis + 999) / 1000);
   }
 
   public synchronized int getCompletedCycles() {
@@ -189,4 +243,12 @@ public final class PomodoroTimerService {
     }
     return String.format("%dm", minutes);
   }
+
+  @Override
+  public synchronized void dispose() {
+    if (deadlineTimer != null) {
+      deadlineTimer.cancel(false);
+      deadlineTimer = null;
+    }
+  }
 }
@@ -13,6 +13,7 @@ import com.codeclocker.plugin.intellij.local.CommitRecord;
 import com.codeclocker.plugin.intellij.local.FileChangeRecord;
 import com.codeclocker.plugin.intellij.local.LocalStateRepository;
 import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.codeclocker.plugin.intellij.local.TimezoneConversionService;
 import com.codeclocker.plugin.intellij.reporting.TimeSpentSampleDto.BranchActivityDto;
 import com.codeclocker.plugin.intellij.reporting.TimeSpentSampleDto.CommitDto;
 import com.codeclocker.plugin.intellij.services.BranchActivityTracker;
@@ -27,7 +28,6 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -42,9 +42,6 @@ public final class DataReportingTask implements Disposable {
 
   private static final Logger LOG = Logger.getInstance(DataReportingTask.class);
 
-  private static final DateTimeFormatter DATETIME_HOUR_FORMATTER =
-      DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
-
   private ScheduledFuture<?> task;
 
   private ChangesActivityTracker getChangesActivityTracker() {
@@ -286,18 +283,6 @@ public final class DataReportingTask implements Disposable {
                   .put(fc.getFileName(), changesDto);
             }
           }
-        } else if (snapshot.getAdditions() > 0 || snapshot.getRemovals() > 0) {
-          // Backward compat: old data without file-level detail
-          String syntheticFileName = "local-sync-" + hourKey;
-          ChangesSampleDto changesDto =
-              new ChangesSampleDto(
-                  samplingStartedAt,
-                  snapshot.getAdditions(),
-                  snapshot.getRemovals(),
-                  Collections.emptyMap());
-          changesByProject
-              .computeIfAbsent(projectName, k -> new HashMap<>())
-              .put(syntheticFileName, changesDto);
         }
       }
     }
@@ -344,13 +329,10 @@ public final class DataReportingTask implements Disposable {
     }
   }
 
+  /** Stored hourKeys are in UTC, so the hour start is a plain epoch computation. */
   private static long datetimeHourToTimestamp(String datetimeHourStr) {
-    try {
-      LocalDateTime dateTime = LocalDateTime.parse(datetimeHourStr, DATETIME_HOUR_FORMATTER);
-      return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
-    } catch (Exception e) {
-      return System.currentTimeMillis();
-    }
+    long epochMillis = TimezoneConversionService.utcHourKeyToEpochMillis(datetimeHourStr);
+    return epochMillis >= 0 ? epochMillis : System.currentTimeMillis();
   }
 
   private <T> String toJson(T report) {
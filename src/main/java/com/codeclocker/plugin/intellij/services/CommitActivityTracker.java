@@ -1,6 +1,10 @@
 package com.codeclocker.plugin.intellij.services;
 
+import com.codeclocker.plugin.intellij.local.ActivityEventPublisher;
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
 import com.codeclocker.plugin.intellij.local.CommitRecord;
+import com.codeclocker.plugin.intellij.local.TimezoneConversionService;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import java.time.LocalDateTime;
@@ -41,6 +45,17 @@ public final class CommitActivityTracker {
         .computeIfAbsent(hourKey, k -> new CopyOnWriteArrayList<>())
         .add(commit);
 
+    ActivityEventPublisher publisher =
+        ApplicationManager.getApplication().getService(ActivityEventPublisher.class);
+    if (publisher != null) {
+      // The commit is stored under the UTC hour it is flushed in, which is the current one
+      String utcHourKey =
+          ApplicationManager.getApplication()
+              .getService(TimezoneConversionService.class)
+              .currentUtcHourKey();
+      publisher.changed(projectName, utcHourKey, Kind.COMMIT);
+    }
+
     LOG.info(
         "Recorded commit "
             + commit.getHash()
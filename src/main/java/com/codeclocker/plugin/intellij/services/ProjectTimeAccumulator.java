@@ -1,8 +1,8 @@
 package com.codeclocker.plugin.intellij.services;
 
-import com.codeclocker.plugin.intellij.tracking.TrackingPersistence;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.codeclocker.plugin.intellij.local.TimezoneConversionService;
+import com.intellij.openapi.application.ApplicationManager;
 import java.time.format.DateTimeFormatter;
 import org.jetbrains.annotations.Nullable;
 
@@ -14,7 +14,6 @@ public class ProjectTimeAccumulator {
 
   public static final DateTimeFormatter HOUR_KEY_FORMATTER =
       DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
-  private static final ZoneId UTC = ZoneId.of("UTC");
 
   private static final long MILLIS_PER_SECOND = 1000L;
 
@@ -25,7 +24,7 @@ public class ProjectTimeAccumulator {
   private volatile long lastReportedSeconds;
 
   public ProjectTimeAccumulator() {
-    this.hourKey = ZonedDateTime.now(UTC).format(HOUR_KEY_FORMATTER);
+    this.hourKey = currentUtcHourKey();
     this.accumulatedSeconds = 0;
     this.lastActivityTimestampMillis = 0;
     this.active = false;
@@ -47,7 +46,13 @@ public class ProjectTimeAccumulator {
     }
 
     long elapsedMillis = now - lastActivityTimestampMillis;
-    long maxElapsedMillis = TrackingPersistence.getInactivityTimeoutSeconds() * MILLIS_PER_SECOND;
+    long maxElapsedMillis =
+        ApplicationManager.getApplication()
+                .getService(SettingsService.class)
+                .getSettings()
+                .tracking()
+                .inactivityTimeoutSeconds()
+            * MILLIS_PER_SECOND;
     elapsedMillis = Math.min(elapsedMillis, maxElapsedMillis);
     long elapsedSeconds = Math.round((float) elapsedMillis / MILLIS_PER_SECOND);
     if (elapsedSeconds > 0) {
@@ -74,7 +79,7 @@ public class ProjectTimeAccumulator {
    */
   @Nullable
   public synchronized HourTransition checkAndHandleHourBoundary() {
-    String currentHour = ZonedDateTime.now(UTC).format(HOUR_KEY_FORMATTER);
+    String currentHour = currentUtcHourKey();
     if (!currentHour.equals(hourKey)) {
       HourTransition transition =
           new HourTransition(hourKey, accumulatedSeconds, lastReportedSeconds);
@@ -113,6 +118,12 @@ public class ProjectTimeAccumulator {
     this.accumulatedSeconds = seconds;
   }
 
+  private static String currentUtcHourKey() {
+    return ApplicationManager.getApplication()
+        .getService(TimezoneConversionService.class)
+        .currentUtcHourKey();
+  }
+
   /** Result of hour boundary check containing data for the finalized hour. */
   public record HourTransition(String hourKey, long accumulatedSeconds, long lastReportedSeconds) {
 
@@ -3,7 +3,8 @@ package com.codeclocker.plugin.intellij.services;
 import static com.codeclocker.plugin.intellij.ScheduledExecutor.EXECUTOR;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-import com.codeclocker.plugin.intellij.tracking.TrackingPersistence;
+import com.codeclocker.plugin.intellij.config.SettingsListener;
+import com.codeclocker.plugin.intellij.config.SettingsService;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.project.Project;
@@ -22,10 +23,22 @@ public class TimeSpentActivityTracker implements Disposable {
     this.scheduledTask = new AtomicReference<>(schedule());
     this.timeSpentPerProjectLogger =
         ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
+
+    // Restart the countdown so a changed timeout applies right away
+    ApplicationManager.getApplication()
+        .getMessageBus()
+        .connect(this)
+        .subscribe(SettingsListener.TOPIC, settings -> restartInactivityTask());
   }
 
   private long getInactivityTimeoutMillis() {
-    return Duration.ofSeconds(TrackingPersistence.getInactivityTimeoutSeconds()).toMillis();
+    int timeoutSeconds =
+        ApplicationManager.getApplication()
+            .getService(SettingsService.class)
+            .getSettings()
+            .tracking()
+            .inactivityTimeoutSeconds();
+    return Duration.ofSeconds(timeoutSeconds).toMillis();
   }
 
   public void logTime(Project project) {
@@ -40,7 +53,10 @@ public class TimeSpentActivityTracker implements Disposable {
     }
 
     lastRescheduledAt.set(now);
+    restartInactivityTask();
+  }
 
+  private void restartInactivityTask() {
     scheduledTask.updateAndGet(
         currentTask -> {
           currentTask.cancel(false);
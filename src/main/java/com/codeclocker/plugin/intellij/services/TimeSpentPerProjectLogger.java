@@ -1,5 +1,7 @@
 package com.codeclocker.plugin.intellij.services;
 
+import com.codeclocker.plugin.intellij.local.ActivityEventPublisher;
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
@@ -11,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -31,6 +34,9 @@ public class TimeSpentPerProjectLogger {
   private final Map<String, ProjectTimeAccumulator> accumulatorsByProject =
       new ConcurrentHashMap<>();
 
+  /** Coded seconds credited to any project since startup; never reset, unlike daily totals. */
+  private final AtomicLong creditedSeconds = new AtomicLong();
+
   /** Currently active project. */
   private final AtomicReference<String> currentProjectName = new AtomicReference<>();
 
@@ -60,8 +66,10 @@ public class TimeSpentPerProjectLogger {
 
     checkHourBoundary(accumulator, projectName);
 
+    long secondsBefore = accumulator.getAccumulatedSeconds();
     accumulator.calculateAndAddElapsed(now);
     accumulator.activate(now);
+    creditTime(projectName, accumulator, secondsBefore);
 
     // Record branch activity
     BranchActivityTracker branchTracker =
@@ -71,6 +79,23 @@ public class TimeSpentPerProjectLogger {
     }
   }
 
+  private void creditTime(
+      String projectName, ProjectTimeAccumulator accumulator, long secondsBefore) {
+    long credited = accumulator.getAccumulatedSeconds() - secondsBefore;
+    if (credited != 0) {
+      creditedSeconds.addAndGet(Math.max(credited, 0));
+      publishTimeChanged(projectName, accumulator);
+    }
+  }
+
+  private void publishTimeChanged(String projectName, ProjectTimeAccumulator accumulator) {
+    ActivityEventPublisher publisher =
+        ApplicationManager.getApplication().getService(ActivityEventPublisher.class);
+    if (publisher != null) {
+      publisher.changed(projectName, accumulator.getHourKey(), Kind.TIME);
+    }
+  }
+
   private void checkHourBoundary(ProjectTimeAccumulator accumulator, String projectName) {
     ProjectTimeAccumulator.HourTransition transition = accumulator.checkAndHandleHourBoundary();
     if (transition != null && transition.hasUnreportedSeconds()) {
@@ -111,8 +136,10 @@ public class TimeSpentPerProjectLogger {
   private void deactivateProject(String projectName, long now) {
     ProjectTimeAccumulator accumulator = accumulatorsByProject.get(projectName);
     if (accumulator != null) {
+      long secondsBefore = accumulator.getAccumulatedSeconds();
       accumulator.calculateAndAddElapsed(now);
       accumulator.deactivate();
+      creditTime(projectName, accumulator, secondsBefore);
     }
   }
 
@@ -189,6 +216,14 @@ public class TimeSpentPerProjectLogger {
         : getProjectUnsavedDelta(projectName);
   }
 
+  /**
+   * Get the coded seconds credited to any project since startup. Only grows, so the difference of
+   * two readings is the coding time in between, across midnight and flushes.
+   */
+  public long getCreditedSeconds() {
+    return creditedSeconds.get();
+  }
+
   /** Get the current unsaved delta across all projects (time accumulated since last flush). */
   public long getGlobalUnsavedDelta() {
     String todayPrefix = LocalDate.now().toString();
@@ -210,6 +245,24 @@ public class TimeSpentPerProjectLogger {
     return 0;
   }
 
+  /**
+   * Get the unsaved delta of every project's current hour without marking it as reported. Hour keys
+   * are in UTC; projects without unsaved time are left out.
+   */
+  public Map<String, ProjectTimeDelta> getUnsavedDeltas() {
+    Map<String, ProjectTimeDelta> deltas = new HashMap<>();
+    for (Map.Entry<String, ProjectTimeAccumulator> entry : accumulatorsByProject.entrySet()) {
+      ProjectTimeAccumulator acc = entry.getValue();
+      long delta = acc.getUnsavedDelta();
+      if (delta > 0) {
+        deltas.put(
+            entry.getKey(),
+            new ProjectTimeDelta(acc.getHourKey(), delta, acc.getAccumulatedSeconds()));
+      }
+    }
+    return deltas;
+  }
+
   /**
    * Initialize accumulators from local state on startup.
    *
@@ -1,46 +1,33 @@
 package com.codeclocker.plugin.intellij.services;
 
-import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_ADDITIONS;
-import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_REMOVALS;
-
-import com.codeclocker.plugin.intellij.goal.GoalNotificationService;
-import com.codeclocker.plugin.intellij.pomodoro.PomodoroTimerService;
-import com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker;
+import com.codeclocker.plugin.intellij.widget.PopupModel;
 import com.codeclocker.plugin.intellij.widget.TimeTrackerWidget;
 import com.intellij.openapi.Disposable;
 import com.intellij.openapi.application.ApplicationManager;
-import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.util.concurrency.AppExecutorUtil;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Per-project service that manages the time tracker widget display. Reads time data from
- * TimeSpentPerProjectLogger (the single source of truth).
+ * TimeSpentPerProjectLogger (the single source of truth). Ticking and repainting is done by the
+ * application-wide {@link WidgetTicker}, which this service registers with for its lifetime. The
+ * ticker also keeps the {@link PopupModel} current, so clicking the widget does no data work.
  */
 public class TimeTrackerWidgetService implements Disposable {
 
-  private static final Logger LOG = Logger.getInstance(TimeTrackerWidgetService.class);
-
-  private static final long TICK_DELAY_SECONDS = 1;
-
   private final Project project;
   private final TimeTrackerWidget widget;
   private final TimeSpentPerProjectLogger logger;
-
-  private ScheduledFuture<?> ticker;
+  private volatile PopupModel popupModel;
 
   public TimeTrackerWidgetService(Project project) {
     this.project = project;
     this.widget = new TimeTrackerWidget(project, this);
     this.logger = ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
 
-    startTicker();
+    getTicker().register(this);
 
     // Force an initial repaint to ensure the widget shows current data
-    ApplicationManager.getApplication().invokeLater(this::repaintWidget);
+    ApplicationManager.getApplication().invokeLater(widget::updateText);
   }
 
   /**
@@ -83,88 +70,32 @@ public class TimeTrackerWidgetService implements Disposable {
     }
   }
 
-  public TimeTrackerWidget getWidget() {
-    return widget;
-  }
-
-  private void startTicker() {
-    if (ticker != null) {
-      ticker.cancel(false);
-    }
-
-    ScheduledExecutorService executor = AppExecutorUtil.getAppScheduledExecutorService();
-    ticker =
-        executor.scheduleWithFixedDelay(
-            this::tick, TICK_DELAY_SECONDS, TICK_DELAY_SECONDS, TimeUnit.SECONDS);
-  }
-
-  private void tick() {
-    safeRun("checkMidnightReset", this::checkMidnightReset);
-    safeRun("checkGoalNotifications", this::checkGoalNotifications);
-    safeRun("checkPomodoroTimer", this::checkPomodoroTimer);
-    safeRun("repaintWidget", this::repaintWidget);
-  }
-
-  private void safeRun(String taskName, Runnable task) {
-    try {
-      task.run();
-    } catch (Exception e) {
-      LOG.error("Error in tick task '" + taskName + "'", e);
-    }
-  }
-
-  private void checkGoalNotifications() {
-    GoalNotificationService notificationService =
-        ApplicationManager.getApplication().getService(GoalNotificationService.class);
-    if (notificationService != null) {
-      notificationService.checkAndNotify();
-      notificationService.checkAndNotifyForProject(project.getName());
+  /** Returns the prebuilt popup model, computing it in place only before the first tick. */
+  public PopupModel getPopupModel() {
+    PopupModel model = popupModel;
+    if (model == null) {
+      refreshPopupModel();
+      model = popupModel;
     }
+    return model;
   }
 
-  private void checkPomodoroTimer() {
-    PomodoroTimerService svc =
-        ApplicationManager.getApplication().getService(PomodoroTimerService.class);
-    if (svc != null) {
-      svc.tick();
-    }
+  /** Rebuilds the popup model from current data; called off the EDT. */
+  public void refreshPopupModel() {
+    popupModel =
+        PopupModel.compute(project.getName(), getFormattedTotalTime(), getFormattedProjectTime());
   }
 
-  private void checkMidnightReset() {
-    if (logger != null && logger.hasMidnightPassed()) {
-      LOG.info("Midnight detected for project: " + project.getName());
-
-      // Logger handles its own reset, we just need to reset VCS counters
-      GLOBAL_ADDITIONS.set(0);
-      GLOBAL_REMOVALS.set(0);
-
-      // Reset per-project VCS changes counters
-      ChangesActivityTracker changesTracker =
-          ApplicationManager.getApplication().getService(ChangesActivityTracker.class);
-      if (changesTracker != null) {
-        changesTracker.clearAllProjectChanges();
-      }
-
-      // Reset Pomodoro activity baseline since getGlobalAccumulatedToday() resets at midnight
-      PomodoroTimerService pomodoroSvc =
-          ApplicationManager.getApplication().getService(PomodoroTimerService.class);
-      if (pomodoroSvc != null) {
-        pomodoroSvc.resetActivityBaseline();
-      }
-
-      // Trigger the logger to reset (it checks internally)
-      logger.resetForNewDay();
-    }
+  public TimeTrackerWidget getWidget() {
+    return widget;
   }
 
-  private void repaintWidget() {
-    ApplicationManager.getApplication().invokeLater(widget::updateText);
+  private WidgetTicker getTicker() {
+    return ApplicationManager.getApplication().getService(WidgetTicker.class);
   }
 
   @Override
   public void dispose() {
-    if (ticker != null) {
-      ticker.cancel(false);
-    }
+    getTicker().unregister(this);
   }
 }
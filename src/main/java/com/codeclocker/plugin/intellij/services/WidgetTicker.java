@@ -0,0 +1,162 @@
+package com.codeclocker.plugin.intellij.services;
+
+import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_ADDITIONS;
+import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_REMOVALS;
+
+import com.codeclocker.plugin.intellij.config.SettingsListener;
+import com.codeclocker.plugin.intellij.local.ActivityListener;
+import com.codeclocker.plugin.intellij.pomodoro.PomodoroState;
+import com.codeclocker.plugin.intellij.pomodoro.PomodoroTimerService;
+import com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.messages.MessageBusConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Single scheduler for all open project windows. Each tick runs the midnight reset check once and
+ * repaints every widget whose text changed in one EDT runnable. Widget texts are only recomputed
+ * after {@link ActivityListener} reported a change or while a Pomodoro countdown is shown; popup
+ * models only on reported changes, since a countdown does not affect them.
+ */
+@Service(Service.Level.APP)
+public final class WidgetTicker implements Disposable {
+
+  private static final Logger LOG = Logger.getInstance(WidgetTicker.class);
+
+  private static final long TICK_DELAY_SECONDS = 1;
+
+  private final Set<TimeTrackerWidgetService> widgets = ConcurrentHashMap.newKeySet();
+
+  /** Text each widget showed after its last repaint. */
+  private final Map<TimeTrackerWidgetService, String> shownTexts = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean repaintRequested = new AtomicBoolean(true);
+
+  private ScheduledFuture<?> ticker;
+
+  public WidgetTicker() {
+    MessageBusConnection connection =
+        ApplicationManager.getApplication().getMessageBus().connect(this);
+    connection.subscribe(ActivityListener.TOPIC, changes -> requestRepaint());
+    connection.subscribe(SettingsListener.TOPIC, settings -> requestRepaint());
+  }
+
+  /** Starts ticking for the widget; the first widget starts the scheduler. */
+  public synchronized void register(TimeTrackerWidgetService widget) {
+    widgets.add(widget);
+    requestRepaint();
+    if (ticker == null) {
+      ticker =
+          AppExecutorUtil.getAppScheduledExecutorService()
+              .scheduleWithFixedDelay(
+                  this::tick, TICK_DELAY_SECONDS, TICK_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+  }
+
+  /** Stops ticking for the widget; the scheduler stops with the last one. */
+  public synchronized void unregister(TimeTrackerWidgetService widget) {
+    widgets.remove(widget);
+    shownTexts.remove(widget);
+    if (widgets.isEmpty() && ticker != null) {
+      ticker.cancel(false);
+      ticker = null;
+    }
+  }
+
+  /** Makes the next tick recompute widget texts. */
+  public void requestRepaint() {
+    repaintRequested.set(true);
+  }
+
+  private void tick() {
+    safeRun("checkMidnightReset", this::checkMidnightReset);
+    safeRun("repaintWidgets", this::repaintWidgets);
+  }
+
+  private void safeRun(String taskName, Runnable task) {
+    try {
+      task.run();
+    } catch (Exception e) {
+      LOG.error("Error in tick task '" + taskName + "'", e);
+    }
+  }
+
+  private void checkMidnightReset() {
+    TimeSpentPerProjectLogger logger =
+        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
+    if (logger == null || !logger.hasMidnightPassed()) {
+      return;
+    }
+    LOG.info("Midnight detected");
+
+    // Logger handles its own reset, we just need to reset VCS counters
+    GLOBAL_ADDITIONS.set(0);
+    GLOBAL_REMOVALS.set(0);
+
+    // Reset per-project VCS changes counters
+    ChangesActivityTracker changesTracker =
+        ApplicationManager.getApplication().getService(ChangesActivityTracker.class);
+    if (changesTracker != null) {
+      changesTracker.clearAllProjectChanges();
+    }
+
+    // Trigger the logger to reset (it checks internally)
+    logger.resetForNewDay();
+
+    // Today's totals start over without any activity being reported
+    requestRepaint();
+  }
+
+  private void repaintWidgets() {
+    boolean requested = repaintRequested.getAndSet(false);
+    if (!requested && !isPomodoroCountdownShown()) {
+      return;
+    }
+
+    List<TimeTrackerWidgetService> changed = new ArrayList<>();
+    for (TimeTrackerWidgetService widget : widgets) {
+      if (requested) {
+        widget.refreshPopupModel();
+      }
+      String text = widget.getWidget().getSelectedValue();
+      if (!text.equals(shownTexts.put(widget, text))) {
+        changed.add(widget);
+      }
+    }
+    if (changed.isEmpty()) {
+      return;
+    }
+    ApplicationManager.getApplication()
+        .invokeLater(
+            () -> {
+              for (TimeTrackerWidgetService widget : changed) {
+                widget.getWidget().updateText();
+              }
+            });
+  }
+
+  private boolean isPomodoroCountdownShown() {
+    PomodoroTimerService svc =
+        ApplicationManager.getApplication().getService(PomodoroTimerService.class);
+    return svc != null && svc.getState() != PomodoroState.IDLE;
+  }
+
+  @Override
+  public synchronized void dispose() {
+    if (ticker != null) {
+      ticker.cancel(false);
+      ticker = null;
+    }
+  }
+}
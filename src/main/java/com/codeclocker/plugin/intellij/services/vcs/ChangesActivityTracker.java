@@ -1,6 +1,12 @@
 package com.codeclocker.plugin.intellij.services.vcs;
 
+import com.codeclocker.plugin.intellij.local.ActivityEventPublisher;
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
+import com.codeclocker.plugin.intellij.local.FileChangeRecord;
+import com.codeclocker.plugin.intellij.local.FileChangeSummary;
+import com.codeclocker.plugin.intellij.local.TimezoneConversionService;
 import com.codeclocker.plugin.intellij.services.ChangesSample;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,8 +23,9 @@ public class ChangesActivityTracker {
   public static final AtomicLong GLOBAL_ADDITIONS = new AtomicLong(0);
   public static final AtomicLong GLOBAL_REMOVALS = new AtomicLong(0);
 
-  private final Map<String, Map<String, ChangesSample>> fileNameByChangesSample =
-      new ConcurrentHashMap<>();
+  /** Bounded per-file counts since the last drain, per project. */
+  private final Map<String, FileChangeSummary> fileChangesByProject = new ConcurrentHashMap<>();
+
   private final Map<String, ProjectChangesCounters> projectChangesCounters =
       new ConcurrentHashMap<>();
   private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
@@ -36,13 +43,13 @@ public class ChangesActivityTracker {
           .additions()
           .addAndGet(additions);
 
-      fileNameByChangesSample
-          .computeIfAbsent(project, p -> new ConcurrentHashMap<>())
-          .computeIfAbsent(filePath, f -> ChangesSample.create(extension))
-          .incrementAdditions(additions);
+      fileChangesByProject
+          .computeIfAbsent(project, p -> new FileChangeSummary())
+          .add(filePath, extension, additions, 0);
     } finally {
       lock.unlock();
     }
+    publishLinesChanged(project);
   }
 
   public void incrementRemovals(String project, String fileName, String extension, long removals) {
@@ -57,13 +64,26 @@ public class ChangesActivityTracker {
           .removals()
           .addAndGet(removals);
 
-      fileNameByChangesSample
-          .computeIfAbsent(project, p -> new ConcurrentHashMap<>())
-          .computeIfAbsent(fileName, f -> ChangesSample.create(extension))
-          .incrementRemovals(removals);
+      fileChangesByProject
+          .computeIfAbsent(project, p -> new FileChangeSummary())
+          .add(fileName, extension, 0, removals);
     } finally {
       lock.unlock();
     }
+    publishLinesChanged(project);
+  }
+
+  private static void publishLinesChanged(String project) {
+    ActivityEventPublisher publisher =
+        ApplicationManager.getApplication().getService(ActivityEventPublisher.class);
+    if (publisher != null) {
+      // Unsaved lines are stored under the UTC hour they are flushed in, which is the current one
+      String utcHourKey =
+          ApplicationManager.getApplication()
+              .getService(TimezoneConversionService.class)
+              .currentUtcHourKey();
+      publisher.changed(project, utcHourKey, Kind.LINES);
+    }
   }
 
   public Map<String, Map<String, ChangesSample>> drain() {
@@ -71,8 +91,18 @@ public class ChangesActivityTracker {
     try {
       lock.lock();
 
-      Map<String, Map<String, ChangesSample>> drain = new HashMap<>(fileNameByChangesSample);
-      fileNameByChangesSample.clear();
+      Map<String, Map<String, ChangesSample>> drain = new HashMap<>();
+      for (Map.Entry<String, FileChangeSummary> entry : fileChangesByProject.entrySet()) {
+        Map<String, ChangesSample> samples = new HashMap<>();
+        for (FileChangeRecord record : entry.getValue().toRecords()) {
+          ChangesSample sample = ChangesSample.create(record.getExtension());
+          sample.incrementAdditions(record.getAdditions());
+          sample.incrementRemovals(record.getRemovals());
+          samples.put(record.getFileName(), sample);
+        }
+        drain.put(entry.getKey(), samples);
+      }
+      fileChangesByProject.clear();
       return drain;
     } finally {
       lock.unlock();
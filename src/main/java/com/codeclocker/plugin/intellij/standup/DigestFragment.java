@@ -0,0 +1,95 @@
+package com.codeclocker.plugin.intellij.standup;
+
+import com.codeclocker.plugin.intellij.local.CommitRecord;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Aggregate;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Dimension;
+import com.codeclocker.plugin.intellij.local.query.ActivityQueryEngine;
+import com.codeclocker.plugin.intellij.local.query.ActivityQueryResult;
+import com.codeclocker.plugin.intellij.local.query.ActivityRow;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Standup data of one local day. {@link StandupDigestService} keeps the fragments of closed days
+ * and builds multi-day digests by merging them.
+ *
+ * @param projects projects with activity that day, in the order they were first seen
+ * @param branchSeconds branchName -> coded seconds
+ * @param commits projectName -> branchName -> commits of that day, each hash once
+ */
+record DigestFragment(
+    LocalDate date,
+    long seconds,
+    long additions,
+    long removals,
+    List<StandupDigest.ProjectSummary> projects,
+    Map<String, Long> branchSeconds,
+    Map<String, Map<String, List<CommitRecord>>> commits) {
+
+  boolean hasActivity() {
+    return seconds > 0 || additions > 0 || removals > 0;
+  }
+
+  static DigestFragment compute(
+      LocalDate date, Map<String, Map<String, ProjectActivitySnapshot>> data) {
+    ActivityQueryResult perProject =
+        ActivityQueryEngine.execute(
+            ActivityQuery.builder().between(date, date).groupBy(Dimension.PROJECT).build(), data);
+    List<StandupDigest.ProjectSummary> projects = new ArrayList<>();
+    for (ActivityRow row : perProject.rows()) {
+      if (row.hasActivity()) {
+        projects.add(
+            new StandupDigest.ProjectSummary(
+                row.key(0), row.seconds(), row.additions(), row.removals()));
+      }
+    }
+
+    Map<String, Long> branchSeconds = new LinkedHashMap<>();
+    for (ActivityRow row :
+        ActivityQueryEngine.execute(
+                ActivityQuery.builder().between(date, date).groupBy(Dimension.BRANCH).build(), data)
+            .withTimeBySecondsDescending()) {
+      branchSeconds.put(row.key(0), row.seconds());
+    }
+
+    Map<String, Map<String, List<CommitRecord>>> commits = new LinkedHashMap<>();
+    Set<String> seenCommitHashes = new HashSet<>();
+    for (ActivityRow row :
+        ActivityQueryEngine.execute(
+                ActivityQuery.builder()
+                    .between(date, date)
+                    .groupBy(Dimension.PROJECT, Dimension.BRANCH)
+                    .aggregate(Aggregate.COMMITS)
+                    .build(),
+                data)
+            .rows()) {
+      String branch = row.key(1).isEmpty() ? "unknown" : row.key(1);
+      for (CommitRecord commit : row.commits()) {
+        if (seenCommitHashes.add(commit.getHash())) {
+          commits
+              .computeIfAbsent(row.key(0), k -> new LinkedHashMap<>())
+              .computeIfAbsent(branch, k -> new ArrayList<>())
+              .add(commit);
+        }
+      }
+    }
+
+    ActivityRow totals = perProject.totals();
+    return new DigestFragment(
+        date,
+        totals.seconds(),
+        totals.additions(),
+        totals.removals(),
+        Collections.unmodifiableList(projects),
+        Collections.unmodifiableMap(branchSeconds),
+        Collections.unmodifiableMap(commits));
+  }
+}
@@ -1,31 +1,54 @@
 package com.codeclocker.plugin.intellij.standup;
 
+import com.codeclocker.plugin.intellij.local.ActivityListener.ActivityChange;
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
 import com.codeclocker.plugin.intellij.local.CommitRecord;
-import com.codeclocker.plugin.intellij.local.LocalActivityDataProvider;
+import com.codeclocker.plugin.intellij.local.LiveActivityView;
 import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
-import com.codeclocker.plugin.intellij.services.TimeSpentPerProjectLogger;
+import com.codeclocker.plugin.intellij.local.TimezoneConversionService;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds standup digests from per-day {@link DigestFragment}s. Fragments of closed days are kept
+ * and built ahead of time when a day closes, so a digest only computes today and merges the rest. A
+ * closed day's fragment is dropped when activity is recorded into one of its hours (e.g. the last
+ * flush after midnight) or the history is reloaded, and rebuilt in the background.
+ */
 @Service(Service.Level.APP)
 public final class StandupDigestService {
 
-  private static final DateTimeFormatter HOUR_KEY_FORMATTER =
-      DateTimeFormatter.ofPattern("yyyy-MM-dd-HH");
   private static final int MAX_COMMITS = 50;
 
+  /** Days covered by the longest period; only closed days in this window are kept. */
+  private static final int MAX_PERIOD_DAYS =
+      Arrays.stream(StandupPeriod.values()).mapToInt(StandupPeriod::getDays).max().orElse(7);
+
+  private final Map<LocalDate, DigestFragment> closedDays = new ConcurrentHashMap<>();
+
+  /** Bumped whenever fragments are dropped, so fragments built from older data are not kept. */
+  private final AtomicLong generation = new AtomicLong();
+
+  /** Makes dropping fragments and keeping a fragment after checking the generation atomic. */
+  private final Object fragmentLock = new Object();
+
+  private volatile LocalDate lastSeenDate;
+
   public StandupDigest compute(StandupPeriod period) {
-    Map<String, Map<String, ProjectActivitySnapshot>> allData = getAllDataWithUnsaved();
+    long fragmentGeneration = generation.get();
+    Map<String, Map<String, ProjectActivitySnapshot>> allData =
+        ApplicationManager.getApplication().getService(LiveActivityView.class).snapshot().data();
 
     LocalDate today = LocalDate.now();
     LocalDate fromDate;
@@ -38,86 +61,78 @@ public final class StandupDigestService {
       toDate = today;
     }
 
-    // Accumulators
+    // Most recent day first
+    List<DigestFragment> fragments = new ArrayList<>();
+    for (LocalDate date = toDate; !date.isBefore(fromDate); date = date.minusDays(1)) {
+      fragments.add(
+          date.isBefore(today)
+              ? getClosedDay(date, allData, fragmentGeneration)
+              : DigestFragment.compute(date, allData));
+    }
+
     long totalSeconds = 0;
     long totalAdditions = 0;
     long totalRemovals = 0;
-    Set<String> activeDateSet = new HashSet<>();
-    Map<String, long[]> perProject = new LinkedHashMap<>(); // [seconds, additions, removals]
-    Map<String, Long> perBranch = new LinkedHashMap<>();
+    int activeDays = 0;
+    Map<String, StandupDigest.ProjectSummary> projectsByName = new LinkedHashMap<>();
+    Map<String, Long> branchSeconds = new LinkedHashMap<>();
     // projectName -> branchName -> list of commits
     Map<String, Map<String, List<CommitRecord>>> commitsByProjectBranch = new LinkedHashMap<>();
     Set<String> seenCommitHashes = new HashSet<>();
-    // date -> [seconds, additions, removals]
-    Map<String, long[]> perDay = new LinkedHashMap<>();
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> entry : allData.entrySet()) {
-      String hourKey = entry.getKey();
-      if (!isInPeriod(hourKey, fromDate, toDate)) {
-        continue;
-      }
-
-      String dateStr = extractDate(hourKey);
-      long[] dayAcc = perDay.computeIfAbsent(dateStr, k -> new long[3]);
-
-      for (Map.Entry<String, ProjectActivitySnapshot> projEntry : entry.getValue().entrySet()) {
-        String projectName = projEntry.getKey();
-        ProjectActivitySnapshot snapshot = projEntry.getValue();
-
-        long seconds = snapshot.getCodedTimeSeconds();
-        long additions = snapshot.getAdditions();
-        long removals = snapshot.getRemovals();
-
-        totalSeconds += seconds;
-        totalAdditions += additions;
-        totalRemovals += removals;
-
-        if (seconds > 0 || additions > 0 || removals > 0) {
-          activeDateSet.add(dateStr);
-        }
-
-        long[] projAcc = perProject.computeIfAbsent(projectName, k -> new long[3]);
-        projAcc[0] += seconds;
-        projAcc[1] += additions;
-        projAcc[2] += removals;
-
-        dayAcc[0] += seconds;
-        dayAcc[1] += additions;
-        dayAcc[2] += removals;
+    List<StandupDigest.DailySummary> dailyBreakdown = new ArrayList<>();
 
-        for (var branchRecord : snapshot.getBranchActivity()) {
-          String branchName = branchRecord.getBranchName();
-          long branchSeconds = branchRecord.getActiveSeconds();
-          if (branchName != null && !branchName.isEmpty() && branchSeconds > 0) {
-            perBranch.merge(branchName, branchSeconds, Long::sum);
-          }
+    for (DigestFragment fragment : fragments) {
+      totalSeconds += fragment.seconds();
+      totalAdditions += fragment.additions();
+      totalRemovals += fragment.removals();
+      if (fragment.hasActivity()) {
+        activeDays++;
+        // Daily breakdown is only shown in multi-day mode; fragments are most recent first
+        if (period != StandupPeriod.YESTERDAY) {
+          dailyBreakdown.add(
+              new StandupDigest.DailySummary(
+                  fragment.date(), fragment.seconds(), fragment.additions(), fragment.removals()));
         }
+      }
 
-        for (CommitRecord commit : snapshot.getCommits()) {
-          if (commit.getHash() != null && seenCommitHashes.add(commit.getHash())) {
-            String branch = commit.getBranch() != null ? commit.getBranch() : "unknown";
-            commitsByProjectBranch
-                .computeIfAbsent(projectName, k -> new LinkedHashMap<>())
-                .computeIfAbsent(branch, k -> new ArrayList<>())
-                .add(commit);
+      for (StandupDigest.ProjectSummary project : fragment.projects()) {
+        projectsByName.merge(
+            project.projectName(),
+            project,
+            (a, b) ->
+                new StandupDigest.ProjectSummary(
+                    a.projectName(),
+                    a.seconds() + b.seconds(),
+                    a.additions() + b.additions(),
+                    a.removals() + b.removals()));
+      }
+      fragment
+          .branchSeconds()
+          .forEach((branch, seconds) -> branchSeconds.merge(branch, seconds, Long::sum));
+
+      for (Map.Entry<String, Map<String, List<CommitRecord>>> projEntry :
+          fragment.commits().entrySet()) {
+        for (Map.Entry<String, List<CommitRecord>> branchEntry : projEntry.getValue().entrySet()) {
+          for (CommitRecord commit : branchEntry.getValue()) {
+            // A commit recorded in two days is listed once
+            if (seenCommitHashes.add(commit.getHash())) {
+              commitsByProjectBranch
+                  .computeIfAbsent(projEntry.getKey(), k -> new LinkedHashMap<>())
+                  .computeIfAbsent(branchEntry.getKey(), k -> new ArrayList<>())
+                  .add(commit);
+            }
           }
         }
       }
     }
 
     // Build project summaries sorted by time desc
-    List<StandupDigest.ProjectSummary> projects = new ArrayList<>();
-    for (Map.Entry<String, long[]> entry : perProject.entrySet()) {
-      long[] acc = entry.getValue();
-      if (acc[0] > 0 || acc[1] > 0 || acc[2] > 0) {
-        projects.add(new StandupDigest.ProjectSummary(entry.getKey(), acc[0], acc[1], acc[2]));
-      }
-    }
+    List<StandupDigest.ProjectSummary> projects = new ArrayList<>(projectsByName.values());
     projects.sort((a, b) -> Long.compare(b.seconds(), a.seconds()));
 
     // Build branch summaries sorted by time desc
     List<StandupDigest.BranchSummary> branches = new ArrayList<>();
-    for (Map.Entry<String, Long> entry : perBranch.entrySet()) {
+    for (Map.Entry<String, Long> entry : branchSeconds.entrySet()) {
       branches.add(new StandupDigest.BranchSummary(entry.getKey(), entry.getValue()));
     }
     branches.sort((a, b) -> Long.compare(b.seconds(), a.seconds()));
@@ -148,19 +163,6 @@ public final class StandupDigestService {
       }
     }
 
-    // Build daily breakdown (for 7-day mode), sorted most recent first
-    List<StandupDigest.DailySummary> dailyBreakdown = new ArrayList<>();
-    if (period != StandupPeriod.YESTERDAY) {
-      for (Map.Entry<String, long[]> entry : perDay.entrySet()) {
-        long[] acc = entry.getValue();
-        if (acc[0] > 0 || acc[1] > 0 || acc[2] > 0) {
-          LocalDate date = LocalDate.parse(entry.getKey());
-          dailyBreakdown.add(new StandupDigest.DailySummary(date, acc[0], acc[1], acc[2]));
-        }
-      }
-      dailyBreakdown.sort((a, b) -> b.date().compareTo(a.date()));
-    }
-
     return new StandupDigest(
         period,
         fromDate,
@@ -168,77 +170,80 @@ public final class StandupDigestService {
         totalSeconds,
         totalAdditions,
         totalRemovals,
-        activeDateSet.size(),
+        activeDays,
         projects,
         branches,
         commitGroups,
         dailyBreakdown);
   }
 
-  private Map<String, Map<String, ProjectActivitySnapshot>> getAllDataWithUnsaved() {
-    LocalActivityDataProvider dataProvider =
-        ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
-    if (dataProvider == null) {
-      return Collections.emptyMap();
+  /**
+   * Called with every batch of activity changes. Drops the fragments of closed days that changed
+   * and builds the missing ones in the background, including the day that just closed.
+   */
+  public void onActivityChanged(Set<ActivityChange> changes) {
+    LocalDate today = LocalDate.now();
+    boolean rebuild = !today.equals(lastSeenDate);
+    lastSeenDate = today;
+
+    TimezoneConversionService converter =
+        ApplicationManager.getApplication().getService(TimezoneConversionService.class);
+    for (ActivityChange change : changes) {
+      if (change.kind() == Kind.RELOADED) {
+        synchronized (fragmentLock) {
+          generation.incrementAndGet();
+          closedDays.clear();
+        }
+        rebuild = true;
+      } else if (change.utcHourKey() != null) {
+        LocalDate date = converter.utcHourKeyToLocalDate(change.utcHourKey());
+        if (date != null && date.isBefore(today)) {
+          synchronized (fragmentLock) {
+            generation.incrementAndGet();
+            closedDays.remove(date);
+          }
+          rebuild = true;
+        }
+      }
     }
 
-    Map<String, Map<String, ProjectActivitySnapshot>> allData =
-        new LinkedHashMap<>(dataProvider.getAllDataInLocalTimezone());
-    mergeUnsavedDeltas(allData);
-    return allData;
-  }
-
-  private void mergeUnsavedDeltas(Map<String, Map<String, ProjectActivitySnapshot>> allData) {
-    TimeSpentPerProjectLogger logger =
-        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
-    if (logger == null) {
-      return;
+    if (rebuild) {
+      AppExecutorUtil.getAppExecutorService().execute(this::materializeClosedDays);
     }
+  }
 
-    String currentHourKey = LocalDateTime.now().format(HOUR_KEY_FORMATTER);
-    Map<String, ProjectActivitySnapshot> hourData =
-        allData.computeIfAbsent(currentHourKey, k -> new LinkedHashMap<>());
-
-    Set<String> projectNames = new HashSet<>();
-    for (Map<String, ProjectActivitySnapshot> hourEntry : allData.values()) {
-      projectNames.addAll(hourEntry.keySet());
-    }
+  private void materializeClosedDays() {
+    long fragmentGeneration = generation.get();
+    Map<String, Map<String, ProjectActivitySnapshot>> allData =
+        ApplicationManager.getApplication().getService(LiveActivityView.class).snapshot().data();
 
-    for (String projectName : projectNames) {
-      long unsavedDelta = logger.getProjectUnsavedDelta(projectName);
-      if (unsavedDelta > 0) {
-        ProjectActivitySnapshot existing = hourData.get(projectName);
-        if (existing != null) {
-          ProjectActivitySnapshot updated =
-              new ProjectActivitySnapshot(
-                  existing.getCodedTimeSeconds() + unsavedDelta,
-                  existing.getAdditions(),
-                  existing.getRemovals(),
-                  existing.isReported());
-          updated.setBranchActivity(existing.getBranchActivity());
-          updated.setCommits(existing.getCommits());
-          hourData.put(projectName, updated);
-        } else {
-          hourData.put(projectName, new ProjectActivitySnapshot(unsavedDelta, 0, 0, false));
-        }
-      }
+    LocalDate today = LocalDate.now();
+    LocalDate oldest = today.minusDays(MAX_PERIOD_DAYS - 1);
+    closedDays.keySet().removeIf(date -> date.isBefore(oldest));
+    for (LocalDate date = today.minusDays(1); !date.isBefore(oldest); date = date.minusDays(1)) {
+      getClosedDay(date, allData, fragmentGeneration);
     }
   }
 
-  private boolean isInPeriod(String hourKey, LocalDate start, LocalDate end) {
-    try {
-      String dateStr = hourKey.substring(0, 10);
-      LocalDate date = LocalDate.parse(dateStr);
-      return !date.isBefore(start) && !date.isAfter(end);
-    } catch (Exception e) {
-      return false;
+  /**
+   * Returns the kept fragment of a closed day, building it from {@code allData} if missing. It is
+   * only kept if no fragment was dropped since {@code fragmentGeneration} was read, i.e. since
+   * {@code allData} was taken.
+   */
+  private DigestFragment getClosedDay(
+      LocalDate date,
+      Map<String, Map<String, ProjectActivitySnapshot>> allData,
+      long fragmentGeneration) {
+    DigestFragment fragment = closedDays.get(date);
+    if (fragment != null) {
+      return fragment;
     }
-  }
-
-  private String extractDate(String hourKey) {
-    if (hourKey != null && hourKey.length() >= 10) {
-      return hourKey.substring(0, 10);
+    fragment = DigestFragment.compute(date, allData);
+    synchronized (fragmentLock) {
+      if (generation.get() == fragmentGeneration) {
+        closedDays.put(date, fragment);
+      }
     }
-    return hourKey;
+    return fragment;
   }
 }
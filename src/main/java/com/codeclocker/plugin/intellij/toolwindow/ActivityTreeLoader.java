@@ -0,0 +1,161 @@
+package com.codeclocker.plugin.intellij.toolwindow;
+
+import com.codeclocker.plugin.intellij.local.CommitRecord;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Aggregate;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Dimension;
+import com.codeclocker.plugin.intellij.local.query.ActivityQueryEngine;
+import com.codeclocker.plugin.intellij.local.query.ActivityRow;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Computes the day rows of the Activity tab from local-timezone data. Runs off the EDT; {@link
+ * BranchActivityPanel} turns a day into tree nodes and creates its children only when expanded.
+ */
+final class ActivityTreeLoader {
+
+  /**
+   * One day of the tree.
+   *
+   * @param commits commits of the day, each hash once
+   * @param projectRows per-project rows in All Projects mode, null when filtered to one project
+   */
+  record Day(
+      String date,
+      long seconds,
+      List<CommitRecord> commits,
+      @Nullable List<ActivityRow> projectRows) {}
+
+  /**
+   * @param days newest first
+   * @param projects projects seen in the loaded range, sorted
+   */
+  record Result(List<Day> days, Set<String> projects) {}
+
+  private ActivityTreeLoader() {}
+
+  /** Loads every day, for one project or all projects if {@code project} is null. */
+  static Result loadAll(
+      Map<String, Map<String, ProjectActivitySnapshot>> data, @Nullable String project) {
+    return load(data, project, null);
+  }
+
+  /** Loads only the given days; days without activity are missing from the result. */
+  static Result loadDays(
+      Map<String, Map<String, ProjectActivitySnapshot>> data,
+      @Nullable String project,
+      Collection<LocalDate> dates) {
+    List<Day> days = new ArrayList<>();
+    Set<String> projects = new TreeSet<>();
+    for (LocalDate date : dates) {
+      Result result = load(data, project, date);
+      days.addAll(result.days());
+      projects.addAll(result.projects());
+    }
+    return new Result(days, projects);
+  }
+
+  /** Counts local dates with any tracked activity. */
+  static int countDaysOfHistory(Map<String, Map<String, ProjectActivitySnapshot>> data) {
+    // hourKey format: yyyy-MM-dd-HH, the first 10 chars are the date
+    Set<String> uniqueDates = new HashSet<>();
+    for (String hourKey : data.keySet()) {
+      if (hourKey != null && hourKey.length() >= 10) {
+        uniqueDates.add(hourKey.substring(0, 10));
+      }
+    }
+    return uniqueDates.size();
+  }
+
+  private static Result load(
+      Map<String, Map<String, ProjectActivitySnapshot>> data,
+      @Nullable String project,
+      @Nullable LocalDate onlyDate) {
+    if (project != null) {
+      return new Result(
+          loadProjectDays(data, newQuery(onlyDate).project(project)),
+          loadProjectNames(data, newQuery(onlyDate)));
+    }
+
+    // All Projects mode: Day → Project → Commits
+    Map<String, List<ActivityRow>> projectRowsByDate = new LinkedHashMap<>();
+    Set<String> projects = new TreeSet<>();
+    for (ActivityRow row :
+        ActivityQueryEngine.execute(
+                newQuery(onlyDate)
+                    .groupBy(Dimension.DAY, Dimension.PROJECT)
+                    .aggregate(Aggregate.COMMITS)
+                    .build(),
+                data)
+            .rows()) {
+      projectRowsByDate.computeIfAbsent(row.key(0), k -> new ArrayList<>()).add(row);
+      projects.add(row.key(1));
+    }
+
+    List<Day> days = new ArrayList<>();
+    for (Map.Entry<String, List<ActivityRow>> entry : projectRowsByDate.entrySet()) {
+      List<ActivityRow> projectRows = new ArrayList<>(entry.getValue());
+      // Biggest to smallest coding time
+      projectRows.sort(Comparator.comparingLong(ActivityRow::seconds).reversed());
+
+      long totalSeconds = projectRows.stream().mapToLong(ActivityRow::seconds).sum();
+      Map<String, CommitRecord> commitsByHash = new LinkedHashMap<>();
+      for (ActivityRow row : projectRows) {
+        for (CommitRecord commit : row.commits()) {
+          commitsByHash.putIfAbsent(commit.getHash(), commit);
+        }
+      }
+      days.add(
+          new Day(
+              entry.getKey(),
+              totalSeconds,
+              List.copyOf(commitsByHash.values()),
+              List.copyOf(projectRows)));
+    }
+    days.sort(Comparator.comparing(Day::date).reversed());
+    return new Result(days, projects);
+  }
+
+  private static ActivityQuery.Builder newQuery(@Nullable LocalDate onlyDate) {
+    ActivityQuery.Builder query = ActivityQuery.builder();
+    if (onlyDate != null) {
+      query.between(onlyDate, onlyDate);
+    }
+    return query;
+  }
+
+  /** Single project mode: Day → Commits. */
+  private static List<Day> loadProjectDays(
+      Map<String, Map<String, ProjectActivitySnapshot>> data, ActivityQuery.Builder query) {
+    List<Day> days = new ArrayList<>();
+    for (ActivityRow row :
+        ActivityQueryEngine.execute(
+                query.groupBy(Dimension.DAY).aggregate(Aggregate.COMMITS).build(), data)
+            .rows()) {
+      days.add(new Day(row.key(0), row.seconds(), row.commits(), null));
+    }
+    days.sort(Comparator.comparing(Day::date).reversed());
+    return days;
+  }
+
+  private static Set<String> loadProjectNames(
+      Map<String, Map<String, ProjectActivitySnapshot>> data, ActivityQuery.Builder query) {
+    Set<String> projects = new TreeSet<>();
+    for (ActivityRow row :
+        ActivityQueryEngine.execute(query.groupBy(Dimension.PROJECT).build(), data).rows()) {
+      projects.add(row.key(0));
+    }
+    return projects;
+  }
+}
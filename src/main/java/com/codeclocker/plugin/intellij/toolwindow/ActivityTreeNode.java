@@ -3,10 +3,15 @@ package com.codeclocker.plugin.intellij.toolwindow;
 import com.codeclocker.plugin.intellij.local.CommitRecord;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import javax.swing.tree.DefaultMutableTreeNode;
 
-/** Tree node for activity data - can represent daily summary, hourly detail, or commit. */
+/**
+ * Tree node for activity data - can represent daily summary, hourly detail, or commit. Each node
+ * has an id that stays the same across refreshes, used to keep expanded nodes expanded. Children
+ * can be supplied lazily and are then created on first access.
+ */
 public class ActivityTreeNode extends DefaultMutableTreeNode {
 
   public enum NodeType {
@@ -15,6 +20,7 @@ public class ActivityTreeNode extends DefaultMutableTreeNode {
     COMMIT
   }
 
+  private final String id;
   private final NodeType nodeType;
   private final String dateDisplay;
   private final String hourDisplay;
@@ -24,14 +30,20 @@ public class ActivityTreeNode extends DefaultMutableTreeNode {
   private final List<CommitRecord> commits;
   private final String commitsDisplay;
   private final String commitMessage;
+  private Supplier<List<ActivityTreeNode>> childrenLoader;
 
   /** Creates a daily summary node (parent). */
   public static ActivityTreeNode createDailyNode(
-      String dateDisplay, long totalSeconds, List<String> branches, List<CommitRecord> allCommits) {
+      String id,
+      String dateDisplay,
+      long totalSeconds,
+      List<String> branches,
+      List<CommitRecord> allCommits) {
     String branchesDisplay = formatBranches(branches);
     String timeDisplay = formatTime(totalSeconds);
     String commitsDisplay = formatCommitsCount(allCommits);
     return new ActivityTreeNode(
+        id,
         NodeType.DAILY,
         dateDisplay,
         null,
@@ -44,8 +56,9 @@ public class ActivityTreeNode extends DefaultMutableTreeNode {
   }
 
   /** Creates an hourly detail node (child of daily). */
-  public static ActivityTreeNode createHourlyNode(BranchActivityRow row) {
+  public static ActivityTreeNode createHourlyNode(String id, BranchActivityRow row) {
     return new ActivityTreeNode(
+        id,
         NodeType.HOURLY,
         null,
         row.hourDisplay(),
@@ -58,17 +71,20 @@ public class ActivityTreeNode extends DefaultMutableTreeNode {
   }
 
   /** Creates a commit node (child of hourly). */
-  public static ActivityTreeNode createCommitNode(CommitRecord commit, String projectName) {
+  public static ActivityTreeNode createCommitNode(
+      String id, CommitRecord commit, String projectName) {
     String message;
     if (projectName != null && !projectName.isEmpty()) {
       message = "[" + projectName + "] " + commit.getHash() + ": " + commit.getMessage();
     } else {
       message = commit.getHash() + ": " + commit.getMessage();
     }
-    return new ActivityTreeNode(NodeType.COMMIT, null, null, null, 0, null, null, null, message);
+    return new ActivityTreeNode(
+        id, NodeType.COMMIT, null, null, null, 0, null, null, null, message);
   }
 
   private ActivityTreeNode(
+      String id,
       NodeType nodeType,
       String dateDisplay,
       String hourDisplay,
@@ -78,6 +94,7 @@ public class ActivityTreeNode extends DefaultMutableTreeNode {
       List<CommitRecord> commits,
       String commitsDisplay,
       String commitMessage) {
+    this.id = id;
     this.nodeType = nodeType;
     this.dateDisplay = dateDisplay;
     this.hourDisplay = hourDisplay;
@@ -89,6 +106,32 @@ public class ActivityTreeNode extends DefaultMutableTreeNode {
     this.commitMessage = commitMessage;
   }
 
+  /** Defers creating children until they are first needed, e.g. when the node is expanded. */
+  public void setChildrenLoader(Supplier<List<ActivityTreeNode>> childrenLoader) {
+    this.childrenLoader = childrenLoader;
+  }
+
+  /** Creates the deferred children, if any. */
+  public void loadChildren() {
+    if (childrenLoader == null) {
+      return;
+    }
+    Supplier<List<ActivityTreeNode>> loader = childrenLoader;
+    childrenLoader = null;
+    for (ActivityTreeNode child : loader.get()) {
+      add(child);
+    }
+  }
+
+  @Override
+  public boolean isLeaf() {
+    return childrenLoader == null && super.isLeaf();
+  }
+
+  public String getId() {
+    return id;
+  }
+
   public boolean isDailyNode() {
     return nodeType == NodeType.DAILY;
   }
@@ -2,11 +2,17 @@ package com.codeclocker.plugin.intellij.toolwindow;
 
 import com.intellij.ui.treeStructure.treetable.TreeTableModel;
 import javax.swing.JTree;
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreePath;
 
-/** Tree table model for displaying collapsible activity data. */
+/**
+ * Tree table model for displaying collapsible activity data. Lazy {@link ActivityTreeNode} children
+ * are created when the tree first asks for them. Changes are reported to listeners, so single nodes
+ * can be replaced without resetting the whole tree.
+ */
 public class ActivityTreeTableModel implements TreeTableModel {
 
   private static final String[] COLUMNS = {"Date", "Time", "Commits"};
@@ -14,6 +20,7 @@ public class ActivityTreeTableModel implements TreeTableModel {
     TreeTableModel.class, String.class, String.class
   };
 
+  private final EventListenerList listeners = new EventListenerList();
   private DefaultMutableTreeNode root;
 
   public ActivityTreeTableModel() {
@@ -22,6 +29,34 @@ public class ActivityTreeTableModel implements TreeTableModel {
 
   public void setRoot(DefaultMutableTreeNode root) {
     this.root = root;
+    fireTreeStructureChanged(new TreeModelEvent(this, new TreePath(root)));
+  }
+
+  /** Inserts {@code child} as the root's child at {@code index}. */
+  public void insertRootChild(DefaultMutableTreeNode child, int index) {
+    root.insert(child, index);
+    TreeModelEvent event =
+        new TreeModelEvent(this, new TreePath(root), new int[] {index}, new Object[] {child});
+    for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+      listener.treeNodesInserted(event);
+    }
+  }
+
+  /** Removes the root's child at {@code index}. */
+  public void removeRootChild(int index) {
+    Object child = root.getChildAt(index);
+    root.remove(index);
+    TreeModelEvent event =
+        new TreeModelEvent(this, new TreePath(root), new int[] {index}, new Object[] {child});
+    for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+      listener.treeNodesRemoved(event);
+    }
+  }
+
+  private void fireTreeStructureChanged(TreeModelEvent event) {
+    for (TreeModelListener listener : listeners.getListeners(TreeModelListener.class)) {
+      listener.treeStructureChanged(event);
+    }
   }
 
   @Override
@@ -76,6 +111,9 @@ public class ActivityTreeTableModel implements TreeTableModel {
 
   @Override
   public Object getChild(Object parent, int index) {
+    if (parent instanceof ActivityTreeNode activityNode) {
+      activityNode.loadChildren();
+    }
     if (parent instanceof DefaultMutableTreeNode node) {
       return node.getChildAt(index);
     }
@@ -84,6 +122,9 @@ public class ActivityTreeTableModel implements TreeTableModel {
 
   @Override
   public int getChildCount(Object parent) {
+    if (parent instanceof ActivityTreeNode activityNode) {
+      activityNode.loadChildren();
+    }
     if (parent instanceof DefaultMutableTreeNode node) {
       return node.getChildCount();
     }
@@ -105,6 +146,9 @@ public class ActivityTreeTableModel implements TreeTableModel {
 
   @Override
   public int getIndexOfChild(Object parent, Object child) {
+    if (parent instanceof ActivityTreeNode activityNode) {
+      activityNode.loadChildren();
+    }
     if (parent instanceof DefaultMutableTreeNode parentNode
         && child instanceof DefaultMutableTreeNode childNode) {
       return parentNode.getIndex(childNode);
@@ -114,11 +158,11 @@ public class ActivityTreeTableModel implements TreeTableModel {
 
   @Override
   public void addTreeModelListener(TreeModelListener l) {
-    // Simple implementation - could add listener support if needed
+    listeners.add(TreeModelListener.class, l);
   }
 
   @Override
   public void removeTreeModelListener(TreeModelListener l) {
-    // Simple implementation
+    listeners.remove(TreeModelListener.class, l);
   }
 }
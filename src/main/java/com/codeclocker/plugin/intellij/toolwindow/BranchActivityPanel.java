@@ -6,13 +6,22 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import com.codeclocker.plugin.intellij.apikey.ApiKeyLifecycle;
 import com.codeclocker.plugin.intellij.apikey.ApiKeyPersistence;
 import com.codeclocker.plugin.intellij.apikey.EnterApiKeyAction;
+import com.codeclocker.plugin.intellij.local.ActivityListener;
+import com.codeclocker.plugin.intellij.local.ActivityListener.ActivityChange;
+import com.codeclocker.plugin.intellij.local.ActivityListener.Kind;
 import com.codeclocker.plugin.intellij.local.CommitRecord;
-import com.codeclocker.plugin.intellij.local.LocalActivityDataProvider;
+import com.codeclocker.plugin.intellij.local.CommitSearchIndex;
+import com.codeclocker.plugin.intellij.local.LiveActivityView;
 import com.codeclocker.plugin.intellij.local.LocalTrackerState;
 import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
-import com.codeclocker.plugin.intellij.services.TimeSpentPerProjectLogger;
-import com.codeclocker.plugin.intellij.toolwindow.export.ActivityCsvExporter;
+import com.codeclocker.plugin.intellij.local.TimezoneConversionService;
+import com.codeclocker.plugin.intellij.local.query.ActivityRow;
+import com.codeclocker.plugin.intellij.toolwindow.export.ActivityExporter;
+import com.codeclocker.plugin.intellij.toolwindow.export.ExportActivityTask;
+import com.codeclocker.plugin.intellij.toolwindow.export.ExportDetail;
 import com.codeclocker.plugin.intellij.toolwindow.export.ExportDialog;
+import com.codeclocker.plugin.intellij.toolwindow.export.ExportFormat;
+import com.codeclocker.plugin.intellij.toolwindow.importing.ImportHeartbeatsTask;
 import com.intellij.icons.AllIcons;
 import com.intellij.ide.BrowserUtil;
 import com.intellij.openapi.Disposable;
@@ -23,40 +32,54 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.DefaultActionGroup;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.fileChooser.FileChooser;
+import com.intellij.openapi.fileChooser.FileChooserDescriptor;
+import com.intellij.openapi.fileChooser.FileChooserDescriptorFactory;
 import com.intellij.openapi.fileChooser.FileChooserFactory;
 import com.intellij.openapi.fileChooser.FileSaverDescriptor;
 import com.intellij.openapi.fileChooser.FileSaverDialog;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.ComboBox;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.ui.popup.JBPopupFactory;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileWrapper;
 import com.intellij.ui.HyperlinkLabel;
+import com.intellij.ui.SearchTextField;
+import com.intellij.ui.SimpleListCellRenderer;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.ui.treeStructure.treetable.TreeTable;
 import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.update.MergingUpdateQueue;
+import com.intellij.util.ui.update.Update;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.FlowLayout;
-import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import javax.swing.JPanel;
 import javax.swing.event.AncestorEvent;
 import javax.swing.event.AncestorListener;
 import javax.swing.tree.DefaultMutableTreeNode;
+import javax.swing.tree.TreePath;
 import org.jetbrains.annotations.NotNull;
 
-/** Panel displaying branch activity and commits in a collapsible tree table. */
+/**
+ * Panel displaying branch activity and commits in a collapsible tree table. Data is loaded off the
+ * EDT; while the panel is visible, activity changes only reload the days they touched.
+ */
 public class BranchActivityPanel extends JPanel implements Disposable {
 
   private static final Logger LOG = Logger.getInstance(BranchActivityPanel.class);
@@ -66,17 +89,41 @@ public class BranchActivityPanel extends JPanel implements Disposable {
 
   private static final String ALL_PROJECTS = "All Projects";
 
-  private static final int AUTO_REFRESH_INTERVAL_MS = 10_000; // 10 seconds
+  /** Activity changes are reflected at most this often while the panel is visible. */
+  private static final int LIVE_REFRESH_MERGE_MILLIS = 10_000;
 
   private final Project project;
   private final TreeTable treeTable;
   private final ActivityTreeTableModel treeTableModel;
   private final ComboBox<String> projectComboBox;
-  private final javax.swing.Timer autoRefreshTimer;
+  private final MergingUpdateQueue liveRefreshQueue;
   private final JPanel infoBanner;
+  private final SearchTextField searchField = new SearchTextField(false);
   private final javax.swing.JLabel bannerMessageLabel;
   private final HyperlinkLabel bannerLink;
 
+  /** Day nodes in the tree and the data they show, keyed by date (yyyy-MM-dd). EDT only. */
+  private final Map<String, ActivityTreeNode> dayNodes = new HashMap<>();
+
+  private final Map<String, ActivityTreeLoader.Day> shownDays = new HashMap<>();
+
+  /** Local dates with activity changes that are not reflected in the tree yet. */
+  private final Set<LocalDate> changedDates = ConcurrentHashMap.newKeySet();
+
+  private final AtomicBoolean reloadNeeded = new AtomicBoolean();
+
+  /** Bumped by every full load; results of older loads are dropped. EDT only. */
+  private long loadGeneration;
+
+  /** Bumped by every load of changed days. EDT only. */
+  private long dayLoadGeneration;
+
+  private LocalDate shownToday;
+  private boolean updatingProjectDropdown;
+
+  /** Node to select once the next full load is shown, for a commit found by search. EDT only. */
+  private String pendingRevealId;
+
   private String selectedProject;
 
   public BranchActivityPanel(Project project) {
@@ -127,9 +174,26 @@ public class BranchActivityPanel extends JPanel implements Disposable {
           }
         });
 
-    // Setup auto-refresh timer
-    autoRefreshTimer = new javax.swing.Timer(AUTO_REFRESH_INTERVAL_MS, e -> refreshData());
-    autoRefreshTimer.start();
+    // Refresh on activity while visible instead of polling
+    liveRefreshQueue =
+        new MergingUpdateQueue(
+            "CodeClocker activity refresh", LIVE_REFRESH_MERGE_MILLIS, true, null, this);
+    ApplicationManager.getApplication()
+        .getMessageBus()
+        .connect(this)
+        .subscribe(
+            ActivityListener.TOPIC,
+            changes -> {
+              collectChangedDates(changes);
+              liveRefreshQueue.queue(
+                  Update.create(
+                      this,
+                      () -> {
+                        if (isShowing()) {
+                          refreshChangedDays();
+                        }
+                      }));
+            });
   }
 
   private JPanel createToolbarPanel() {
@@ -167,7 +231,10 @@ public class BranchActivityPanel extends JPanel implements Disposable {
 
     // Export action
     AnAction exportAction =
-        new AnAction("Export", "Export activity data to CSV", AllIcons.ToolbarDecorator.Export) {
+        new AnAction(
+            "Export",
+            "Export activity data to CSV or JSON Lines",
+            AllIcons.ToolbarDecorator.Export) {
           @Override
           public void actionPerformed(@NotNull AnActionEvent e) {
             exportActivityData();
@@ -175,6 +242,19 @@ public class BranchActivityPanel extends JPanel implements Disposable {
         };
     actionGroup.add(exportAction);
 
+    // Import action
+    AnAction importAction =
+        new AnAction(
+            "Import History",
+            "Import heartbeats exported by another time tracker",
+            AllIcons.ToolbarDecorator.Import) {
+          @Override
+          public void actionPerformed(@NotNull AnActionEvent e) {
+            importActivityHistory();
+          }
+        };
+    actionGroup.add(importAction);
+
     ActionToolbar toolbar =
         ActionManager.getInstance().createActionToolbar("BranchActivityToolbar", actionGroup, true);
     toolbar.setTargetComponent(this);
@@ -186,12 +266,17 @@ public class BranchActivityPanel extends JPanel implements Disposable {
     projectComboBox.addActionListener(
         e -> {
           String selected = (String) projectComboBox.getSelectedItem();
-          if (selected != null && !selected.equals(selectedProject)) {
+          if (!updatingProjectDropdown && selected != null && !selected.equals(selectedProject)) {
             selectedProject = selected;
             refreshData();
           }
         });
 
+    // Commit search; results link to their rows in the tree
+    searchField.getTextEditor().getEmptyText().setText("Search commits, e.g. JIRA-1234 or fix*");
+    searchField.getTextEditor().addActionListener(e -> searchCommits());
+    toolbarPanel.add(searchField, BorderLayout.CENTER);
+
     JPanel filterPanel = new JPanel();
     filterPanel.add(projectComboBox);
     toolbarPanel.add(filterPanel, BorderLayout.EAST);
@@ -233,77 +318,43 @@ public class BranchActivityPanel extends JPanel implements Disposable {
     return banner;
   }
 
-  private void updateInfoBanner() {
-    // Run on EDT to avoid threading issues, and use invokeLater to avoid blocking
-    ApplicationManager.getApplication()
-        .invokeLater(
-            () -> {
-              try {
-                boolean hasApiKey = isNotBlank(ApiKeyPersistence.getApiKey());
-                boolean subscriptionExpired = ApiKeyLifecycle.isActivityDataStoppedBeingCollected();
-                boolean hasActiveSubscription = hasApiKey && !subscriptionExpired;
-
-                if (hasActiveSubscription) {
-                  // Connected with active subscription - hide banner
-                  infoBanner.setVisible(false);
-                  return;
-                }
-
-                // Calculate days of history
-                LocalActivityDataProvider dataProvider =
-                    ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
-                int daysOfHistory = calculateDaysOfHistory(dataProvider);
-
-                int maxDays = LocalTrackerState.MAX_SESSIONS;
-                String message;
-                if (daysOfHistory >= maxDays) {
-                  message =
-                      String.format(
-                          "You have %d days of history. Older data is being rotated.", maxDays);
-                } else if (daysOfHistory > 0) {
-                  message =
-                      String.format(
-                          "You have %d day%s of history. Local storage keeps %d days.",
-                          daysOfHistory, daysOfHistory == 1 ? "" : "s", maxDays);
-                } else {
-                  message = "Start coding to build your activity history.";
-                }
-
-                bannerMessageLabel.setText(message);
-                bannerLink.setHyperlinkText(
-                    hasApiKey && subscriptionExpired
-                        ? "Renew subscription to keep your data forever"
-                        : "Connect to Hub to keep data forever");
-                infoBanner.setVisible(true);
-              } catch (Exception e) {
-                // Services may not be ready during early initialization
-                LOG.debug("Failed to update info banner, services may not be ready", e);
-                infoBanner.setVisible(false);
-              }
-            });
-  }
-
-  /** Count unique days with coding activity (sessions). A session is a day where the user coded. */
-  private int calculateDaysOfHistory(LocalActivityDataProvider dataProvider) {
-    if (dataProvider == null) {
-      return 0;
-    }
-
-    Map<String, Map<String, ProjectActivitySnapshot>> data =
-        dataProvider.getAllDataInLocalTimezone();
-    if (data == null || data.isEmpty()) {
-      return 0;
-    }
+  private void updateInfoBanner(int daysOfHistory) {
+    try {
+      boolean hasApiKey = isNotBlank(ApiKeyPersistence.getApiKey());
+      boolean subscriptionExpired = ApiKeyLifecycle.isActivityDataStoppedBeingCollected();
+      boolean hasActiveSubscription = hasApiKey && !subscriptionExpired;
+
+      if (hasActiveSubscription) {
+        // Connected with active subscription - hide banner
+        infoBanner.setVisible(false);
+        return;
+      }
 
-    // Count unique dates (hourKey format: yyyy-MM-dd-HH, extract first 10 chars for date)
-    Set<String> uniqueDates = new HashSet<>();
-    for (String hourKey : data.keySet()) {
-      if (hourKey != null && hourKey.length() >= 10) {
-        uniqueDates.add(hourKey.substring(0, 10));
+      int maxDays = LocalTrackerState.MAX_SESSIONS;
+      String message;
+      if (daysOfHistory >= maxDays) {
+        message =
+            String.format("You have %d days of history. Older data is being rotated.", maxDays);
+      } else if (daysOfHistory > 0) {
+        message =
+            String.format(
+                "You have %d day%s of history. Local storage keeps %d days.",
+                daysOfHistory, daysOfHistory == 1 ? "" : "s", maxDays);
+      } else {
+        message = "Start coding to build your activity history.";
       }
-    }
 
-    return uniqueDates.size();
+      bannerMessageLabel.setText(message);
+      bannerLink.setHyperlinkText(
+          hasApiKey && subscriptionExpired
+              ? "Renew subscription to keep your data forever"
+              : "Connect to Hub to keep data forever");
+      infoBanner.setVisible(true);
+    } catch (Exception e) {
+      // Services may not be ready during early initialization
+      LOG.debug("Failed to update info banner, services may not be ready", e);
+      infoBanner.setVisible(false);
+    }
   }
 
   private void configureTreeTable() {
@@ -326,325 +377,411 @@ public class BranchActivityPanel extends JPanel implements Disposable {
     }
   }
 
+  /** Reloads the whole tree in the background, keeping expanded nodes expanded. */
   public void refreshData() {
-    LocalActivityDataProvider dataProvider =
-        ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
-    if (dataProvider == null) {
+    long generation = ++loadGeneration;
+    String project = ALL_PROJECTS.equals(selectedProject) ? null : selectedProject;
+    reloadNeeded.set(false);
+    changedDates.clear();
+
+    ApplicationManager.getApplication()
+        .executeOnPooledThread(
+            () -> {
+              // Data is returned with hourKeys in local timezone, including unsaved deltas from
+              // accumulators to match status bar widget totals
+              Map<String, Map<String, ProjectActivitySnapshot>> data =
+                  ApplicationManager.getApplication()
+                      .getService(LiveActivityView.class)
+                      .snapshot()
+                      .data();
+              ActivityTreeLoader.Result result = ActivityTreeLoader.loadAll(data, project);
+              int daysOfHistory = ActivityTreeLoader.countDaysOfHistory(data);
+
+              ApplicationManager.getApplication()
+                  .invokeLater(
+                      () -> {
+                        if (generation != loadGeneration) {
+                          return;
+                        }
+                        updateInfoBanner(daysOfHistory);
+                        if (!updateProjectDropdown(result.projects())) {
+                          // The selected project is gone, show All Projects instead
+                          refreshData();
+                          return;
+                        }
+                        showDays(result.days());
+                      });
+            });
+  }
+
+  /**
+   * Reloads only the days that had activity since the last load. Falls back to a full reload after
+   * a data reload or once the date changed, since the "Today" label moves.
+   */
+  private void refreshChangedDays() {
+    if (reloadNeeded.getAndSet(false) || !LocalDate.now().equals(shownToday)) {
+      refreshData();
       return;
     }
+    List<LocalDate> dates = new ArrayList<>(changedDates);
+    if (dates.isEmpty()) {
+      return;
+    }
+    dates.forEach(changedDates::remove);
 
-    // Update info banner based on Hub connection status
-    updateInfoBanner();
-
-    // Save expanded state before refresh
-    Set<String> expandedNodes = saveExpandedState();
+    long generation = loadGeneration;
+    long dayGeneration = ++dayLoadGeneration;
+    String project = ALL_PROJECTS.equals(selectedProject) ? null : selectedProject;
 
-    // Data is returned with hourKeys in local timezone
-    Map<String, Map<String, ProjectActivitySnapshot>> allData =
-        dataProvider.getAllDataInLocalTimezone();
+    ApplicationManager.getApplication()
+        .executeOnPooledThread(
+            () -> {
+              Map<String, Map<String, ProjectActivitySnapshot>> data =
+                  ApplicationManager.getApplication()
+                      .getService(LiveActivityView.class)
+                      .snapshot()
+                      .data();
+              ActivityTreeLoader.Result result = ActivityTreeLoader.loadDays(data, project, dates);
+
+              ApplicationManager.getApplication()
+                  .invokeLater(
+                      () -> {
+                        if (generation != loadGeneration) {
+                          return;
+                        }
+                        if (dayGeneration != dayLoadGeneration) {
+                          // A newer day load started meanwhile; let the next one cover these days
+                          changedDates.addAll(dates);
+                          return;
+                        }
+                        addToProjectDropdown(result.projects());
+                        updateDays(dates, result.days());
+                      });
+            });
+  }
 
-    // Add unsaved deltas from accumulators to match status bar widget totals
-    mergeUnsavedDeltas(allData);
+  private void collectChangedDates(Set<ActivityChange> changes) {
+    TimezoneConversionService converter =
+        ApplicationManager.getApplication().getService(TimezoneConversionService.class);
+    for (ActivityChange change : changes) {
+      LocalDate date =
+          change.kind() != Kind.RELOADED && change.utcHourKey() != null
+              ? converter.utcHourKeyToLocalDate(change.utcHourKey())
+              : null;
+      if (date != null) {
+        changedDates.add(date);
+      } else {
+        reloadNeeded.set(true);
+      }
+    }
+  }
 
-    // Update project dropdown with available projects
-    updateProjectDropdown(allData);
+  /** Replaces all day nodes. */
+  private void showDays(List<ActivityTreeLoader.Day> days) {
+    Set<String> expandedIds = saveExpandedState();
 
-    DefaultMutableTreeNode root = buildTreeStructure(allData);
+    DefaultMutableTreeNode root = new DefaultMutableTreeNode("Root");
+    dayNodes.clear();
+    shownDays.clear();
+    for (ActivityTreeLoader.Day day : days) {
+      ActivityTreeNode dailyNode = createDailyNode(day);
+      root.add(dailyNode);
+      dayNodes.put(day.date(), dailyNode);
+      shownDays.put(day.date(), day);
+    }
     treeTableModel.setRoot(root);
+    shownToday = LocalDate.now();
 
-    // Refresh the tree table
-    treeTable.setModel(treeTableModel);
-    configureTreeTable();
+    for (ActivityTreeNode dailyNode : dayNodes.values()) {
+      restoreExpandedState(dailyNode, expandedIds);
+    }
 
-    // Restore expanded state after refresh
-    restoreExpandedState(expandedNodes);
+    if (pendingRevealId != null) {
+      selectNode(pendingRevealId);
+      pendingRevealId = null;
+    }
   }
 
-  private Set<String> saveExpandedState() {
-    Set<String> expandedNodes = new HashSet<>();
-    javax.swing.JTree tree = treeTable.getTree();
+  /** Replaces the nodes of the given dates only; other days keep their nodes and expansion. */
+  private void updateDays(List<LocalDate> dates, List<ActivityTreeLoader.Day> loadedDays) {
+    Map<String, ActivityTreeLoader.Day> loaded = new HashMap<>();
+    for (ActivityTreeLoader.Day day : loadedDays) {
+      loaded.put(day.date(), day);
+    }
 
-    for (int i = 0; i < tree.getRowCount(); i++) {
-      if (tree.isExpanded(i)) {
-        javax.swing.tree.TreePath path = tree.getPathForRow(i);
-        Object node = path.getLastPathComponent();
-        if (node instanceof ActivityTreeNode activityNode) {
-          expandedNodes.add(activityNode.getDateOrHourDisplay());
-        }
+    Set<String> expandedIds = saveExpandedState();
+    DefaultMutableTreeNode root = (DefaultMutableTreeNode) treeTableModel.getRoot();
+    for (LocalDate date : dates) {
+      String key = date.toString();
+      ActivityTreeLoader.Day day = loaded.get(key);
+      if (Objects.equals(day, shownDays.get(key))) {
+        continue;
+      }
+
+      ActivityTreeNode existing = dayNodes.remove(key);
+      shownDays.remove(key);
+      int index = existing != null ? root.getIndex(existing) : insertionIndex(root, key);
+      if (existing != null) {
+        treeTableModel.removeRootChild(index);
+      }
+      if (day == null) {
+        continue;
       }
+
+      ActivityTreeNode dailyNode = createDailyNode(day);
+      treeTableModel.insertRootChild(dailyNode, index);
+      dayNodes.put(key, dailyNode);
+      shownDays.put(key, day);
+      restoreExpandedState(dailyNode, expandedIds);
     }
-    return expandedNodes;
   }
 
-  private void restoreExpandedState(Set<String> expandedNodes) {
-    if (expandedNodes.isEmpty()) {
-      return;
+  /** Days are sorted newest first. */
+  private static int insertionIndex(DefaultMutableTreeNode root, String date) {
+    for (int i = 0; i < root.getChildCount(); i++) {
+      if (root.getChildAt(i) instanceof ActivityTreeNode node && node.getId().compareTo(date) < 0) {
+        return i;
+      }
     }
+    return root.getChildCount();
+  }
 
+  private Set<String> saveExpandedState() {
+    Set<String> expandedIds = new HashSet<>();
     javax.swing.JTree tree = treeTable.getTree();
-
-    // Iterate through rows and expand matching nodes
-    for (int i = 0; i < tree.getRowCount(); i++) {
-      javax.swing.tree.TreePath path = tree.getPathForRow(i);
-      Object node = path.getLastPathComponent();
-      if (node instanceof ActivityTreeNode activityNode) {
-        if (expandedNodes.contains(activityNode.getDateOrHourDisplay())) {
-          tree.expandPath(path);
-        }
+    Enumeration<TreePath> expanded =
+        tree.getExpandedDescendants(new TreePath(treeTableModel.getRoot()));
+    if (expanded == null) {
+      return expandedIds;
+    }
+    while (expanded.hasMoreElements()) {
+      if (expanded.nextElement().getLastPathComponent() instanceof ActivityTreeNode node) {
+        expandedIds.add(node.getId());
       }
     }
+    return expandedIds;
   }
 
-  /**
-   * Merge unsaved deltas from accumulators into the data map. This ensures the Activity Report
-   * shows the same totals as the status bar widget.
-   */
-  private void mergeUnsavedDeltas(Map<String, Map<String, ProjectActivitySnapshot>> allData) {
-    TimeSpentPerProjectLogger logger =
-        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
-    if (logger == null) {
+  /** Expands the node and its descendants that were expanded; collapsed subtrees stay unloaded. */
+  private void restoreExpandedState(ActivityTreeNode node, Set<String> expandedIds) {
+    if (!expandedIds.contains(node.getId())) {
       return;
     }
-
-    String currentHourKey =
-        java.time.LocalDateTime.now()
-            .format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd-HH"));
-
-    // Get unsaved deltas for all projects and merge into current hour
-    Map<String, ProjectActivitySnapshot> hourData =
-        allData.computeIfAbsent(currentHourKey, k -> new LinkedHashMap<>());
-
-    // Check each project that might have unsaved data
-    for (String projectName : getAllProjectNames(allData)) {
-      long unsavedDelta = logger.getProjectUnsavedDelta(projectName);
-      if (unsavedDelta > 0) {
-        ProjectActivitySnapshot existing = hourData.get(projectName);
-        if (existing != null) {
-          // Add unsaved delta to existing snapshot
-          ProjectActivitySnapshot updated =
-              new ProjectActivitySnapshot(
-                  existing.getCodedTimeSeconds() + unsavedDelta,
-                  existing.getAdditions(),
-                  existing.getRemovals(),
-                  existing.isReported());
-          updated.setBranchActivity(existing.getBranchActivity());
-          updated.setCommits(existing.getCommits());
-          hourData.put(projectName, updated);
-        } else {
-          // Create new snapshot with just the unsaved delta
-          hourData.put(projectName, new ProjectActivitySnapshot(unsavedDelta, 0, 0, false));
-        }
+    treeTable.getTree().expandPath(new TreePath(node.getPath()));
+    for (int i = 0; i < node.getChildCount(); i++) {
+      if (node.getChildAt(i) instanceof ActivityTreeNode child) {
+        restoreExpandedState(child, expandedIds);
       }
     }
   }
 
-  private Set<String> getAllProjectNames(
-      Map<String, Map<String, ProjectActivitySnapshot>> allData) {
-    Set<String> projectNames = new HashSet<>();
-    for (Map<String, ProjectActivitySnapshot> hourData : allData.values()) {
-      projectNames.addAll(hourData.keySet());
-    }
-    // Also check accumulator for projects that might only have unsaved data
-    TimeSpentPerProjectLogger logger =
-        ApplicationManager.getApplication().getService(TimeSpentPerProjectLogger.class);
-    if (logger != null) {
-      // The logger doesn't expose project names directly, so we rely on local state
-      // Projects with only unsaved data will be picked up on next flush
+  private void searchCommits() {
+    String query = searchField.getText();
+    if (query.isBlank()) {
+      return;
     }
-    return projectNames;
+    ApplicationManager.getApplication()
+        .executeOnPooledThread(
+            () -> {
+              List<CommitSearchIndex.Match> matches =
+                  ApplicationManager.getApplication()
+                      .getService(CommitSearchIndex.class)
+                      .search(query);
+              ApplicationManager.getApplication()
+                  .invokeLater(() -> showSearchResults(query, matches));
+            });
   }
 
-  private void updateProjectDropdown(Map<String, Map<String, ProjectActivitySnapshot>> data) {
-    // Collect all unique project names from data
-    List<String> projects =
-        data.values().stream()
-            .flatMap(hourData -> hourData.keySet().stream())
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
-
-    // Remember current selection
-    String currentSelection = selectedProject;
-
-    // Update dropdown items
-    projectComboBox.removeAllItems();
-    projectComboBox.addItem(ALL_PROJECTS);
-    for (String proj : projects) {
-      projectComboBox.addItem(proj);
-    }
-
-    // Restore selection if it still exists, otherwise default to All Projects
-    if (currentSelection != null
-        && (ALL_PROJECTS.equals(currentSelection) || projects.contains(currentSelection))) {
-      projectComboBox.setSelectedItem(currentSelection);
-    } else {
-      projectComboBox.setSelectedItem(ALL_PROJECTS);
-      selectedProject = ALL_PROJECTS;
+  private void showSearchResults(String query, List<CommitSearchIndex.Match> matches) {
+    if (matches.isEmpty()) {
+      JBPopupFactory.getInstance()
+          .createMessage("No commits match \"" + query + "\"")
+          .showUnderneathOf(searchField);
+      return;
     }
+    TimezoneConversionService converter =
+        ApplicationManager.getApplication().getService(TimezoneConversionService.class);
+    JBPopupFactory.getInstance()
+        .createPopupChooserBuilder(matches)
+        .setTitle(
+            matches.size() < CommitSearchIndex.MAX_RESULTS
+                ? matches.size() + " matching commits"
+                : "Newest " + matches.size() + " matching commits")
+        .setRenderer(SimpleListCellRenderer.create("", match -> formatMatch(converter, match)))
+        .setItemChosenCallback(this::revealCommit)
+        .createPopup()
+        .showUnderneathOf(searchField);
   }
 
-  private DefaultMutableTreeNode buildTreeStructure(
-      Map<String, Map<String, ProjectActivitySnapshot>> data) {
-    DefaultMutableTreeNode root = new DefaultMutableTreeNode("Root");
+  private static String formatMatch(
+      TimezoneConversionService converter, CommitSearchIndex.Match match) {
+    // Local hour key yyyy-MM-dd-HH shown as yyyy-MM-dd HH:00
+    String hourKey = converter.utcToLocalHourKey(match.utcHourKey());
+    String when =
+        hourKey.length() == 13
+            ? hourKey.substring(0, 10) + " " + hourKey.substring(11) + ":00"
+            : "";
+    String message = match.message() != null ? match.message() : "";
+    return when + "  [" + match.projectName() + "] " + match.hash() + ": " + message;
+  }
 
+  /** Selects the commit's row, switching to All Projects if another project is selected. */
+  private void revealCommit(CommitSearchIndex.Match match) {
+    LocalDate date =
+        ApplicationManager.getApplication()
+            .getService(TimezoneConversionService.class)
+            .utcHourKeyToLocalDate(match.utcHourKey());
+    if (date == null) {
+      return;
+    }
+    String allProjectsId = date + "/" + match.projectName() + "/" + match.hash();
     if (ALL_PROJECTS.equals(selectedProject)) {
-      // All Projects mode: Day → Project → Commits
-      buildTreeForAllProjects(root, data);
+      if (!selectNode(allProjectsId)) {
+        // Not shown yet, e.g. stored after the last load
+        pendingRevealId = allProjectsId;
+        refreshData();
+      }
+    } else if (selectedProject.equals(match.projectName())) {
+      String projectId = date + "/" + match.hash();
+      if (!selectNode(projectId)) {
+        pendingRevealId = projectId;
+        refreshData();
+      }
     } else {
-      // Single project mode: Day → Hour → Commits
-      buildTreeForSingleProject(root, data);
+      pendingRevealId = allProjectsId;
+      projectComboBox.setSelectedItem(ALL_PROJECTS);
     }
-
-    return root;
   }
 
-  private void buildTreeForAllProjects(
-      DefaultMutableTreeNode root, Map<String, Map<String, ProjectActivitySnapshot>> data) {
-    // Group data by date, then by project
-    Map<String, Map<String, ProjectDailyAggregate>> dateProjectMap = new LinkedHashMap<>();
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry : data.entrySet()) {
-      String hourKey = hourEntry.getKey();
-      String date = extractDateFromHourKey(hourKey);
-
-      for (Map.Entry<String, ProjectActivitySnapshot> projEntry : hourEntry.getValue().entrySet()) {
-        String projectName = projEntry.getKey();
-        ProjectActivitySnapshot snapshot = projEntry.getValue();
-
-        dateProjectMap
-            .computeIfAbsent(date, k -> new LinkedHashMap<>())
-            .computeIfAbsent(projectName, k -> new ProjectDailyAggregate())
-            .add(snapshot);
+  /** Expands the path to the node with the given id and selects its row. */
+  private boolean selectNode(String id) {
+    ActivityTreeNode node = dayNodes.get(id.substring(0, Math.min(id.length(), 10)));
+    while (node != null && !node.getId().equals(id)) {
+      node.loadChildren();
+      ActivityTreeNode next = null;
+      for (int i = 0; i < node.getChildCount(); i++) {
+        if (node.getChildAt(i) instanceof ActivityTreeNode child
+            && id.startsWith(child.getId())
+            && (id.length() == child.getId().length()
+                || id.charAt(child.getId().length()) == '/')) {
+          next = child;
+          break;
+        }
       }
+      node = next;
     }
-
-    // Sort dates descending (newest first)
-    List<String> sortedDates =
-        dateProjectMap.keySet().stream()
-            .sorted(Comparator.reverseOrder())
-            .collect(Collectors.toList());
-
-    for (String date : sortedDates) {
-      Map<String, ProjectDailyAggregate> projectsForDate = dateProjectMap.get(date);
-
-      // Calculate daily totals
-      long totalSeconds =
-          projectsForDate.values().stream().mapToLong(ProjectDailyAggregate::getTotalSeconds).sum();
-      List<CommitRecord> allCommits =
-          projectsForDate.values().stream()
-              .flatMap(agg -> agg.getCommits().stream())
-              .distinct()
-              .collect(Collectors.toList());
-
-      // Create daily parent node
-      String dateDisplay = formatDateDisplay(date);
-      ActivityTreeNode dailyNode =
-          ActivityTreeNode.createDailyNode(
-              dateDisplay, totalSeconds, new ArrayList<>(), allCommits);
-
-      // Sort projects by coding time descending (biggest to smallest)
-      projectsForDate.entrySet().stream()
-          .sorted(
-              (e1, e2) ->
-                  Long.compare(e2.getValue().getTotalSeconds(), e1.getValue().getTotalSeconds()))
-          .forEach(
-              entry -> {
-                String projectName = entry.getKey();
-                ProjectDailyAggregate aggregate = entry.getValue();
-
-                // Create project row using BranchActivityRow
-                BranchActivityRow projectRow =
-                    new BranchActivityRow(
-                        date,
-                        projectName,
-                        "-",
-                        aggregate.getTotalSeconds(),
-                        formatTime(aggregate.getTotalSeconds()),
-                        aggregate.getCommits(),
-                        formatCommitsDisplay(aggregate.getCommits()));
-
-                ActivityTreeNode projectNode = ActivityTreeNode.createHourlyNode(projectRow);
-
-                // Add commits as children (no project prefix since parent is the project)
-                for (CommitRecord commit : aggregate.getCommits()) {
-                  ActivityTreeNode commitNode = ActivityTreeNode.createCommitNode(commit, null);
-                  projectNode.add(commitNode);
-                }
-
-                dailyNode.add(projectNode);
-              });
-
-      root.add(dailyNode);
+    if (node == null) {
+      return false;
     }
-  }
 
-  private void buildTreeForSingleProject(
-      DefaultMutableTreeNode root, Map<String, Map<String, ProjectActivitySnapshot>> data) {
-    // Group data by date
-    Map<String, ProjectDailyAggregate> dateMap = new LinkedHashMap<>();
-
-    for (Map.Entry<String, Map<String, ProjectActivitySnapshot>> hourEntry : data.entrySet()) {
-      String hourKey = hourEntry.getKey();
-      String date = extractDateFromHourKey(hourKey);
+    javax.swing.JTree tree = treeTable.getTree();
+    TreePath path = new TreePath(node.getPath());
+    tree.expandPath(path.getParentPath());
+    int row = tree.getRowForPath(path);
+    if (row < 0) {
+      return false;
+    }
+    treeTable.getSelectionModel().setSelectionInterval(row, row);
+    treeTable.scrollRectToVisible(treeTable.getCellRect(row, 0, true));
+    return true;
+  }
 
-      ProjectActivitySnapshot snapshot = hourEntry.getValue().get(selectedProject);
-      if (snapshot != null) {
-        dateMap.computeIfAbsent(date, k -> new ProjectDailyAggregate()).add(snapshot);
+  /**
+   * Rebuilds the project dropdown. Returns false if the selected project is no longer listed and
+   * the selection fell back to All Projects.
+   */
+  private boolean updateProjectDropdown(Set<String> projects) {
+    updatingProjectDropdown = true;
+    try {
+      projectComboBox.removeAllItems();
+      projectComboBox.addItem(ALL_PROJECTS);
+      for (String proj : projects) {
+        projectComboBox.addItem(proj);
       }
-    }
-
-    // Sort dates descending (newest first)
-    List<String> sortedDates =
-        dateMap.keySet().stream().sorted(Comparator.reverseOrder()).collect(Collectors.toList());
 
-    for (String date : sortedDates) {
-      ProjectDailyAggregate aggregate = dateMap.get(date);
-
-      // Create daily parent node
-      String dateDisplay = formatDateDisplay(date);
-      ActivityTreeNode dailyNode =
-          ActivityTreeNode.createDailyNode(
-              dateDisplay, aggregate.getTotalSeconds(), new ArrayList<>(), aggregate.getCommits());
-
-      // Add commits directly as children of daily node
-      for (CommitRecord commit : aggregate.getCommits()) {
-        ActivityTreeNode commitNode = ActivityTreeNode.createCommitNode(commit, null);
-        dailyNode.add(commitNode);
+      // Restore selection if it still exists, otherwise default to All Projects
+      if (ALL_PROJECTS.equals(selectedProject) || projects.contains(selectedProject)) {
+        projectComboBox.setSelectedItem(selectedProject);
+        return true;
       }
-
-      root.add(dailyNode);
+      projectComboBox.setSelectedItem(ALL_PROJECTS);
+      selectedProject = ALL_PROJECTS;
+      return false;
+    } finally {
+      updatingProjectDropdown = false;
     }
   }
 
-  /** Helper class to aggregate project data for a day. */
-  private static class ProjectDailyAggregate {
-    private long totalSeconds = 0;
-    private final List<CommitRecord> commits = new ArrayList<>();
-
-    void add(ProjectActivitySnapshot snapshot) {
-      totalSeconds += snapshot.getCodedTimeSeconds();
-      for (CommitRecord commit : snapshot.getCommits()) {
-        if (commits.stream().noneMatch(c -> c.getHash().equals(commit.getHash()))) {
-          commits.add(commit);
+  /** Adds projects first seen in live data, keeping the dropdown sorted. */
+  private void addToProjectDropdown(Set<String> projects) {
+    updatingProjectDropdown = true;
+    try {
+      for (String proj : projects) {
+        int index = 1;
+        while (index < projectComboBox.getItemCount()
+            && projectComboBox.getItemAt(index).compareTo(proj) < 0) {
+          index++;
+        }
+        if (index >= projectComboBox.getItemCount()
+            || !proj.equals(projectComboBox.getItemAt(index))) {
+          projectComboBox.insertItemAt(proj, index);
         }
       }
+    } finally {
+      updatingProjectDropdown = false;
     }
+  }
 
-    long getTotalSeconds() {
-      return totalSeconds;
+  private ActivityTreeNode createDailyNode(ActivityTreeLoader.Day day) {
+    String date = day.date();
+    ActivityTreeNode dailyNode =
+        ActivityTreeNode.createDailyNode(
+            date, formatDateDisplay(date), day.seconds(), new ArrayList<>(), day.commits());
+
+    List<ActivityRow> projectRows = day.projectRows();
+    if (projectRows != null) {
+      // All Projects mode: Day → Project → Commits
+      dailyNode.setChildrenLoader(() -> createProjectNodes(date, projectRows));
+    } else if (!day.commits().isEmpty()) {
+      // Single project mode: commits directly as children of daily node
+      dailyNode.setChildrenLoader(() -> createCommitNodes(date, day.commits()));
     }
+    return dailyNode;
+  }
 
-    List<CommitRecord> getCommits() {
-      return commits;
+  private List<ActivityTreeNode> createProjectNodes(String date, List<ActivityRow> projectRows) {
+    List<ActivityTreeNode> projectNodes = new ArrayList<>();
+    for (ActivityRow row : projectRows) {
+      // Create project row using BranchActivityRow
+      BranchActivityRow projectRow =
+          new BranchActivityRow(
+              date,
+              row.key(1),
+              "-",
+              row.seconds(),
+              formatTime(row.seconds()),
+              row.commits(),
+              formatCommitsDisplay(row.commits()));
+
+      String projectId = date + "/" + row.key(1);
+      ActivityTreeNode projectNode = ActivityTreeNode.createHourlyNode(projectId, projectRow);
+
+      // Add commits as children (no project prefix since parent is the project)
+      for (ActivityTreeNode commitNode : createCommitNodes(projectId, row.commits())) {
+        projectNode.add(commitNode);
+      }
+      projectNodes.add(projectNode);
     }
+    return projectNodes;
   }
 
-  private String extractDateFromHourKey(String hourKey) {
-    // hourKey format: yyyy-MM-dd-HH
-    if (hourKey != null && hourKey.length() >= 10) {
-      return hourKey.substring(0, 10);
+  private List<ActivityTreeNode> createCommitNodes(String parentId, List<CommitRecord> commits) {
+    List<ActivityTreeNode> commitNodes = new ArrayList<>();
+    for (CommitRecord commit : commits) {
+      commitNodes.add(
+          ActivityTreeNode.createCommitNode(parentId + "/" + commit.getHash(), commit, null));
     }
-    return hourKey;
+    return commitNodes;
   }
 
   private String formatDateDisplay(String date) {
@@ -694,23 +831,17 @@ public class BranchActivityPanel extends JPanel implements Disposable {
   }
 
   private void exportActivityData() {
-    LocalActivityDataProvider dataProvider =
-        ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
-    if (dataProvider == null) {
-      Messages.showErrorDialog(project, "Failed to load activity data", "Export Error");
-      return;
-    }
-
-    Map<String, Map<String, ProjectActivitySnapshot>> data =
-        dataProvider.getAllDataInLocalTimezone();
+    // Same data as the tree; the snapshot is immutable, so the export task can read it as is
+    NavigableMap<String, Map<String, ProjectActivitySnapshot>> data =
+        ApplicationManager.getApplication().getService(LiveActivityView.class).snapshot().data();
     if (data.isEmpty()) {
       Messages.showInfoMessage(project, "No activity data to export", "Export");
       return;
     }
 
     // Get date range from data
-    ActivityCsvExporter exporter = new ActivityCsvExporter();
-    LocalDate[] dateRange = exporter.getDateRange(data);
+    LocalDate[] dateRange =
+        new ActivityExporter(ExportFormat.CSV, ExportDetail.DAILY).getDateRange(data);
     LocalDate defaultFrom = dateRange != null ? dateRange[0] : LocalDate.now().minusDays(7);
     LocalDate defaultTo = dateRange != null ? dateRange[1] : LocalDate.now();
 
@@ -722,14 +853,14 @@ public class BranchActivityPanel extends JPanel implements Disposable {
 
     LocalDate fromDate = dialog.getFromDate();
     LocalDate toDate = dialog.getToDate();
-
-    // Generate CSV content
-    String csvContent = exporter.exportToCsv(data, fromDate, toDate);
+    ExportFormat format = dialog.getFormat();
 
     // Show file save dialog
-    String defaultFileName = "activity-report-" + fromDate + "-to-" + toDate + ".csv";
+    String extension = format.getExtension();
+    String defaultFileName = "activity-report-" + fromDate + "-to-" + toDate + "." + extension;
     FileSaverDescriptor descriptor =
-        new FileSaverDescriptor("Export Activity Report", "Save activity report as CSV", "csv");
+        new FileSaverDescriptor(
+            "Export Activity Report", "Save activity report as " + format.getLabel(), extension);
     FileSaverDialog saveDialog =
         FileChooserFactory.getInstance().createSaveFileDialog(descriptor, project);
     VirtualFileWrapper fileWrapper = saveDialog.save(defaultFileName);
@@ -738,23 +869,33 @@ public class BranchActivityPanel extends JPanel implements Disposable {
       return;
     }
 
-    // Write CSV to file
-    try {
-      Files.writeString(fileWrapper.getFile().toPath(), csvContent, StandardCharsets.UTF_8);
-      Messages.showInfoMessage(
-          project,
-          "Activity report exported to:\n" + fileWrapper.getFile().getAbsolutePath(),
-          "Export Successful");
-    } catch (IOException e) {
-      LOG.error("Failed to export activity report", e);
-      Messages.showErrorDialog(project, "Failed to write file: " + e.getMessage(), "Export Error");
+    // Rows are streamed to the file in the background
+    new ExportActivityTask(
+            project,
+            data,
+            fromDate,
+            toDate,
+            new ActivityExporter(format, dialog.getDetail()),
+            fileWrapper.getFile().toPath())
+        .queue();
+  }
+
+  private void importActivityHistory() {
+    FileChooserDescriptor descriptor =
+        FileChooserDescriptorFactory.createSingleFileDescriptor()
+            .withTitle("Import Activity History")
+            .withDescription("Select a JSON heartbeat export, e.g. from WakaTime");
+    VirtualFile file = FileChooser.chooseFile(descriptor, project, null);
+    if (file == null) {
+      return;
     }
+
+    // The tree reloads once the imported hours are stored
+    new ImportHeartbeatsTask(project, file.toNioPath()).queue();
   }
 
   @Override
   public void dispose() {
-    if (autoRefreshTimer != null) {
-      autoRefreshTimer.stop();
-    }
+    // Message bus connection and refresh queue are disposed with this panel
   }
 }
@@ -18,11 +18,13 @@ public class BranchActivityToolWindowFactory implements ToolWindowFactory {
     // Dashboard tab (first position)
     DashboardPanel dashboardPanel = new DashboardPanel();
     Content dashboardContent = contentFactory.createContent(dashboardPanel, "Dashboard", false);
+    dashboardContent.setDisposer(dashboardPanel);
     toolWindow.getContentManager().addContent(dashboardContent);
 
     // Activity tab (existing)
     BranchActivityPanel panel = new BranchActivityPanel(project);
     Content activityContent = contentFactory.createContent(panel, "Activity", false);
+    activityContent.setDisposer(panel);
     toolWindow.getContentManager().addContent(activityContent);
   }
 
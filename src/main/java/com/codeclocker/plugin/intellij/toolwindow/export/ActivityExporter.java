@@ -0,0 +1,414 @@
+package com.codeclocker.plugin.intellij.toolwindow.export;
+
+import static com.codeclocker.plugin.intellij.JsonMapper.OBJECT_MAPPER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.codeclocker.plugin.intellij.local.CommitRecord;
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Aggregate;
+import com.codeclocker.plugin.intellij.local.query.ActivityQuery.Dimension;
+import com.codeclocker.plugin.intellij.local.query.ActivityQueryEngine;
+import com.codeclocker.plugin.intellij.local.query.ActivityRow;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.intellij.openapi.progress.ProgressIndicator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.stream.Collectors;
+
+/**
+ * Exports activity data as CSV or JSON Lines, for invoicing or offline analysis, and the fact
+ * tables also as an Arrow IPC stream. Rows are written to the stream one day at a time, newest day
+ * first, so memory use does not grow with the exported range.
+ */
+public class ActivityExporter {
+
+  private static final String CSV_HEADER = "Date,Project,Hours,Description";
+  private static final String CSV_HOURLY_HEADER = "Date,Hour,Project,Hours,Description";
+  private static final String CSV_BRANCH_FACTS_HEADER = "Date,Hour,Project,Branch,Seconds";
+  private static final String CSV_EXTENSION_FACTS_HEADER =
+      "Date,Hour,Project,Extension,Additions,Removals";
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+  private final ExportFormat format;
+  private final ExportDetail detail;
+
+  public ActivityExporter(ExportFormat format, ExportDetail detail) {
+    this.format = format;
+    this.detail = detail;
+  }
+
+  /**
+   * Writes the activity between the given dates.
+   *
+   * @param data hourKey -> (projectName -> snapshot) map with hourKeys in local timezone
+   * @param fromDate start date (inclusive)
+   * @param toDate end date (inclusive)
+   * @param stream receives the export; flushed but not closed
+   * @param indicator receives progress per day; cancelling it stops the export
+   * @return number of rows written
+   */
+  public long export(
+      NavigableMap<String, Map<String, ProjectActivitySnapshot>> data,
+      LocalDate fromDate,
+      LocalDate toDate,
+      OutputStream stream,
+      ProgressIndicator indicator)
+      throws IOException {
+    if (format == ExportFormat.ARROW && !detail.isFactTable()) {
+      throw new IllegalArgumentException("Arrow export is only available for the fact tables");
+    }
+
+    Writer out = null;
+    JsonGenerator json = null;
+    ArrowStreamWriter arrow = null;
+    if (format == ExportFormat.ARROW) {
+      arrow = new ArrowStreamWriter(stream, arrowColumns());
+    } else {
+      out = new BufferedWriter(new OutputStreamWriter(stream, UTF_8));
+      if (format == ExportFormat.CSV) {
+        out.write(
+            switch (detail) {
+              case DAILY -> CSV_HEADER;
+              case HOURLY -> CSV_HOURLY_HEADER;
+              case BRANCH_FACTS -> CSV_BRANCH_FACTS_HEADER;
+              case EXTENSION_FACTS -> CSV_EXTENSION_FACTS_HEADER;
+            });
+        out.write("\n");
+      } else {
+        json = OBJECT_MAPPER.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      }
+    }
+
+    // Days outside the stored data have nothing to scan
+    LocalDate[] dataRange = getDateRange(data);
+    if (dataRange == null) {
+      finish(out, json, arrow);
+      return 0;
+    }
+    LocalDate from = fromDate.isBefore(dataRange[0]) ? dataRange[0] : fromDate;
+    LocalDate to = toDate.isAfter(dataRange[1]) ? dataRange[1] : toDate;
+    long totalDays = Math.max(ChronoUnit.DAYS.between(from, to) + 1, 1);
+
+    long rowCount = 0;
+    long daysDone = 0;
+    for (LocalDate date = to; !date.isBefore(from); date = date.minusDays(1)) {
+      indicator.checkCanceled();
+      indicator.setText2(date.toString());
+      indicator.setFraction((double) daysDone++ / totalDays);
+
+      for (ExportRow row : queryDay(data, date)) {
+        if (arrow != null) {
+          writeArrowRow(arrow, date, row);
+        } else if (json != null) {
+          writeJsonRow(json, date, row);
+        } else {
+          writeCsvRow(out, date, row);
+        }
+        rowCount++;
+      }
+    }
+
+    finish(out, json, arrow);
+    return rowCount;
+  }
+
+  /** Flushes what is buffered; the stream itself is left open for the caller to close. */
+  private void finish(Writer out, JsonGenerator json, ArrowStreamWriter arrow) throws IOException {
+    if (arrow != null) {
+      arrow.finish();
+      return;
+    }
+    if (json != null) {
+      json.flush();
+    }
+    out.flush();
+  }
+
+  /**
+   * One exported row. Hour, branch and extension are null unless the detail level includes them.
+   */
+  private record ExportRow(
+      String hourKey,
+      String project,
+      String branch,
+      String extension,
+      long seconds,
+      long additions,
+      long removals,
+      List<CommitRecord> commits) {}
+
+  /** Newest hour first, projects alphabetically within an hour or day. */
+  private List<ExportRow> queryDay(
+      NavigableMap<String, Map<String, ProjectActivitySnapshot>> data, LocalDate date) {
+    List<ExportRow> rows = new ArrayList<>();
+    switch (detail) {
+      case DAILY -> {
+        for (ActivityRow row : queryDay(data, date, Dimension.PROJECT)) {
+          rows.add(new ExportRow(null, row.key(0), null, null, row.seconds(), 0, 0, row.commits()));
+        }
+      }
+      case HOURLY -> {
+        for (ActivityRow row : queryDay(data, date, Dimension.HOUR, Dimension.PROJECT)) {
+          rows.add(
+              new ExportRow(
+                  row.key(0), row.key(1), null, null, row.seconds(), 0, 0, row.commits()));
+        }
+      }
+      case BRANCH_FACTS -> {
+        for (ActivityRow row :
+            queryDay(data, date, Dimension.HOUR, Dimension.PROJECT, Dimension.BRANCH)) {
+          if (row.seconds() > 0) {
+            rows.add(
+                new ExportRow(
+                    row.key(0), row.key(1), row.key(2), null, row.seconds(), 0, 0, List.of()));
+          }
+        }
+      }
+      case EXTENSION_FACTS -> {
+        for (ActivityRow row :
+            queryDay(data, date, Dimension.HOUR, Dimension.PROJECT, Dimension.EXTENSION)) {
+          if (row.additions() > 0 || row.removals() > 0) {
+            rows.add(
+                new ExportRow(
+                    row.key(0),
+                    row.key(1),
+                    null,
+                    row.key(2),
+                    0,
+                    row.additions(),
+                    row.removals(),
+                    List.of()));
+          }
+        }
+      }
+    }
+    rows.sort(
+        Comparator.comparing(ExportRow::hourKey, Comparator.nullsFirst(Comparator.reverseOrder()))
+            .thenComparing(ExportRow::project)
+            .thenComparing(
+                row -> row.branch() != null ? row.branch() : row.extension(),
+                Comparator.nullsFirst(Comparator.naturalOrder())));
+    return rows;
+  }
+
+  private List<ActivityRow> queryDay(
+      NavigableMap<String, Map<String, ProjectActivitySnapshot>> data,
+      LocalDate date,
+      Dimension... groupBy) {
+    ActivityQuery.Builder query = ActivityQuery.builder().between(date, date).groupBy(groupBy);
+    if (!detail.isFactTable()) {
+      query.aggregate(Aggregate.COMMITS);
+    }
+    return ActivityQueryEngine.execute(query.build(), data).rows();
+  }
+
+  private void writeCsvRow(Writer out, LocalDate date, ExportRow row) throws IOException {
+    out.write(date.toString());
+    out.write(",");
+    if (detail != ExportDetail.DAILY) {
+      out.write(formatHour(row.hourKey()));
+      out.write(",");
+    }
+    out.write(escapeCsv(row.project()));
+    out.write(",");
+    if (detail == ExportDetail.BRANCH_FACTS) {
+      out.write(escapeCsv(row.branch()));
+      out.write(",");
+      out.write(String.valueOf(row.seconds()));
+    } else if (detail == ExportDetail.EXTENSION_FACTS) {
+      out.write(escapeCsv(row.extension()));
+      out.write(",");
+      out.write(row.additions() + "," + row.removals());
+    } else {
+      out.write(formatHours(row.seconds()));
+      out.write(",");
+      out.write(escapeCsv(formatCommits(row.commits())));
+    }
+    out.write("\n");
+  }
+
+  private void writeJsonRow(JsonGenerator json, LocalDate date, ExportRow row) throws IOException {
+    json.writeStartObject();
+    json.writeStringField("date", date.toString());
+    if (row.hourKey() != null) {
+      json.writeStringField("hour", formatHour(row.hourKey()));
+    }
+    json.writeStringField("project", row.project());
+    if (row.branch() != null) {
+      json.writeStringField("branch", row.branch());
+    }
+    if (row.extension() != null) {
+      json.writeStringField("extension", row.extension());
+    }
+    // Every row of an export has the same fields
+    if (detail != ExportDetail.EXTENSION_FACTS) {
+      json.writeNumberField("seconds", row.seconds());
+    }
+    if (detail != ExportDetail.BRANCH_FACTS) {
+      json.writeNumberField("additions", row.additions());
+      json.writeNumberField("removals", row.removals());
+    }
+    if (!detail.isFactTable()) {
+      json.writeArrayFieldStart("commits");
+      for (CommitRecord commit : sortedByTime(row.commits())) {
+        json.writeStartObject();
+        json.writeStringField("hash", commit.getHash());
+        json.writeStringField("message", commit.getMessage());
+        json.writeStringField("branch", commit.getBranch());
+        json.writeNumberField("timestamp", commit.getTimestamp());
+        json.writeEndObject();
+      }
+      json.writeEndArray();
+    }
+    json.writeEndObject();
+    json.writeRaw('\n');
+  }
+
+  /** Dates are Arrow dates, hours 0-23, and strings are dictionary-encoded. */
+  private List<ArrowStreamWriter.Column> arrowColumns() {
+    List<ArrowStreamWriter.Column> columns = new ArrayList<>();
+    columns.add(ArrowStreamWriter.dateColumn("date"));
+    columns.add(ArrowStreamWriter.intColumn("hour"));
+    columns.add(ArrowStreamWriter.stringColumn("project"));
+    if (detail == ExportDetail.BRANCH_FACTS) {
+      columns.add(ArrowStreamWriter.stringColumn("branch"));
+      columns.add(ArrowStreamWriter.longColumn("seconds"));
+    } else {
+      columns.add(ArrowStreamWriter.stringColumn("extension"));
+      columns.add(ArrowStreamWriter.longColumn("additions"));
+      columns.add(ArrowStreamWriter.longColumn("removals"));
+    }
+    return columns;
+  }
+
+  private void writeArrowRow(ArrowStreamWriter arrow, LocalDate date, ExportRow row)
+      throws IOException {
+    int hour = Integer.parseInt(row.hourKey().substring(11, 13));
+    if (detail == ExportDetail.BRANCH_FACTS) {
+      arrow.writeRow(date, hour, row.project(), row.branch(), row.seconds());
+    } else {
+      arrow.writeRow(date, hour, row.project(), row.extension(), row.additions(), row.removals());
+    }
+  }
+
+  /**
+   * Gets the date range from the data.
+   *
+   * @param data hourKey -> (projectName -> snapshot) map
+   * @return array with [minDate, maxDate], or null if no data
+   */
+  public LocalDate[] getDateRange(Map<String, Map<String, ProjectActivitySnapshot>> data) {
+    if (data == null || data.isEmpty()) {
+      return null;
+    }
+
+    LocalDate minDate = null;
+    LocalDate maxDate = null;
+
+    // Sorted maps only need their first and last keys, in whichever order they are sorted
+    Iterable<String> hourKeys =
+        data instanceof NavigableMap<String, ?> sorted
+            ? List.of(sorted.firstKey(), sorted.lastKey())
+            : data.keySet();
+    for (String hourKey : hourKeys) {
+      LocalDate date = extractDate(hourKey);
+      if (date != null) {
+        if (minDate == null || date.isBefore(minDate)) {
+          minDate = date;
+        }
+        if (maxDate == null || date.isAfter(maxDate)) {
+          maxDate = date;
+        }
+      }
+    }
+
+    if (minDate == null || maxDate == null) {
+      return null;
+    }
+
+    return new LocalDate[] {minDate, maxDate};
+  }
+
+  private String extractDateString(String hourKey) {
+    if (hourKey != null && hourKey.length() >= 10) {
+      return hourKey.substring(0, 10);
+    }
+    return null;
+  }
+
+  private LocalDate extractDate(String hourKey) {
+    String dateStr = extractDateString(hourKey);
+    if (dateStr != null) {
+      try {
+        return LocalDate.parse(dateStr, DATE_FORMATTER);
+      } catch (Exception e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /** Turns an hour key (yyyy-MM-dd-HH) into HH:00. */
+  private String formatHour(String hourKey) {
+    return hourKey.length() >= 13 ? hourKey.substring(11, 13) + ":00" : hourKey;
+  }
+
+  private String formatHours(long seconds) {
+    double hours = seconds / 3600.0;
+    return String.format("%.2f", hours);
+  }
+
+  private String formatCommits(List<CommitRecord> commits) {
+    if (commits == null || commits.isEmpty()) {
+      return "";
+    }
+
+    return sortedByTime(commits).stream()
+        .map(c -> c.getHash() + ": " + truncateMessage(c.getMessage()))
+        .collect(Collectors.joining("; "));
+  }
+
+  private List<CommitRecord> sortedByTime(List<CommitRecord> commits) {
+    return commits.stream().sorted(Comparator.comparingLong(CommitRecord::getTimestamp)).toList();
+  }
+
+  private String truncateMessage(String message) {
+    if (message == null) {
+      return "";
+    }
+    // Take first line only
+    int newlineIdx = message.indexOf('\n');
+    if (newlineIdx > 0) {
+      message = message.substring(0, newlineIdx);
+    }
+    // Truncate if too long
+    if (message.length() > 80) {
+      message = message.substring(0, 77) + "...";
+    }
+    return message;
+  }
+
+  private String escapeCsv(String value) {
+    if (value == null) {
+      return "";
+    }
+    // If contains comma, quote, or newline, wrap in quotes and escape quotes
+    if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
+}
@@ -0,0 +1,355 @@
+package com.codeclocker.plugin.intellij.toolwindow.export;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.codeclocker.plugin.intellij.toolwindow.export.FlatBufferEncoder.Bytes;
+import com.codeclocker.plugin.intellij.toolwindow.export.FlatBufferEncoder.Str;
+import com.codeclocker.plugin.intellij.toolwindow.export.FlatBufferEncoder.StructVector;
+import com.codeclocker.plugin.intellij.toolwindow.export.FlatBufferEncoder.Table;
+import com.codeclocker.plugin.intellij.toolwindow.export.FlatBufferEncoder.TableVector;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a table in the Arrow IPC streaming format, which {@code pyarrow.ipc.open_stream} loads
+ * without parsing, e.g. into pandas or DuckDB.
+ *
+ * <p>Rows are buffered and written as record batches of {@link #BATCH_ROWS} rows, so memory use
+ * does not grow with the table. String columns are dictionary-encoded: the first batch is preceded
+ * by the dictionaries seen so far, and every later batch by a delta holding only the strings it
+ * introduced.
+ */
+final class ArrowStreamWriter {
+
+  static final int BATCH_ROWS = 65_536;
+
+  private static final int CONTINUATION = 0xFFFFFFFF;
+  private static final int METADATA_V5 = 4;
+
+  // MessageHeader union
+  private static final int SCHEMA = 1;
+  private static final int DICTIONARY_BATCH = 2;
+  private static final int RECORD_BATCH = 3;
+
+  // Type union
+  private static final int TYPE_INT = 2;
+  private static final int TYPE_UTF8 = 5;
+  private static final int TYPE_DATE = 8;
+
+  private final OutputStream out;
+  private final List<Column> columns;
+  private final Bytes body = new Bytes();
+  private final List<Long> nodes = new ArrayList<>();
+  private final List<Long> buffers = new ArrayList<>();
+
+  private int batchRows;
+  private boolean dictionariesWritten;
+
+  /** Writes the schema of the given columns; rows follow with {@link #writeRow}. */
+  ArrowStreamWriter(OutputStream out, List<Column> columns) throws IOException {
+    this.out = out;
+    this.columns = columns;
+
+    List<Table> fields = new ArrayList<>();
+    long dictionaryId = 0;
+    for (Column column : columns) {
+      if (column instanceof StringColumn strings) {
+        strings.id = dictionaryId++;
+      }
+      fields.add(column.field());
+    }
+    writeMessage(SCHEMA, new Table().int16(0, 0).ref(1, new TableVector(fields)));
+  }
+
+  static Column dateColumn(String name) {
+    return new NumberColumn(name, TYPE_DATE, new Table().int16(0, 0), 4);
+  }
+
+  static Column intColumn(String name) {
+    return new NumberColumn(name, TYPE_INT, intType(32), 4);
+  }
+
+  static Column longColumn(String name) {
+    return new NumberColumn(name, TYPE_INT, intType(64), 8);
+  }
+
+  static Column stringColumn(String name) {
+    return new StringColumn(name);
+  }
+
+  /**
+   * Adds a row with one value per column: a {@link LocalDate} for date columns, a number for int
+   * and long columns, and a string or null for string columns.
+   */
+  void writeRow(Object... values) throws IOException {
+    for (int i = 0; i < columns.size(); i++) {
+      columns.get(i).append(values[i]);
+    }
+    if (++batchRows == BATCH_ROWS) {
+      writeBatch();
+    }
+  }
+
+  /** Writes the rows still buffered and the end-of-stream marker. Does not close the stream. */
+  void finish() throws IOException {
+    writeBatch();
+    writeInt(CONTINUATION);
+    writeInt(0);
+    out.flush();
+  }
+
+  private void writeBatch() throws IOException {
+    if (batchRows == 0) {
+      return;
+    }
+
+    for (Column column : columns) {
+      if (column instanceof StringColumn strings
+          && (!dictionariesWritten || strings.hasNewEntries())) {
+        int entries = strings.writeNewEntries(this);
+        writeMessage(
+            DICTIONARY_BATCH,
+            new Table()
+                .int64(0, strings.id)
+                .ref(1, recordBatch(entries))
+                .bool(2, dictionariesWritten));
+      }
+    }
+    dictionariesWritten = true;
+
+    for (Column column : columns) {
+      column.writeBatch(this, batchRows);
+    }
+    writeMessage(RECORD_BATCH, recordBatch(batchRows));
+    batchRows = 0;
+  }
+
+  /** Describes the nodes and buffers added to the body since the last message. */
+  private Table recordBatch(int length) {
+    return new Table()
+        .int64(0, length)
+        .ref(1, new StructVector(2, toArray(nodes)))
+        .ref(2, new StructVector(2, toArray(buffers)));
+  }
+
+  private void addNode(int length, int nullCount) {
+    nodes.add((long) length);
+    nodes.add((long) nullCount);
+  }
+
+  /** Records the bytes written to the body since {@code start} as a buffer, padded to 8 bytes. */
+  private void addBuffer(int start) {
+    buffers.add((long) start);
+    buffers.add((long) body.position() - start);
+    body.align(8);
+  }
+
+  private void writeMessage(int headerType, Table header) throws IOException {
+    Table message =
+        new Table()
+            .int16(0, METADATA_V5)
+            .int8(1, headerType)
+            .ref(2, header)
+            .int64(3, body.position());
+    byte[] metadata = FlatBufferEncoder.encode(message);
+    int padding = (8 - metadata.length % 8) % 8;
+    writeInt(CONTINUATION);
+    writeInt(metadata.length + padding);
+    out.write(metadata);
+    out.write(new byte[padding]);
+    out.write(body.array(), 0, body.position());
+
+    body.clear();
+    nodes.clear();
+    buffers.clear();
+  }
+
+  private void writeInt(int value) throws IOException {
+    for (int i = 0; i < 4; i++) {
+      out.write(value >>> (8 * i));
+    }
+  }
+
+  private static Table intType(int bitWidth) {
+    return new Table().int32(0, bitWidth).bool(1, true);
+  }
+
+  private static long[] toArray(List<Long> values) {
+    return values.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /** One column of the table; values of the current batch are buffered until it is written. */
+  abstract static class Column {
+    final String name;
+
+    Column(String name) {
+      this.name = name;
+    }
+
+    abstract Table field();
+
+    abstract void append(Object value);
+
+    /** Adds the node and buffers of the buffered values to the batch and forgets the values. */
+    abstract void writeBatch(ArrowStreamWriter writer, int length);
+  }
+
+  /** Non-nullable little-endian integers; dates are days since the epoch. */
+  private static final class NumberColumn extends Column {
+    private final int typeId;
+    private final Table type;
+    private final int width;
+    private long[] values = new long[1024];
+    private int size;
+
+    NumberColumn(String name, int typeId, Table type, int width) {
+      super(name);
+      this.typeId = typeId;
+      this.type = type;
+      this.width = width;
+    }
+
+    @Override
+    Table field() {
+      return new Table()
+          .ref(0, new Str(name))
+          .bool(1, false)
+          .int8(2, typeId)
+          .ref(3, type)
+          .ref(5, new TableVector(List.of()));
+    }
+
+    @Override
+    void append(Object value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] =
+          value instanceof LocalDate date ? date.toEpochDay() : ((Number) value).longValue();
+    }
+
+    @Override
+    void writeBatch(ArrowStreamWriter writer, int length) {
+      writer.addNode(length, 0);
+      writer.addBuffer(writer.body.position());
+      int start = writer.body.position();
+      for (int i = 0; i < size; i++) {
+        if (width == 8) {
+          writer.body.putLong(values[i]);
+        } else {
+          writer.body.putInt((int) values[i]);
+        }
+      }
+      writer.addBuffer(start);
+      size = 0;
+    }
+  }
+
+  /** Nullable strings, stored as int32 indices into a dictionary that grows across batches. */
+  private static final class StringColumn extends Column {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> entries = new ArrayList<>();
+    private int entriesWritten;
+    private long id;
+    private int[] indices = new int[1024];
+    private int size;
+    private int nullCount;
+
+    StringColumn(String name) {
+      super(name);
+    }
+
+    @Override
+    Table field() {
+      Table dictionary = new Table().int64(0, id).ref(1, intType(32)).bool(2, false);
+      return new Table()
+          .ref(0, new Str(name))
+          .bool(1, true)
+          .int8(2, TYPE_UTF8)
+          .ref(3, new Table())
+          .ref(4, dictionary)
+          .ref(5, new TableVector(List.of()));
+    }
+
+    @Override
+    void append(Object value) {
+      if (size == indices.length) {
+        indices = Arrays.copyOf(indices, size * 2);
+      }
+      if (value == null) {
+        indices[size++] = -1;
+        nullCount++;
+        return;
+      }
+      indices[size++] =
+          ids.computeIfAbsent(
+              (String) value,
+              s -> {
+                entries.add(s);
+                return entries.size() - 1;
+              });
+    }
+
+    boolean hasNewEntries() {
+      return entriesWritten < entries.size();
+    }
+
+    /** Adds the dictionary entries not written yet as a utf8 batch; returns how many. */
+    int writeNewEntries(ArrowStreamWriter writer) {
+      int count = entries.size() - entriesWritten;
+      writer.addNode(count, 0);
+      writer.addBuffer(writer.body.position());
+
+      List<byte[]> values = new ArrayList<>(count);
+      int start = writer.body.position();
+      int offset = 0;
+      writer.body.putInt(offset);
+      for (String entry : entries.subList(entriesWritten, entries.size())) {
+        byte[] bytes = entry.getBytes(UTF_8);
+        values.add(bytes);
+        offset += bytes.length;
+        writer.body.putInt(offset);
+      }
+      writer.addBuffer(start);
+
+      start = writer.body.position();
+      for (byte[] bytes : values) {
+        writer.body.put(bytes, bytes.length);
+      }
+      writer.addBuffer(start);
+
+      entriesWritten = entries.size();
+      return count;
+    }
+
+    @Override
+    void writeBatch(ArrowStreamWriter writer, int length) {
+      writer.addNode(length, nullCount);
+      int start = writer.body.position();
+      if (nullCount > 0) {
+        byte[] validity = new byte[(length + 7) / 8];
+        for (int i = 0; i < length; i++) {
+          if (indices[i] >= 0) {
+            validity[i / 8] |= (byte) (1 << (i % 8));
+          }
+        }
+        writer.body.put(validity, validity.length);
+      }
+      writer.addBuffer(start);
+
+      start = writer.body.position();
+      for (int i = 0; i < size; i++) {
+        writer.body.putInt(Math.max(indices[i], 0));
+      }
+      writer.addBuffer(start);
+      size = 0;
+      nullCount = 0;
+    }
+  }
+}
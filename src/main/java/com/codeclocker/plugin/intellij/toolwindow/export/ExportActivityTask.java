@@ -0,0 +1,84 @@
+package com.codeclocker.plugin.intellij.toolwindow.export;
+
+import com.codeclocker.plugin.intellij.local.ProjectActivitySnapshot;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.NavigableMap;
+import org.jetbrains.annotations.NotNull;
+
+/** Writes an activity report to a file in the background; a cancelled export leaves no file. */
+public class ExportActivityTask extends Task.Backgroundable {
+
+  private static final Logger LOG = Logger.getInstance(ExportActivityTask.class);
+
+  private final NavigableMap<String, Map<String, ProjectActivitySnapshot>> data;
+  private final LocalDate fromDate;
+  private final LocalDate toDate;
+  private final ActivityExporter exporter;
+  private final Path target;
+
+  private long rowCount;
+  private IOException failure;
+
+  /**
+   * @param data hourKey -> (projectName -> snapshot) map with hourKeys in local timezone, not
+   *     modified while the task runs
+   */
+  public ExportActivityTask(
+      Project project,
+      NavigableMap<String, Map<String, ProjectActivitySnapshot>> data,
+      LocalDate fromDate,
+      LocalDate toDate,
+      ActivityExporter exporter,
+      Path target) {
+    super(project, "Exporting activity report", true);
+    this.data = data;
+    this.fromDate = fromDate;
+    this.toDate = toDate;
+    this.exporter = exporter;
+    this.target = target;
+  }
+
+  @Override
+  public void run(@NotNull ProgressIndicator indicator) {
+    indicator.setIndeterminate(false);
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+      rowCount = exporter.export(data, fromDate, toDate, out, indicator);
+    } catch (IOException e) {
+      failure = e;
+    }
+  }
+
+  @Override
+  public void onSuccess() {
+    if (failure != null) {
+      LOG.error("Failed to export activity report", failure);
+      Messages.showErrorDialog(
+          getProject(), "Failed to write file: " + failure.getMessage(), "Export Error");
+      return;
+    }
+    Messages.showInfoMessage(
+        getProject(),
+        "Activity report with " + rowCount + " rows exported to:\n" + target.toAbsolutePath(),
+        "Export Successful");
+  }
+
+  @Override
+  public void onCancel() {
+    try {
+      Files.deleteIfExists(target);
+    } catch (IOException e) {
+      LOG.warn("Failed to delete partial activity report " + target, e);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package com.codeclocker.plugin.intellij.toolwindow.export;
+
+/** What one exported row stands for. */
+public enum ExportDetail {
+  DAILY("One row per project and day"),
+  HOURLY("One row per project and hour"),
+  /** Coded seconds per hour, project and branch. */
+  BRANCH_FACTS("Fact table: time per hour, project and branch"),
+  /**
+   * Added and removed lines per hour, project and file extension. Lines are not tracked per branch,
+   * so they are a table of their own.
+   */
+  EXTENSION_FACTS("Fact table: lines per hour, project and file extension");
+
+  private final String label;
+
+  ExportDetail(String label) {
+    this.label = label;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public boolean isFactTable() {
+    return this == BRANCH_FACTS || this == EXTENSION_FACTS;
+  }
+}
@@ -1,6 +1,8 @@
 package com.codeclocker.plugin.intellij.toolwindow.export;
 
+import com.intellij.openapi.ui.ComboBox;
 import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.SimpleListCellRenderer;
 import com.intellij.ui.components.JBLabel;
 import com.intellij.util.ui.FormBuilder;
 import java.time.LocalDate;
@@ -13,11 +15,13 @@ import javax.swing.JSpinner;
 import javax.swing.SpinnerDateModel;
 import org.jetbrains.annotations.Nullable;
 
-/** Dialog for selecting date range for activity export. */
+/** Dialog for selecting date range, format and detail level for activity export. */
 public class ExportDialog extends DialogWrapper {
 
   private JSpinner fromDateSpinner;
   private JSpinner toDateSpinner;
+  private ComboBox<ExportFormat> formatComboBox;
+  private ComboBox<ExportDetail> detailComboBox;
 
   private final LocalDate defaultFromDate;
   private final LocalDate defaultToDate;
@@ -38,11 +42,20 @@ public class ExportDialog extends DialogWrapper {
     // To date spinner
     toDateSpinner = createDateSpinner(defaultToDate);
 
+    formatComboBox = new ComboBox<>(ExportFormat.values());
+    formatComboBox.setRenderer(SimpleListCellRenderer.create("", ExportFormat::getLabel));
+    detailComboBox = new ComboBox<>(ExportDetail.values());
+    detailComboBox.setRenderer(SimpleListCellRenderer.create("", ExportDetail::getLabel));
+
     return FormBuilder.createFormBuilder()
         .addLabeledComponent(new JBLabel("From:"), fromDateSpinner)
         .addVerticalGap(10)
         .addLabeledComponent(new JBLabel("To:"), toDateSpinner)
         .addVerticalGap(10)
+        .addLabeledComponent(new JBLabel("Format:"), formatComboBox)
+        .addVerticalGap(10)
+        .addLabeledComponent(new JBLabel("Rows:"), detailComboBox)
+        .addVerticalGap(10)
         .addComponentFillVertically(new JPanel(), 0)
         .getPanel();
   }
@@ -66,6 +79,14 @@ public class ExportDialog extends DialogWrapper {
     return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
   }
 
+  public ExportFormat getFormat() {
+    return (ExportFormat) formatComboBox.getSelectedItem();
+  }
+
+  public ExportDetail getDetail() {
+    return (ExportDetail) detailComboBox.getSelectedItem();
+  }
+
   @Override
   protected void doOKAction() {
     // Validate that from <= to
@@ -73,6 +94,10 @@ public class ExportDialog extends DialogWrapper {
       setErrorText("'From' date must be before or equal to 'To' date");
       return;
     }
+    if (getFormat() == ExportFormat.ARROW && !getDetail().isFactTable()) {
+      setErrorText("Arrow export is available for the fact tables");
+      return;
+    }
 
     super.doOKAction();
   }
@@ -0,0 +1,24 @@
+package com.codeclocker.plugin.intellij.toolwindow.export;
+
+public enum ExportFormat {
+  CSV("CSV", "csv"),
+  JSON_LINES("JSON Lines", "jsonl"),
+  /** Columnar, for the fact tables only; see {@link ArrowStreamWriter}. */
+  ARROW("Arrow IPC stream", "arrows");
+
+  private final String label;
+  private final String extension;
+
+  ExportFormat(String label, String extension) {
+    this.label = label;
+    this.extension = extension;
+  }
+
+  public String getLabel() {
+    return label;
+  }
+
+  public String getExtension() {
+    return extension;
+  }
+}
@@ -0,0 +1,243 @@
+package com.codeclocker.plugin.intellij.toolwindow.export;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Just enough of a FlatBuffers encoder for the Arrow IPC metadata written by {@link
+ * ArrowStreamWriter}. Objects are laid out top-down: a table comes before the strings, vectors and
+ * tables it refers to, so every offset points forward, as the format requires. Each table is
+ * preceded by its own vtable; vtables are not shared.
+ */
+final class FlatBufferEncoder {
+
+  private FlatBufferEncoder() {}
+
+  /** Something a table field or vector element can refer to. */
+  interface Ref {}
+
+  /** A table; fields are set by their id in the schema and default values may be omitted. */
+  static final class Table implements Ref {
+    private final TreeMap<Integer, Object> fields = new TreeMap<>();
+
+    Table bool(int id, boolean value) {
+      fields.put(id, new Scalar(1, value ? 1 : 0));
+      return this;
+    }
+
+    Table int8(int id, int value) {
+      fields.put(id, new Scalar(1, value));
+      return this;
+    }
+
+    Table int16(int id, int value) {
+      fields.put(id, new Scalar(2, value));
+      return this;
+    }
+
+    Table int32(int id, int value) {
+      fields.put(id, new Scalar(4, value));
+      return this;
+    }
+
+    Table int64(int id, long value) {
+      fields.put(id, new Scalar(8, value));
+      return this;
+    }
+
+    Table ref(int id, Ref value) {
+      fields.put(id, value);
+      return this;
+    }
+  }
+
+  record Str(String value) implements Ref {}
+
+  record TableVector(List<Table> tables) implements Ref {}
+
+  /** Vector of structs made of longs only, such as Arrow's FieldNode and Buffer. */
+  record StructVector(int longsPerStruct, long[] values) implements Ref {}
+
+  private record Scalar(int size, long value) {}
+
+  /** Encodes the buffer with the given root table. */
+  static byte[] encode(Table root) {
+    Bytes out = new Bytes();
+    out.putInt(0);
+    out.patchInt(0, place(out, root));
+    return out.toByteArray();
+  }
+
+  /** Writes the object at the end of the buffer and returns its position. */
+  private static int place(Bytes out, Ref ref) {
+    if (ref instanceof Table table) {
+      return placeTable(out, table);
+    }
+
+    if (ref instanceof Str str) {
+      byte[] bytes = str.value().getBytes(UTF_8);
+      out.align(4);
+      int position = out.position();
+      out.putInt(bytes.length);
+      out.put(bytes, bytes.length);
+      out.putByte(0);
+      return position;
+    }
+
+    if (ref instanceof TableVector vector) {
+      out.align(4);
+      int position = out.position();
+      out.putInt(vector.tables().size());
+      int firstSlot = out.position();
+      out.zeros(4 * vector.tables().size());
+      for (int i = 0; i < vector.tables().size(); i++) {
+        int slot = firstSlot + 4 * i;
+        out.patchInt(slot, placeTable(out, vector.tables().get(i)) - slot);
+      }
+      return position;
+    }
+
+    StructVector vector = (StructVector) ref;
+    // The elements, not the length before them, are 8-byte aligned
+    while ((out.position() + 4) % 8 != 0) {
+      out.putByte(0);
+    }
+    int position = out.position();
+    out.putInt(vector.values().length / vector.longsPerStruct());
+    for (long value : vector.values()) {
+      out.putLong(value);
+    }
+    return position;
+  }
+
+  private static int placeTable(Bytes out, Table table) {
+    int fieldCount = table.fields.isEmpty() ? 0 : table.fields.lastKey() + 1;
+
+    // Widest fields first, so each is aligned with little padding; the table itself is 8-aligned
+    List<Map.Entry<Integer, Object>> bySize = new ArrayList<>(table.fields.entrySet());
+    bySize.sort(Comparator.comparingInt(entry -> -sizeOf(entry.getValue())));
+    int[] fieldOffsets = new int[fieldCount];
+    int tableSize = 4;
+    for (Map.Entry<Integer, Object> entry : bySize) {
+      int size = sizeOf(entry.getValue());
+      tableSize = (tableSize + size - 1) / size * size;
+      fieldOffsets[entry.getKey()] = tableSize;
+      tableSize += size;
+    }
+
+    out.align(2);
+    int vtable = out.position();
+    out.putShort(4 + 2 * fieldCount);
+    out.putShort(tableSize);
+    for (int fieldOffset : fieldOffsets) {
+      out.putShort(fieldOffset);
+    }
+
+    out.align(8);
+    int position = out.position();
+    out.putInt(position - vtable);
+    out.zeros(tableSize - 4);
+    List<Map.Entry<Integer, Object>> children = new ArrayList<>();
+    for (Map.Entry<Integer, Object> entry : table.fields.entrySet()) {
+      int at = position + fieldOffsets[entry.getKey()];
+      if (entry.getValue() instanceof Scalar scalar) {
+        out.patch(at, scalar.size(), scalar.value());
+      } else {
+        children.add(entry);
+      }
+    }
+    for (Map.Entry<Integer, Object> child : children) {
+      int at = position + fieldOffsets[child.getKey()];
+      out.patchInt(at, place(out, (Ref) child.getValue()) - at);
+    }
+    return position;
+  }
+
+  private static int sizeOf(Object field) {
+    return field instanceof Scalar scalar ? scalar.size() : 4;
+  }
+
+  /** Growable little-endian byte buffer. */
+  static final class Bytes {
+    private byte[] data = new byte[256];
+    private int position;
+
+    int position() {
+      return position;
+    }
+
+    void putByte(int value) {
+      ensureCapacity(1);
+      data[position++] = (byte) value;
+    }
+
+    void putShort(int value) {
+      patch(reserve(2), 2, value);
+    }
+
+    void putInt(int value) {
+      patch(reserve(4), 4, value);
+    }
+
+    void putLong(long value) {
+      patch(reserve(8), 8, value);
+    }
+
+    void put(byte[] bytes, int length) {
+      ensureCapacity(length);
+      System.arraycopy(bytes, 0, data, position, length);
+      position += length;
+    }
+
+    void zeros(int count) {
+      reserve(count);
+    }
+
+    /** Pads with zeros up to the next multiple of {@code alignment}. */
+    void align(int alignment) {
+      zeros((alignment - position % alignment) % alignment);
+    }
+
+    void patchInt(int at, int value) {
+      patch(at, 4, value);
+    }
+
+    void patch(int at, int size, long value) {
+      for (int i = 0; i < size; i++) {
+        data[at + i] = (byte) (value >>> (8 * i));
+      }
+    }
+
+    void clear() {
+      position = 0;
+    }
+
+    byte[] array() {
+      return data;
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(data, position);
+    }
+
+    private int reserve(int count) {
+      ensureCapacity(count);
+      int at = position;
+      Arrays.fill(data, at, at + count, (byte) 0);
+      position += count;
+      return at;
+    }
+
+    private void ensureCapacity(int count) {
+      if (position + count > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, position + count));
+      }
+    }
+  }
+}
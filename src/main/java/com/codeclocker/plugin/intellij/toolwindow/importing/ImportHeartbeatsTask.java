@@ -0,0 +1,81 @@
+package com.codeclocker.plugin.intellij.toolwindow.importing;
+
+import com.codeclocker.plugin.intellij.local.HeartbeatImporter;
+import com.codeclocker.plugin.intellij.local.LocalTrackerState;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.jetbrains.annotations.NotNull;
+
+/** Imports a heartbeat export of another time tracker in the background. */
+public class ImportHeartbeatsTask extends Task.Backgroundable {
+
+  private static final Logger LOG = Logger.getInstance(ImportHeartbeatsTask.class);
+
+  private final Path source;
+
+  private HeartbeatImporter.Result result;
+  private IOException failure;
+
+  public ImportHeartbeatsTask(Project project, Path source) {
+    super(project, "Importing activity history", true);
+    this.source = source;
+  }
+
+  @Override
+  public void run(@NotNull ProgressIndicator indicator) {
+    indicator.setIndeterminate(false);
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(source))) {
+      result = new HeartbeatImporter().importFrom(in, Files.size(source), indicator);
+    } catch (IOException e) {
+      failure = e;
+    }
+  }
+
+  @Override
+  public void onSuccess() {
+    if (failure != null) {
+      if (!(failure instanceof JsonProcessingException)) {
+        LOG.error("Failed to import activity history", failure);
+      }
+      Messages.showErrorDialog(
+          getProject(), "Failed to read file: " + failure.getMessage(), "Import Error");
+      return;
+    }
+    if (result.hours() == 0 && result.outsideRetention() == 0) {
+      Messages.showInfoMessage(
+          getProject(),
+          "No coding time found in " + result.heartbeats() + " heartbeats.",
+          "Import Activity History");
+      return;
+    }
+
+    String message =
+        String.format(
+            "Imported %.1f hours of coding time in %d hours from %d heartbeats.",
+            result.importedSeconds() / 3600.0, result.hours(), result.heartbeats());
+    if (result.skipped() > 0) {
+      message +=
+          "\n"
+              + result.skipped()
+              + " project hours already tracked by CodeClocker were left unchanged.";
+    }
+    if (result.outsideRetention() > 0) {
+      message +=
+          "\n"
+              + result.outsideRetention()
+              + " hours were left out because local history keeps only the most recent "
+              + LocalTrackerState.MAX_SESSIONS
+              + " days with coding time.";
+    }
+    Messages.showInfoMessage(getProject(), message, "Import Activity History");
+  }
+}
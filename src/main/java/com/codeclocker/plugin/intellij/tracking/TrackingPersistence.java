@@ -8,9 +8,12 @@ public class TrackingPersistence {
   private static final String PAUSE_ON_FOCUS_LOST = "com.codeclocker.tracking.pause-on-focus-lost";
   private static final String INACTIVITY_TIMEOUT_SECONDS =
       "com.codeclocker.tracking.inactivity-timeout-seconds";
+  private static final String SHARED_STORE_ENABLED =
+      "com.codeclocker.tracking.shared-store-enabled";
 
   private static final boolean DEFAULT_PAUSE_ON_FOCUS_LOST = true;
   private static final int DEFAULT_INACTIVITY_TIMEOUT_SECONDS = 120; // 2 minutes
+  private static final boolean DEFAULT_SHARED_STORE_ENABLED = false;
 
   /**
    * Check if tracking should pause when IDE loses focus.
@@ -51,4 +54,24 @@ public class TrackingPersistence {
     PropertiesComponent.getInstance()
         .setValue(INACTIVITY_TIMEOUT_SECONDS, seconds, DEFAULT_INACTIVITY_TIMEOUT_SECONDS);
   }
+
+  /**
+   * Check if activity should be shared with other IDEs running on this machine.
+   *
+   * @return true if the machine-wide shared store is enabled (default: false)
+   */
+  public static boolean isSharedStoreEnabled() {
+    return PropertiesComponent.getInstance()
+        .getBoolean(SHARED_STORE_ENABLED, DEFAULT_SHARED_STORE_ENABLED);
+  }
+
+  /**
+   * Enable or disable the machine-wide shared store.
+   *
+   * @param enabled true to share activity with other IDEs on this machine
+   */
+  public static void setSharedStoreEnabled(boolean enabled) {
+    PropertiesComponent.getInstance()
+        .setValue(SHARED_STORE_ENABLED, enabled, DEFAULT_SHARED_STORE_ENABLED);
+  }
 }
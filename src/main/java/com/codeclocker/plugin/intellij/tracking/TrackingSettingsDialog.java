@@ -1,5 +1,7 @@
 package com.codeclocker.plugin.intellij.tracking;
 
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.ValidationInfo;
 import com.intellij.ui.components.JBCheckBox;
@@ -16,6 +18,7 @@ import org.jetbrains.annotations.Nullable;
 public class TrackingSettingsDialog extends DialogWrapper {
 
   private JBCheckBox pauseOnFocusLostCheckbox;
+  private JBCheckBox sharedStoreCheckbox;
   private JSpinner minutesSpinner;
   private JSpinner secondsSpinner;
 
@@ -33,6 +36,10 @@ public class TrackingSettingsDialog extends DialogWrapper {
     int seconds = totalSeconds % 60;
 
     pauseOnFocusLostCheckbox = new JBCheckBox("Pause when IDE loses focus", pauseOnFocusLost);
+    sharedStoreCheckbox =
+        new JBCheckBox(
+            "Combine totals with other IDEs on this machine",
+            TrackingPersistence.isSharedStoreEnabled());
 
     minutesSpinner = new JSpinner(new SpinnerNumberModel(minutes, 0, 60, 1));
     secondsSpinner = new JSpinner(new SpinnerNumberModel(seconds, 0, 59, 5));
@@ -47,6 +54,8 @@ public class TrackingSettingsDialog extends DialogWrapper {
         .addComponent(pauseOnFocusLostCheckbox)
         .addVerticalGap(10)
         .addLabeledComponent("Pause after inactivity:", timePanel)
+        .addVerticalGap(10)
+        .addComponent(sharedStoreCheckbox)
         .addComponentFillVertically(new JPanel(), 0)
         .getPanel();
   }
@@ -74,6 +83,8 @@ public class TrackingSettingsDialog extends DialogWrapper {
 
     TrackingPersistence.setPauseOnFocusLostEnabled(pauseOnFocusLostCheckbox.isSelected());
     TrackingPersistence.setInactivityTimeoutSeconds(totalSeconds);
+    TrackingPersistence.setSharedStoreEnabled(sharedStoreCheckbox.isSelected());
+    ApplicationManager.getApplication().getService(SettingsService.class).reload();
     super.doOKAction();
   }
 
@@ -0,0 +1,136 @@
+package com.codeclocker.plugin.intellij.widget;
+
+import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_ADDITIONS;
+import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_REMOVALS;
+
+import com.codeclocker.plugin.intellij.config.SettingsService;
+import com.codeclocker.plugin.intellij.goal.GoalProgress;
+import com.codeclocker.plugin.intellij.goal.GoalService;
+import com.codeclocker.plugin.intellij.local.LocalActivityDataProvider;
+import com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker;
+import com.codeclocker.plugin.intellij.services.vcs.ProjectChangesCounters;
+import com.intellij.openapi.application.ApplicationManager;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data lines of the status bar popup for one project, formatted ahead of time. Built off the EDT by
+ * the widget ticker whenever activity or settings change, so opening the popup only renders it.
+ *
+ * @param goalLines daily and weekly progress, empty if goals are unavailable
+ * @param projectGoalLines daily and weekly progress of the project, empty without custom goals
+ */
+public record PopupModel(
+    List<String> goalLines,
+    List<String> projectGoalLines,
+    String totalTime,
+    String projectTime,
+    String totalVcsChanges,
+    String projectVcsChanges,
+    String todayVsYesterday,
+    String weekVsLastWeek) {
+
+  public static PopupModel compute(String projectName, String totalTime, String projectTime) {
+    GoalService goalService = ApplicationManager.getApplication().getService(GoalService.class);
+    List<String> goalLines = new ArrayList<>();
+    List<String> projectGoalLines = new ArrayList<>();
+    if (goalService != null) {
+      goalLines.add(formatGoalProgress("Daily:     ", goalService.getDailyProgress()));
+      goalLines.add(formatGoalProgress("Weekly: ", goalService.getWeeklyProgress()));
+
+      boolean hasCustomProjectGoals =
+          ApplicationManager.getApplication()
+              .getService(SettingsService.class)
+              .getProjectGoals(projectName)
+              .custom();
+      if (hasCustomProjectGoals) {
+        // "P-" prefix distinguishes project goals in the popup's separator logic
+        projectGoalLines.add(
+            formatGoalProgress("P-Daily:     ", goalService.getProjectDailyProgress(projectName)));
+        projectGoalLines.add(
+            formatGoalProgress("P-Weekly: ", goalService.getProjectWeeklyProgress(projectName)));
+      }
+    }
+
+    ChangesActivityTracker tracker =
+        ApplicationManager.getApplication().getService(ChangesActivityTracker.class);
+    ProjectChangesCounters projectChanges = tracker.getProjectChanges(projectName);
+
+    LocalActivityDataProvider dataProvider =
+        ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
+
+    return new PopupModel(
+        List.copyOf(goalLines),
+        List.copyOf(projectGoalLines),
+        totalTime,
+        projectTime,
+        String.format("+%d / -%d", GLOBAL_ADDITIONS.get(), GLOBAL_REMOVALS.get()),
+        String.format(
+            "+%d / -%d", projectChanges.additions().get(), projectChanges.removals().get()),
+        formatTodayVsYesterday(dataProvider),
+        formatThisWeekVsLastWeek(dataProvider));
+  }
+
+  private static String formatTodayVsYesterday(LocalActivityDataProvider dataProvider) {
+    if (dataProvider == null) {
+      return "Today vs. Yesterday: --";
+    }
+    long todaySeconds = dataProvider.getTodayTotalSeconds();
+    long yesterdaySeconds = dataProvider.getYesterdayTotalSeconds();
+    long diff = todaySeconds - yesterdaySeconds;
+    int percentage = calculatePercentageChange(todaySeconds, yesterdaySeconds);
+
+    return String.format(
+        "Today vs. Yesterday: %s / %s", formatTimeDifference(diff), formatPercentage(percentage));
+  }
+
+  private static String formatThisWeekVsLastWeek(LocalActivityDataProvider dataProvider) {
+    if (dataProvider == null) {
+      return "This week vs. Last week: --";
+    }
+    long thisWeekSeconds = dataProvider.getWeekTotalSeconds();
+    long lastWeekSeconds = dataProvider.getLastWeekTotalSeconds();
+    long diff = thisWeekSeconds - lastWeekSeconds;
+    int percentage = calculatePercentageChange(thisWeekSeconds, lastWeekSeconds);
+
+    return String.format(
+        "This week vs. Last week: %s / %s",
+        formatTimeDifference(diff), formatPercentage(percentage));
+  }
+
+  private static int calculatePercentageChange(long current, long previous) {
+    if (previous == 0) {
+      return current > 0 ? 100 : 0;
+    }
+    return (int) Math.round(((double) (current - previous) / previous) * 100);
+  }
+
+  private static String formatTimeDifference(long diffSeconds) {
+    String sign = diffSeconds >= 0 ? "+" : "-";
+    long absDiff = Math.abs(diffSeconds);
+    long hours = absDiff / 3600;
+    long minutes = (absDiff % 3600) / 60;
+
+    if (hours > 0) {
+      return String.format("%s%dh %dm", sign, hours, minutes);
+    }
+    return String.format("%s%dm", sign, minutes);
+  }
+
+  private static String formatPercentage(int percentage) {
+    if (percentage >= 0) {
+      return String.format("↗%d%%", percentage);
+    }
+    return String.format("↘%d%%", Math.abs(percentage));
+  }
+
+  private static String formatGoalProgress(String paddedLabel, GoalProgress progress) {
+    // Labels are padded so "Daily" matches the visual width of "Weekly" in a proportional font
+    return String.format(
+        "%s%s %s (%s)",
+        paddedLabel,
+        progress.renderProgressBar(15),
+        progress.formatPercentage(),
+        progress.formatProgress());
+  }
+}
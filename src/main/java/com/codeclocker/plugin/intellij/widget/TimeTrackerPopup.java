@@ -1,25 +1,17 @@
 package com.codeclocker.plugin.intellij.widget;
 
 import static com.codeclocker.plugin.intellij.HubHost.HUB_UI_HOST;
-import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_ADDITIONS;
-import static com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker.GLOBAL_REMOVALS;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import com.codeclocker.plugin.intellij.apikey.ApiKeyLifecycle;
 import com.codeclocker.plugin.intellij.apikey.ApiKeyPersistence;
 import com.codeclocker.plugin.intellij.apikey.EnterApiKeyAction;
-import com.codeclocker.plugin.intellij.goal.GoalProgress;
-import com.codeclocker.plugin.intellij.goal.GoalService;
 import com.codeclocker.plugin.intellij.goal.GoalSettingsDialog;
-import com.codeclocker.plugin.intellij.goal.ProjectGoalPersistence;
 import com.codeclocker.plugin.intellij.goal.ProjectGoalSettingsDialog;
-import com.codeclocker.plugin.intellij.local.LocalActivityDataProvider;
 import com.codeclocker.plugin.intellij.pomodoro.PomodoroPersistence;
 import com.codeclocker.plugin.intellij.pomodoro.PomodoroSettingsDialog;
 import com.codeclocker.plugin.intellij.pomodoro.PomodoroState;
 import com.codeclocker.plugin.intellij.pomodoro.PomodoroTimerService;
-import com.codeclocker.plugin.intellij.services.vcs.ChangesActivityTracker;
-import com.codeclocker.plugin.intellij.services.vcs.ProjectChangesCounters;
 import com.codeclocker.plugin.intellij.standup.StandupDigestDialog;
 import com.codeclocker.plugin.intellij.tracking.TrackingSettingsDialog;
 import com.intellij.ide.BrowserUtil;
@@ -54,46 +46,27 @@ public class TimeTrackerPopup {
   private static final String POMODORO_SETTINGS = "Pomodoro Settings...";
   private static final String STANDUP_DIGEST = "What I Was Doing...";
 
-  public static ListPopup create(Project project, String totalTime, String projectTime) {
-    ChangesActivityTracker tracker =
-        ApplicationManager.getApplication().getService(ChangesActivityTracker.class);
-    ProjectChangesCounters projectChanges = tracker.getProjectChanges(project.getName());
-
-    LocalActivityDataProvider dataProvider =
-        ApplicationManager.getApplication().getService(LocalActivityDataProvider.class);
-    GoalService goalService = ApplicationManager.getApplication().getService(GoalService.class);
-
+  /** Renders a model built ahead of time by {@link PopupModel#compute}. */
+  public static ListPopup create(Project project, PopupModel model) {
     List<String> items = new ArrayList<>();
 
     // Goal progress at the top (always shown)
-    if (goalService != null) {
-      items.add(formatGoalProgress("Daily", goalService.getDailyProgress()));
-      items.add(formatGoalProgress("Weekly", goalService.getWeeklyProgress()));
-    }
+    items.addAll(model.goalLines());
 
     // Project-specific goals (only shown when custom goals are enabled)
-    String projectName = project.getName();
-    boolean hasCustomProjectGoals = ProjectGoalPersistence.hasCustomGoals(projectName);
-    if (hasCustomProjectGoals && goalService != null) {
-      items.add(
-          formatProjectGoalProgress(
-              "Daily", projectName, goalService.getProjectDailyProgress(projectName)));
-      items.add(
-          formatProjectGoalProgress(
-              "Weekly", projectName, goalService.getProjectWeeklyProgress(projectName)));
-    }
+    items.addAll(model.projectGoalLines());
 
     // Coding time
-    items.add("Total: " + totalTime);
-    items.add(project.getName() + ": " + projectTime);
+    items.add("Total: " + model.totalTime());
+    items.add(project.getName() + ": " + model.projectTime());
 
     // VCS changes
-    items.add("Total: " + getFormattedVcsChanges());
-    items.add(project.getName() + ": " + formatProjectVcsChanges(projectChanges));
+    items.add("Total: " + model.totalVcsChanges());
+    items.add(project.getName() + ": " + model.projectVcsChanges());
 
-    // Trends (calculated on-demand from local data)
-    items.add(formatTodayVsYesterday(dataProvider));
-    items.add(formatThisWeekVsLastWeek(dataProvider));
+    // Trends (precomputed from local data)
+    items.add(model.todayVsYesterday());
+    items.add(model.weekVsLastWeek());
 
     // Pomodoro section
     PomodoroTimerService pomodoroSvc =
@@ -271,88 +244,4 @@ public class TimeTrackerPopup {
           });
     }
   }
-
-  public static String getFormattedVcsChanges() {
-    return String.format("+%d / -%d", GLOBAL_ADDITIONS.get(), GLOBAL_REMOVALS.get());
-  }
-
-  private static String formatProjectVcsChanges(ProjectChangesCounters changes) {
-    return String.format("+%d / -%d", changes.additions().get(), changes.removals().get());
-  }
-
-  private static String formatTodayVsYesterday(LocalActivityDataProvider dataProvider) {
-    if (dataProvider == null) {
-      return "Today vs. Yesterday: --";
-    }
-    long todaySeconds = dataProvider.getTodayTotalSeconds();
-    long yesterdaySeconds = dataProvider.getYesterdayTotalSeconds();
-    long diff = todaySeconds - yesterdaySeconds;
-    int percentage = calculatePercentageChange(todaySeconds, yesterdaySeconds);
-
-    return String.format(
-        "Today vs. Yesterday: %s / %s", formatTimeDifference(diff), formatPercentage(percentage));
-  }
-
-  private static String formatThisWeekVsLastWeek(LocalActivityDataProvider dataProvider) {
-    if (dataProvider == null) {
-      return "This week vs. Last week: --";
-    }
-    long thisWeekSeconds = dataProvider.getWeekTotalSeconds();
-    long lastWeekSeconds = dataProvider.getLastWeekTotalSeconds();
-    long diff = thisWeekSeconds - lastWeekSeconds;
-    int percentage = calculatePercentageChange(thisWeekSeconds, lastWeekSeconds);
-
-    return String.format(
-        "This week vs. Last week: %s / %s",
-        formatTimeDifference(diff), formatPercentage(percentage));
-  }
-
-  private static int calculatePercentageChange(long current, long previous) {
-    if (previous == 0) {
-      return current > 0 ? 100 : 0;
-    }
-    return (int) Math.round(((double) (current - previous) / previous) * 100);
-  }
-
-  private static String formatTimeDifference(long diffSeconds) {
-    String sign = diffSeconds >= 0 ? "+" : "-";
-    long absDiff = Math.abs(diffSeconds);
-    long hours = absDiff / 3600;
-    long minutes = (absDiff % 3600) / 60;
-
-    if (hours > 0) {
-      return String.format("%s%dh %dm", sign, hours, minutes);
-    }
-    return String.format("%s%dm", sign, minutes);
-  }
-
-  private static String formatPercentage(int percentage) {
-    if (percentage >= 0) {
-      return String.format("↗%d%%", percentage);
-    }
-    return String.format("↘%d%%", Math.abs(percentage));
-  }
-
-  private static String formatGoalProgress(String label, GoalProgress progress) {
-    // Add extra padding for "Daily" to match visual width of "Weekly" in proportional font
-    String paddedLabel = label.equals("Daily") ? "Daily:     " : "Weekly: ";
-    return String.format(
-        "%s%s %s (%s)",
-        paddedLabel,
-        progress.renderProgressBar(15),
-        progress.formatPercentage(),
-        progress.formatProgress());
-  }
-
-  private static String formatProjectGoalProgress(
-      String label, String projectName, GoalProgress progress) {
-    // Use "P-" prefix to distinguish project goals in separator logic
-    String paddedLabel = label.equals("Daily") ? "P-Daily:     " : "P-Weekly: ";
-    return String.format(
-        "%s%s %s (%s)",
-        paddedLabel,
-        progress.renderProgressBar(15),
-        progress.formatPercentage(),
-        progress.formatProgress());
-  }
 }
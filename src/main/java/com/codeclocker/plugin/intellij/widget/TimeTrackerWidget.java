@@ -1,6 +1,6 @@
 package com.codeclocker.plugin.intellij.widget;
 
-import com.codeclocker.plugin.intellij.goal.GoalPersistence;
+import com.codeclocker.plugin.intellij.config.SettingsService;
 import com.codeclocker.plugin.intellij.goal.GoalService;
 import com.codeclocker.plugin.intellij.pomodoro.PomodoroState;
 import com.codeclocker.plugin.intellij.pomodoro.PomodoroTimerService;
@@ -75,7 +75,13 @@ public class TimeTrackerWidget
     String projectTime = service.getFormattedProjectTime();
 
     String base;
-    if (GoalPersistence.isGoalsEnabled()) {
+    boolean goalsEnabled =
+        ApplicationManager.getApplication()
+            .getService(SettingsService.class)
+            .getSettings()
+            .goals()
+            .enabled();
+    if (goalsEnabled) {
       GoalService goalService = ApplicationManager.getApplication().getService(GoalService.class);
       String goalPercentage =
           goalService != null ? goalService.getDailyProgress().formatPercentage() : "0%";
@@ -143,10 +149,7 @@ public class TimeTrackerWidget
   @Nullable
   @Override
   public ListPopup getPopup() {
-    String totalTime = service.getFormattedTotalTime();
-    String projectTime = service.getFormattedProjectTime();
-
-    return TimeTrackerPopup.create(project, totalTime, projectTime);
+    return TimeTrackerPopup.create(project, service.getPopupModel());
   }
 
   public void updateText() {